@@ -0,0 +1,78 @@
+package uk.co.mpcontracting.rpmjukebox.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Filling, cloning and shuffling a playlist at the sizes a user might build up
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+public class PlaylistBenchmark {
+
+  @Param({"100", "1000", "10000"})
+  private int playlistSize;
+
+  private List<Track> tracks;
+  private Playlist playlist;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    tracks = new ArrayList<>(playlistSize);
+
+    for (int i = 0; i < playlistSize; i++) {
+      tracks.add(Track.builder()
+          .artistId("artist" + (i / 60))
+          .artistName("Artist " + (i / 60))
+          .albumId("album" + (i / 12))
+          .albumName("Album " + (i / 12))
+          .albumImage("http://www.example.com/image")
+          .year(2000)
+          .trackId("track" + i)
+          .trackName("Track " + i)
+          .index(i % 12)
+          .location("http://www.example.com/track")
+          .isPreferred(false)
+          .genres(List.of("Rock"))
+          .build());
+    }
+
+    playlist = new Playlist(1, "Benchmark", playlistSize);
+    playlist.setTracks(tracks);
+  }
+
+  @Benchmark
+  public Playlist addTrack() {
+    Playlist newPlaylist = new Playlist(2, "Benchmark", playlistSize);
+    tracks.forEach(newPlaylist::addTrack);
+
+    return newPlaylist;
+  }
+
+  @Benchmark
+  public Playlist createClone() {
+    return playlist.createClone();
+  }
+
+  @Benchmark
+  public Playlist shuffle() {
+    playlist.shuffle();
+
+    return playlist;
+  }
+}
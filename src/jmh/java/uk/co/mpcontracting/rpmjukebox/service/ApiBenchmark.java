@@ -0,0 +1,114 @@
+package uk.co.mpcontracting.rpmjukebox.service;
+
+import static uk.co.mpcontracting.rpmjukebox.service.BenchmarkEnvironment.ALBUMS_PER_ARTIST;
+import static uk.co.mpcontracting.rpmjukebox.service.BenchmarkEnvironment.TRACKS_PER_ALBUM;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.co.mpcontracting.rpmjukebox.jetty.JettyServer;
+import uk.co.mpcontracting.rpmjukebox.test.util.CatalogueGenerator;
+
+// Many clients calling the API at once over a real index, with each benchmark thread standing in for a
+// client. The server handles every request on its own virtual thread. Clients run a mix of searches,
+// now playing, playlist and metrics requests, and any request that doesn't succeed fails the run.
+// Change the number of clients with -Djmh.args="ApiBenchmark -t 200"
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(64)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"--enable-native-access=ALL-UNNAMED", "-Dlogback.configurationFile=logback-benchmark.xml"})
+public class ApiBenchmark {
+
+  @Param({"2000"})
+  private int artists;
+
+  private BenchmarkEnvironment benchmarkEnvironment;
+  private SearchService searchService;
+  private JettyServer jettyServer;
+  private HttpClient httpClient;
+  private List<String> keywords;
+
+  @State(Scope.Thread)
+  public static class Client {
+
+    private int nextRequest;
+
+    // Start each client somewhere different, so they aren't all asking for the same thing
+    @Setup(Level.Trial)
+    public void setup() {
+      nextRequest = ThreadLocalRandom.current().nextInt(1000);
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    benchmarkEnvironment = new BenchmarkEnvironment(0);
+    benchmarkEnvironment.generateDataFile(artists);
+
+    searchService = benchmarkEnvironment.createSearchService();
+    searchService.openIndex();
+    searchService.indexData();
+
+    jettyServer = benchmarkEnvironment.createJettyServer(searchService, benchmarkEnvironment.createPlaylistService(searchService));
+
+    if (!jettyServer.start()) {
+      throw new IllegalStateException("Unable to start the API");
+    }
+
+    httpClient = HttpClient.newHttpClient();
+    keywords = new CatalogueGenerator(artists, ALBUMS_PER_ARTIST, TRACKS_PER_ALBUM, 1).generateKeywords(500);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    httpClient.close();
+    jettyServer.stop();
+    searchService.shutdown();
+    benchmarkEnvironment.delete();
+  }
+
+  @Benchmark
+  public int request(Client client) throws Exception {
+    HttpResponse<Void> response = httpClient.send(HttpRequest.newBuilder(getUri(client.nextRequest++)).build(),
+        HttpResponse.BodyHandlers.discarding());
+
+    if (response.statusCode() != 200) {
+      throw new IllegalStateException("API request failed : Status - " + response.statusCode() + ", URI - " + response.uri());
+    }
+
+    return response.statusCode();
+  }
+
+  // Mostly searches, as they're the most expensive, with the other reads mixed in
+  private URI getUri(int request) {
+    String path = switch (request % 5) {
+      case 0, 1 -> "/api/search?keywords=" + keywords.get(request % keywords.size()).replace(' ', '+');
+      case 2 -> "/api/now-playing";
+      case 3 -> "/api/playlists";
+      default -> "/api/metrics";
+    };
+
+    return URI.create("http://127.0.0.1:" + jettyServer.getPort() + path);
+  }
+}
@@ -0,0 +1,164 @@
+package uk.co.mpcontracting.rpmjukebox.service;
+
+import static java.util.Objects.nonNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.co.mpcontracting.rpmjukebox.test.util.TestHelper.getField;
+import static uk.co.mpcontracting.rpmjukebox.test.util.TestHelper.setField;
+
+import com.google.gson.Gson;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.commons.io.FileUtils;
+import org.springframework.context.ApplicationContext;
+import uk.co.mpcontracting.rpmjukebox.RpmJukebox;
+import uk.co.mpcontracting.rpmjukebox.config.ApplicationProperties;
+import uk.co.mpcontracting.rpmjukebox.event.EventProcessor;
+import uk.co.mpcontracting.rpmjukebox.jetty.ApiServlet;
+import uk.co.mpcontracting.rpmjukebox.jetty.JettyServer;
+import uk.co.mpcontracting.rpmjukebox.jetty.TrackProxyServlet;
+import uk.co.mpcontracting.rpmjukebox.search.IndexDirectoryMode;
+import uk.co.mpcontracting.rpmjukebox.search.SearchResultCache;
+import uk.co.mpcontracting.rpmjukebox.settings.SystemSettings;
+import uk.co.mpcontracting.rpmjukebox.test.util.CatalogueGenerator;
+import uk.co.mpcontracting.rpmjukebox.util.ContextHelper;
+import uk.co.mpcontracting.rpmjukebox.util.GenreNormaliser;
+import uk.co.mpcontracting.rpmjukebox.util.HashGenerator;
+import uk.co.mpcontracting.rpmjukebox.util.ThreadRunner;
+
+// Wires the real search, data and cache services together without Spring, over a temporary config
+// directory. Anything that would reach the user interface or the network is mocked out
+class BenchmarkEnvironment {
+
+  static final int ALBUMS_PER_ARTIST = 5;
+  static final int TRACKS_PER_ALBUM = 12;
+
+  private final File configDirectory;
+  private final ApplicationProperties applicationProperties;
+  private final SettingsService settingsService;
+  private final DataFeedService dataFeedService;
+  private final HashGenerator hashGenerator;
+  private final MetricsService metricsService;
+
+  BenchmarkEnvironment(int cacheSizeMb) throws IOException {
+    configDirectory = Files.createTempDirectory("rpmjukebox-benchmark").toFile();
+
+    applicationProperties = new ApplicationProperties();
+    applicationProperties.setS3BucketUrl("http://www.example.com/");
+    applicationProperties.setTrackIndexDirectory("trackIndex");
+    applicationProperties.setCacheDirectory("cache");
+    applicationProperties.setIndexDirectoryMode(IndexDirectoryMode.MMAP_PRELOAD);
+    applicationProperties.setMaxSearchHits(250);
+    applicationProperties.setMaxPlaylistSize(1000);
+    applicationProperties.setShuffledPlaylistSize(50);
+    applicationProperties.setSearchCacheSize(0);
+    applicationProperties.setIncrementalIndexing(true);
+    applicationProperties.setBlueGreenIndexing(true);
+    applicationProperties.setBulkIndexRamBufferMb(256);
+    applicationProperties.setBulkIndexMaxSegments(1);
+    applicationProperties.setInteractiveIndexRamBufferMb(16);
+    applicationProperties.setInteractiveIndexMergeThreads(1);
+
+    settingsService = mock(SettingsService.class);
+    when(settingsService.getFileFromConfigDirectory(anyString()))
+        .thenAnswer(invocation -> new File(configDirectory, invocation.getArgument(0, String.class)));
+    when(settingsService.getSystemSettings()).thenReturn(SystemSettings.builder().cacheSizeMb(cacheSizeMb).build());
+    when(settingsService.getGson()).thenReturn(new Gson());
+
+    dataFeedService = mock(DataFeedService.class);
+    hashGenerator = new HashGenerator();
+    metricsService = mock(MetricsService.class);
+
+    // Events are fired from the services, so they need somewhere to go
+    ApplicationContext applicationContext = mock(ApplicationContext.class);
+    when(applicationContext.getBean(EventProcessor.class)).thenReturn(mock(EventProcessor.class));
+    setField(ContextHelper.class, "applicationContext", applicationContext);
+  }
+
+  URL generateDataFile(int artists) throws IOException {
+    File dataFile = new File(configDirectory, "data-" + artists + ".gz");
+
+    if (!dataFile.exists()) {
+      new CatalogueGenerator(artists, ALBUMS_PER_ARTIST, TRACKS_PER_ALBUM, 1).generate(dataFile);
+    }
+
+    when(dataFeedService.getDataFile()).thenReturn(dataFile.toURI().toURL());
+
+    return dataFile.toURI().toURL();
+  }
+
+  SearchService createSearchService() {
+    SearchService searchService = new SearchService(mock(RpmJukebox.class), mock(ThreadRunner.class), applicationProperties,
+        mock(StringResourceService.class), settingsService, hashGenerator, new SearchResultCache(applicationProperties), metricsService);
+    DataService dataService = new DataService(applicationProperties, hashGenerator, new GenreNormaliser(),
+        new InternetService(settingsService), searchService, metricsService);
+
+    setField(searchService, "dataService", dataService);
+    setField(searchService, "dataFeedService", dataFeedService);
+
+    return searchService;
+  }
+
+  PlaylistService createPlaylistService(SearchService searchService) {
+    PlaylistService playlistService = new PlaylistService(applicationProperties, mock(StringResourceService.class),
+        mock(MediaService.class), searchService);
+    playlistService.initialise();
+
+    return playlistService;
+  }
+
+  // The API on a free port, with anything it hands to the UI thread run on the request thread instead
+  JettyServer createJettyServer(SearchService searchService, PlaylistService playlistService) {
+    ThreadRunner threadRunner = mock(ThreadRunner.class);
+    doAnswer(invocation -> {
+      invocation.getArgument(0, Runnable.class).run();
+      return null;
+    }).when(threadRunner).runOnGui(any());
+
+    ApiServlet apiServlet = new ApiServlet(threadRunner, mock(EventProcessor.class), mock(MediaService.class), metricsService,
+        playlistService, searchService, settingsService);
+
+    return new JettyServer(applicationProperties, apiServlet, mock(TrackProxyServlet.class));
+  }
+
+  CacheService createCacheService() {
+    CacheService cacheService = new CacheService(applicationProperties, mock(ThreadRunner.class), hashGenerator,
+        new InternetService(settingsService), settingsService, metricsService);
+    cacheService.initialise();
+
+    return cacheService;
+  }
+
+  void setIndexDirectoryMode(IndexDirectoryMode indexDirectoryMode) {
+    applicationProperties.setIndexDirectoryMode(indexDirectoryMode);
+  }
+
+  void setBlueGreenIndexing(boolean blueGreenIndexing) {
+    applicationProperties.setBlueGreenIndexing(blueGreenIndexing);
+  }
+
+  // A full reindex is swapped in from a new directory each time, so the live one isn't always trackIndex
+  File getTrackIndexDirectory(SearchService searchService) {
+    return getField(searchService, "trackDirectoryPath", Path.class).toFile();
+  }
+
+  void deleteTrackIndexDirectories() throws IOException {
+    File[] directories = configDirectory.listFiles((directory, name) -> name.startsWith(applicationProperties.getTrackIndexDirectory()));
+
+    if (nonNull(directories)) {
+      for (File directory : directories) {
+        FileUtils.deleteDirectory(directory);
+      }
+    }
+  }
+
+  void delete() throws IOException {
+    FileUtils.deleteDirectory(configDirectory);
+  }
+}
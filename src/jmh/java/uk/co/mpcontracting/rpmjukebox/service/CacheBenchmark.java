@@ -0,0 +1,71 @@
+package uk.co.mpcontracting.rpmjukebox.service;
+
+import static uk.co.mpcontracting.rpmjukebox.util.CacheType.IMAGE;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Reads from and writes to a cache that is already full, so every write has to trim the oldest file
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+public class CacheBenchmark {
+
+  private static final int CACHE_SIZE_MB = 10;
+
+  @Param({"100", "1000", "5000"})
+  private int cachedFiles;
+
+  private BenchmarkEnvironment benchmarkEnvironment;
+  private CacheService cacheService;
+  private byte[] fileContent;
+  private int nextRead;
+  private int nextWrite;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    benchmarkEnvironment = new BenchmarkEnvironment(CACHE_SIZE_MB);
+    cacheService = benchmarkEnvironment.createCacheService();
+    fileContent = new byte[CACHE_SIZE_MB * 1024 * 1024 / cachedFiles];
+
+    for (int i = 0; i < cachedFiles; i++) {
+      cacheService.writeCache(IMAGE, "image" + i, fileContent);
+    }
+
+    nextWrite = cachedFiles;
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    benchmarkEnvironment.delete();
+  }
+
+  @Benchmark
+  public Optional<File> readCache() {
+    // Reads walk back from the newest file so they keep hitting while writes push older files out
+    return cacheService.readCache(IMAGE, "image" + (nextWrite - 1 - (nextRead++ % (cachedFiles / 2))));
+  }
+
+  @Benchmark
+  public void writeCache() {
+    cacheService.writeCache(IMAGE, "image" + nextWrite++, fileContent);
+  }
+}
@@ -0,0 +1,83 @@
+package uk.co.mpcontracting.rpmjukebox.service;
+
+import static uk.co.mpcontracting.rpmjukebox.service.BenchmarkEnvironment.ALBUMS_PER_ARTIST;
+import static uk.co.mpcontracting.rpmjukebox.service.BenchmarkEnvironment.TRACKS_PER_ALBUM;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.co.mpcontracting.rpmjukebox.model.Track;
+import uk.co.mpcontracting.rpmjukebox.search.IndexDirectoryMode;
+import uk.co.mpcontracting.rpmjukebox.search.TrackSearch;
+import uk.co.mpcontracting.rpmjukebox.test.util.CatalogueGenerator;
+
+// Opens an existing index and runs the first search against it, which is what the user waits on
+// at start up, with each way of reading the index from disk. The operating system will have the index
+// files cached after the first invocation, so this shows what each mode costs up front rather than a
+// true cold disk
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"--enable-native-access=ALL-UNNAMED", "-Dlogback.configurationFile=logback-benchmark.xml"})
+public class ColdSearchBenchmark {
+
+  @Param({"500", "2500", "10000"})
+  private int artists;
+
+  @Param
+  private IndexDirectoryMode indexDirectoryMode;
+
+  private BenchmarkEnvironment benchmarkEnvironment;
+  private SearchService searchService;
+  private String keywords;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    benchmarkEnvironment = new BenchmarkEnvironment(0);
+    benchmarkEnvironment.generateDataFile(artists);
+    benchmarkEnvironment.setIndexDirectoryMode(indexDirectoryMode);
+
+    SearchService indexingService = benchmarkEnvironment.createSearchService();
+    indexingService.openIndex();
+    indexingService.indexData();
+    indexingService.shutdown();
+
+    keywords = new CatalogueGenerator(artists, ALBUMS_PER_ARTIST, TRACKS_PER_ALBUM, 1).generateKeywords(1).getFirst();
+  }
+
+  @Setup(Level.Invocation)
+  public void setupInvocation() {
+    searchService = benchmarkEnvironment.createSearchService();
+  }
+
+  @TearDown(Level.Invocation)
+  public void tearDownInvocation() {
+    searchService.shutdown();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    benchmarkEnvironment.delete();
+  }
+
+  @Benchmark
+  public List<Track> openAndSearch() throws Exception {
+    searchService.openIndex();
+
+    return searchService.search(new TrackSearch(keywords));
+  }
+}
@@ -0,0 +1,101 @@
+package uk.co.mpcontracting.rpmjukebox.service;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Parses the data file and builds the track index from scratch, including the final merge and commit.
+// Artists average 60 tracks each, so divide that by the score for tracks per second. The size of the
+// finished index and the heap high-water mark during the build are reported alongside the time. The
+// index is either built alongside the live one and swapped in, as shipped, or rewritten in place. Larger
+// catalogues can be run with -Djmh.args="IngestBenchmark -p artists=100000"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"--enable-native-access=ALL-UNNAMED", "-Dlogback.configurationFile=logback-benchmark.xml"})
+public class IngestBenchmark {
+
+  @Param({"500", "2500", "10000"})
+  private int artists;
+
+  @Param({"true", "false"})
+  private boolean blueGreenIndexing;
+
+  private BenchmarkEnvironment benchmarkEnvironment;
+  private SearchService searchService;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    benchmarkEnvironment = new BenchmarkEnvironment(0);
+    benchmarkEnvironment.generateDataFile(artists);
+    benchmarkEnvironment.setBlueGreenIndexing(blueGreenIndexing);
+  }
+
+  @Setup(Level.Invocation)
+  public void setupInvocation() throws Exception {
+    benchmarkEnvironment.deleteTrackIndexDirectories();
+
+    searchService = benchmarkEnvironment.createSearchService();
+    searchService.openIndex();
+
+    System.gc();
+    ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+  }
+
+  @TearDown(Level.Invocation)
+  public void tearDownInvocation() {
+    searchService.shutdown();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    benchmarkEnvironment.delete();
+  }
+
+  @Benchmark
+  public void indexData(IndexFootprint indexFootprint) throws Exception {
+    searchService.indexData();
+
+    indexFootprint.indexSizeKb = FileUtils.sizeOfDirectory(benchmarkEnvironment.getTrackIndexDirectory(searchService)) / 1024;
+
+    // The sum of each heap pool's peak, which can be a little over the true high-water mark as the pools
+    // don't all peak at the same time
+    indexFootprint.heapPeakMb = ManagementFactory.getMemoryPoolMXBeans().stream()
+        .filter(pool -> pool.getType() == MemoryType.HEAP)
+        .mapToLong(pool -> pool.getPeakUsage().getUsed())
+        .sum() / 1024 / 1024;
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class IndexFootprint {
+
+    public long indexSizeKb;
+    public long heapPeakMb;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      indexSizeKb = 0;
+      heapPeakMb = 0;
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package uk.co.mpcontracting.rpmjukebox.service;
+
+import static uk.co.mpcontracting.rpmjukebox.service.BenchmarkEnvironment.ALBUMS_PER_ARTIST;
+import static uk.co.mpcontracting.rpmjukebox.service.BenchmarkEnvironment.TRACKS_PER_ALBUM;
+import static uk.co.mpcontracting.rpmjukebox.util.Constants.PLAYLIST_ID_SEARCH;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.co.mpcontracting.rpmjukebox.model.Track;
+import uk.co.mpcontracting.rpmjukebox.search.IndexDirectoryMode;
+import uk.co.mpcontracting.rpmjukebox.search.TrackSearch;
+import uk.co.mpcontracting.rpmjukebox.test.util.CatalogueGenerator;
+
+// Searches against an index that is already open and warmed up, at several catalogue sizes and with
+// each way of reading the index from disk. Each artist averages 60 tracks, so the catalogues run from
+// around 30,000 to 600,000 tracks. Narrow the runs down with -Djmh.args="-p indexDirectoryMode=MMAP"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"--enable-native-access=ALL-UNNAMED", "-Dlogback.configurationFile=logback-benchmark.xml"})
+public class SearchBenchmark {
+
+  @Param({"500", "2500", "10000"})
+  private int artists;
+
+  @Param
+  private IndexDirectoryMode indexDirectoryMode;
+
+  private BenchmarkEnvironment benchmarkEnvironment;
+  private SearchService searchService;
+  private PlaylistService playlistService;
+  private List<String> keywords;
+  private int nextKeyword;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    benchmarkEnvironment = new BenchmarkEnvironment(0);
+    benchmarkEnvironment.generateDataFile(artists);
+    benchmarkEnvironment.setIndexDirectoryMode(indexDirectoryMode);
+
+    searchService = benchmarkEnvironment.createSearchService();
+    searchService.openIndex();
+    searchService.indexData();
+
+    playlistService = benchmarkEnvironment.createPlaylistService(searchService);
+
+    keywords = new CatalogueGenerator(artists, ALBUMS_PER_ARTIST, TRACKS_PER_ALBUM, 1).generateKeywords(1000);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    searchService.shutdown();
+    benchmarkEnvironment.delete();
+  }
+
+  @Benchmark
+  public List<Track> search() {
+    return searchService.search(new TrackSearch(keywords.get(nextKeyword++ % keywords.size())));
+  }
+
+  @Benchmark
+  public List<Track> shuffledPlaylist() {
+    return searchService.getShuffledPlaylist(50, null);
+  }
+
+  // What the shuffle button on the main panel does, followed by playing the result
+  @Benchmark
+  public void shuffleAndPlay() {
+    playlistService.setPlaylistTracks(PLAYLIST_ID_SEARCH, searchService.getShuffledPlaylist(50, null));
+    playlistService.playPlaylist(PLAYLIST_ID_SEARCH);
+  }
+}
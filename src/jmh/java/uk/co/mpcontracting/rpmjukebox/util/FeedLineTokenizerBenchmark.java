@@ -0,0 +1,129 @@
+package uk.co.mpcontracting.rpmjukebox.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Compares parsing data file rows with String.split and Scanner against the tokenizer and normaliser,
+// over 2000 artists worth of rows. Divide the row count of 132,000 by the score for rows per second
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-benchmark.xml")
+public class FeedLineTokenizerBenchmark {
+
+  private static final String[] GENRES = {"rock", "heavy metal", "drum &amp; bass", "indie pop", "jazz fusion",
+      "hip hop", "folk", "progressive rock", "punk", "electronic"};
+
+  private static final int ARTISTS = 2000;
+  private static final int ALBUMS_PER_ARTIST = 5;
+  private static final int TRACKS_PER_ALBUM = 12;
+
+  private List<String> lines;
+  private FeedLineTokenizer tokenizer;
+  private GenreNormaliser genreNormaliser;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    lines = generateLines();
+    tokenizer = new FeedLineTokenizer();
+    genreNormaliser = new GenreNormaliser();
+  }
+
+  @Benchmark
+  public long splitAndScanner() {
+    long checksum = 0;
+
+    for (String line : lines) {
+      String[] rowData = line.split("\\|@\\|");
+
+      for (String field : rowData) {
+        checksum += field.trim().length();
+      }
+
+      if (rowData[0].trim().equals("B")) {
+        for (String genre : rowData[6].trim().split(",")) {
+          checksum += scannerCleanGenre(genre).length();
+        }
+      } else if (rowData[0].trim().equals("T")) {
+        checksum += Integer.parseInt(rowData[5].trim()) + (Boolean.parseBoolean(rowData[4].trim()) ? 1 : 0);
+
+        if (rowData.length > 6) {
+          checksum += scannerCleanGenre(rowData[6].trim()).length();
+        }
+      }
+    }
+
+    return checksum;
+  }
+
+  @Benchmark
+  public long tokenizerAndNormaliser() {
+    long checksum = 0;
+
+    for (String line : lines) {
+      tokenizer.tokenize(line);
+
+      for (int i = 0; i < tokenizer.getFieldCount(); i++) {
+        checksum += tokenizer.getField(i).length();
+      }
+
+      if (tokenizer.fieldEquals(0, "B")) {
+        for (String genre : tokenizer.getField(6).split(",")) {
+          checksum += genreNormaliser.normalise(genre, true).length();
+        }
+      } else if (tokenizer.fieldEquals(0, "T")) {
+        checksum += tokenizer.getIntField(5, -1) + (tokenizer.getBooleanField(4) ? 1 : 0);
+
+        if (tokenizer.hasField(6)) {
+          checksum += genreNormaliser.normalise(tokenizer.getField(6), false).length();
+        }
+      }
+    }
+
+    return checksum;
+  }
+
+  private List<String> generateLines() {
+    List<String> generatedLines = new ArrayList<>();
+
+    for (int artist = 0; artist < ARTISTS; artist++) {
+      generatedLines.add("B|@|" + artist + "|@|Artist " + artist + "|@||@|Biography of artist " + artist + "|@|Members|@|"
+          + GENRES[artist % GENRES.length] + "," + GENRES[(artist + 3) % GENRES.length]);
+
+      for (int album = 0; album < ALBUMS_PER_ARTIST; album++) {
+        generatedLines.add("A|@|" + artist + "-" + album + "|@|Album " + album + "|@||@|" + (1960 + album) + "|@|Album");
+
+        for (int track = 1; track <= TRACKS_PER_ALBUM; track++) {
+          generatedLines.add("T|@|" + track + "|@|Track Name " + track + "|@|Location|@|" + (track == 1) + "|@|" + track + "|@|"
+              + (track % 4 == 0 ? GENRES[track % GENRES.length] : ""));
+        }
+      }
+    }
+
+    return generatedLines;
+  }
+
+  private String scannerCleanGenre(String genre) {
+    StringBuilder builder = new StringBuilder();
+    Scanner scanner = new Scanner(genre.replaceAll("&amp;", "&")).useDelimiter(" ");
+    scanner.forEachRemaining(token -> builder.append(token.replaceFirst(token.substring(0, 1),
+        token.substring(0, 1).toUpperCase())).append(' '));
+
+    return builder.toString().trim();
+  }
+}
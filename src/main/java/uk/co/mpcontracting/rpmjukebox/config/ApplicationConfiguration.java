@@ -1,5 +1,7 @@
 package uk.co.mpcontracting.rpmjukebox.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -22,6 +24,11 @@ public class ApplicationConfiguration {
     return Executors.newCachedThreadPool();
   }
 
+  @Bean
+  public MeterRegistry meterRegistry() {
+    return new SimpleMeterRegistry();
+  }
+
   @Bean
   public ThreadRunner threadRunner(ExecutorService executorService) {
     return new ThreadRunner(executorService);
@@ -5,6 +5,7 @@ import lombok.Data;
 import org.hibernate.validator.constraints.URL;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
+import uk.co.mpcontracting.rpmjukebox.search.IndexDirectoryMode;
 
 @Data
 @Validated
@@ -56,6 +57,18 @@ public class ApplicationProperties {
   @NotNull
   private String userSettingsFile;
 
+  @NotNull
+  private String indexSnapshotFile;
+
+  @NotNull
+  private String dataFeedFile;
+
+  @NotNull
+  private String dataFeedSettingsFile;
+
+  @NotNull
+  private String metricsFile;
+
   private double defaultVolume;
   private int maxSearchHits;
   private int maxPlaylistSize;
@@ -66,4 +79,18 @@ public class ApplicationProperties {
   private String playlistFileExtension;
 
   private int cacheSizeMb;
+  private boolean incrementalIndexing;
+  private boolean blueGreenIndexing;
+  private int searchCacheSize;
+  private long searchDebounceMillis;
+  private long dataFeedSyncMinutes;
+  private long metricsLogMinutes;
+  private double bulkIndexRamBufferMb;
+  private int bulkIndexMergeThreads;
+  private int bulkIndexMaxSegments;
+  private double interactiveIndexRamBufferMb;
+  private int interactiveIndexMergeThreads;
+
+  @NotNull
+  private IndexDirectoryMode indexDirectoryMode;
 }
\ No newline at end of file
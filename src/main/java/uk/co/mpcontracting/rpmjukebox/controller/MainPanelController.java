@@ -1,6 +1,7 @@
 package uk.co.mpcontracting.rpmjukebox.controller;
 
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static java.util.Optional.ofNullable;
@@ -32,7 +33,9 @@ import de.felixroske.jfxsupport.FXMLController;
 import java.io.File;
 import java.io.FileReader;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -61,8 +64,10 @@ import uk.co.mpcontracting.rpmjukebox.event.EventAwareObject;
 import uk.co.mpcontracting.rpmjukebox.model.Playlist;
 import uk.co.mpcontracting.rpmjukebox.model.Track;
 import uk.co.mpcontracting.rpmjukebox.model.YearFilter;
+import uk.co.mpcontracting.rpmjukebox.search.TrackField;
 import uk.co.mpcontracting.rpmjukebox.search.TrackFilter;
 import uk.co.mpcontracting.rpmjukebox.search.TrackSearch;
+import uk.co.mpcontracting.rpmjukebox.search.TrackSearchResult;
 import uk.co.mpcontracting.rpmjukebox.service.CacheService;
 import uk.co.mpcontracting.rpmjukebox.service.MediaService;
 import uk.co.mpcontracting.rpmjukebox.service.NativeService;
@@ -70,6 +75,7 @@ import uk.co.mpcontracting.rpmjukebox.service.PlaylistService;
 import uk.co.mpcontracting.rpmjukebox.service.SearchService;
 import uk.co.mpcontracting.rpmjukebox.service.SettingsService;
 import uk.co.mpcontracting.rpmjukebox.service.StringResourceService;
+import uk.co.mpcontracting.rpmjukebox.service.TypeAheadSearchService;
 import uk.co.mpcontracting.rpmjukebox.service.UpdateService;
 import uk.co.mpcontracting.rpmjukebox.settings.PlaylistSettings;
 import uk.co.mpcontracting.rpmjukebox.util.StringHelper;
@@ -77,6 +83,7 @@ import uk.co.mpcontracting.rpmjukebox.view.ConfirmView;
 import uk.co.mpcontracting.rpmjukebox.view.EqualizerView;
 import uk.co.mpcontracting.rpmjukebox.view.ExportView;
 import uk.co.mpcontracting.rpmjukebox.view.MessageView;
+import uk.co.mpcontracting.rpmjukebox.view.MetricsView;
 import uk.co.mpcontracting.rpmjukebox.view.SettingsView;
 import uk.co.mpcontracting.rpmjukebox.view.TrackTableView;
 
@@ -168,11 +175,13 @@ public class MainPanelController extends EventAwareObject {
   private final EqualizerView equalizerView;
   private final ExportView exportView;
   private final MessageView messageView;
+  private final MetricsView metricsView;
   private final SettingsView settingsView;
   private final TrackTableView trackTableView;
 
   private final EqualizerController equalizerController;
   private final ExportController exportController;
+  private final MetricsController metricsController;
   private final SettingsController settingsController;
   private final TrackTableController trackTableController;
 
@@ -183,18 +192,24 @@ public class MainPanelController extends EventAwareObject {
   private final SearchService searchService;
   private final SettingsService settingsService;
   private final StringResourceService stringResourceService;
+  private final TypeAheadSearchService typeAheadSearchService;
   private final UpdateService updateService;
 
   private ObservableList<Playlist> observablePlaylists;
   private String playlistExtensionFilter;
   private int currentSelectedPlaylistId;
+  private boolean isRelabellingYearFilter;
 
   @FXML
   public void initialize() {
     log.info("Initialising MainPanelController");
 
-    yearFilterComboBox.getSelectionModel().selectedIndexProperty().addListener((observable, oldValue, newValue) ->
-        searchParametersUpdated(searchTextField.getText(), yearFilterComboBox.getSelectionModel().getSelectedItem(), false));
+    // Relabelling the years with the counts from a search isn't a change to the search
+    yearFilterComboBox.getSelectionModel().selectedIndexProperty().addListener((observable, oldValue, newValue) -> {
+      if (!isRelabellingYearFilter) {
+        searchParametersUpdated(searchTextField.getText(), yearFilterComboBox.getSelectionModel().getSelectedItem(), false);
+      }
+    });
 
     searchTextField.textProperty().addListener((observable, oldValue, newValue) ->
         searchParametersUpdated(newValue, yearFilterComboBox.getSelectionModel().getSelectedItem(), true));
@@ -266,12 +281,41 @@ public class MainPanelController extends EventAwareObject {
         trackSearch = new TrackSearch(searchText.trim());
       }
 
-      playlistService.setPlaylistTracks(PLAYLIST_ID_SEARCH, searchService.search(trackSearch));
-    } else if (nonNull(playlistService.getPlayingPlaylist()) && playlistService.getPlayingPlaylist().getPlaylistId() == PLAYLIST_ID_SEARCH) {
-      playlistService.setPlaylistTracks(PLAYLIST_ID_SEARCH, playlistService.getPlayingPlaylist().getTracks());
+      boolean isAllYears = isNull(trackFilter);
+
+      typeAheadSearchService.search(trackSearch, result -> updateSearchResults(result, searchTextUpdated, isAllYears));
     } else {
-      playlistService.setPlaylistTracks(PLAYLIST_ID_SEARCH, emptyList());
+      // Stop any search that's still running from overwriting the cleared results
+      typeAheadSearchService.cancel();
+
+      if (nonNull(playlistService.getPlayingPlaylist()) && playlistService.getPlayingPlaylist().getPlaylistId() == PLAYLIST_ID_SEARCH) {
+        updateSearchPlaylist(playlistService.getPlayingPlaylist().getTracks(), searchTextUpdated);
+      } else {
+        updateSearchPlaylist(emptyList(), searchTextUpdated);
+      }
+
+      if (searchTextUpdated) {
+        relabelYearFilter(ofNullable(searchService.getYearCounts()).orElse(emptyMap()));
+      }
+    }
+  }
+
+  // The year counts are only for the search across every year, so they're left alone while a year is picked
+  private void updateSearchResults(TrackSearchResult result, boolean searchTextUpdated, boolean isAllYears) {
+    updateSearchPlaylist(result.tracks(), searchTextUpdated);
+
+    if (isAllYears) {
+      Map<String, Integer> yearCounts = new HashMap<>();
+
+      result.facetCounts().getOrDefault(TrackField.YEAR, emptyList())
+          .forEach(facetCount -> yearCounts.put(facetCount.value(), facetCount.count()));
+
+      relabelYearFilter(yearCounts);
     }
+  }
+
+  private void updateSearchPlaylist(List<Track> tracks, boolean searchTextUpdated) {
+    playlistService.setPlaylistTracks(PLAYLIST_ID_SEARCH, tracks);
 
     if (searchTextUpdated) {
       fireEvent(PLAYLIST_SELECTED, PLAYLIST_ID_SEARCH);
@@ -302,11 +346,7 @@ public class MainPanelController extends EventAwareObject {
   protected void updateYearFilter() {
     log.debug("Updating year filter - {}", searchService.getYearList());
 
-    List<YearFilter> yearFilters = new ArrayList<>();
-    yearFilters.add(new YearFilter(stringResourceService.getString(MESSAGE_YEAR_FILTER_NONE), null));
-
-    ofNullable(searchService.getYearList())
-        .ifPresent(years -> years.forEach(year -> yearFilters.add(new YearFilter(year, year))));
+    List<YearFilter> yearFilters = createYearFilters(ofNullable(searchService.getYearCounts()).orElse(emptyMap()));
 
     ofNullable(yearFilterComboBox).ifPresent(comboBox -> {
       comboBox.getItems().clear();
@@ -315,6 +355,35 @@ public class MainPanelController extends EventAwareObject {
     });
   }
 
+  // Keeps the selected year, as the years themselves haven't changed
+  private void relabelYearFilter(Map<String, Integer> yearCounts) {
+    ofNullable(yearFilterComboBox).ifPresent(comboBox -> {
+      int selectedIndex = comboBox.getSelectionModel().getSelectedIndex();
+
+      isRelabellingYearFilter = true;
+
+      try {
+        comboBox.getItems().setAll(createYearFilters(yearCounts));
+        comboBox.getSelectionModel().select(selectedIndex);
+      } finally {
+        isRelabellingYearFilter = false;
+      }
+    });
+  }
+
+  // A year missing from the counts had no matching tracks
+  private List<YearFilter> createYearFilters(Map<String, Integer> yearCounts) {
+    List<YearFilter> yearFilters = new ArrayList<>();
+    yearFilters.add(new YearFilter(stringResourceService.getString(MESSAGE_YEAR_FILTER_NONE), null));
+
+    ofNullable(searchService.getYearList())
+        .ifPresent(years -> years.forEach(year -> yearFilters.add(new YearFilter(yearCounts.isEmpty()
+            ? year
+            : year + " (" + yearCounts.getOrDefault(year, 0) + ")", year))));
+
+    return yearFilters;
+  }
+
   protected void updateObservablePlaylists() {
     log.debug("Updating observable playlists");
 
@@ -415,8 +484,7 @@ public class MainPanelController extends EventAwareObject {
             Playlist playlist = new Playlist(playlistSettings.getId(), playlistSettings.getName(),
                 applicationProperties.getMaxPlaylistSize());
 
-            playlistSettings.getTracks().forEach(trackId ->
-                searchService.getTrackById(trackId).ifPresent(playlist::addTrack));
+            searchService.getTracksByIds(playlistSettings.getTracks()).forEach(playlist::addTrack);
 
             playlistService.addPlaylist(playlist);
           });
@@ -524,6 +592,11 @@ public class MainPanelController extends EventAwareObject {
     equalizerView.show(true);
   }
 
+  private void showMetrics() {
+    metricsController.updateMetrics();
+    metricsView.show(true);
+  }
+
   @FXML
   protected void handleRandomButtonAction() {
     log.debug("Random button pressed");
@@ -732,6 +805,7 @@ public class MainPanelController extends EventAwareObject {
       }
       case MENU_CONTROLS_VOLUME_MUTE -> handleVolumeButtonAction();
       case MENU_VIEW_EQUALIZER -> handleEqButtonAction();
+      case MENU_VIEW_METRICS -> showMetrics();
     }
   }
 }
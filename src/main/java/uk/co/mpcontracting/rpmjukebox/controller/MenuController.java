@@ -17,6 +17,7 @@ import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_FILE_EXPORT_PLAYLI
 import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_FILE_IMPORT_PLAYLIST;
 import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_FILE_SETTINGS;
 import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_VIEW_EQUALIZER;
+import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_VIEW_METRICS;
 import static uk.co.mpcontracting.rpmjukebox.model.Repeat.ALL;
 import static uk.co.mpcontracting.rpmjukebox.model.Repeat.OFF;
 import static uk.co.mpcontracting.rpmjukebox.model.Repeat.ONE;
@@ -311,6 +312,13 @@ public class MenuController extends EventAwareObject {
     fireEvent(MENU_VIEW_EQUALIZER);
   }
 
+  @FXML
+  protected void handleViewMetricsAction() {
+    log.debug("Handling view metrics action");
+
+    fireEvent(MENU_VIEW_METRICS);
+  }
+
   private void updateCreatePlaylistFromAlbum() {
     menuEditCreatePlaylistFromAlbum.setDisable(ofNullable(trackTableController.getSelectedTrack()).isEmpty());
   }
@@ -0,0 +1,37 @@
+package uk.co.mpcontracting.rpmjukebox.controller;
+
+import de.felixroske.jfxsupport.FXMLController;
+import javafx.fxml.FXML;
+import javafx.scene.control.TextArea;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import uk.co.mpcontracting.rpmjukebox.service.MetricsService;
+import uk.co.mpcontracting.rpmjukebox.view.MetricsView;
+
+@Slf4j
+@FXMLController
+@RequiredArgsConstructor
+public class MetricsController {
+
+  @FXML
+  private TextArea metricsTextArea;
+
+  private final MetricsView metricsView;
+  private final MetricsService metricsService;
+
+  protected void updateMetrics() {
+    metricsTextArea.setText(String.join(System.lineSeparator(), metricsService.getSummary()));
+  }
+
+  @FXML
+  protected void handleOkButtonAction() {
+    metricsView.close();
+  }
+
+  @FXML
+  protected void handleRefreshButtonAction() {
+    log.debug("Refresh button pressed");
+
+    updateMetrics();
+  }
+}
@@ -1,6 +1,8 @@
 package uk.co.mpcontracting.rpmjukebox.controller;
 
+import static uk.co.mpcontracting.rpmjukebox.event.Event.DATA_DOWNLOAD_UPDATED;
 import static uk.co.mpcontracting.rpmjukebox.event.Event.DATA_INDEXED;
+import static uk.co.mpcontracting.rpmjukebox.util.Constants.MESSAGE_DOWNLOADING_DATA;
 import static uk.co.mpcontracting.rpmjukebox.util.Constants.MESSAGE_DOWNLOAD_INDEX;
 import static uk.co.mpcontracting.rpmjukebox.util.Constants.MESSAGE_SETTINGS_COPYRIGHT_2;
 
@@ -18,6 +20,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import uk.co.mpcontracting.rpmjukebox.event.Event;
 import uk.co.mpcontracting.rpmjukebox.event.EventAwareObject;
+import uk.co.mpcontracting.rpmjukebox.service.DataFeedService;
 import uk.co.mpcontracting.rpmjukebox.service.SearchService;
 import uk.co.mpcontracting.rpmjukebox.service.SettingsService;
 import uk.co.mpcontracting.rpmjukebox.service.StringResourceService;
@@ -58,6 +61,7 @@ public class SettingsController extends EventAwareObject {
   private final ThreadRunner threadRunner;
 
   private final SettingsView settingsView;
+  private final DataFeedService dataFeedService;
   private final SearchService searchService;
   private final SettingsService settingsService;
   private final StringResourceService stringResourceService;
@@ -136,6 +140,9 @@ public class SettingsController extends EventAwareObject {
       try {
         mainPanelController.showMessageView(stringResourceService.getString(MESSAGE_DOWNLOAD_INDEX), false);
         isReindexing = true;
+
+        // Pick up a changed data file before reindexing, rather than waiting for the background sync
+        dataFeedService.sync();
         searchService.indexData();
       } catch (Exception e) {
         mainPanelController.closeMessageView();
@@ -175,6 +182,13 @@ public class SettingsController extends EventAwareObject {
     if (event == DATA_INDEXED && isReindexing) {
       mainPanelController.closeMessageView();
       isReindexing = false;
+    } else if (event == DATA_DOWNLOAD_UPDATED && isReindexing) {
+      long bytesDownloaded = (Long) payload[0];
+      long totalBytes = (Long) payload[1];
+
+      if (totalBytes > 0) {
+        mainPanelController.showMessageView(stringResourceService.getString(MESSAGE_DOWNLOADING_DATA, (bytesDownloaded * 100) / totalBytes), false);
+      }
     }
   }
 }
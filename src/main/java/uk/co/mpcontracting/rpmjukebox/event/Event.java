@@ -5,6 +5,7 @@ public enum Event {
   // Application Events
   APPLICATION_INITIALISED,
   NEW_VERSION_AVAILABLE,
+  DATA_DOWNLOAD_UPDATED,
   DATA_INDEXED,
   MUTE_UPDATED,
   TIME_UPDATED,
@@ -38,6 +39,7 @@ public enum Event {
   MENU_CONTROLS_VOLUME_DOWN,
   MENU_CONTROLS_VOLUME_MUTE,
   MENU_VIEW_EQUALIZER,
+  MENU_VIEW_METRICS,
 
   // Test Events
   TEST_EVENT
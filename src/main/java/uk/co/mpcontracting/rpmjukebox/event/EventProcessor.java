@@ -4,23 +4,35 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javafx.application.Platform;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
+import uk.co.mpcontracting.rpmjukebox.service.MetricsService;
 
 @Component
 @RequiredArgsConstructor
 public class EventProcessor {
   private final ScheduledExecutorService scheduledExecutorService;
+  private final MetricsService metricsService;
 
   private final List<EventListener> eventListeners = new ArrayList<>();
 
+  // Events fired but not yet delivered on the UI thread
+  private final AtomicInteger queueDepth = new AtomicInteger();
+
   public void addEventListener(EventListener eventListener) {
     eventListeners.add(eventListener);
   }
 
   public void fireEvent(Event event, Object... payload) {
-    Platform.runLater(() -> eventListeners.forEach(eventListener -> eventListener.eventReceived(event, payload)));
+    metricsService.recordEventQueueDepth(queueDepth.incrementAndGet());
+
+    Platform.runLater(() -> {
+      queueDepth.decrementAndGet();
+
+      eventListeners.forEach(eventListener -> eventListener.eventReceived(event, payload));
+    });
   }
 
   public void fireDelayedEvent(Event event, long delay, TimeUnit timeUnit, Object... payload) {
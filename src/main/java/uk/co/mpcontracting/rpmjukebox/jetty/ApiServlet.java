@@ -0,0 +1,302 @@
+package uk.co.mpcontracting.rpmjukebox.jetty;
+
+import static jakarta.servlet.http.HttpServletResponse.SC_ACCEPTED;
+import static jakarta.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+import static jakarta.servlet.http.HttpServletResponse.SC_FORBIDDEN;
+import static jakarta.servlet.http.HttpServletResponse.SC_NOT_FOUND;
+import static jakarta.servlet.http.HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Optional.ofNullable;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_CONTROLS_NEXT;
+import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_CONTROLS_PLAY_PAUSE;
+import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_CONTROLS_PREVIOUS;
+import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_CONTROLS_REPEAT;
+import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_CONTROLS_SHUFFLE;
+import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_CONTROLS_VOLUME_DOWN;
+import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_CONTROLS_VOLUME_MUTE;
+import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_CONTROLS_VOLUME_UP;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import uk.co.mpcontracting.rpmjukebox.event.EventProcessor;
+import uk.co.mpcontracting.rpmjukebox.model.Playlist;
+import uk.co.mpcontracting.rpmjukebox.model.Repeat;
+import uk.co.mpcontracting.rpmjukebox.model.Track;
+import uk.co.mpcontracting.rpmjukebox.search.TrackFilter;
+import uk.co.mpcontracting.rpmjukebox.search.TrackSearch;
+import uk.co.mpcontracting.rpmjukebox.service.MediaService;
+import uk.co.mpcontracting.rpmjukebox.service.MetricsService;
+import uk.co.mpcontracting.rpmjukebox.service.PlaylistService;
+import uk.co.mpcontracting.rpmjukebox.service.SearchService;
+import uk.co.mpcontracting.rpmjukebox.service.SettingsService;
+import uk.co.mpcontracting.rpmjukebox.util.ThreadRunner;
+
+// Requests are handled on their own virtual threads. Reads go straight to the services, which are
+// safe to call concurrently, apart from now playing, which is read from the media player on the UI
+// thread. Anything that changes playback or playlists is handed to the UI thread, in the same way as
+// the menus, and answered with 202 Accepted straight away
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ApiServlet extends HttpServlet {
+
+  static final double VOLUME_DELTA = 10d;
+  static final String API_HEADER = "X-RPM-Jukebox";
+
+  private static final List<String> LOCAL_HOSTS = List.of("127.0.0.1", "localhost");
+  private static final long NOW_PLAYING_TIMEOUT_SECONDS = 5;
+
+  private final transient ThreadRunner threadRunner;
+  private final transient EventProcessor eventProcessor;
+  private final transient MediaService mediaService;
+  private final transient MetricsService metricsService;
+  private final transient PlaylistService playlistService;
+  private final transient SearchService searchService;
+  private final transient SettingsService settingsService;
+
+  // The server only listens on the loopback interface, but a web page could still reach it through the
+  // browser, either directly or by pointing its own host name at the loopback address. Changes also need
+  // a header that a browser won't send to another origin without a preflight, which is never answered
+  @Override
+  protected void service(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+    int port = request.getLocalPort();
+
+    if (!isLocalHost(request.getHeader("Host"), port) || !isLocalOrigin(request.getHeader("Origin"), port)) {
+      log.warn("API request rejected : Host - {}, Origin - {}", request.getHeader("Host"), request.getHeader("Origin"));
+
+      response.sendError(SC_FORBIDDEN);
+
+      return;
+    }
+
+    if (!request.getMethod().equals("GET") && !request.getMethod().equals("HEAD") && isNull(request.getHeader(API_HEADER))) {
+      log.warn("API request rejected without {} header - {} {}", API_HEADER, request.getMethod(), request.getPathInfo());
+
+      response.sendError(SC_FORBIDDEN);
+
+      return;
+    }
+
+    super.service(request, response);
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    List<String> path = getPath(request);
+
+    log.debug("API GET - {}", path);
+
+    try {
+      switch (path.size()) {
+        case 1 -> {
+          switch (path.getFirst()) {
+            case "search" -> search(request, response);
+            case "playlists" -> writeJson(response, playlistService.getPlaylists().stream()
+                .map(playlist -> new PlaylistSummary(playlist.getPlaylistId(), playlist.getName(), playlist.size()))
+                .toList());
+            case "now-playing" -> nowPlaying(response);
+            case "metrics" -> writeJson(response, metricsService.getMetrics());
+            default -> response.sendError(SC_NOT_FOUND);
+          }
+        }
+        case 2 -> {
+          if (path.getFirst().equals("playlists")) {
+            // Cloned so the tracks can't change while they're being written out
+            Optional<Playlist> playlist = playlistService.getPlaylist(Integer.parseInt(path.get(1))).map(Playlist::createClone);
+
+            if (playlist.isPresent()) {
+              writeJson(response, new PlaylistDetail(playlist.get().getPlaylistId(), playlist.get().getName(),
+                  playlist.get().getTracks()));
+            } else {
+              response.sendError(SC_NOT_FOUND);
+            }
+          } else {
+            response.sendError(SC_NOT_FOUND);
+          }
+        }
+        default -> response.sendError(SC_NOT_FOUND);
+      }
+    } catch (NumberFormatException e) {
+      response.sendError(SC_BAD_REQUEST);
+    }
+  }
+
+  @Override
+  protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    List<String> path = getPath(request);
+
+    log.debug("API POST - {}", path);
+
+    try {
+      if (path.size() == 2 && path.getFirst().equals("controls")) {
+        control(path.get(1), response);
+      } else if (path.size() == 3 && path.getFirst().equals("playlists") && path.get(2).equals("play")) {
+        int playlistId = Integer.parseInt(path.get(1));
+
+        if (playlistService.getPlaylist(playlistId).isPresent()) {
+          threadRunner.runOnGui(() -> playlistService.playPlaylist(playlistId));
+          response.setStatus(SC_ACCEPTED);
+        } else {
+          response.sendError(SC_NOT_FOUND);
+        }
+      } else if (path.size() == 4 && path.getFirst().equals("playlists") && path.get(2).equals("tracks")) {
+        updatePlaylistTrack(Integer.parseInt(path.get(1)), path.get(3), true, response);
+      } else {
+        response.sendError(SC_NOT_FOUND);
+      }
+    } catch (NumberFormatException e) {
+      response.sendError(SC_BAD_REQUEST);
+    }
+  }
+
+  @Override
+  protected void doDelete(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    List<String> path = getPath(request);
+
+    log.debug("API DELETE - {}", path);
+
+    try {
+      if (path.size() == 4 && path.getFirst().equals("playlists") && path.get(2).equals("tracks")) {
+        updatePlaylistTrack(Integer.parseInt(path.get(1)), path.get(3), false, response);
+      } else {
+        response.sendError(SC_NOT_FOUND);
+      }
+    } catch (NumberFormatException e) {
+      response.sendError(SC_BAD_REQUEST);
+    }
+  }
+
+  private void search(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    String keywords = request.getParameter("keywords");
+
+    if (isNull(keywords) || keywords.isBlank()) {
+      response.sendError(SC_BAD_REQUEST);
+
+      return;
+    }
+
+    writeJson(response, searchService.search(new TrackSearch(keywords,
+        new TrackFilter(request.getParameter("genre"), request.getParameter("year")))));
+  }
+
+  private void nowPlaying(HttpServletResponse response) throws IOException {
+    CompletableFuture<NowPlaying> nowPlaying = new CompletableFuture<>();
+
+    threadRunner.runOnGui(() -> {
+      try {
+        nowPlaying.complete(getNowPlaying());
+      } catch (Exception e) {
+        nowPlaying.completeExceptionally(e);
+      }
+    });
+
+    try {
+      writeJson(response, nowPlaying.get(NOW_PLAYING_TIMEOUT_SECONDS, SECONDS));
+    } catch (ExecutionException | TimeoutException e) {
+      log.error("Unable to get now playing", e);
+
+      response.sendError(SC_SERVICE_UNAVAILABLE);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+
+      response.sendError(SC_SERVICE_UNAVAILABLE);
+    }
+  }
+
+  private NowPlaying getNowPlaying() {
+    return new NowPlaying(
+        mediaService.isPlaying(),
+        mediaService.isPaused(),
+        ofNullable(playlistService.getPlayingPlaylist()).map(Playlist::getPlaylistId).orElse(null),
+        playlistService.getTrackAtPlayingPlaylistIndex(),
+        mediaService.getPlayingTimeSeconds(),
+        mediaService.getVolume(),
+        mediaService.isMuted(),
+        playlistService.isShuffle(),
+        playlistService.getRepeat()
+    );
+  }
+
+  private void control(String action, HttpServletResponse response) throws IOException {
+    switch (action) {
+      case "play-pause" -> eventProcessor.fireEvent(MENU_CONTROLS_PLAY_PAUSE);
+      case "previous" -> eventProcessor.fireEvent(MENU_CONTROLS_PREVIOUS);
+      case "next" -> eventProcessor.fireEvent(MENU_CONTROLS_NEXT);
+      case "shuffle" -> eventProcessor.fireEvent(MENU_CONTROLS_SHUFFLE);
+      case "repeat" -> eventProcessor.fireEvent(MENU_CONTROLS_REPEAT);
+      case "volume-up" -> eventProcessor.fireEvent(MENU_CONTROLS_VOLUME_UP, VOLUME_DELTA);
+      case "volume-down" -> eventProcessor.fireEvent(MENU_CONTROLS_VOLUME_DOWN, VOLUME_DELTA);
+      case "mute" -> eventProcessor.fireEvent(MENU_CONTROLS_VOLUME_MUTE);
+      default -> {
+        response.sendError(SC_NOT_FOUND);
+
+        return;
+      }
+    }
+
+    response.setStatus(SC_ACCEPTED);
+  }
+
+  private void updatePlaylistTrack(int playlistId, String trackId, boolean add, HttpServletResponse response) throws IOException {
+    Optional<Track> track = searchService.getTrackById(trackId);
+
+    if (playlistService.getPlaylist(playlistId).isEmpty() || track.isEmpty()) {
+      response.sendError(SC_NOT_FOUND);
+
+      return;
+    }
+
+    threadRunner.runOnGui(() -> {
+      if (add) {
+        playlistService.addTrackToPlaylist(playlistId, track.get());
+      } else {
+        playlistService.removeTrackFromPlaylist(playlistId, track.get());
+      }
+    });
+
+    response.setStatus(SC_ACCEPTED);
+  }
+
+  private boolean isLocalHost(String host, int port) {
+    return nonNull(host) && LOCAL_HOSTS.stream().anyMatch(localHost -> host.equalsIgnoreCase(localHost + ":" + port));
+  }
+
+  // Requests that don't come from a browser page have no origin
+  private boolean isLocalOrigin(String origin, int port) {
+    return isNull(origin) || LOCAL_HOSTS.stream().anyMatch(localHost -> origin.equalsIgnoreCase("http://" + localHost + ":" + port));
+  }
+
+  private List<String> getPath(HttpServletRequest request) {
+    return ofNullable(request.getPathInfo()).stream()
+        .flatMap(pathInfo -> List.of(pathInfo.split("/")).stream())
+        .filter(segment -> !segment.isEmpty())
+        .toList();
+  }
+
+  private void writeJson(HttpServletResponse response, Object body) throws IOException {
+    response.setContentType("application/json");
+    response.setCharacterEncoding(UTF_8.name());
+    response.getWriter().write(settingsService.getGson().toJson(body));
+  }
+
+  private record PlaylistSummary(int id, String name, int size) {}
+
+  private record PlaylistDetail(int id, String name, List<Track> tracks) {}
+
+  private record NowPlaying(boolean playing, boolean paused, Integer playlistId, Track track, double playingTimeSeconds,
+                            double volume, boolean muted, boolean shuffle, Repeat repeat) {}
+}
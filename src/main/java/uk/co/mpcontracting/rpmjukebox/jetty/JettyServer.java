@@ -0,0 +1,102 @@
+package uk.co.mpcontracting.rpmjukebox.jetty;
+
+import static java.util.Objects.nonNull;
+import static java.util.Optional.ofNullable;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.Executors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.ee10.servlet.ServletContextHandler;
+import org.eclipse.jetty.ee10.servlet.ServletHolder;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.springframework.stereotype.Component;
+import uk.co.mpcontracting.rpmjukebox.config.ApplicationProperties;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class JettyServer {
+
+  private final ApplicationProperties applicationProperties;
+  private final ApiServlet apiServlet;
+  private final TrackProxyServlet trackProxyServlet;
+
+  private Server server;
+  private ServerConnector serverConnector;
+
+  public boolean start() {
+    log.info("Starting Jetty server on port {}", applicationProperties.getJettyPort());
+
+    // Selectors stay on platform threads, but each request is handled on its own virtual thread
+    QueuedThreadPool threadPool = new QueuedThreadPool();
+    threadPool.setName("jetty");
+    threadPool.setVirtualThreadsExecutor(Executors.newVirtualThreadPerTaskExecutor());
+
+    server = new Server(threadPool);
+
+    // Only listen on the loopback interface, so the API can't be reached from other machines
+    serverConnector = new ServerConnector(server);
+    serverConnector.setHost(InetAddress.getLoopbackAddress().getHostAddress());
+    serverConnector.setPort(applicationProperties.getJettyPort());
+    server.addConnector(serverConnector);
+
+    ServletContextHandler servletContextHandler = new ServletContextHandler();
+    servletContextHandler.addServlet(new ServletHolder(apiServlet), "/api/*");
+    servletContextHandler.addServlet(new ServletHolder(trackProxyServlet), "/track/*");
+    server.setHandler(servletContextHandler);
+
+    try {
+      server.start();
+
+      return true;
+    } catch (Exception e) {
+      // Most likely another copy of the jukebox is already running, which shouldn't stop this one
+      log.error("Unable to start Jetty server on port {}", applicationProperties.getJettyPort(), e);
+
+      stop();
+
+      return false;
+    }
+  }
+
+  public void stop() {
+    log.info("Stopping Jetty server");
+
+    if (nonNull(server)) {
+      try {
+        server.stop();
+      } catch (Exception e) {
+        log.error("Unable to stop Jetty server", e);
+      }
+    }
+  }
+
+  public boolean isRunning() {
+    return nonNull(server) && server.isStarted();
+  }
+
+  // The port actually bound, which differs from the configured port if that was 0
+  public int getPort() {
+    return serverConnector.getLocalPort();
+  }
+
+  // The URL keeps the file extension of the original location, as that's how JavaFX works out the media type.
+  // The location itself isn't passed on, as the proxy looks it up from the track ID
+  public String getTrackUrl(String trackId, String location) {
+    try {
+      String path = ofNullable(URI.create(location).getPath()).orElse("");
+      int extensionIndex = path.lastIndexOf('.');
+      String extension = extensionIndex > path.lastIndexOf('/') ? path.substring(extensionIndex) : ".mp3";
+
+      return new URI("http", null, InetAddress.getLoopbackAddress().getHostAddress(), getPort(), "/track/" + trackId + extension,
+          null, null).toString();
+    } catch (URISyntaxException e) {
+      throw new IllegalArgumentException("Unable to create track URL - " + location, e);
+    }
+  }
+}
@@ -0,0 +1,287 @@
+package uk.co.mpcontracting.rpmjukebox.jetty;
+
+import static jakarta.servlet.http.HttpServletResponse.SC_BAD_GATEWAY;
+import static jakarta.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+import static jakarta.servlet.http.HttpServletResponse.SC_NOT_FOUND;
+import static jakarta.servlet.http.HttpServletResponse.SC_OK;
+import static jakarta.servlet.http.HttpServletResponse.SC_PARTIAL_CONTENT;
+import static jakarta.servlet.http.HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.Optional.ofNullable;
+import static uk.co.mpcontracting.rpmjukebox.util.CacheType.TRACK;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import uk.co.mpcontracting.rpmjukebox.config.ApplicationProperties;
+import uk.co.mpcontracting.rpmjukebox.model.Track;
+import uk.co.mpcontracting.rpmjukebox.service.CacheService;
+import uk.co.mpcontracting.rpmjukebox.service.InternetService;
+import uk.co.mpcontracting.rpmjukebox.service.SearchService;
+
+// Streams tracks to the media player. Cached tracks are served from disk, with support for byte ranges
+// so the player can seek. Anything else is fetched from the original location and written to the cache
+// as it's passed on, and only added to the cache once the whole track has arrived. Only tracks in the
+// index are served, and their location is always looked up here, never taken from the request
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TrackProxyServlet extends HttpServlet {
+
+  static final String DEFAULT_CONTENT_TYPE = "audio/mpeg";
+
+  private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d*)-(\\d*)");
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final transient ApplicationProperties applicationProperties;
+  private final transient CacheService cacheService;
+  private final transient InternetService internetService;
+  private final transient SearchService searchService;
+
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    serveTrack(request, response, true);
+  }
+
+  @Override
+  protected void doHead(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    serveTrack(request, response, false);
+  }
+
+  private void serveTrack(HttpServletRequest request, HttpServletResponse response, boolean sendBody) throws IOException {
+    String trackId = getTrackId(request);
+
+    if (isNull(trackId)) {
+      response.sendError(SC_BAD_REQUEST);
+
+      return;
+    }
+
+    String location = searchService.getTrackById(trackId)
+        .map(Track::getLocation)
+        .filter(this::isTrackLocation)
+        .orElse(null);
+
+    if (isNull(location)) {
+      log.warn("Track not found : ID - {}", trackId);
+
+      response.sendError(SC_NOT_FOUND);
+
+      return;
+    }
+
+    log.debug("Serving track : ID - {}, Range - {}", trackId, request.getHeader("Range"));
+
+    response.setContentType(ofNullable(URLConnection.guessContentTypeFromName(request.getPathInfo())).orElse(DEFAULT_CONTENT_TYPE));
+    response.setHeader("Accept-Ranges", "bytes");
+
+    Optional<File> cachedFile = cacheService.readCache(TRACK, trackId);
+
+    if (cachedFile.isPresent()) {
+      serveCachedTrack(request, response, cachedFile.get(), sendBody);
+    } else if (isWholeTrack(request.getHeader("Range")) && sendBody) {
+      streamAndCacheTrack(request, response, trackId, location);
+    } else {
+      proxyTrack(request, response, location, sendBody);
+    }
+  }
+
+  private void serveCachedTrack(HttpServletRequest request, HttpServletResponse response, File file, boolean sendBody) throws IOException {
+    long length = file.length();
+    long start = 0;
+    long end = length - 1;
+    String range = request.getHeader("Range");
+
+    if (nonNull(range)) {
+      Matcher matcher = RANGE_PATTERN.matcher(range);
+
+      if (!matcher.matches() || (matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+        response.sendError(SC_BAD_REQUEST);
+
+        return;
+      }
+
+      if (matcher.group(1).isEmpty()) {
+        // A suffix range, such as the last 500 bytes
+        start = Math.max(0, length - Long.parseLong(matcher.group(2)));
+      } else {
+        start = Long.parseLong(matcher.group(1));
+
+        if (!matcher.group(2).isEmpty()) {
+          end = Math.min(end, Long.parseLong(matcher.group(2)));
+        }
+      }
+
+      if (start >= length || start > end) {
+        // Not sent as an error, as that would drop the content range telling the player how long the track is
+        response.setStatus(SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        response.setHeader("Content-Range", "bytes */" + length);
+
+        return;
+      }
+
+      response.setStatus(SC_PARTIAL_CONTENT);
+      response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length);
+    } else {
+      response.setStatus(SC_OK);
+    }
+
+    response.setContentLengthLong(end - start + 1);
+
+    if (sendBody) {
+      try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+        inputStream.skipNBytes(start);
+
+        copy(inputStream, response.getOutputStream(), null, end - start + 1);
+      }
+    }
+  }
+
+  private void streamAndCacheTrack(HttpServletRequest request, HttpServletResponse response, String trackId,
+      String location) throws IOException {
+    URLConnection connection = internetService.openConnection(URI.create(location).toURL());
+
+    if (connection instanceof HttpURLConnection httpConnection && httpConnection.getResponseCode() != SC_OK) {
+      log.warn("Unable to stream track : ID - {}, Status - {}", trackId, httpConnection.getResponseCode());
+
+      response.sendError(SC_BAD_GATEWAY);
+
+      return;
+    }
+
+    long length = connection.getContentLengthLong();
+
+    if (length >= 0) {
+      response.setContentLengthLong(length);
+
+      // A request for everything from the start still expects a partial content response
+      if (nonNull(request.getHeader("Range"))) {
+        response.setStatus(SC_PARTIAL_CONTENT);
+        response.setHeader("Content-Range", "bytes 0-" + (length - 1) + "/" + length);
+      }
+    }
+
+    File partialFile = cacheService.createPartialFile(TRACK, trackId);
+    boolean isComplete = false;
+
+    try (InputStream inputStream = connection.getInputStream();
+         OutputStream fileOutputStream = new FileOutputStream(partialFile)) {
+      long bytesCopied = copy(inputStream, response.getOutputStream(), fileOutputStream, Long.MAX_VALUE);
+
+      isComplete = length < 0 || bytesCopied == length;
+    } finally {
+      // If the player stopped reading part way through, the track will be fetched again next time
+      if (isComplete) {
+        cacheService.commitPartialFile(TRACK, trackId, partialFile);
+      } else {
+        log.debug("Track not fully streamed, so not cached : ID - {}", trackId);
+
+        cacheService.discardPartialFile(partialFile);
+      }
+    }
+  }
+
+  // Ranges part way into a track that isn't cached yet are passed straight through without caching
+  private void proxyTrack(HttpServletRequest request, HttpServletResponse response, String location,
+      boolean sendBody) throws IOException {
+    URLConnection connection = internetService.openConnection(URI.create(location).toURL());
+
+    ofNullable(request.getHeader("Range")).ifPresent(range -> connection.setRequestProperty("Range", range));
+
+    if (connection instanceof HttpURLConnection httpConnection) {
+      if (!sendBody) {
+        httpConnection.setRequestMethod("HEAD");
+      }
+
+      int status = httpConnection.getResponseCode();
+
+      if (status != SC_OK && status != SC_PARTIAL_CONTENT) {
+        response.sendError(status == SC_REQUESTED_RANGE_NOT_SATISFIABLE ? status : SC_BAD_GATEWAY);
+
+        return;
+      }
+
+      response.setStatus(status);
+      ofNullable(httpConnection.getHeaderField("Content-Range")).ifPresent(contentRange ->
+          response.setHeader("Content-Range", contentRange));
+    }
+
+    if (connection.getContentLengthLong() >= 0) {
+      response.setContentLengthLong(connection.getContentLengthLong());
+    }
+
+    if (sendBody) {
+      try (InputStream inputStream = connection.getInputStream()) {
+        copy(inputStream, response.getOutputStream(), null, Long.MAX_VALUE);
+      }
+    } else {
+      connection.getInputStream().close();
+    }
+  }
+
+  // Tracks are only ever fetched from the bucket the data file points at
+  private boolean isTrackLocation(String location) {
+    try {
+      String scheme = URI.create(location).getScheme();
+
+      return ("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme))
+          && location.startsWith(applicationProperties.getS3BucketUrl());
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  private boolean isWholeTrack(String range) {
+    return isNull(range) || range.trim().equals("bytes=0-");
+  }
+
+  // The path is the track ID followed by the file extension of the original location
+  private String getTrackId(HttpServletRequest request) {
+    String pathInfo = request.getPathInfo();
+
+    if (isNull(pathInfo) || pathInfo.length() < 2) {
+      return null;
+    }
+
+    String fileName = pathInfo.substring(1);
+    int extensionIndex = fileName.lastIndexOf('.');
+
+    return extensionIndex > 0 ? fileName.substring(0, extensionIndex) : fileName;
+  }
+
+  private long copy(InputStream inputStream, OutputStream outputStream, OutputStream teeStream, long maxBytes)
+      throws IOException {
+    byte[] buffer = new byte[BUFFER_SIZE];
+    long bytesCopied = 0;
+    int bytesRead;
+
+    while (bytesCopied < maxBytes
+        && (bytesRead = inputStream.read(buffer, 0, (int) Math.min(buffer.length, maxBytes - bytesCopied))) != -1) {
+      // Write to the cache first, so the cached copy is never behind what the player has been sent
+      if (nonNull(teeStream)) {
+        teeStream.write(buffer, 0, bytesRead);
+      }
+
+      outputStream.write(buffer, 0, bytesRead);
+      bytesCopied += bytesRead;
+    }
+
+    return bytesCopied;
+  }
+}
@@ -0,0 +1,4 @@
+package uk.co.mpcontracting.rpmjukebox.search;
+
+public record FacetCount(String value, int count) {
+}
@@ -0,0 +1,58 @@
+package uk.co.mpcontracting.rpmjukebox.search;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.MMapDirectory;
+
+// How the track index is read from disk. The index is small enough to keep in memory, so it can be
+// memory mapped and loaded up front rather than waiting on the disk for the first searches
+public enum IndexDirectoryMode {
+
+  // Whatever the platform picks, which is memory mapped on 64 bit JVMs
+  DEFAULT,
+
+  // Memory mapped, with pages only loaded as they are read
+  MMAP,
+
+  // Memory mapped, loading the files every search reads when they're opened. Stored fields are only
+  // read for the results shown, so they're left on disk. Small segments are written as compound files
+  // which hold everything, so those are loaded too
+  MMAP_PRELOAD,
+
+  // Memory mapped, loading every file when it's opened so the whole index is held off heap
+  MMAP_PRELOAD_ALL;
+
+  private static final Set<String> HOT_FILE_EXTENSIONS = Set.of(
+      "tim", "tip", "tmd", // Terms
+      "doc", "pos", "pay", "psm", // Postings
+      "dvd", "dvm", // Doc values
+      "cfs", "cfe" // Compound files
+  );
+
+  public Directory open(Path path) throws IOException {
+    return switch (this) {
+      case DEFAULT -> FSDirectory.open(path);
+      case MMAP -> openMMapDirectory(path, MMapDirectory.NO_FILES);
+      case MMAP_PRELOAD -> openMMapDirectory(path, (fileName, context) -> isHotFile(fileName));
+      case MMAP_PRELOAD_ALL -> openMMapDirectory(path, MMapDirectory.ALL_FILES);
+    };
+  }
+
+  static boolean isHotFile(String fileName) {
+    int index = fileName.lastIndexOf('.');
+
+    return index >= 0 && HOT_FILE_EXTENSIONS.contains(fileName.substring(index + 1));
+  }
+
+  private static Directory openMMapDirectory(Path path, BiPredicate<String, IOContext> preload) throws IOException {
+    MMapDirectory directory = new MMapDirectory(path);
+    directory.setPreload(preload);
+
+    return directory;
+  }
+}
@@ -0,0 +1,20 @@
+package uk.co.mpcontracting.rpmjukebox.search;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.apache.lucene.analysis.ngram.EdgeNGramTokenFilter;
+
+// Indexes the leading characters of every keyword so a partly typed word can be found with a single
+// term lookup. Words longer than the maximum prefix length have to fall back to a wildcard search
+public class KeywordPrefixAnalyzer extends Analyzer {
+
+  public static final int MAX_PREFIX_LENGTH = 8;
+
+  @Override
+  protected TokenStreamComponents createComponents(String fieldName) {
+    Tokenizer tokenizer = new WhitespaceTokenizer();
+
+    return new TokenStreamComponents(tokenizer, new EdgeNGramTokenFilter(tokenizer, 1, MAX_PREFIX_LENGTH, false));
+  }
+}
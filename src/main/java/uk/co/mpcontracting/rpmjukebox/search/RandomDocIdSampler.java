@@ -0,0 +1,119 @@
+package uk.co.mpcontracting.rpmjukebox.search;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
+
+// Picks distinct documents at random without collecting every hit. With no query and no deleted
+// documents every doc id is a track, so Floyd's algorithm picks them directly. Otherwise the matching
+// live documents are streamed through a reservoir the size of the sample
+public class RandomDocIdSampler {
+
+  private final Random random;
+
+  public RandomDocIdSampler(Random random) {
+    this.random = random;
+  }
+
+  // Returns the sample size, or every match if there aren't enough, in a random order
+  public int[] sample(IndexSearcher indexSearcher, Query query, int sampleSize) throws IOException {
+    IndexReader indexReader = indexSearcher.getIndexReader();
+    int maxSampleSize = Math.min(Math.max(sampleSize, 0), indexReader.maxDoc());
+
+    int[] docIds = isNull(query) && !indexReader.hasDeletions()
+        ? floydSample(indexReader.maxDoc(), maxSampleSize)
+        : reservoirSample(indexSearcher, query, maxSampleSize);
+
+    shuffle(docIds);
+
+    return docIds;
+  }
+
+  private int[] floydSample(int numberOfDocs, int sampleSize) {
+    Set<Integer> docIds = new HashSet<>(sampleSize * 2);
+
+    for (int i = numberOfDocs - sampleSize; i < numberOfDocs; i++) {
+      int docId = random.nextInt(i + 1);
+
+      if (!docIds.add(docId)) {
+        docIds.add(i);
+      }
+    }
+
+    return docIds.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  private int[] reservoirSample(IndexSearcher indexSearcher, Query query, int sampleSize) throws IOException {
+    int[] reservoir = new int[sampleSize];
+    int seen = 0;
+
+    if (sampleSize == 0) {
+      return reservoir;
+    }
+
+    Weight weight = isNull(query) ? null : indexSearcher.createWeight(indexSearcher.rewrite(query), ScoreMode.COMPLETE_NO_SCORES, 1);
+
+    for (LeafReaderContext context : indexSearcher.getIndexReader().leaves()) {
+      DocIdSetIterator iterator;
+
+      if (isNull(weight)) {
+        iterator = DocIdSetIterator.all(context.reader().maxDoc());
+      } else {
+        Scorer scorer = weight.scorer(context);
+
+        if (isNull(scorer)) {
+          continue;
+        }
+
+        iterator = scorer.iterator();
+      }
+
+      Bits liveDocs = context.reader().getLiveDocs();
+
+      for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+        if (nonNull(liveDocs) && !liveDocs.get(doc)) {
+          continue;
+        }
+
+        if (seen < sampleSize) {
+          reservoir[seen] = context.docBase + doc;
+        } else {
+          int slot = random.nextInt(seen + 1);
+
+          if (slot < sampleSize) {
+            reservoir[slot] = context.docBase + doc;
+          }
+        }
+
+        seen++;
+      }
+    }
+
+    return seen < sampleSize ? Arrays.copyOf(reservoir, seen) : reservoir;
+  }
+
+  // Neither sample comes out in a random order
+  private void shuffle(int[] docIds) {
+    for (int i = docIds.length - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int docId = docIds[i];
+
+      docIds[i] = docIds[j];
+      docIds[j] = docId;
+    }
+  }
+}
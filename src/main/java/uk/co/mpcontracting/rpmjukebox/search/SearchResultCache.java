@@ -0,0 +1,78 @@
+package uk.co.mpcontracting.rpmjukebox.search;
+
+import static java.util.Objects.isNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Synchronized;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import uk.co.mpcontracting.rpmjukebox.config.ApplicationProperties;
+import uk.co.mpcontracting.rpmjukebox.model.Track;
+
+// Least recently used cache of search results and their facet counts. Tracks are copied in and out of
+// the cache as playlists update the playlist id and index on the tracks they're given
+@Slf4j
+@Component
+public class SearchResultCache {
+
+  private final int maxSize;
+  private final Map<TrackSearch, TrackSearchResult> results;
+  private final AtomicLong generation = new AtomicLong();
+
+  public SearchResultCache(ApplicationProperties applicationProperties) {
+    maxSize = applicationProperties.getSearchCacheSize();
+    results = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<TrackSearch, TrackSearchResult> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  @Synchronized
+  public Optional<TrackSearchResult> get(TrackSearch trackSearch) {
+    TrackSearchResult result = maxSize > 0 ? results.get(trackSearch) : null;
+
+    return isNull(result) ? Optional.empty() : Optional.of(copyResult(result));
+  }
+
+  // Results are only cached if the index hasn't been refreshed since the search started,
+  // otherwise a slow search could put results from the old index back in the cache
+  @Synchronized
+  public void put(TrackSearch trackSearch, TrackSearchResult result, long searchGeneration) {
+    if (maxSize > 0 && searchGeneration == generation.get()) {
+      results.put(trackSearch, copyResult(result));
+    }
+  }
+
+  public long getGeneration() {
+    return generation.get();
+  }
+
+  @Synchronized
+  public void invalidate() {
+    generation.incrementAndGet();
+    results.clear();
+
+    log.debug("Search result cache invalidated");
+  }
+
+  @Synchronized
+  public int size() {
+    return results.size();
+  }
+
+  // The facet counts can't be changed, so only the tracks need copying
+  private TrackSearchResult copyResult(TrackSearchResult result) {
+    List<Track> copy = new ArrayList<>(result.tracks().size());
+
+    result.tracks().forEach(track -> copy.add(track.createClone()));
+
+    return new TrackSearchResult(copy, result.facetCounts());
+  }
+}
@@ -0,0 +1,121 @@
+package uk.co.mpcontracting.rpmjukebox.search;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Synchronized;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.Facets;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState;
+import org.apache.lucene.index.IndexReader;
+import uk.co.mpcontracting.rpmjukebox.model.Track;
+
+// Genre and year facets held in sorted set doc values, so their counts can be gathered in the same
+// pass as a search. The facet ordinals have to be mapped for every reader, which is too slow to do per
+// search, so the mapping is kept until the searcher changes
+@Slf4j
+public class TrackFacets {
+
+  private static final List<TrackField> FACET_FIELDS = List.of(TrackField.GENRE, TrackField.YEAR);
+
+  private final FacetsConfig facetsConfig;
+
+  private SortedSetDocValuesReaderState readerState;
+
+  public TrackFacets() {
+    facetsConfig = new FacetsConfig();
+    facetsConfig.setMultiValued(TrackField.GENRE.name(), true);
+  }
+
+  // Facet fields have to be translated into index fields before the document is written
+  public Document build(Document document, Track track) throws IOException {
+    for (String genre : track.getGenres()) {
+      // Facet labels can't be empty, so unspecified genres are left out of the counts
+      if (nonNull(genre) && !genre.isEmpty()) {
+        document.add(new SortedSetDocValuesFacetField(TrackField.GENRE.name(), genre));
+      }
+    }
+
+    document.add(new SortedSetDocValuesFacetField(TrackField.YEAR.name(), Integer.toString(track.getYear())));
+
+    return facetsConfig.build(document);
+  }
+
+  // Counts every track in the index
+  public Map<TrackField, List<FacetCount>> getFacetCounts(IndexReader indexReader) throws IOException {
+    return getFacetCounts(indexReader, null);
+  }
+
+  // Counts the tracks matched by a search
+  public Map<TrackField, List<FacetCount>> getFacetCounts(IndexReader indexReader, FacetsCollector facetsCollector) throws IOException {
+    SortedSetDocValuesReaderState state = getReaderState(indexReader);
+
+    if (isNull(state)) {
+      return Collections.emptyMap();
+    }
+
+    Facets facets = isNull(facetsCollector)
+        ? new SortedSetDocValuesFacetCounts(state)
+        : new SortedSetDocValuesFacetCounts(state, facetsCollector);
+    Map<TrackField, List<FacetCount>> facetCounts = new EnumMap<>(TrackField.class);
+
+    for (TrackField trackField : FACET_FIELDS) {
+      List<FacetCount> counts = new ArrayList<>();
+      FacetResult facetResult = getAllChildren(facets, trackField);
+
+      if (nonNull(facetResult)) {
+        for (LabelAndValue labelAndValue : facetResult.labelValues) {
+          counts.add(new FacetCount(labelAndValue.label, labelAndValue.value.intValue()));
+        }
+      }
+
+      facetCounts.put(trackField, List.copyOf(counts));
+    }
+
+    // Held in the search result cache, so nothing can change them once they're built
+    return Collections.unmodifiableMap(facetCounts);
+  }
+
+  @Synchronized
+  private SortedSetDocValuesReaderState getReaderState(IndexReader indexReader) throws IOException {
+    if (isNull(readerState) || readerState.getReader() != indexReader) {
+      long startTime = System.currentTimeMillis();
+
+      try {
+        readerState = new DefaultSortedSetDocValuesReaderState(indexReader, facetsConfig);
+      } catch (IllegalArgumentException e) {
+        // Nothing has been indexed with facets yet
+        readerState = null;
+
+        return null;
+      }
+
+      log.debug("Facet state time - {} milliseconds", System.currentTimeMillis() - startTime);
+    }
+
+    return readerState;
+  }
+
+  private FacetResult getAllChildren(Facets facets, TrackField trackField) throws IOException {
+    try {
+      return facets.getAllChildren(trackField.name());
+    } catch (IllegalArgumentException e) {
+      // None of the tracks have a value for this field
+      return null;
+    }
+  }
+}
@@ -2,5 +2,5 @@ package uk.co.mpcontracting.rpmjukebox.search;
 
 public enum TrackField {
   KEYWORDS, ARTIST_ID, ARTIST_NAME, ALBUM_ID, ALBUM_NAME, ALBUM_IMAGE, YEAR, TRACK_ID, TRACK_NAME, INDEX,
-  LOCATION, IS_PREFERRED, GENRE
+  LOCATION, IS_PREFERRED, GENRE, CONTENT_HASH, KEYWORD_PREFIXES
 }
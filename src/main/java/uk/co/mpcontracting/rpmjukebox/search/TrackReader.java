@@ -0,0 +1,126 @@
+package uk.co.mpcontracting.rpmjukebox.search;
+
+import static java.util.Objects.isNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.search.ScoreDoc;
+import uk.co.mpcontracting.rpmjukebox.model.Track;
+
+// Builds tracks from the index without loading whole documents. Numbers and flags come from doc
+// values and only the string fields a track needs are read from the stored fields. Doc values can
+// only be read forwards, so a reader is for a single thread and batches are read in doc id order
+public class TrackReader {
+
+  private final List<LeafReaderContext> leaves;
+  private LeafTrackReader leafTrackReader;
+
+  public TrackReader(IndexReader indexReader) {
+    leaves = indexReader.leaves();
+  }
+
+  public Track getTrack(int docId) throws IOException {
+    LeafReaderContext context = leaves.get(ReaderUtil.subIndex(docId, leaves));
+    int leafDocId = docId - context.docBase;
+
+    if (isNull(leafTrackReader) || leafTrackReader.context != context || leafDocId < leafTrackReader.lastDocId) {
+      leafTrackReader = new LeafTrackReader(context);
+    }
+
+    return leafTrackReader.getTrack(leafDocId);
+  }
+
+  public List<Track> getTracks(ScoreDoc[] scoreDocs) throws IOException {
+    Integer[] readOrder = new Integer[scoreDocs.length];
+
+    for (int i = 0; i < readOrder.length; i++) {
+      readOrder[i] = i;
+    }
+
+    Arrays.sort(readOrder, Comparator.comparingInt(i -> scoreDocs[i].doc));
+
+    Track[] tracks = new Track[scoreDocs.length];
+
+    for (int i : readOrder) {
+      tracks[i] = getTrack(scoreDocs[i].doc);
+    }
+
+    return new ArrayList<>(Arrays.asList(tracks));
+  }
+
+  private static class LeafTrackReader {
+    private final LeafReaderContext context;
+    private final StoredFields storedFields;
+    private final NumericDocValues years;
+    private final NumericDocValues indexes;
+    private final NumericDocValues preferred;
+    private int lastDocId = -1;
+
+    private LeafTrackReader(LeafReaderContext context) throws IOException {
+      LeafReader leafReader = context.reader();
+
+      this.context = context;
+      storedFields = leafReader.storedFields();
+      years = DocValues.getNumeric(leafReader, TrackField.YEAR.name());
+      indexes = DocValues.getNumeric(leafReader, TrackField.INDEX.name());
+      preferred = DocValues.getNumeric(leafReader, TrackField.IS_PREFERRED.name());
+    }
+
+    private Track getTrack(int docId) throws IOException {
+      lastDocId = docId;
+
+      TrackFieldVisitor visitor = new TrackFieldVisitor();
+      storedFields.document(docId, visitor);
+
+      return visitor.builder
+          .year(years.advanceExact(docId) ? (int) years.longValue() : 0)
+          .index(indexes.advanceExact(docId) ? (int) indexes.longValue() : 0)
+          .isPreferred(preferred.advanceExact(docId) && preferred.longValue() == 1)
+          .genres(visitor.genres)
+          .build();
+    }
+  }
+
+  private static class TrackFieldVisitor extends StoredFieldVisitor {
+    private final Track.TrackBuilder builder = Track.builder();
+    private final List<String> genres = new ArrayList<>(2);
+
+    @Override
+    public Status needsField(FieldInfo fieldInfo) {
+      return switch (TrackField.valueOf(fieldInfo.getName())) {
+        case ARTIST_ID, ARTIST_NAME, ALBUM_ID, ALBUM_NAME, ALBUM_IMAGE, TRACK_ID, TRACK_NAME, LOCATION, GENRE -> Status.YES;
+        default -> Status.NO;
+      };
+    }
+
+    @Override
+    public void stringField(FieldInfo fieldInfo, String value) {
+      switch (TrackField.valueOf(fieldInfo.getName())) {
+        case ARTIST_ID -> builder.artistId(value);
+        case ARTIST_NAME -> builder.artistName(value);
+        case ALBUM_ID -> builder.albumId(value);
+        case ALBUM_NAME -> builder.albumName(value);
+        case ALBUM_IMAGE -> builder.albumImage(value);
+        case TRACK_ID -> builder.trackId(value);
+        case TRACK_NAME -> builder.trackName(value);
+        case LOCATION -> builder.location(value);
+        case GENRE -> genres.add(value);
+        default -> {
+          // Not needed for a track
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,8 @@
+package uk.co.mpcontracting.rpmjukebox.search;
+
+import java.util.List;
+import java.util.Map;
+import uk.co.mpcontracting.rpmjukebox.model.Track;
+
+public record TrackSearchResult(List<Track> tracks, Map<TrackField, List<FacetCount>> facetCounts) {
+}
@@ -3,13 +3,18 @@ package uk.co.mpcontracting.rpmjukebox.service;
 import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
 import static uk.co.mpcontracting.rpmjukebox.event.Event.APPLICATION_INITIALISED;
+import static uk.co.mpcontracting.rpmjukebox.event.Event.DATA_DOWNLOAD_UPDATED;
 import static uk.co.mpcontracting.rpmjukebox.util.Constants.IMAGE_WINDOW_ICON;
+import static uk.co.mpcontracting.rpmjukebox.util.Constants.MESSAGE_SPLASH_DOWNLOADING_DATA;
 import static uk.co.mpcontracting.rpmjukebox.util.Constants.MESSAGE_SPLASH_INITIALISING_VIEWS;
 import static uk.co.mpcontracting.rpmjukebox.util.Constants.MESSAGE_SPLASH_LOADING_USER_SETTINGS;
 import static uk.co.mpcontracting.rpmjukebox.util.Constants.MESSAGE_WINDOW_TITLE;
 import static uk.co.mpcontracting.rpmjukebox.util.OsType.WINDOWS;
 
 import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CountDownLatch;
 import javafx.scene.image.Image;
 import javafx.stage.Stage;
@@ -26,7 +31,9 @@ import org.springframework.core.env.Environment;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
 import uk.co.mpcontracting.rpmjukebox.RpmJukebox;
+import uk.co.mpcontracting.rpmjukebox.event.Event;
 import uk.co.mpcontracting.rpmjukebox.event.EventAwareObject;
+import uk.co.mpcontracting.rpmjukebox.jetty.JettyServer;
 import uk.co.mpcontracting.rpmjukebox.util.ThreadRunner;
 import uk.co.mpcontracting.rpmjukebox.view.AbstractModalView;
 
@@ -41,8 +48,10 @@ public class ApplicationLifecycleService extends EventAwareObject implements App
   private final ThreadRunner threadRunner;
 
   private final RpmJukebox rpmJukebox;
+  private final JettyServer jettyServer;
 
   private final MediaService mediaService;
+  private final NativeService nativeService;
   private final SearchService searchService;
   private final SettingsService settingsService;
   private final StringResourceService stringResourceService;
@@ -62,23 +71,74 @@ public class ApplicationLifecycleService extends EventAwareObject implements App
 
     // Don't initialise anything if we're running tests
     if (Arrays.stream(environment.getActiveProfiles()).noneMatch("test"::equals)) {
-      searchService.initialise();
+      long startTime = System.currentTimeMillis();
+
+      // Stages start as soon as the stages they depend on have finished, so anything that
+      // doesn't need the index runs alongside checking the data file and opening the index
+      CompletableFuture<Boolean> dataFileExpired = runStage("data file check", settingsService::hasDataFileExpired);
+      CompletableFuture<Boolean> indexOpened = runStage("open index", searchService::openIndex);
+      CompletableFuture<Boolean> nativeLibraries = runStage("native libraries", () -> {
+        nativeService.initialise();
+        return true;
+      });
+      CompletableFuture<Boolean> modalViews = runStage("modal views", this::initialiseModalViews);
+      CompletableFuture<Boolean> jetty = runStage("jetty server", jettyServer::start);
+      CompletableFuture<Boolean> searchIndex = runStage("search index", () -> {
+        if (indexOpened.join()) {
+          searchService.initialiseIndex(dataFileExpired.join());
+          return true;
+        }
+
+        return false;
+      }, dataFileExpired, indexOpened);
+      CompletableFuture<Boolean> userSettings = runStage("user settings", () -> {
+        // Nothing more to do if the application is exiting
+        if (searchIndex.join()) {
+          rpmJukebox.updateSplashProgress(stringResourceService.getString(MESSAGE_SPLASH_LOADING_USER_SETTINGS));
+          settingsService.loadUserSettings();
+          return true;
+        }
+
+        return false;
+      }, searchIndex);
+
+      try {
+        CompletableFuture.allOf(nativeLibraries, modalViews, jetty, userSettings).join();
+      } catch (CompletionException e) {
+        throw e.getCause();
+      }
+
+      log.debug("Application initialised in {} milliseconds", System.currentTimeMillis() - startTime);
+    }
+  }
 
-      rpmJukebox.updateSplashProgress(stringResourceService.getString(MESSAGE_SPLASH_LOADING_USER_SETTINGS));
+  private <T> CompletableFuture<T> runStage(String name, Callable<T> stage, CompletableFuture<?>... dependencies) {
+    return CompletableFuture.allOf(dependencies).thenApplyAsync(ignored -> {
+      long startTime = System.currentTimeMillis();
+
+      try {
+        return stage.call();
+      } catch (Exception e) {
+        throw new CompletionException(e);
+      } finally {
+        log.debug("Startup stage {} - {} milliseconds", name, System.currentTimeMillis() - startTime);
+      }
+    }, threadRunner::run);
+  }
 
-      settingsService.loadUserSettings();
+  private boolean initialiseModalViews() throws InterruptedException {
+    // Initialise modal views on UI thread
+    rpmJukebox.updateSplashProgress(stringResourceService.getString(MESSAGE_SPLASH_INITIALISING_VIEWS));
+    CountDownLatch countDownLatch = new CountDownLatch(1);
 
-      // Initialise modal views on UI thread
-      rpmJukebox.updateSplashProgress(stringResourceService.getString(MESSAGE_SPLASH_INITIALISING_VIEWS));
-      CountDownLatch countDownLatch = new CountDownLatch(1);
+    threadRunner.runOnGui(() -> {
+      applicationContext.getBeansOfType(AbstractModalView.class).forEach((name, view) -> view.initialise());
+      countDownLatch.countDown();
+    });
 
-      threadRunner.runOnGui(() -> {
-        applicationContext.getBeansOfType(AbstractModalView.class).forEach((name, view) -> view.initialise());
-        countDownLatch.countDown();
-      });
+    countDownLatch.await();
 
-      countDownLatch.await();
-    }
+    return true;
   }
 
   @SneakyThrows
@@ -104,6 +164,7 @@ public class ApplicationLifecycleService extends EventAwareObject implements App
   public void stop() {
     log.info("Stopping application");
 
+    jettyServer.stop();
     mediaService.cleanUpResources();
     searchService.shutdown();
 
@@ -123,4 +184,17 @@ public class ApplicationLifecycleService extends EventAwareObject implements App
       System.exit(0);
     }
   }
+
+  @Override
+  public void eventReceived(Event event, Object... payload) {
+    // Show how much of the data file has been downloaded until the window is showing
+    if (event == DATA_DOWNLOAD_UPDATED && !isInitialised) {
+      long bytesDownloaded = (Long) payload[0];
+      long totalBytes = (Long) payload[1];
+
+      if (totalBytes > 0) {
+        rpmJukebox.updateSplashProgress(stringResourceService.getString(MESSAGE_SPLASH_DOWNLOADING_DATA, (bytesDownloaded * 100) / totalBytes));
+      }
+    }
+  }
 }
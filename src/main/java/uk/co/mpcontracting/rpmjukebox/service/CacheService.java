@@ -1,9 +1,11 @@
 package uk.co.mpcontracting.rpmjukebox.service;
 
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static java.util.Objects.nonNull;
 import static java.util.Objects.requireNonNull;
 import static java.util.Optional.empty;
 import static java.util.Optional.of;
+import static java.util.Optional.ofNullable;
 import static uk.co.mpcontracting.rpmjukebox.util.CacheType.TRACK;
 
 import jakarta.annotation.PostConstruct;
@@ -13,6 +15,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
+import java.nio.file.Files;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
@@ -22,8 +25,11 @@ import java.util.Optional;
 import lombok.RequiredArgsConstructor;
 import lombok.Synchronized;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import uk.co.mpcontracting.rpmjukebox.config.ApplicationProperties;
+import uk.co.mpcontracting.rpmjukebox.jetty.JettyServer;
 import uk.co.mpcontracting.rpmjukebox.util.CacheType;
 import uk.co.mpcontracting.rpmjukebox.util.HashGenerator;
 import uk.co.mpcontracting.rpmjukebox.util.ThreadRunner;
@@ -33,11 +39,18 @@ import uk.co.mpcontracting.rpmjukebox.util.ThreadRunner;
 @RequiredArgsConstructor
 public class CacheService {
 
+  private static final String PARTIAL_FILE_SUFFIX = ".part";
+
   private final ApplicationProperties applicationProperties;
   private final ThreadRunner threadRunner;
   private final HashGenerator hashGenerator;
   private final InternetService internetService;
   private final SettingsService settingsService;
+  private final MetricsService metricsService;
+
+  @Lazy
+  @Autowired
+  private JettyServer jettyServer;
 
   private File cacheDirectory;
   private Comparator<File> timestampComparator;
@@ -53,6 +66,10 @@ public class CacheService {
       throw new RuntimeException("Unable to create cache directory - " + cacheDirectory.getAbsolutePath());
     }
 
+    // Nothing is streaming yet, so any partial files were left behind when the jukebox last stopped
+    ofNullable(cacheDirectory).map(directory -> directory.listFiles((dir, name) -> name.endsWith(PARTIAL_FILE_SUFFIX)))
+        .ifPresent(partialFiles -> List.of(partialFiles).forEach(this::discardPartialFile));
+
     timestampComparator = (file1, file2) -> {
       if (file1.lastModified() == file2.lastModified()) {
         return 0;
@@ -63,6 +80,12 @@ public class CacheService {
   }
 
   public String getFileLocation(CacheType cacheType, String id, String location) {
+    // JavaFX won't play cached tracks as they don't have a file extension, so tracks are streamed
+    // through Jetty instead, which serves them from the cache or fills the cache as they play
+    if (cacheType == TRACK) {
+      return jettyServer.isRunning() ? jettyServer.getTrackUrl(id, location) : location;
+    }
+
     return readCache(cacheType, id)
         .map(file -> file.toURI().toString())
         .orElseGet(() -> {
@@ -89,13 +112,17 @@ public class CacheService {
   }
 
   @Synchronized
-  protected Optional<File> readCache(CacheType cacheType, String id) {
+  public Optional<File> readCache(CacheType cacheType, String id) {
     log.debug("Reading cache : Cache type - {}, ID - {}", cacheType, id);
 
     try {
-      File file = new File(cacheDirectory, (cacheType == TRACK ? id : hashGenerator.generateHash(id)));
+      File file = getCacheFile(cacheType, id);
 
-      if (file.exists()) {
+      boolean exists = file.exists();
+
+      metricsService.recordCacheRead(exists);
+
+      if (exists) {
         log.debug("Found cached file : Cache type - {}, ID - {}", cacheType, id);
 
         if (!file.setLastModified(LocalDateTime.now().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())) {
@@ -118,7 +145,7 @@ public class CacheService {
     log.debug("Writing cache : Cache type - {}, ID - {}", cacheType, id);
 
     try {
-      File file = new File(cacheDirectory, (cacheType == TRACK ? id : hashGenerator.generateHash(id)));
+      File file = getCacheFile(cacheType, id);
 
       log.info("File - {}", file.getAbsolutePath());
 
@@ -140,12 +167,44 @@ public class CacheService {
     }
   }
 
+  // Somewhere to write a file as it streams in, so a partly written file is never read from the cache
+  public File createPartialFile(CacheType cacheType, String id) throws IOException {
+    return Files.createTempFile(cacheDirectory.toPath(), getCacheFile(cacheType, id).getName(), PARTIAL_FILE_SUFFIX).toFile();
+  }
+
+  @Synchronized
+  public void commitPartialFile(CacheType cacheType, String id, File partialFile) {
+    log.debug("Committing partial file : Cache type - {}, ID - {}", cacheType, id);
+
+    try {
+      Files.move(partialFile.toPath(), getCacheFile(cacheType, id).toPath(), REPLACE_EXISTING);
+
+      trimCache();
+    } catch (Exception e) {
+      log.error("Unable to commit partial file : Cache type - {}, ID - {}", cacheType, id, e);
+
+      discardPartialFile(partialFile);
+    }
+  }
+
+  public void discardPartialFile(File partialFile) {
+    if (partialFile.exists() && !partialFile.delete()) {
+      log.warn("Unable to delete partial file - {}", partialFile.getAbsolutePath());
+    }
+  }
+
+  private File getCacheFile(CacheType cacheType, String id) {
+    return new File(cacheDirectory, (cacheType == TRACK ? id : hashGenerator.generateHash(id)));
+  }
+
   private void trimCache() {
     int cacheSizeMb = settingsService.getSystemSettings().getCacheSizeMb();
 
     log.debug("Trimming the cache to {}Mb", cacheSizeMb);
 
-    List<File> files = new ArrayList<>(List.of(requireNonNull(cacheDirectory.listFiles())));
+    // Files still being streamed in aren't in the cache yet, so they're neither counted nor deleted
+    List<File> files = new ArrayList<>(List.of(requireNonNull(cacheDirectory.listFiles((directory, name) ->
+        !name.endsWith(PARTIAL_FILE_SUFFIX)))));
 
     files.sort(timestampComparator);
 
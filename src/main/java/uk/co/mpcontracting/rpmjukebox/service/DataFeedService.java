@@ -0,0 +1,289 @@
+package uk.co.mpcontracting.rpmjukebox.service;
+
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
+import static java.net.HttpURLConnection.HTTP_OK;
+import static java.net.HttpURLConnection.HTTP_PARTIAL;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Objects.nonNull;
+import static uk.co.mpcontracting.rpmjukebox.event.Event.APPLICATION_INITIALISED;
+import static uk.co.mpcontracting.rpmjukebox.event.Event.DATA_DOWNLOAD_UPDATED;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.Synchronized;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+import uk.co.mpcontracting.rpmjukebox.config.ApplicationProperties;
+import uk.co.mpcontracting.rpmjukebox.event.Event;
+import uk.co.mpcontracting.rpmjukebox.event.EventAwareObject;
+import uk.co.mpcontracting.rpmjukebox.settings.DataFeed;
+import uk.co.mpcontracting.rpmjukebox.util.ThreadRunner;
+
+// Keeps a local copy of the data file so it's only downloaded when it has changed. The copy is
+// refreshed in the background with conditional requests and indexing always reads from it
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DataFeedService extends EventAwareObject {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final long PROGRESS_INTERVAL_BYTES = 256 * 1024;
+
+  // S3 uses the MD5 of the content as the ETag, unless it was a multipart upload
+  private static final Pattern MD5_ETAG = Pattern.compile("\"?([0-9a-fA-F]{32})\"?");
+  private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-\\d+/(\\d+)");
+
+  private final ThreadRunner threadRunner;
+  private final ScheduledExecutorService scheduledExecutorService;
+  private final ApplicationProperties applicationProperties;
+
+  private final InternetService internetService;
+  private final SettingsService settingsService;
+
+  @Lazy
+  @Autowired
+  private SearchService searchService;
+
+  // Returns the local copy of the data file, only downloading it here if there isn't one yet. Returns
+  // null if there is no complete copy to index
+  @SneakyThrows
+  public URL getDataFile() {
+    File localFile = getLocalFile();
+
+    if (!localFile.exists()) {
+      sync();
+    }
+
+    return localFile.exists() ? localFile.toURI().toURL() : null;
+  }
+
+  // Downloads the data file if it has changed since the local copy was taken, returning true if the
+  // local copy was updated. An interrupted download is resumed from where it stopped if the file
+  // hasn't changed since, and a download only replaces the local copy once it has been verified
+  @Synchronized
+  public boolean sync() {
+    URL dataFile = settingsService.getDataFile();
+    File localFile = getLocalFile();
+    File downloadFile = getDownloadFile();
+    DataFeed dataFeed = settingsService.loadDataFeed();
+
+    if (nonNull(dataFeed) && !dataFile.toString().equals(dataFeed.getUrl())) {
+      dataFeed = null;
+    }
+
+    boolean hasLocalCopy = localFile.exists() && nonNull(dataFeed);
+    URLConnection connection = null;
+
+    log.debug("Syncing data file - {}", dataFile);
+
+    try {
+      connection = internetService.openConnection(dataFile);
+
+      if (hasLocalCopy) {
+        if (dataFeed.getLastModified() > 0) {
+          connection.setIfModifiedSince(dataFeed.getLastModified());
+        }
+
+        if (nonNull(dataFeed.getEtag())) {
+          connection.setRequestProperty("If-None-Match", dataFeed.getEtag());
+        }
+      }
+
+      long resumeFrom = 0;
+      long totalBytes = -1;
+
+      if (connection instanceof HttpURLConnection httpURLConnection) {
+        // If-Range makes the server send the whole file again if it has changed since the download started
+        boolean canResume = downloadFile.exists() && downloadFile.length() > 0 && nonNull(dataFeed) && nonNull(dataFeed.getDownloadEtag());
+
+        if (canResume) {
+          httpURLConnection.setRequestProperty("Range", "bytes=" + downloadFile.length() + "-");
+          httpURLConnection.setRequestProperty("If-Range", dataFeed.getDownloadEtag());
+        }
+
+        int responseCode = httpURLConnection.getResponseCode();
+
+        if (responseCode == HTTP_NOT_MODIFIED) {
+          log.debug("Data file not modified");
+
+          return false;
+        }
+
+        if (responseCode == HTTP_PARTIAL) {
+          Matcher contentRange = CONTENT_RANGE.matcher(String.valueOf(httpURLConnection.getHeaderField("Content-Range")));
+
+          if (!canResume || !contentRange.matches() || Long.parseLong(contentRange.group(1)) != downloadFile.length()) {
+            log.error("Unable to resume data file download : Content range - {}", httpURLConnection.getHeaderField("Content-Range"));
+
+            Files.deleteIfExists(downloadFile.toPath());
+
+            return false;
+          }
+
+          resumeFrom = downloadFile.length();
+          totalBytes = Long.parseLong(contentRange.group(2));
+
+          log.info("Resuming data file download from {} bytes", resumeFrom);
+        } else if (responseCode == HTTP_OK) {
+          totalBytes = connection.getContentLengthLong();
+        } else {
+          log.error("Unable to sync data file : Response code - {}", responseCode);
+
+          return false;
+        }
+      } else if (hasLocalCopy && connection.getLastModified() == dataFeed.getLastModified()) {
+        log.debug("Data file not modified");
+
+        return false;
+      } else {
+        totalBytes = connection.getContentLengthLong();
+      }
+
+      String etag = connection.getHeaderField("ETag");
+
+      // Remember what's being downloaded so it can be resumed if the download is interrupted
+      settingsService.saveDataFeed(DataFeed.builder()
+          .url(dataFile.toString())
+          .etag(hasLocalCopy ? dataFeed.getEtag() : null)
+          .lastModified(hasLocalCopy ? dataFeed.getLastModified() : 0)
+          .checksum(hasLocalCopy ? dataFeed.getChecksum() : null)
+          .downloadEtag(etag)
+          .build());
+
+      long startTime = System.currentTimeMillis();
+
+      download(connection, downloadFile, resumeFrom, totalBytes);
+
+      // A download that stopped short is kept to be resumed next time
+      if (totalBytes > 0 && downloadFile.length() != totalBytes) {
+        log.error("Data file download incomplete : Expected {} bytes, got {} bytes", totalBytes, downloadFile.length());
+
+        return false;
+      }
+
+      String checksum = generateChecksum(downloadFile);
+      Matcher md5Etag = MD5_ETAG.matcher(String.valueOf(etag));
+
+      if (md5Etag.matches() && !md5Etag.group(1).equalsIgnoreCase(checksum)) {
+        log.error("Data file checksum doesn't match : Expected {}, got {}", md5Etag.group(1), checksum);
+
+        Files.deleteIfExists(downloadFile.toPath());
+
+        return false;
+      } else if (!md5Etag.matches()) {
+        log.debug("Data file ETag isn't an MD5, so only the download length has been checked - {}", etag);
+      }
+
+      Files.move(downloadFile.toPath(), localFile.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+
+      settingsService.saveDataFeed(DataFeed.builder()
+          .url(dataFile.toString())
+          .etag(etag)
+          .lastModified(connection.getLastModified())
+          .checksum(checksum)
+          .build());
+
+      log.info("Downloaded data file in {} milliseconds - {} bytes", System.currentTimeMillis() - startTime, localFile.length());
+
+      return true;
+    } catch (Exception e) {
+      log.error("Unable to sync data file", e);
+
+      return false;
+    } finally {
+      if (connection instanceof HttpURLConnection httpURLConnection) {
+        httpURLConnection.disconnect();
+      }
+    }
+  }
+
+  private void download(URLConnection connection, File downloadFile, long resumeFrom, long totalBytes) throws Exception {
+    long bytesDownloaded = resumeFrom;
+    long lastProgress = resumeFrom;
+
+    fireEvent(DATA_DOWNLOAD_UPDATED, bytesDownloaded, totalBytes);
+
+    try (InputStream inputStream = connection.getInputStream();
+        OutputStream outputStream = new FileOutputStream(downloadFile, resumeFrom > 0)) {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int bytesRead;
+
+      while ((bytesRead = inputStream.read(buffer)) != -1) {
+        outputStream.write(buffer, 0, bytesRead);
+        bytesDownloaded += bytesRead;
+
+        if (bytesDownloaded - lastProgress >= PROGRESS_INTERVAL_BYTES) {
+          fireEvent(DATA_DOWNLOAD_UPDATED, bytesDownloaded, totalBytes);
+          lastProgress = bytesDownloaded;
+        }
+      }
+    } finally {
+      fireEvent(DATA_DOWNLOAD_UPDATED, bytesDownloaded, totalBytes);
+    }
+  }
+
+  private String generateChecksum(File file) throws Exception {
+    MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+
+    try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int bytesRead;
+
+      while ((bytesRead = inputStream.read(buffer)) != -1) {
+        messageDigest.update(buffer, 0, bytesRead);
+      }
+    }
+
+    return HexFormat.of().formatHex(messageDigest.digest());
+  }
+
+  private void syncAndReindex() {
+    try {
+      if (sync()) {
+        log.info("Data file has changed, reindexing");
+
+        searchService.indexData();
+      }
+    } catch (Exception e) {
+      log.error("Unable to reindex changed data file", e);
+    }
+  }
+
+  private File getLocalFile() {
+    return settingsService.getFileFromConfigDirectory(applicationProperties.getDataFeedFile());
+  }
+
+  private File getDownloadFile() {
+    return settingsService.getFileFromConfigDirectory(applicationProperties.getDataFeedFile() + ".download");
+  }
+
+  @Override
+  public void eventReceived(Event event, Object... payload) {
+    if (event == APPLICATION_INITIALISED) {
+      long dataFeedSyncMinutes = applicationProperties.getDataFeedSyncMinutes();
+
+      // The scheduler is shared, so the sync itself runs on a background thread
+      if (dataFeedSyncMinutes > 0) {
+        scheduledExecutorService.scheduleWithFixedDelay(() -> threadRunner.run(this::syncAndReindex), 0,
+            dataFeedSyncMinutes, TimeUnit.MINUTES);
+      }
+    }
+  }
+}
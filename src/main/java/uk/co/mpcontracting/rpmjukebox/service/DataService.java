@@ -3,17 +3,23 @@ package uk.co.mpcontracting.rpmjukebox.service;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.stream;
 import static java.util.Collections.singletonList;
-import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static java.util.Optional.ofNullable;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.stream.Collectors.toList;
 import static uk.co.mpcontracting.rpmjukebox.util.Constants.UNSPECIFIED_GENRE;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Scanner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.GZIPInputStream;
 import lombok.Builder;
 import lombok.Data;
@@ -23,6 +29,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import uk.co.mpcontracting.rpmjukebox.config.ApplicationProperties;
 import uk.co.mpcontracting.rpmjukebox.model.Track;
+import uk.co.mpcontracting.rpmjukebox.util.FeedLineTokenizer;
+import uk.co.mpcontracting.rpmjukebox.util.GenreNormaliser;
 import uk.co.mpcontracting.rpmjukebox.util.HashGenerator;
 
 @Slf4j
@@ -45,64 +53,178 @@ public class DataService {
   private static final int TRACK_INDEX = 5;
   private static final int TRACK_GENRE = 6;
 
+  private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+  private static final int TRACK_BATCH_SIZE = 256;
+
   private final ApplicationProperties applicationProperties;
   private final HashGenerator hashGenerator;
+  private final GenreNormaliser genreNormaliser;
 
   private final InternetService internetService;
   private final SearchService searchService;
+  private final MetricsService metricsService;
 
-  void parse(URL dataFile) {
+  boolean parse(URL dataFile) {
     log.info("Loading data from - {}", dataFile);
 
+    long startTime = System.nanoTime();
+    long lineCount = 0;
+    boolean completed = false;
+
+    // Rows that can't be parsed are skipped, but a track that can't be indexed means the index is incomplete
+    AtomicInteger indexFailures = new AtomicInteger();
+
+    // Track rows are parsed, hashed and indexed on a pool of workers. The queue is bounded
+    // and overflow runs on the reading thread, so a slow indexer throttles the download
+    int parserThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    ThreadPoolExecutor parserExecutor = new ThreadPoolExecutor(parserThreads, parserThreads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(parserThreads * 2), new ThreadPoolExecutor.CallerRunsPolicy());
+
     try {
       ParserModelData parserModelData = new ParserModelData();
+      FeedLineTokenizer tokenizer = new FeedLineTokenizer();
 
       try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(
-          internetService.openConnection(dataFile).getInputStream()), UTF_8))) {
-        reader.lines().forEach(line -> {
-          try {
-            // Split the string into row data
-            String[] rowData = line.split("\\|@\\|");
-
-            // B = Band, A = Album, T = Track
-            if ("B".equals(getRowData(rowData, 0))) {
-              ParserModelArtist parserModelArtist = parseArtist(rowData);
-              parserModelData.setArtist(parserModelArtist);
-            } else if ("A".equals(getRowData(rowData, 0))) {
-              parserModelData.setAlbum(parseAlbum(rowData));
-            } else if ("T".equals(getRowData(rowData, 0))) {
-              ParserModelArtist parserModelArtist = parserModelData.getArtist();
-              ParserModelAlbum parserModelAlbum = parserModelData.getAlbum();
-              ParserModelTrack parserModelTrack = parseTrack(rowData);
-              String trackKey = getTrackKey(parserModelArtist, parserModelAlbum, parserModelTrack);
-              String albumName = parserModelAlbum.getAlbumName().isEmpty() ? parserModelArtist.getArtistName() : parserModelAlbum.getAlbumName();
-
-              searchService.addTrack(Track.builder()
-                  .artistId(parserModelArtist.getArtistId())
-                  .artistName(parserModelArtist.getArtistName())
-                  .albumId(parserModelAlbum.getAlbumId())
-                  .albumName(albumName)
-                  .albumImage(applicationProperties.getS3BucketUrl() + getAlbumImageKey(parserModelArtist, parserModelAlbum))
-                  .year(parserModelAlbum.getYear())
-                  .trackId(hashGenerator.generateHash(trackKey))
-                  .trackName(parserModelTrack.getTrackName())
-                  .index(parserModelTrack.getIndex())
-                  .location(applicationProperties.getS3BucketUrl() + trackKey)
-                  .isPreferred(parserModelTrack.isPreferred())
-                  .genres(ofNullable(parserModelTrack.getGenre())
-                      .map(Collections::singletonList)
-                      .orElse(parserModelArtist.getGenres())
-                  )
-                  .build());
+          internetService.openConnection(dataFile).getInputStream(), GZIP_BUFFER_SIZE), UTF_8))) {
+        List<String> trackLines = new ArrayList<>(TRACK_BATCH_SIZE);
+        String line;
+
+        while (nonNull(line = reader.readLine())) {
+          lineCount++;
+
+          // B = Band, A = Album, T = Track. Bands and albums are parsed in order on this
+          // thread as they set the parent context for the tracks that follow them
+          if (line.stripLeading().startsWith("T")) {
+            trackLines.add(line);
+
+            if (trackLines.size() >= TRACK_BATCH_SIZE) {
+              submitTrackLines(parserExecutor, parserModelData, trackLines, indexFailures);
+              trackLines = new ArrayList<>(TRACK_BATCH_SIZE);
+            }
+          } else {
+            if (!trackLines.isEmpty()) {
+              submitTrackLines(parserExecutor, parserModelData, trackLines, indexFailures);
+              trackLines = new ArrayList<>(TRACK_BATCH_SIZE);
             }
-          } catch (Exception e) {
-            log.warn("Error parsing line record - {} - ignoring", e.getMessage(), e);
-            log.warn("Record - {}", line);
+
+            parseContextLine(tokenizer, parserModelData, line);
           }
-        });
+        }
+
+        if (!trackLines.isEmpty()) {
+          submitTrackLines(parserExecutor, parserModelData, trackLines, indexFailures);
+        }
       }
+
+      completed = true;
     } catch (Exception e) {
       log.error("Unable to open connection to data file {}", dataFile, e);
+    } finally {
+      parserExecutor.shutdown();
+
+      try {
+        // The workers only have the rows already handed to them, so this will finish however big the data file is
+        if (!parserExecutor.awaitTermination(Long.MAX_VALUE, NANOSECONDS)) {
+          completed = false;
+        }
+      } catch (InterruptedException e) {
+        log.warn("Interrupted waiting for data file parsers to finish");
+        Thread.currentThread().interrupt();
+        completed = false;
+      }
+
+      if (indexFailures.get() > 0) {
+        log.error("Unable to index {} tracks from data file {}", indexFailures.get(), dataFile);
+        completed = false;
+      }
+
+      long parseNanos = System.nanoTime() - startTime;
+      long parseTime = Math.max(1, NANOSECONDS.toMillis(parseNanos));
+
+      metricsService.recordIngest(parseNanos, lineCount);
+
+      log.info("Parsed {} lines in {} milliseconds - {} lines per second", lineCount, parseTime, (lineCount * 1000) / parseTime);
+    }
+
+    return completed;
+  }
+
+  private void parseContextLine(FeedLineTokenizer tokenizer, ParserModelData parserModelData, String line) {
+    try {
+      // Split the string into row data
+      tokenizer.tokenize(line);
+
+      if (tokenizer.fieldEquals(0, "B")) {
+        parserModelData.setArtist(parseArtist(tokenizer));
+      } else if (tokenizer.fieldEquals(0, "A")) {
+        parserModelData.setAlbum(parseAlbum(tokenizer));
+      }
+    } catch (Exception e) {
+      log.warn("Error parsing line record - {} - ignoring", e.getMessage(), e);
+      log.warn("Record - {}", line);
+    }
+  }
+
+  private void submitTrackLines(ExecutorService parserExecutor, ParserModelData parserModelData, List<String> trackLines,
+      AtomicInteger indexFailures) {
+    // Capture the context now as the reading thread will have moved on by the time this runs
+    ParserModelArtist parserModelArtist = parserModelData.getArtist();
+    ParserModelAlbum parserModelAlbum = parserModelData.getAlbum();
+
+    parserExecutor.execute(() -> {
+      FeedLineTokenizer tokenizer = new FeedLineTokenizer();
+
+      trackLines.forEach(line -> parseTrackLine(tokenizer, parserModelArtist, parserModelAlbum, line, indexFailures));
+    });
+  }
+
+  private void parseTrackLine(FeedLineTokenizer tokenizer, ParserModelArtist parserModelArtist,
+      ParserModelAlbum parserModelAlbum, String line, AtomicInteger indexFailures) {
+    Track track;
+
+    try {
+      // Split the string into row data
+      tokenizer.tokenize(line);
+
+      if (!tokenizer.fieldEquals(0, "T")) {
+        return;
+      }
+
+      ParserModelTrack parserModelTrack = parseTrack(tokenizer);
+      String trackKey = getTrackKey(parserModelArtist, parserModelAlbum, parserModelTrack);
+      String albumName = parserModelAlbum.getAlbumName().isEmpty() ? parserModelArtist.getArtistName() : parserModelAlbum.getAlbumName();
+
+      track = Track.builder()
+          .artistId(parserModelArtist.getArtistId())
+          .artistName(parserModelArtist.getArtistName())
+          .albumId(parserModelAlbum.getAlbumId())
+          .albumName(albumName)
+          .albumImage(applicationProperties.getS3BucketUrl() + getAlbumImageKey(parserModelArtist, parserModelAlbum))
+          .year(parserModelAlbum.getYear())
+          .trackId(hashGenerator.generateHash(trackKey))
+          .trackName(parserModelTrack.getTrackName())
+          .index(parserModelTrack.getIndex())
+          .location(applicationProperties.getS3BucketUrl() + trackKey)
+          .isPreferred(parserModelTrack.isPreferred())
+          .genres(ofNullable(parserModelTrack.getGenre())
+              .map(Collections::singletonList)
+              .orElse(parserModelArtist.getGenres())
+          )
+          .build();
+    } catch (Exception e) {
+      log.warn("Error parsing line record - {} - ignoring", e.getMessage(), e);
+      log.warn("Record - {}", line);
+
+      return;
+    }
+
+    try {
+      searchService.addTrack(track);
+    } catch (Exception e) {
+      // Only the first failure is logged in full, as the rest are usually for the same reason
+      if (indexFailures.getAndIncrement() == 0) {
+        log.error("Unable to index track - {}", track.getTrackId(), e);
+      }
     }
   }
 
@@ -128,81 +250,39 @@ public class DataService {
     return string.substring(string.length() - 3);
   }
 
-  private ParserModelArtist parseArtist(String[] rowData) {
+  private ParserModelArtist parseArtist(FeedLineTokenizer tokenizer) {
     return ParserModelArtist.builder()
-        .artistId(hashGenerator.generateHash(getRowData(rowData, ARTIST_ID)))
-        .artistName(getRowData(rowData, ARTIST_NAME))
-        .biography(getRowData(rowData, ARTIST_BIOGRAPHY))
-        .members(getRowData(rowData, ARTIST_MEMBERS))
-        .genres(ofNullable(getRowData(rowData, ARTIST_GENRES))
+        .artistId(hashGenerator.generateHash(tokenizer.getField(ARTIST_ID)))
+        .artistName(tokenizer.getField(ARTIST_NAME))
+        .biography(tokenizer.getField(ARTIST_BIOGRAPHY))
+        .members(tokenizer.getField(ARTIST_MEMBERS))
+        .genres(ofNullable(tokenizer.getField(ARTIST_GENRES))
             .map(genres -> stream(genres.split(","))
                 .filter(genre -> !genre.trim().isEmpty())
-                .map(genre -> cleanGenre(genre, true))
+                .map(genre -> genreNormaliser.normalise(genre, true))
                 .collect(toList())
             )
             .orElse(singletonList(UNSPECIFIED_GENRE)))
         .build();
   }
 
-  private ParserModelAlbum parseAlbum(String[] rowData) {
+  private ParserModelAlbum parseAlbum(FeedLineTokenizer tokenizer) {
     return ParserModelAlbum.builder()
-        .albumId(hashGenerator.generateHash(getRowData(rowData, ALBUM_ID)))
-        .albumName(getRowData(rowData, ALBUM_NAME))
-        .year(ofNullable(getRowData(rowData, ALBUM_YEAR)).map(Integer::valueOf).orElse(null))
+        .albumId(hashGenerator.generateHash(tokenizer.getField(ALBUM_ID)))
+        .albumName(tokenizer.getField(ALBUM_NAME))
+        .year(tokenizer.getIntegerField(ALBUM_YEAR))
         .build();
   }
 
-  private ParserModelTrack parseTrack(String[] rowData) {
+  private ParserModelTrack parseTrack(FeedLineTokenizer tokenizer) {
     return ParserModelTrack.builder()
-        .index(ofNullable(getRowData(rowData, TRACK_INDEX)).map(Integer::parseInt).orElse(-1))
-        .trackName(getRowData(rowData, TRACK_NAME))
-        .isPreferred(Boolean.parseBoolean(getRowData(rowData, TRACK_PREFERRED)))
-        .genre(cleanGenre(getRowData(rowData, TRACK_GENRE), false))
+        .index(tokenizer.getIntField(TRACK_INDEX, -1))
+        .trackName(tokenizer.getField(TRACK_NAME))
+        .isPreferred(tokenizer.getBooleanField(TRACK_PREFERRED))
+        .genre(genreNormaliser.normalise(tokenizer.getField(TRACK_GENRE), false))
         .build();
   }
 
-  private String getRowData(String[] rowData, int index) {
-    if (index > (rowData.length - 1)) {
-      return null;
-    }
-
-    return rowData[index].trim();
-  }
-
-  private String cleanGenre(String genre, boolean blankIsUnspecified) {
-    if (isNull(genre) || genre.isEmpty()) {
-      return blankIsUnspecified ? UNSPECIFIED_GENRE : null;
-    }
-
-    if (genre.equalsIgnoreCase("Unknown") || genre.equalsIgnoreCase("None") || genre.equalsIgnoreCase("Other")
-        || genre.equalsIgnoreCase("0")) {
-      return UNSPECIFIED_GENRE;
-    }
-
-    if (genre.equalsIgnoreCase("rpm")) {
-      return "RPM";
-    }
-
-    if (genre.startsWith("Children")) {
-      return "Children's Music";
-    }
-
-    try {
-      return toTitleCase(genre.replaceAll("&amp;", "&")).trim();
-    } catch (Exception e) {
-      return UNSPECIFIED_GENRE;
-    }
-  }
-
-  private String toTitleCase(String string) {
-    StringBuilder builder = new StringBuilder();
-    Scanner scanner = new Scanner(string).useDelimiter(" ");
-    scanner.forEachRemaining(token -> builder.append(token.replaceFirst(token.substring(0, 1),
-        token.substring(0, 1).toUpperCase())).append(' '));
-
-    return builder.toString();
-  }
-
   @Data
   private static class ParserModelData {
     public ParserModelArtist artist;
@@ -12,6 +12,7 @@ import static uk.co.mpcontracting.rpmjukebox.event.Event.MEDIA_STOPPED;
 import static uk.co.mpcontracting.rpmjukebox.event.Event.MUTE_UPDATED;
 import static uk.co.mpcontracting.rpmjukebox.event.Event.TIME_UPDATED;
 import static uk.co.mpcontracting.rpmjukebox.event.Event.TRACK_QUEUED_FOR_PLAYING;
+import static uk.co.mpcontracting.rpmjukebox.util.CacheType.TRACK;
 
 import jakarta.annotation.PostConstruct;
 import javafx.scene.media.Media;
@@ -35,6 +36,7 @@ public class MediaService extends EventAwareObject {
 
   private final ApplicationProperties applicationProperties;
   private final CacheService cacheService;
+  private final MetricsService metricsService;
 
   @Getter
   private boolean muted;
@@ -50,6 +52,9 @@ public class MediaService extends EventAwareObject {
   private Media currentMedia;
   private Duration currentDuration;
 
+  // Only set between asking for a track and it starting to play, so resuming isn't counted
+  private long playRequestedTime;
+
   @PostConstruct
   public void initialise() {
     log.info("Initialising MediaService");
@@ -64,10 +69,9 @@ public class MediaService extends EventAwareObject {
         track.getTrackName(), track.getLocation());
 
     currentTrack = track;
+    playRequestedTime = System.nanoTime();
 
-    // Disable caching as JavaFX seems to no longer want to play files that don't have a file extension
-    // currentMedia = new Media(cacheService.getFileLocation(TRACK, track.getTrackId(), track.getLocation()));
-    currentMedia = new Media(track.getLocation());
+    currentMedia = new Media(cacheService.getFileLocation(TRACK, track.getTrackId(), track.getLocation()));
 
     createNewMediaPlayer();
 
@@ -207,6 +211,11 @@ public class MediaService extends EventAwareObject {
     });
 
     currentPlayer.setOnPlaying(() -> {
+      if (playRequestedTime > 0) {
+        metricsService.recordMediaStart(System.nanoTime() - playRequestedTime);
+        playRequestedTime = 0;
+      }
+
       fireEvent(MEDIA_PLAYING, currentTrack);
       fireEvent(BUFFER_UPDATED, currentDuration, currentPlayer.getBufferProgressTime());
     });
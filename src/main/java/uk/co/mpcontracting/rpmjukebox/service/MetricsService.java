@@ -0,0 +1,273 @@
+package uk.co.mpcontracting.rpmjukebox.service;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PostConstruct;
+import java.io.File;
+import java.io.FileWriter;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import uk.co.mpcontracting.rpmjukebox.config.ApplicationProperties;
+
+// Every hot path timer and counter is registered here, so they can be shown together in the user
+// interface and periodically logged and written to a JSON file in the config directory. Percentiles
+// are worked out from a histogram as values are recorded, and cover the last few minutes
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MetricsService {
+
+  static final String METRIC_SEARCH_TIME = "search.time";
+  static final String METRIC_SEARCH_CACHE_HITS = "search.cache.hits";
+  static final String METRIC_SEARCH_CACHE_MISSES = "search.cache.misses";
+  static final String METRIC_SHUFFLED_PLAYLIST_TIME = "shuffled.playlist.time";
+  static final String METRIC_FACET_COUNTS_TIME = "facet.counts.time";
+  static final String METRIC_TRACKS_BY_IDS_TIME = "tracks.by.ids.time";
+  static final String METRIC_TRACKS_READ = "tracks.read";
+  static final String METRIC_INGEST_TIME = "ingest.time";
+  static final String METRIC_INGEST_LINES = "ingest.lines";
+  static final String METRIC_INGEST_RATE = "ingest.lines.per.second";
+  static final String METRIC_INDEX_TIME = "index.time";
+  static final String METRIC_MERGE_TIME = "merge.time";
+  static final String METRIC_CACHE_HITS = "cache.hits";
+  static final String METRIC_CACHE_MISSES = "cache.misses";
+  static final String METRIC_CACHE_HIT_RATIO = "cache.hit.ratio";
+  static final String METRIC_MEDIA_START_TIME = "media.start.time";
+  static final String METRIC_EVENT_QUEUE_DEPTH = "event.queue.depth";
+
+  private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+  private static final Duration PERCENTILE_EXPIRY = Duration.ofMinutes(5);
+
+  private final ApplicationProperties applicationProperties;
+  private final ScheduledExecutorService scheduledExecutorService;
+  private final MeterRegistry meterRegistry;
+  private final SettingsService settingsService;
+
+  // Kept in the order they're shown
+  private final List<Meter> meters = new ArrayList<>();
+
+  private final AtomicLong ingestRate = new AtomicLong();
+
+  private Timer searchTime;
+  private Counter searchCacheHits;
+  private Counter searchCacheMisses;
+  private Timer shuffledPlaylistTime;
+  private Timer facetCountsTime;
+  private Timer tracksByIdsTime;
+  private DistributionSummary tracksRead;
+  private Timer ingestTime;
+  private Counter ingestLines;
+  private Timer indexTime;
+  private Timer mergeTime;
+  private Counter cacheHits;
+  private Counter cacheMisses;
+  private Timer mediaStartTime;
+  private DistributionSummary eventQueueDepth;
+
+  @PostConstruct
+  public void initialise() {
+    log.info("Initialising MetricsService");
+
+    searchTime = register(timer(METRIC_SEARCH_TIME, "Time to run a track search, including cached searches"));
+    searchCacheHits = register(Counter.builder(METRIC_SEARCH_CACHE_HITS)
+        .description("Track searches answered from the search result cache")
+        .register(meterRegistry));
+    searchCacheMisses = register(Counter.builder(METRIC_SEARCH_CACHE_MISSES)
+        .description("Track searches that had to query the index")
+        .register(meterRegistry));
+    shuffledPlaylistTime = register(timer(METRIC_SHUFFLED_PLAYLIST_TIME, "Time to sample a shuffled playlist"));
+    facetCountsTime = register(timer(METRIC_FACET_COUNTS_TIME, "Time to count the genres and years across the whole index"));
+    tracksByIdsTime = register(timer(METRIC_TRACKS_BY_IDS_TIME, "Time to read a list of tracks by their IDs"));
+    tracksRead = register(summary(METRIC_TRACKS_READ, "Tracks read back from the index for each search or playlist"));
+    ingestTime = register(timer(METRIC_INGEST_TIME, "Time to parse and index the data file"));
+    ingestLines = register(Counter.builder(METRIC_INGEST_LINES)
+        .description("Data file lines parsed")
+        .register(meterRegistry));
+    register(Gauge.builder(METRIC_INGEST_RATE, ingestRate, AtomicLong::get)
+        .description("Data file lines parsed per second by the last ingest")
+        .register(meterRegistry));
+    indexTime = register(timer(METRIC_INDEX_TIME, "Time to bring the index up to date with the data file, end to end"));
+    mergeTime = register(timer(METRIC_MERGE_TIME, "Time to merge the index segments after a full reindex"));
+    cacheHits = register(Counter.builder(METRIC_CACHE_HITS)
+        .description("Cache reads that found a file")
+        .register(meterRegistry));
+    cacheMisses = register(Counter.builder(METRIC_CACHE_MISSES)
+        .description("Cache reads that didn't find a file")
+        .register(meterRegistry));
+    register(Gauge.builder(METRIC_CACHE_HIT_RATIO, this, MetricsService::getCacheHitRatio)
+        .description("Share of cache reads that found a file")
+        .register(meterRegistry));
+    mediaStartTime = register(timer(METRIC_MEDIA_START_TIME, "Time from asking for a track to it playing"));
+    eventQueueDepth = register(summary(METRIC_EVENT_QUEUE_DEPTH, "Events waiting for the UI thread when one is fired"));
+
+    long metricsLogMinutes = applicationProperties.getMetricsLogMinutes();
+
+    if (metricsLogMinutes > 0) {
+      scheduledExecutorService.scheduleAtFixedRate(this::logMetrics, metricsLogMinutes, metricsLogMinutes, TimeUnit.MINUTES);
+    }
+  }
+
+  public void recordSearch(long nanos) {
+    searchTime.record(nanos, NANOSECONDS);
+  }
+
+  public void recordSearchCacheRead(boolean hit) {
+    (hit ? searchCacheHits : searchCacheMisses).increment();
+  }
+
+  public void recordShuffledPlaylist(long nanos) {
+    shuffledPlaylistTime.record(nanos, NANOSECONDS);
+  }
+
+  public void recordFacetCounts(long nanos) {
+    facetCountsTime.record(nanos, NANOSECONDS);
+  }
+
+  public void recordTracksByIds(long nanos) {
+    tracksByIdsTime.record(nanos, NANOSECONDS);
+  }
+
+  public void recordTracksRead(int tracks) {
+    tracksRead.record(tracks);
+  }
+
+  public void recordIngest(long nanos, long lines) {
+    ingestTime.record(nanos, NANOSECONDS);
+    ingestLines.increment(lines);
+    ingestRate.set(lines * 1_000_000_000L / Math.max(1, nanos));
+  }
+
+  public void recordIndex(long nanos) {
+    indexTime.record(nanos, NANOSECONDS);
+  }
+
+  public void recordMerge(long nanos) {
+    mergeTime.record(nanos, NANOSECONDS);
+  }
+
+  public void recordCacheRead(boolean hit) {
+    (hit ? cacheHits : cacheMisses).increment();
+  }
+
+  public void recordMediaStart(long nanos) {
+    mediaStartTime.record(nanos, NANOSECONDS);
+  }
+
+  public void recordEventQueueDepth(int depth) {
+    eventQueueDepth.record(depth);
+  }
+
+  // Metric name to its current values, with times in milliseconds
+  public Map<String, Map<String, Number>> getMetrics() {
+    Map<String, Map<String, Number>> metrics = new LinkedHashMap<>();
+
+    for (Meter meter : meters) {
+      metrics.put(meter.getId().getName(), switch (meter) {
+        case Timer timer -> getDistribution(timer.takeSnapshot(), true);
+        case DistributionSummary summary -> getDistribution(summary.takeSnapshot(), false);
+        case Counter counter -> Map.of("count", (long) counter.count());
+        case Gauge gauge -> Map.of("value", gauge.value());
+        default -> Map.of();
+      });
+    }
+
+    return metrics;
+  }
+
+  // One line for each metric, formatted for the log and the metrics view
+  public List<String> getSummary() {
+    List<String> summary = new ArrayList<>();
+
+    getMetrics().forEach((name, values) -> {
+      StringBuilder line = new StringBuilder(name).append(" -");
+
+      values.forEach((key, value) -> line.append(' ').append(key).append(' ')
+          .append(value instanceof Double ? String.format("%.2f", value.doubleValue()) : value));
+
+      summary.add(line.toString());
+    });
+
+    return summary;
+  }
+
+  void logMetrics() {
+    try {
+      getSummary().forEach(line -> log.info("Metrics : {}", line));
+
+      Map<String, Object> dump = new LinkedHashMap<>();
+      dump.put("timestamp", LocalDateTime.now().toString());
+      dump.put("metrics", getMetrics());
+
+      File metricsFile = settingsService.getFileFromConfigDirectory(applicationProperties.getMetricsFile());
+
+      try (FileWriter fileWriter = new FileWriter(metricsFile)) {
+        fileWriter.write(settingsService.getGson().toJson(dump));
+      }
+    } catch (Exception e) {
+      log.error("Unable to write metrics", e);
+    }
+  }
+
+  double getCacheHitRatio() {
+    double reads = cacheHits.count() + cacheMisses.count();
+
+    return reads > 0 ? cacheHits.count() / reads : 0;
+  }
+
+  private Map<String, Number> getDistribution(HistogramSnapshot snapshot, boolean isTime) {
+    Map<String, Number> values = new LinkedHashMap<>();
+    values.put("count", snapshot.count());
+    values.put("mean", isTime ? snapshot.mean(MILLISECONDS) : snapshot.mean());
+    values.put("max", isTime ? snapshot.max(MILLISECONDS) : snapshot.max());
+
+    for (ValueAtPercentile valueAtPercentile : snapshot.percentileValues()) {
+      values.put("p" + Math.round(valueAtPercentile.percentile() * 100),
+          isTime ? valueAtPercentile.value(MILLISECONDS) : valueAtPercentile.value());
+    }
+
+    return values;
+  }
+
+  private Timer timer(String name, String description) {
+    return Timer.builder(name)
+        .description(description)
+        .publishPercentiles(PERCENTILES)
+        .percentilePrecision(2)
+        .distributionStatisticExpiry(PERCENTILE_EXPIRY)
+        .register(meterRegistry);
+  }
+
+  private DistributionSummary summary(String name, String description) {
+    return DistributionSummary.builder(name)
+        .description(description)
+        .publishPercentiles(PERCENTILES)
+        .percentilePrecision(2)
+        .distributionStatisticExpiry(PERCENTILE_EXPIRY)
+        .register(meterRegistry);
+  }
+
+  private <T extends Meter> T register(T meter) {
+    meters.add(meter);
+
+    return meter;
+  }
+}
@@ -7,7 +7,6 @@ import static uk.co.mpcontracting.rpmjukebox.util.OsType.OSX;
 
 import com.sun.jna.Library;
 import com.sun.jna.Native;
-import jakarta.annotation.PostConstruct;
 import java.io.File;
 import java.nio.file.Files;
 import lombok.RequiredArgsConstructor;
@@ -26,7 +25,6 @@ public class NativeService {
 
   private NsUserNotificationsBridge nsUserNotificationsBridge;
 
-  @PostConstruct
   public void initialise() {
     log.info("Initialising NativeService");
 
@@ -1,14 +1,18 @@
 package uk.co.mpcontracting.rpmjukebox.service;
 
 import static java.util.Collections.emptyList;
-import static java.util.Collections.shuffle;
+import static java.util.Collections.emptyMap;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static java.util.Optional.empty;
 import static java.util.Optional.of;
 import static java.util.Optional.ofNullable;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.stream.Collectors.toSet;
 import static org.apache.commons.lang3.StringUtils.stripAccents;
+import static org.apache.lucene.index.IndexWriterConfig.OpenMode.CREATE;
 import static org.apache.lucene.index.IndexWriterConfig.OpenMode.CREATE_OR_APPEND;
+import static uk.co.mpcontracting.rpmjukebox.event.Event.APPLICATION_INITIALISED;
 import static uk.co.mpcontracting.rpmjukebox.event.Event.DATA_INDEXED;
 import static uk.co.mpcontracting.rpmjukebox.search.TrackField.GENRE;
 import static uk.co.mpcontracting.rpmjukebox.search.TrackField.YEAR;
@@ -17,20 +21,29 @@ import static uk.co.mpcontracting.rpmjukebox.util.Constants.MESSAGE_SPLASH_DOWNL
 import static uk.co.mpcontracting.rpmjukebox.util.Constants.MESSAGE_SPLASH_INITIALISING_SEARCH;
 import static uk.co.mpcontracting.rpmjukebox.util.Constants.UNSPECIFIED_GENRE;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.file.Path;
 import java.security.SecureRandom;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.StringTokenizer;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
@@ -38,59 +51,100 @@ import lombok.Synchronized;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsCollectorManager;
+import org.apache.lucene.index.ConcurrentMergeScheduler;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.LiveIndexWriterConfig;
+import org.apache.lucene.index.SegmentInfos;
 import org.apache.lucene.index.StoredFields;
 import org.apache.lucene.index.Term;
-import org.apache.lucene.index.Terms;
-import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.BooleanQuery.Builder;
 import org.apache.lucene.search.IndexSearcher;
-import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MultiCollectorManager;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager.RefreshListener;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermInSetQuery;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
-import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TopFieldCollectorManager;
 import org.apache.lucene.search.WildcardQuery;
 import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.store.LockObtainFailedException;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import uk.co.mpcontracting.rpmjukebox.RpmJukebox;
 import uk.co.mpcontracting.rpmjukebox.config.ApplicationProperties;
+import uk.co.mpcontracting.rpmjukebox.event.Event;
 import uk.co.mpcontracting.rpmjukebox.event.EventAwareObject;
 import uk.co.mpcontracting.rpmjukebox.model.Track;
+import uk.co.mpcontracting.rpmjukebox.search.FacetCount;
+import uk.co.mpcontracting.rpmjukebox.search.KeywordPrefixAnalyzer;
+import uk.co.mpcontracting.rpmjukebox.search.RandomDocIdSampler;
+import uk.co.mpcontracting.rpmjukebox.search.SearchResultCache;
+import uk.co.mpcontracting.rpmjukebox.search.TrackFacets;
 import uk.co.mpcontracting.rpmjukebox.search.TrackField;
+import uk.co.mpcontracting.rpmjukebox.search.TrackReader;
 import uk.co.mpcontracting.rpmjukebox.search.TrackSearch;
+import uk.co.mpcontracting.rpmjukebox.search.TrackSearchResult;
 import uk.co.mpcontracting.rpmjukebox.search.TrackSort;
+import uk.co.mpcontracting.rpmjukebox.settings.IndexSnapshot;
+import uk.co.mpcontracting.rpmjukebox.util.HashGenerator;
+import uk.co.mpcontracting.rpmjukebox.util.ThreadRunner;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class SearchService extends EventAwareObject {
 
+  // Bump this whenever the way tracks are indexed changes, to force a full rebuild
+  static final String INDEX_SCHEMA_VERSION_KEY = "schemaVersion";
+  static final String INDEX_SCHEMA_VERSION = "4";
+
+  // Prefixes are indexed as words only, without frequencies, positions or norms
+  private static final FieldType KEYWORD_PREFIXES_TYPE = new FieldType();
+
+  static {
+    KEYWORD_PREFIXES_TYPE.setIndexOptions(IndexOptions.DOCS);
+    KEYWORD_PREFIXES_TYPE.setTokenized(true);
+    KEYWORD_PREFIXES_TYPE.setOmitNorms(true);
+    KEYWORD_PREFIXES_TYPE.freeze();
+  }
+
   private final RpmJukebox rpmJukebox;
+  private final ThreadRunner threadRunner;
   private final ApplicationProperties applicationProperties;
   private final StringResourceService stringResourceService;
   private final SettingsService settingsService;
+  private final HashGenerator hashGenerator;
+  private final SearchResultCache searchResultCache;
+  private final MetricsService metricsService;
 
   @Lazy
   @Autowired
@@ -100,80 +154,293 @@ public class SearchService extends EventAwareObject {
   @Autowired
   private DataService dataService;
 
+  @Lazy
+  @Autowired
+  private DataFeedService dataFeedService;
+
   @Getter
-  private List<String> genreList;
+  private volatile List<String> genreList;
   @Getter
-  private List<String> yearList;
+  private volatile List<String> yearList;
+  @Getter
+  private volatile Map<String, Integer> yearCounts;
   @Getter
   private List<TrackSort> trackSortList;
 
-  private Directory trackDirectory;
-  private IndexWriter trackWriter;
-  private SearcherManager trackManager;
+  // These are switched together when a rebuilt index replaces the live one
+  private volatile Path trackDirectoryPath;
+  private volatile Directory trackDirectory;
+  private volatile IndexWriter trackWriter;
+
+  // Only set while a full reindex is being built alongside the live index
+  private volatile IndexWriter rebuildWriter;
+
+  // Only set while a full reindex is rewriting the live index, which is rolled back rather than
+  // committed if the application shuts down part way through
+  private volatile boolean reindexingInPlace;
+
+  // Searches acquire and release their own searcher from the manager, so only
+  // index rebuilds need to be serialised
+  private volatile SearcherManager trackManager;
 
-  private SecureRandom secureRandom;
-  private ExecutorService executorService;
+  // Searchers still in use on each manager, and the indexes swapped out by a rebuild that
+  // can't be closed until their last searcher has been released
+  private final Map<SearcherManager, Integer> searchersInUse = new HashMap<>();
+  private final Map<SearcherManager, RetiredIndex> retiredIndexes = new HashMap<>();
+
+  private RandomDocIdSampler randomDocIdSampler;
+  private final TrackFacets trackFacets = new TrackFacets();
+
+  // Track id to content hash of the index being compared against, only set during an incremental reindex
+  private volatile Map<String, String> indexedContentHashes;
+  private final LongAdder unchangedTracks = new LongAdder();
+  private final LongAdder updatedTracks = new LongAdder();
 
   public void initialise() throws Exception {
+    if (openIndex()) {
+      initialiseIndex(settingsService.hasDataFileExpired());
+    }
+  }
+
+  // Opens the index without reading anything from it, so this doesn't have to wait for the data file
+  // check. Returns false if another instance already has the index open and the application is exiting
+  public boolean openIndex() throws Exception {
     log.info("Initialising SearchService");
 
     try {
-      // Initialise the executor service
-      executorService = Executors.newSingleThreadExecutor();
-
       // Initialise the indexes
-      Analyzer analyzer = new WhitespaceAnalyzer();
       IndexSearcher.setMaxClauseCount(Integer.MAX_VALUE);
 
       try {
-        trackDirectory = FSDirectory.open(settingsService.getFileFromConfigDirectory(applicationProperties.getTrackIndexDirectory()).toPath());
+        trackDirectoryPath = getLiveTrackIndexDirectory().toPath();
+        trackDirectory = applicationProperties.getIndexDirectoryMode().open(trackDirectoryPath);
       } catch (Throwable e) {
         log.error("Error", e);
       }
-      IndexWriterConfig trackWriterConfig = new IndexWriterConfig(analyzer);
-      trackWriterConfig.setOpenMode(CREATE_OR_APPEND);
-      trackWriter = new IndexWriter(trackDirectory, trackWriterConfig);
-      trackManager = new SearcherManager(trackWriter, null);
+      trackWriter = createTrackWriter(trackDirectory, CREATE_OR_APPEND, false);
+      trackManager = createTrackManager(trackWriter);
 
-      secureRandom = new SecureRandom(Long.toString(System.currentTimeMillis()).getBytes());
+      // Only once the live index is locked, so another instance can't be using the others
+      deleteOldTrackIndexDirectories();
 
-      // See if we already have valid indexes, if not, build them
-      if (settingsService.hasDataFileExpired() || settingsService.isNewVersion() || !isIndexValid(trackManager)) {
-        indexData();
+      randomDocIdSampler = new RandomDocIdSampler(new SecureRandom(Long.toString(System.currentTimeMillis()).getBytes()));
+
+      return true;
+    } catch (LockObtainFailedException e) {
+      log.error("SearchService already initialised", e);
+      rpmJukebox.updateSplashProgress(stringResourceService.getString(MESSAGE_SPLASH_ALREADY_RUNNING));
+
+      try {
+        Thread.sleep(5000);
+      } catch (Exception e2) {
+        // Do nothing
       }
 
-      rpmJukebox.updateSplashProgress(stringResourceService.getString(MESSAGE_SPLASH_INITIALISING_SEARCH));
+      applicationLifecycleService.shutdown();
 
-      // Initialise the filters and sorts
-      genreList = new ArrayList<>();
-      genreList.add(UNSPECIFIED_GENRE);
-      genreList.addAll(getDistinctTrackFieldValues(GENRE));
-      Collections.sort(genreList);
+      return false;
+    } catch (Exception e) {
+      log.error("Error initialising SearchService", e);
+
+      throw e;
+    }
+  }
 
-      yearList = getDistinctTrackFieldValues(YEAR);
-      Collections.sort(yearList);
+  // A bulk build buffers as much as it can in memory and merges without IO throttling, as nothing is
+  // searching it yet, and is only committed once it's complete. The live index is tuned for small
+  // incremental updates that shouldn't hold up the application
+  private IndexWriter createTrackWriter(Directory directory, OpenMode openMode, boolean bulk) throws IOException {
+    IndexWriterConfig trackWriterConfig = new IndexWriterConfig(createTrackAnalyzer());
+    trackWriterConfig.setOpenMode(openMode);
+    trackWriterConfig.setCommitOnClose(!bulk);
+    trackWriterConfig.setMergeScheduler(new ConcurrentMergeScheduler());
 
-      trackSortList = List.of(TrackSort.values());
+    applyIndexProfile(trackWriterConfig, bulk);
+
+    return new IndexWriter(directory, trackWriterConfig);
+  }
+
+  // These can all be changed on an open writer, so a full reindex in place can switch profiles too
+  private void applyIndexProfile(LiveIndexWriterConfig indexWriterConfig, boolean bulk) {
+    double ramBufferMb;
+    int mergeThreads;
+
+    if (bulk) {
+      ramBufferMb = applicationProperties.getBulkIndexRamBufferMb();
+      mergeThreads = applicationProperties.getBulkIndexMergeThreads();
+    } else {
+      ramBufferMb = applicationProperties.getInteractiveIndexRamBufferMb();
+      mergeThreads = applicationProperties.getInteractiveIndexMergeThreads();
+    }
 
-      // Warm up the search
-      String searchWarmer = "test song";
+    indexWriterConfig.setRAMBufferSizeMB(ramBufferMb > 0 ? ramBufferMb : IndexWriterConfig.DEFAULT_RAM_BUFFER_SIZE_MB);
 
-      for (int i = 0; i < searchWarmer.length(); i++) {
-        search(new TrackSearch(searchWarmer.substring(0, i + 1)));
+    if (indexWriterConfig.getMergeScheduler() instanceof ConcurrentMergeScheduler mergeScheduler) {
+      // Auto detection only happens when a writer is opened, so work out the defaults here instead
+      if (mergeThreads > 0) {
+        mergeScheduler.setMaxMergesAndThreads(mergeThreads + 5, mergeThreads);
+      } else {
+        mergeScheduler.setDefaultMaxMergesAndThreads(false);
       }
 
-      log.debug("SearchService initialised");
-    } catch (LockObtainFailedException e) {
-      log.error("SearchService already initialised", e);
-      rpmJukebox.updateSplashProgress(stringResourceService.getString(MESSAGE_SPLASH_ALREADY_RUNNING));
+      if (bulk) {
+        mergeScheduler.disableAutoIOThrottle();
+      } else {
+        mergeScheduler.enableAutoIOThrottle();
+      }
+    }
+  }
+
+  // A full reindex is read far more than it's written to, so fewer segments make for faster searches
+  private void mergeSegments(IndexWriter indexWriter) throws IOException {
+    int maxSegments = applicationProperties.getBulkIndexMaxSegments();
+
+    if (maxSegments > 0) {
+      long startTime = System.nanoTime();
+
+      indexWriter.forceMerge(maxSegments);
 
+      long mergeTime = System.nanoTime() - startTime;
+
+      metricsService.recordMerge(mergeTime);
+
+      log.debug("Merge segments time - {} milliseconds", NANOSECONDS.toMillis(mergeTime));
+    }
+  }
+
+  private SearcherManager createTrackManager(IndexWriter indexWriter) throws IOException {
+    SearcherManager searcherManager = new SearcherManager(indexWriter, null);
+    searcherManager.addListener(new RefreshListener() {
+      @Override
+      public void beforeRefresh() {
+        // Nothing to do before a refresh
+      }
+
+      @Override
+      public void afterRefresh(boolean didRefresh) {
+        if (didRefresh) {
+          indexChanged();
+        }
+      }
+    });
+
+    return searcherManager;
+  }
+
+  private void indexChanged() {
+    searchResultCache.invalidate();
+
+    // Only update the filters once they've been initialised
+    if (nonNull(genreList)) {
+      updateFilterLists();
+    }
+  }
+
+  // Full reindexes are built next to the live index in a directory named after the time they started,
+  // so the live index is the newest one with a commit. Anything without a commit is an interrupted build
+  private File getLiveTrackIndexDirectory() {
+    for (File directory : getTrackIndexDirectories()) {
+      String[] files = directory.list();
+
+      if (nonNull(files) && SegmentInfos.getLastCommitGeneration(files) >= 0) {
+        return directory;
+      }
+    }
+
+    return settingsService.getFileFromConfigDirectory(applicationProperties.getTrackIndexDirectory());
+  }
+
+  // Newest first
+  private List<File> getTrackIndexDirectories() {
+    File baseDirectory = settingsService.getFileFromConfigDirectory(applicationProperties.getTrackIndexDirectory());
+    File[] directories = baseDirectory.getParentFile().listFiles(file -> file.isDirectory() && getTrackIndexTimestamp(file) >= 0);
+
+    if (isNull(directories)) {
+      return emptyList();
+    }
+
+    return Arrays.stream(directories)
+        .sorted(Comparator.comparingLong(this::getTrackIndexTimestamp).reversed())
+        .toList();
+  }
+
+  private long getTrackIndexTimestamp(File directory) {
+    String baseName = applicationProperties.getTrackIndexDirectory();
+    String name = directory.getName();
+
+    if (name.equals(baseName)) {
+      return 0;
+    }
+
+    if (name.startsWith(baseName + "-") && name.length() > baseName.length() + 1) {
       try {
-        Thread.sleep(5000);
-      } catch (Exception e2) {
-        // Do nothing
+        return Long.parseLong(name.substring(baseName.length() + 1));
+      } catch (NumberFormatException e) {
+        return -1;
       }
+    }
 
-      applicationLifecycleService.shutdown();
+    return -1;
+  }
+
+  // Removes indexes left behind by earlier swaps and interrupted builds. One that can't be deleted yet,
+  // because a search still had it open, is removed next time
+  private void deleteOldTrackIndexDirectories() {
+    Set<Path> retiredPaths;
+
+    synchronized (searchersInUse) {
+      retiredPaths = retiredIndexes.values().stream().map(RetiredIndex::path).collect(toSet());
+    }
+
+    for (File directory : getTrackIndexDirectories()) {
+      if (!directory.toPath().equals(trackDirectoryPath) && !retiredPaths.contains(directory.toPath())) {
+        try {
+          IOUtils.rm(directory.toPath());
+
+          log.debug("Deleted old track index - {}", directory);
+        } catch (Exception e) {
+          log.warn("Unable to delete old track index - {}", directory);
+        }
+      }
+    }
+  }
+
+  public void initialiseIndex(boolean dataFileExpired) throws Exception {
+    try {
+      // See if we already have valid indexes, if not, build them. A snapshot saved at the same
+      // commit as the index is trusted instead of checking the index and reading the filters from it
+      IndexSnapshot indexSnapshot = null;
+
+      if (dataFileExpired || settingsService.isNewVersion()) {
+        indexData();
+      } else {
+        indexSnapshot = settingsService.loadIndexSnapshot();
+
+        if (!isIndexSnapshotCurrent(indexSnapshot)) {
+          indexSnapshot = null;
+
+          if (!isIndexValid(trackManager)) {
+            indexData();
+          }
+        }
+      }
+
+      rpmJukebox.updateSplashProgress(stringResourceService.getString(MESSAGE_SPLASH_INITIALISING_SEARCH));
+
+      // Initialise the filters and sorts
+      if (nonNull(indexSnapshot)) {
+        log.debug("Using index snapshot with {} tracks", indexSnapshot.getNumDocs());
+
+        genreList = new ArrayList<>(indexSnapshot.getGenres());
+        yearList = new ArrayList<>(indexSnapshot.getYears());
+        yearCounts = new HashMap<>(indexSnapshot.getYearCounts());
+      } else {
+        updateFilterLists();
+      }
+
+      trackSortList = List.of(TrackSort.values());
+
+      log.debug("SearchService initialised");
     } catch (Exception e) {
       log.error("Error initialising SearchService", e);
 
@@ -183,8 +450,22 @@ public class SearchService extends EventAwareObject {
 
   @SneakyThrows
   void shutdown() {
-    trackWriter.close();
+    if (reindexingInPlace) {
+      trackWriter.rollback();
+    } else {
+      trackWriter.close();
+    }
+
     trackDirectory.close();
+
+    List<RetiredIndex> indexes;
+
+    synchronized (searchersInUse) {
+      indexes = new ArrayList<>(retiredIndexes.values());
+      retiredIndexes.clear();
+    }
+
+    indexes.forEach(this::closeRetiredIndex);
   }
 
   protected boolean isIndexValid(SearcherManager searcherManager) {
@@ -193,7 +474,7 @@ public class SearchService extends EventAwareObject {
     try {
       indexSearcher = searcherManager.acquire();
 
-      return !search(new TrackSearch("*")).isEmpty();
+      return isIndexSchemaCurrent() && !search(new TrackSearch("*")).isEmpty();
     } catch (Exception e) {
       log.error("Unable to check if index is valid", e);
 
@@ -207,23 +488,390 @@ public class SearchService extends EventAwareObject {
     }
   }
 
+  private boolean isIndexSnapshotCurrent(IndexSnapshot indexSnapshot) {
+    if (isNull(indexSnapshot) || !indexSnapshot.isValid() || !INDEX_SCHEMA_VERSION.equals(indexSnapshot.getSchemaVersion()) ||
+        isNull(indexSnapshot.getGenres()) || isNull(indexSnapshot.getYears()) || isNull(indexSnapshot.getYearCounts())) {
+      return false;
+    }
+
+    try {
+      return Objects.equals(indexSnapshot.getDirectory(), getTrackDirectoryName()) &&
+          indexSnapshot.getGeneration() == getIndexGeneration() && isIndexSchemaCurrent();
+    } catch (Exception e) {
+      log.error("Unable to check if index snapshot is current", e);
+
+      return false;
+    }
+  }
+
+  // Saved every time the filters are refreshed, which happens on every commit
+  private void saveIndexSnapshot() {
+    TrackSearcher trackSearcher = null;
+
+    try {
+      trackSearcher = acquireTrackSearcher();
+      IndexSearcher indexSearcher = trackSearcher.indexSearcher();
+
+      int numDocs = indexSearcher.getIndexReader().numDocs();
+
+      settingsService.saveIndexSnapshot(IndexSnapshot.builder()
+          .schemaVersion(INDEX_SCHEMA_VERSION)
+          .directory(getTrackDirectoryName())
+          .generation(getIndexGeneration())
+          .numDocs(numDocs)
+          .valid(numDocs > 0 && isIndexSchemaCurrent())
+          .genres(genreList)
+          .years(yearList)
+          .yearCounts(yearCounts)
+          .build());
+    } catch (Exception e) {
+      log.error("Unable to save index snapshot", e);
+    } finally {
+      releaseTrackSearcher(trackSearcher);
+    }
+  }
+
+  private String getTrackDirectoryName() {
+    return isNull(trackDirectoryPath) ? null : trackDirectoryPath.getFileName().toString();
+  }
+
+  protected long getIndexGeneration() throws IOException {
+    return SegmentInfos.getLastCommitGeneration(trackDirectory);
+  }
+
   @Synchronized
   public void indexData() throws Exception {
     rpmJukebox.updateSplashProgress(stringResourceService.getString(MESSAGE_SPLASH_DOWNLOAD_INDEX));
 
-    trackWriter.deleteAll();
+    // Nothing is removed from the index until there's a complete copy of the data file on disk
+    URL dataFile = dataFeedService.getDataFile();
 
-    dataService.parse(settingsService.getDataFile());
-    commitIndexes();
-    settingsService.setLastIndexedDate(LocalDateTime.now());
+    // Still fire the event, as anything waiting on the reindex would otherwise wait forever
+    if (isNull(dataFile)) {
+      log.error("Unable to index data without a data file");
+
+      fireEvent(DATA_INDEXED);
+
+      return;
+    }
+
+    // Only rewrite tracks that have changed since the last index unless this is a new version or
+    // the index schema has changed, or there is nothing to compare against
+    Map<String, String> indexedHashes = emptyMap();
+
+    if (applicationProperties.isIncrementalIndexing() && !settingsService.isNewVersion() && isIndexSchemaCurrent()) {
+      indexedHashes = getIndexedContentHashes();
+    }
+
+    long startTime = System.nanoTime();
+    boolean parsed;
+
+    if (indexedHashes.isEmpty() && applicationProperties.isBlueGreenIndexing()) {
+      log.info("Performing full reindex into a new index");
+
+      parsed = rebuildIndex(dataFile);
+    } else if (indexedHashes.isEmpty()) {
+      log.info("Performing full reindex");
+
+      // Written in one go like a rebuilt index, with nothing committed until the end
+      applyIndexProfile(trackWriter.getConfig(), true);
+      reindexingInPlace = true;
+
+      try {
+        trackWriter.deleteAll();
+
+        parsed = dataService.parse(dataFile);
+
+        if (parsed) {
+          mergeSegments(trackWriter);
+        }
+
+        commitIndexes();
+      } finally {
+        reindexingInPlace = false;
+        applyIndexProfile(trackWriter.getConfig(), false);
+      }
+    } else {
+      log.info("Performing incremental reindex against {} indexed tracks", indexedHashes.size());
+
+      indexedContentHashes = new ConcurrentHashMap<>(indexedHashes);
+      unchangedTracks.reset();
+      updatedTracks.reset();
+
+      try {
+        parsed = dataService.parse(dataFile);
+
+        // Anything left wasn't in the data file, but don't throw away the index on a partial read
+        if (parsed) {
+          for (String trackId : indexedContentHashes.keySet()) {
+            trackWriter.deleteDocuments(new Term(TrackField.TRACK_ID.name(), trackId));
+          }
+        }
+
+        log.info("Incremental reindex - {} unchanged, {} added or updated, {} deleted", unchangedTracks.sum(),
+            updatedTracks.sum(), parsed ? indexedContentHashes.size() : 0);
+      } finally {
+        indexedContentHashes = null;
+      }
+
+      commitIndexes();
+    }
+
+    long indexTime = System.nanoTime() - startTime;
+
+    metricsService.recordIndex(indexTime);
+
+    log.debug("Index data time - {} milliseconds", NANOSECONDS.toMillis(indexTime));
+
+    logIndexSize();
+
+    if (parsed) {
+      settingsService.setLastIndexedDate(LocalDateTime.now());
+    }
 
     fireEvent(DATA_INDEXED);
   }
 
+  // Builds the whole index alongside the live one, which searches carry on using until the new index
+  // has been committed and swapped in. A build that fails or only reads part of the data file is thrown
+  // away, leaving the live index as it was
+  private boolean rebuildIndex(URL dataFile) throws Exception {
+    String baseName = applicationProperties.getTrackIndexDirectory();
+    Path rebuildPath = settingsService.getFileFromConfigDirectory(baseName).toPath()
+        .resolveSibling(baseName + "-" + System.currentTimeMillis());
+    Directory directory = applicationProperties.getIndexDirectoryMode().open(rebuildPath);
+    IndexWriter indexWriter = null;
+    boolean swapped = false;
+
+    try {
+      indexWriter = createTrackWriter(directory, CREATE, true);
+      rebuildWriter = indexWriter;
+
+      if (!dataService.parse(dataFile)) {
+        log.error("Unable to read the whole data file, keeping the live index");
+
+        return false;
+      }
+
+      mergeSegments(indexWriter);
+
+      indexWriter.setLiveCommitData(Map.of(INDEX_SCHEMA_VERSION_KEY, INDEX_SCHEMA_VERSION).entrySet());
+      indexWriter.commit();
+
+      swapTrackIndex(rebuildPath, directory, indexWriter);
+      swapped = true;
+
+      return true;
+    } finally {
+      rebuildWriter = null;
+
+      if (!swapped) {
+        if (nonNull(indexWriter)) {
+          IOUtils.closeWhileHandlingException(indexWriter::rollback);
+        }
+
+        IOUtils.closeWhileHandlingException(directory);
+        deleteOldTrackIndexDirectories();
+      }
+    }
+  }
+
+  private void swapTrackIndex(Path path, Directory directory, IndexWriter indexWriter) throws IOException {
+    RetiredIndex oldIndex = new RetiredIndex(trackDirectoryPath, trackManager, trackWriter, trackDirectory);
+    SearcherManager searcherManager = createTrackManager(indexWriter);
+    boolean oldIndexInUse;
+
+    synchronized (searchersInUse) {
+      trackDirectoryPath = path;
+      trackDirectory = directory;
+      trackWriter = indexWriter;
+      trackManager = searcherManager;
+
+      // Searches still holding a searcher on the old index carry on until they release it
+      oldIndexInUse = searchersInUse.containsKey(oldIndex.searcherManager());
+
+      if (oldIndexInUse) {
+        retiredIndexes.put(oldIndex.searcherManager(), oldIndex);
+      }
+    }
+
+    log.info("Switched to new track index - {}", path);
+
+    // The new manager starts on the new index, so there's no refresh to pick up the change
+    indexChanged();
+
+    if (!oldIndexInUse) {
+      closeRetiredIndex(oldIndex);
+    }
+
+    deleteOldTrackIndexDirectories();
+  }
+
+  // Counted against the live manager before it's acquired from, so a swap can't close it in between
+  private TrackSearcher acquireTrackSearcher() throws IOException {
+    SearcherManager searcherManager;
+
+    synchronized (searchersInUse) {
+      searcherManager = trackManager;
+      searchersInUse.merge(searcherManager, 1, Integer::sum);
+    }
+
+    try {
+      return new TrackSearcher(searcherManager, searcherManager.acquire());
+    } catch (Exception e) {
+      releaseSearcherManager(searcherManager);
+
+      throw e;
+    }
+  }
+
+  // Goes back to the manager it came from, which may no longer be the live one
+  private void releaseTrackSearcher(TrackSearcher trackSearcher) {
+    if (isNull(trackSearcher)) {
+      return;
+    }
+
+    try {
+      trackSearcher.searcherManager().release(trackSearcher.indexSearcher());
+    } catch (Exception e) {
+      log.warn("Unable to release track searcher");
+    }
+
+    releaseSearcherManager(trackSearcher.searcherManager());
+  }
+
+  private void releaseSearcherManager(SearcherManager searcherManager) {
+    RetiredIndex retiredIndex = null;
+
+    synchronized (searchersInUse) {
+      if (searchersInUse.merge(searcherManager, -1, Integer::sum) == 0) {
+        searchersInUse.remove(searcherManager);
+        retiredIndex = retiredIndexes.remove(searcherManager);
+      }
+    }
+
+    if (nonNull(retiredIndex)) {
+      closeRetiredIndex(retiredIndex);
+    }
+  }
+
+  private void closeRetiredIndex(RetiredIndex retiredIndex) {
+    IOUtils.closeWhileHandlingException(retiredIndex.searcherManager(), retiredIndex.indexWriter(), retiredIndex.directory());
+
+    try {
+      IOUtils.rm(retiredIndex.path());
+
+      log.debug("Deleted old track index - {}", retiredIndex.path());
+    } catch (Exception e) {
+      log.warn("Unable to delete old track index - {}", retiredIndex.path());
+    }
+  }
+
+  // The keyword prefixes trade index size for type-ahead speed, so report what they cost
+  private void logIndexSize() {
+    TrackSearcher trackSearcher = null;
+
+    try {
+      trackSearcher = acquireTrackSearcher();
+      IndexSearcher indexSearcher = trackSearcher.indexSearcher();
+      IndexReader indexReader = indexSearcher.getIndexReader();
+      long indexBytes = 0;
+
+      for (String file : trackDirectory.listAll()) {
+        indexBytes += trackDirectory.fileLength(file);
+      }
+
+      log.info("Track index size - {} KB, {} keyword postings, {} keyword prefix postings", indexBytes / 1024,
+          indexReader.getSumDocFreq(TrackField.KEYWORDS.name()), indexReader.getSumDocFreq(TrackField.KEYWORD_PREFIXES.name()));
+    } catch (Exception e) {
+      log.warn("Unable to get track index size", e);
+    } finally {
+      releaseTrackSearcher(trackSearcher);
+    }
+  }
+
+  // The genres and years come from the facet counts, already in order, so the index isn't walked again
+  private void updateFilterLists() {
+    Map<TrackField, List<FacetCount>> facetCounts = getFacetCounts();
+
+    List<String> genres = new ArrayList<>();
+    genres.add(UNSPECIFIED_GENRE);
+    facetCounts.getOrDefault(GENRE, emptyList()).forEach(facetCount -> genres.add(facetCount.value()));
+    Collections.sort(genres);
+
+    List<String> years = new ArrayList<>();
+    Map<String, Integer> counts = new HashMap<>();
+
+    facetCounts.getOrDefault(YEAR, emptyList()).forEach(facetCount -> {
+      years.add(facetCount.value());
+      counts.put(facetCount.value(), facetCount.count());
+    });
+
+    genreList = genres;
+    yearList = years;
+    yearCounts = counts;
+
+    saveIndexSnapshot();
+  }
+
+  protected Map<String, String> getIndexedContentHashes() {
+    TrackSearcher trackSearcher = null;
+
+    try {
+      trackSearcher = acquireTrackSearcher();
+      IndexSearcher indexSearcher = trackSearcher.indexSearcher();
+
+      Map<String, String> contentHashes = new HashMap<>();
+      Set<String> fieldsToLoad = Set.of(TrackField.TRACK_ID.name(), TrackField.CONTENT_HASH.name());
+
+      for (LeafReaderContext context : getLeafReaderContexts(indexSearcher)) {
+        LeafReader leafReader = context.reader();
+        Bits liveDocs = leafReader.getLiveDocs();
+        StoredFields storedFields = leafReader.storedFields();
+
+        for (int docId = 0; docId < leafReader.maxDoc(); docId++) {
+          if (nonNull(liveDocs) && !liveDocs.get(docId)) {
+            continue;
+          }
+
+          Document document = storedFields.document(docId, fieldsToLoad);
+          String trackId = document.get(TrackField.TRACK_ID.name());
+
+          if (nonNull(trackId)) {
+            contentHashes.put(trackId, nullIsBlank(document.get(TrackField.CONTENT_HASH.name())));
+          }
+        }
+      }
+
+      return contentHashes;
+    } catch (Exception e) {
+      log.error("Unable to get indexed content hashes", e);
+
+      return emptyMap();
+    } finally {
+      releaseTrackSearcher(trackSearcher);
+    }
+  }
+
+  protected boolean isIndexSchemaCurrent() {
+    Iterable<Map.Entry<String, String>> commitData = trackWriter.getLiveCommitData();
+
+    if (nonNull(commitData)) {
+      for (Map.Entry<String, String> entry : commitData) {
+        if (INDEX_SCHEMA_VERSION_KEY.equals(entry.getKey())) {
+          return INDEX_SCHEMA_VERSION.equals(entry.getValue());
+        }
+      }
+    }
+
+    return false;
+  }
+
   private void commitIndexes() {
     log.debug("Committing indexes");
 
     try {
+      trackWriter.setLiveCommitData(Map.of(INDEX_SCHEMA_VERSION_KEY, INDEX_SCHEMA_VERSION).entrySet());
       trackWriter.commit();
       trackManager.maybeRefreshBlocking();
 
@@ -234,15 +882,26 @@ public class SearchService extends EventAwareObject {
   }
 
   void addTrack(Track track) {
+    String contentHash = generateContentHash(track);
+    Map<String, String> indexedHashes = indexedContentHashes;
+
+    // Removing the track marks it as seen for this reindex, whether it has changed or not
+    if (nonNull(indexedHashes) && contentHash.equals(indexedHashes.remove(track.getTrackId()))) {
+      unchangedTracks.increment();
+
+      return;
+    }
+
     Document document = new Document();
 
     // Keywords
-    document.add(new TextField(TrackField.KEYWORDS.name(),
-        prepareKeywords(
-            nullSafeTrim(track.getArtistName()).toLowerCase() + " " +
-                nullSafeTrim(track.getAlbumName()).toLowerCase() + " " +
-                nullSafeTrim(track.getTrackName())),
-        Field.Store.YES));
+    String keywords = prepareKeywords(
+        nullSafeTrim(track.getArtistName()).toLowerCase() + " " +
+            nullSafeTrim(track.getAlbumName()).toLowerCase() + " " +
+            nullSafeTrim(track.getTrackName()));
+
+    document.add(new TextField(TrackField.KEYWORDS.name(), keywords, Field.Store.YES));
+    document.add(new Field(TrackField.KEYWORD_PREFIXES.name(), keywords, KEYWORD_PREFIXES_TYPE));
 
     // Result data
     document.add(new StringField(TrackField.ARTIST_ID.name(), track.getArtistId(), Field.Store.YES));
@@ -250,17 +909,23 @@ public class SearchService extends EventAwareObject {
     document.add(new StringField(TrackField.ALBUM_ID.name(), track.getAlbumId(), Field.Store.YES));
     document.add(new StringField(TrackField.ALBUM_NAME.name(), track.getAlbumName(), Field.Store.YES));
     document.add(new StringField(TrackField.ALBUM_IMAGE.name(), nullIsBlank(track.getAlbumImage()), Field.Store.YES));
-    document.add(new StringField(TrackField.YEAR.name(), Integer.toString(track.getYear()), Field.Store.YES));
+    document.add(new StringField(TrackField.YEAR.name(), Integer.toString(track.getYear()), Field.Store.NO));
     document.add(new StringField(TrackField.TRACK_ID.name(), track.getTrackId(), Field.Store.YES));
     document.add(new StringField(TrackField.TRACK_NAME.name(), track.getTrackName(), Field.Store.YES));
-    document.add(new StoredField(TrackField.INDEX.name(), track.getIndex()));
+    document.add(new NumericDocValuesField(TrackField.INDEX.name(), track.getIndex()));
     document.add(new StringField(TrackField.LOCATION.name(), track.getLocation(), Field.Store.YES));
-    document.add(new StringField(TrackField.IS_PREFERRED.name(), Boolean.toString(track.isPreferred()), Field.Store.YES));
+    document.add(new StringField(TrackField.IS_PREFERRED.name(), Boolean.toString(track.isPreferred()), Field.Store.NO));
 
     for (String genre : track.getGenres()) {
       document.add(new StringField(TrackField.GENRE.name(), genre, Field.Store.YES));
     }
 
+    document.add(new StoredField(TrackField.CONTENT_HASH.name(), contentHash));
+
+    // Numbers and flags are read back from doc values rather than parsed from stored strings
+    document.add(new NumericDocValuesField(TrackField.YEAR.name(), track.getYear()));
+    document.add(new NumericDocValuesField(TrackField.IS_PREFERRED.name(), track.isPreferred() ? 1 : 0));
+
     // Sorts
     document.add(new SortedDocValuesField(TrackSort.DEFAULT_SORT.name(),
         new BytesRef(stripWhitespace(track.getArtistName(), false) + padInteger(track.getYear())
@@ -273,288 +938,325 @@ public class SearchService extends EventAwareObject {
         new BytesRef(padInteger(track.getYear()) + stripWhitespace(track.getTrackName(), false))));
 
     try {
-      trackWriter.addDocument(document);
-    } catch (Exception e) {
-      log.error("Unable to index track - {}", track.getTrackId());
+      Document facetedDocument = trackFacets.build(document, track);
+
+      if (nonNull(rebuildWriter)) {
+        rebuildWriter.addDocument(facetedDocument);
+      } else if (nonNull(indexedHashes)) {
+        trackWriter.updateDocument(new Term(TrackField.TRACK_ID.name(), track.getTrackId()), facetedDocument);
+        updatedTracks.increment();
+      } else {
+        trackWriter.addDocument(facetedDocument);
+      }
+    } catch (IOException e) {
+      // Thrown on so a reindex knows the index is missing tracks
+      throw new UncheckedIOException("Unable to index track - " + track.getTrackId(), e);
     }
   }
 
-  @Synchronized
-  protected List<String> getDistinctTrackFieldValues(TrackField trackField) {
-    log.debug("Getting distinct track field values - {}", trackField);
+  String generateContentHash(Track track) {
+    StringBuilder content = new StringBuilder();
 
-    long startTime = System.currentTimeMillis();
+    for (Object value : List.of(nullIsBlank(track.getArtistId()), nullIsBlank(track.getArtistName()),
+        nullIsBlank(track.getAlbumId()), nullIsBlank(track.getAlbumName()), nullIsBlank(track.getAlbumImage()),
+        track.getYear(), nullIsBlank(track.getTrackName()), track.getIndex(), nullIsBlank(track.getLocation()),
+        track.isPreferred(), ofNullable(track.getGenres()).orElse(emptyList()))) {
+      content.append(value).append('\u001f');
+    }
+
+    return hashGenerator.generateHash(content);
+  }
+
+  protected List<LeafReaderContext> getLeafReaderContexts(IndexSearcher indexSearcher) {
+    return indexSearcher.getIndexReader().leaves();
+  }
+
+  public List<Track> search(TrackSearch trackSearch) {
+    return search(trackSearch, () -> false);
+  }
+
+  public List<Track> search(TrackSearch trackSearch, BooleanSupplier isCancelled) {
+    return searchWithFacets(trackSearch, isCancelled).tracks();
+  }
+
+  public TrackSearchResult searchWithFacets(TrackSearch trackSearch) {
+    return searchWithFacets(trackSearch, () -> false);
+  }
+
+  // Counts the genres and years of every matching track in the same pass as the search. Searches can't
+  // be interrupted as Lucene closes its file channels on an interrupt, so a cancelled search instead
+  // stops at the next check and returns nothing
+  public TrackSearchResult searchWithFacets(TrackSearch trackSearch, BooleanSupplier isCancelled) {
+    log.debug("Performing search");
+
+    long startTime = System.nanoTime();
 
     if (isNull(trackManager)) {
       throw new RuntimeException("Cannot search before track index is initialised");
     }
 
-    IndexSearcher trackSearcher = null;
+    if (isNull(trackSearch) || isNull(trackSearch.getKeywords()) || trackSearch.getKeywords().trim().isEmpty()) {
+      return new TrackSearchResult(emptyList(), emptyMap());
+    }
 
-    try {
-      trackSearcher = trackManager.acquire();
+    Optional<TrackSearchResult> cachedResult = searchResultCache.get(trackSearch);
 
-      Set<String> fieldValues = new LinkedHashSet<>();
+    metricsService.recordSearchCacheRead(cachedResult.isPresent());
 
-      for (LeafReaderContext context : getLeafReaderContexts(trackSearcher)) {
-        try (LeafReader leafReader = context.reader()) {
-          Terms terms = leafReader.terms(trackField.name());
+    if (cachedResult.isPresent()) {
+      long queryTime = System.nanoTime() - startTime;
 
-          if (nonNull(terms)) {
-            TermsEnum termsEnum = terms.iterator();
-            BytesRef bytesRef;
+      metricsService.recordSearch(queryTime);
 
-            while (nonNull(bytesRef = termsEnum.next())) {
-              fieldValues.add(bytesRef.utf8ToString());
-            }
-          }
-        }
+      log.debug("Search cache hit - {} milliseconds", NANOSECONDS.toMillis(queryTime));
+
+      return cachedResult.get();
+    }
+
+    if (isCancelled.getAsBoolean()) {
+      log.debug("Search cancelled before query");
+
+      return new TrackSearchResult(emptyList(), emptyMap());
+    }
+
+    long cacheGeneration = searchResultCache.getGeneration();
+    TrackSearcher trackSearcher = null;
+
+    try {
+      trackSearcher = acquireTrackSearcher();
+      IndexSearcher indexSearcher = trackSearcher.indexSearcher();
+
+      // Every hit has to be visited for the counts anyway, so the total is always exact
+      Object[] results = indexSearcher.search(buildTrackSearchQuery(trackSearch), new MultiCollectorManager(
+          new TopFieldCollectorManager(buildTrackSearchSort(trackSearch), applicationProperties.getMaxSearchHits(), Integer.MAX_VALUE),
+          new FacetsCollectorManager()));
+
+      if (isCancelled.getAsBoolean()) {
+        log.debug("Search cancelled before reading results");
+
+        return new TrackSearchResult(emptyList(), emptyMap());
       }
 
-      return new ArrayList<>(fieldValues);
+      TrackSearchResult result = new TrackSearchResult(getTracksFromScoreDocs(indexSearcher, ((TopDocs) results[0]).scoreDocs),
+          getFacetCounts(indexSearcher, (FacetsCollector) results[1]));
+
+      searchResultCache.put(trackSearch, result, cacheGeneration);
+
+      return result;
     } catch (Exception e) {
-      log.error("Unable to get distinct track field values - {}", trackField, e);
+      log.error("Unable to run track search", e);
 
-      return emptyList();
+      return new TrackSearchResult(emptyList(), emptyMap());
     } finally {
-      try {
-        trackManager.release(trackSearcher);
-      } catch (Exception e) {
-        log.warn("Unable to release track searcher");
-      }
+      releaseTrackSearcher(trackSearcher);
 
-      long queryTime = System.currentTimeMillis() - startTime;
+      long queryTime = System.nanoTime() - startTime;
 
-      log.debug("Distinct track field values query time - {} milliseconds", queryTime);
+      metricsService.recordSearch(queryTime);
+
+      log.debug("Search query time - {} milliseconds", NANOSECONDS.toMillis(queryTime));
     }
   }
 
-  protected List<LeafReaderContext> getLeafReaderContexts(IndexSearcher indexSearcher) {
-    return indexSearcher.getIndexReader().leaves();
+  protected Map<TrackField, List<FacetCount>> getFacetCounts(IndexSearcher indexSearcher, FacetsCollector facetsCollector)
+      throws IOException {
+    return trackFacets.getFacetCounts(indexSearcher.getIndexReader(), facetsCollector);
   }
 
-  @Synchronized
-  public List<Track> search(TrackSearch trackSearch) {
-    log.debug("Performing search");
-
-    long startTime = System.currentTimeMillis();
-
+  // Genre and year counts across the whole index
+  public Map<TrackField, List<FacetCount>> getFacetCounts() {
     if (isNull(trackManager)) {
       throw new RuntimeException("Cannot search before track index is initialised");
     }
 
-    if (isNull(trackSearch) || isNull(trackSearch.getKeywords()) || trackSearch.getKeywords().trim().isEmpty()) {
-      return emptyList();
-    }
-
-    IndexSearcher trackSearcher = null;
+    long startTime = System.nanoTime();
+    TrackSearcher trackSearcher = null;
 
     try {
-      trackSearcher = trackManager.acquire();
-      TopFieldDocs results = trackSearcher.search(
-          buildKeywordsQuery(prepareKeywords(trackSearch.getKeywords()),
-              trackSearch.getTrackFilter().getTermQueries()),
-          applicationProperties.getMaxSearchHits(), new Sort(new SortField(trackSearch.getTrackSort().name(), SortField.Type.STRING)));
+      trackSearcher = acquireTrackSearcher();
+      IndexSearcher indexSearcher = trackSearcher.indexSearcher();
 
-      return getTracksFromScoreDocs(trackSearcher, results.scoreDocs);
+      return trackFacets.getFacetCounts(indexSearcher.getIndexReader());
     } catch (Exception e) {
-      log.error("Unable to run track search", e);
+      log.error("Unable to get facet counts", e);
 
-      return emptyList();
+      return emptyMap();
     } finally {
-      try {
-        trackManager.release(trackSearcher);
-      } catch (Exception e) {
-        log.warn("Unable to release track searcher");
-      }
+      releaseTrackSearcher(trackSearcher);
 
-      long queryTime = System.currentTimeMillis() - startTime;
+      long queryTime = System.nanoTime() - startTime;
 
-      log.debug("Search query time - {} milliseconds", queryTime);
+      metricsService.recordFacetCounts(queryTime);
+
+      log.debug("Facet counts query time - {} milliseconds", NANOSECONDS.toMillis(queryTime));
     }
   }
 
-  @Synchronized
   public List<Track> getShuffledPlaylist(int playlistSize, String yearFilter) {
     log.debug("Getting shuffled playlist size - {} - {}", playlistSize, yearFilter);
 
-    long startTime = System.currentTimeMillis();
+    long startTime = System.nanoTime();
 
     if (isNull(trackManager)) {
       throw new RuntimeException("Cannot search before track index is initialised");
     }
 
-    IndexSearcher trackSearcher = null;
+    TrackSearcher trackSearcher = null;
 
     try {
-      trackSearcher = trackManager.acquire();
+      trackSearcher = acquireTrackSearcher();
+      IndexSearcher indexSearcher = trackSearcher.indexSearcher();
 
-      int maxSearchHits = getMaxDoc(trackSearcher);
-      List<Track> playlist = new ArrayList<>();
+      Query query = nonNull(yearFilter) ? new TermQuery(new Term(TrackField.YEAR.name(), yearFilter)) : null;
+      int[] docIds = randomDocIdSampler.sample(indexSearcher, query, playlistSize);
 
-      log.debug("Max search hits - {}", maxSearchHits);
+      log.debug("Sampled docs - {}", docIds.length);
 
-      Query query;
+      ScoreDoc[] scoreDocs = new ScoreDoc[docIds.length];
 
-      if (nonNull(yearFilter)) {
-        query = new BooleanQuery.Builder().add(new TermQuery(new Term(TrackField.YEAR.name(), yearFilter)), BooleanClause.Occur.MUST).build();
-      } else {
-        query = new MatchAllDocsQuery();
+      for (int i = 0; i < docIds.length; i++) {
+        scoreDocs[i] = new ScoreDoc(docIds[i], 0);
       }
 
-      TopDocs results = trackSearcher.search(query, maxSearchHits);
-      ScoreDoc[] scoreDocs = results.scoreDocs;
-
-      log.debug("Hits - {}", results.totalHits);
-      log.debug("Score docs - {}", scoreDocs.length);
-
-      if (playlistSize < results.totalHits.value()) {
-        final IndexSearcher finalSearcher = trackSearcher;
-        Future<Integer> future = executorService.submit(() -> {
-          while (playlist.size() < playlistSize) {
-            int docId = (int) (secureRandom.nextDouble() * results.totalHits.value());
-            Track track = getTrackByDocId(finalSearcher, scoreDocs[docId].doc);
-
-            if (!playlist.contains(track)) {
-              playlist.add(track);
-            }
-
-            if (Thread.interrupted()) {
-              log.debug("Random playlist future interrupted");
-              return 1;
-            }
-          }
-
-          return 0;
-        });
-
-        try {
-          future.get(1000, TimeUnit.MILLISECONDS);
-        } catch (Exception e) {
-          // Ignore this as we will return what we've got
-          if (!future.isDone()) {
-            log.debug("Timed out getting random playlist, killing future");
-            future.cancel(true);
-          }
-        }
-      } else {
-        for (ScoreDoc scoreDoc : scoreDocs) {
-          playlist.add(getTrackByDocId(trackSearcher, scoreDoc.doc));
-        }
-
-        shuffle(playlist);
-      }
-
-      return playlist;
+      return getTracksFromScoreDocs(indexSearcher, scoreDocs);
     } catch (Exception e) {
       log.error("Unable to get shuffled playlist", e);
 
       return emptyList();
     } finally {
-      try {
-        trackManager.release(trackSearcher);
-      } catch (Exception e) {
-        log.warn("Unable to release track searcher");
-      }
+      releaseTrackSearcher(trackSearcher);
 
-      long queryTime = System.currentTimeMillis() - startTime;
+      long queryTime = System.nanoTime() - startTime;
 
-      log.debug("Shuffled playlist query time - {} milliseconds", queryTime);
-    }
-  }
+      metricsService.recordShuffledPlaylist(queryTime);
 
-  protected int getMaxDoc(IndexSearcher indexSearcher) {
-    return indexSearcher.getIndexReader().maxDoc();
+      log.debug("Shuffled playlist query time - {} milliseconds", NANOSECONDS.toMillis(queryTime));
+    }
   }
 
-  @Synchronized
   public Optional<Track> getTrackById(String trackId) {
     if (isNull(trackManager)) {
       throw new RuntimeException("Cannot search before track index is initialised");
     }
 
-    IndexSearcher trackSearcher = null;
+    TrackSearcher trackSearcher = null;
 
     try {
-      trackSearcher = trackManager.acquire();
-      TopDocs results = trackSearcher.search(new TermQuery(new Term(TrackField.TRACK_ID.name(), trackId)), 1);
+      trackSearcher = acquireTrackSearcher();
+      IndexSearcher indexSearcher = trackSearcher.indexSearcher();
+      TopDocs results = indexSearcher.search(new TermQuery(new Term(TrackField.TRACK_ID.name(), trackId)), 1);
 
       if (results.totalHits.value() < 1) {
         return empty();
       }
 
-      return of(getTrackByDocId(trackSearcher, results.scoreDocs[0].doc));
+      return of(getTrackReader(indexSearcher).getTrack(results.scoreDocs[0].doc));
     } catch (Exception e) {
       log.error("Unable to run get track by id", e);
 
       return empty();
     } finally {
-      try {
-        trackManager.release(trackSearcher);
-      } catch (Exception e) {
-        log.warn("Unable to release track searcher");
+      releaseTrackSearcher(trackSearcher);
+    }
+  }
+
+  public List<Track> getTracksByIds(Collection<String> trackIds) {
+    if (isNull(trackManager)) {
+      throw new RuntimeException("Cannot search before track index is initialised");
+    }
+
+    if (isNull(trackIds) || trackIds.isEmpty()) {
+      return emptyList();
+    }
+
+    log.debug("Getting tracks by id - {}", trackIds.size());
+
+    long startTime = System.nanoTime();
+
+    TrackSearcher trackSearcher = null;
+
+    try {
+      trackSearcher = acquireTrackSearcher();
+      IndexSearcher indexSearcher = trackSearcher.indexSearcher();
+
+      Set<BytesRef> terms = new LinkedHashSet<>();
+      trackIds.stream().filter(Objects::nonNull).forEach(trackId -> terms.add(new BytesRef(trackId)));
+
+      if (terms.isEmpty()) {
+        return emptyList();
+      }
+
+      TopDocs results = indexSearcher.search(new TermInSetQuery(TrackField.TRACK_ID.name(), terms), terms.size());
+      Map<String, Track> tracksById = new HashMap<>();
+
+      for (Track track : getTracksFromScoreDocs(indexSearcher, results.scoreDocs)) {
+        tracksById.put(track.getTrackId(), track);
       }
+
+      // Return the tracks in the order they were asked for, skipping any that no longer exist
+      List<Track> tracks = new ArrayList<>();
+
+      trackIds.forEach(trackId -> ofNullable(tracksById.get(trackId)).ifPresent(tracks::add));
+
+      return tracks;
+    } catch (Exception e) {
+      log.error("Unable to run get tracks by ids", e);
+
+      return emptyList();
+    } finally {
+      releaseTrackSearcher(trackSearcher);
+
+      long queryTime = System.nanoTime() - startTime;
+
+      metricsService.recordTracksByIds(queryTime);
+
+      log.debug("Tracks by ids query time - {} milliseconds", NANOSECONDS.toMillis(queryTime));
     }
   }
 
-  @Synchronized
   Optional<List<Track>> getAlbumById(String albumId) {
     if (isNull(trackManager)) {
       throw new RuntimeException("Cannot search before track index is initialised");
     }
 
-    IndexSearcher trackSearcher = null;
+    TrackSearcher trackSearcher = null;
 
     try {
-      trackSearcher = trackManager.acquire();
-      TopDocs results = trackSearcher.search(new TermQuery(new Term(TrackField.ALBUM_ID.name(), albumId)),
+      trackSearcher = acquireTrackSearcher();
+      IndexSearcher indexSearcher = trackSearcher.indexSearcher();
+      TopDocs results = indexSearcher.search(new TermQuery(new Term(TrackField.ALBUM_ID.name(), albumId)),
           applicationProperties.getMaxSearchHits(), new Sort(new SortField(TrackSort.DEFAULT_SORT.name(), SortField.Type.STRING)));
 
-      return of(getTracksFromScoreDocs(trackSearcher, results.scoreDocs));
+      return of(getTracksFromScoreDocs(indexSearcher, results.scoreDocs));
     } catch (Exception e) {
       log.error("Unable to run get album by id", e);
 
       return empty();
     } finally {
-      try {
-        trackManager.release(trackSearcher);
-      } catch (Exception e) {
-        log.warn("Unable to release track searcher");
-      }
+      releaseTrackSearcher(trackSearcher);
     }
   }
 
   private List<Track> getTracksFromScoreDocs(IndexSearcher trackSearcher, ScoreDoc[] scoreDocs) throws Exception {
-    List<Track> tracks = new ArrayList<>();
+    metricsService.recordTracksRead(scoreDocs.length);
 
-    for (ScoreDoc scoreDoc : scoreDocs) {
-      tracks.add(getTrackByDocId(trackSearcher, scoreDoc.doc));
+    if (scoreDocs.length == 0) {
+      return new ArrayList<>();
     }
 
-    return tracks;
+    return getTrackReader(trackSearcher).getTracks(scoreDocs);
   }
 
-  private Track getTrackByDocId(IndexSearcher trackSearcher, int docId) throws Exception {
-    Document document = getStoredFields(trackSearcher).document(docId);
+  protected TrackReader getTrackReader(IndexSearcher indexSearcher) {
+    return new TrackReader(indexSearcher.getIndexReader());
+  }
 
-    return Track.builder()
-        .artistId(document.get(TrackField.ARTIST_ID.name()))
-        .artistName(document.get(TrackField.ARTIST_NAME.name()))
-        .albumId(document.get(TrackField.ALBUM_ID.name()))
-        .albumName(document.get(TrackField.ALBUM_NAME.name()))
-        .albumImage(document.get(TrackField.ALBUM_IMAGE.name()))
-        .year(Integer.parseInt(document.get(TrackField.YEAR.name())))
-        .trackId(document.get(TrackField.TRACK_ID.name()))
-        .trackName(document.get(TrackField.TRACK_NAME.name()))
-        .index(Integer.parseInt(document.get(TrackField.INDEX.name())))
-        .location(document.get(TrackField.LOCATION.name()))
-        .isPreferred(Boolean.parseBoolean(document.get(TrackField.IS_PREFERRED.name())))
-        .genres(List.of(document.getValues(TrackField.GENRE.name())))
-        .build();
+  private Query buildTrackSearchQuery(TrackSearch trackSearch) {
+    return buildKeywordsQuery(prepareKeywords(trackSearch.getKeywords()), trackSearch.getTrackFilter().getTermQueries());
   }
 
-  protected StoredFields getStoredFields(IndexSearcher indexSearcher) throws IOException {
-    return indexSearcher.getIndexReader().storedFields();
+  private Sort buildTrackSearchSort(TrackSearch trackSearch) {
+    return new Sort(new SortField(trackSearch.getTrackSort().name(), SortField.Type.STRING));
   }
 
   private Query buildKeywordsQuery(String keywords, List<TermQuery> termQueries) {
@@ -563,13 +1265,15 @@ public class SearchService extends EventAwareObject {
     if ("*".equals(keywords)) {
       builder.add(new WildcardQuery(new Term(TrackField.KEYWORDS.name(), keywords)), BooleanClause.Occur.MUST);
     } else {
-      // Split into whole words with the last word having
-      // a wildcard '*' on the end
+      // Split into whole words with the last word being treated as a prefix. Short prefixes
+      // are indexed so they're a single term, longer ones have a wildcard '*' on the end
       for (StringTokenizer tokens = new StringTokenizer(keywords, " "); tokens.hasMoreTokens(); ) {
         String token = tokens.nextToken();
 
         if (tokens.hasMoreElements()) {
           builder.add(new TermQuery(new Term(TrackField.KEYWORDS.name(), token)), BooleanClause.Occur.MUST);
+        } else if (token.length() <= KeywordPrefixAnalyzer.MAX_PREFIX_LENGTH) {
+          builder.add(new TermQuery(new Term(TrackField.KEYWORD_PREFIXES.name(), token)), BooleanClause.Occur.MUST);
         } else {
           builder.add(new WildcardQuery(new Term(TrackField.KEYWORDS.name(), (token + "*"))),
               BooleanClause.Occur.MUST);
@@ -582,6 +1286,11 @@ public class SearchService extends EventAwareObject {
     return builder.build();
   }
 
+  static Analyzer createTrackAnalyzer() {
+    return new PerFieldAnalyzerWrapper(new WhitespaceAnalyzer(),
+        Map.of(TrackField.KEYWORD_PREFIXES.name(), new KeywordPrefixAnalyzer()));
+  }
+
   protected String prepareKeywords(String keywords) {
     if (isNull(keywords)) {
       return "";
@@ -648,4 +1357,33 @@ public class SearchService extends EventAwareObject {
 
     return string.substring(string.length() - 10);
   }
+
+  // Loads the parts of the index that searching touches so the first search isn't slow. This runs
+  // once the window is showing rather than holding up the splash screen
+  void warmUp() {
+    long startTime = System.currentTimeMillis();
+    String searchWarmer = "test song";
+
+    for (int i = 0; i < searchWarmer.length(); i++) {
+      search(new TrackSearch(searchWarmer.substring(0, i + 1)));
+    }
+
+    getFacetCounts();
+
+    log.debug("Search warm up time - {} milliseconds", System.currentTimeMillis() - startTime);
+  }
+
+  @Override
+  public void eventReceived(Event event, Object... payload) {
+    if (event == APPLICATION_INITIALISED) {
+      threadRunner.run(this::warmUp);
+    } else if (event == DATA_INDEXED) {
+      searchResultCache.invalidate();
+    }
+  }
+
+  // A searcher along with the manager it has to be released back to
+  private record TrackSearcher(SearcherManager searcherManager, IndexSearcher indexSearcher) {}
+
+  private record RetiredIndex(Path path, SearcherManager searcherManager, IndexWriter indexWriter, Directory directory) {}
 }
@@ -19,7 +19,6 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
-import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
 import java.time.Instant;
@@ -41,7 +40,9 @@ import uk.co.mpcontracting.rpmjukebox.RpmJukebox;
 import uk.co.mpcontracting.rpmjukebox.config.ApplicationProperties;
 import uk.co.mpcontracting.rpmjukebox.model.Equalizer;
 import uk.co.mpcontracting.rpmjukebox.model.Playlist;
+import uk.co.mpcontracting.rpmjukebox.settings.DataFeed;
 import uk.co.mpcontracting.rpmjukebox.settings.EqBand;
+import uk.co.mpcontracting.rpmjukebox.settings.IndexSnapshot;
 import uk.co.mpcontracting.rpmjukebox.settings.PlaylistSettings;
 import uk.co.mpcontracting.rpmjukebox.settings.Settings;
 import uk.co.mpcontracting.rpmjukebox.settings.SystemSettings;
@@ -57,10 +58,6 @@ public class SettingsService {
   private final ApplicationProperties applicationProperties;
   private final StringResourceService stringResourceService;
 
-  @Lazy
-  @Autowired
-  private InternetService internetService;
-
   @Lazy
   @Autowired
   private MediaService mediaService;
@@ -135,45 +132,24 @@ public class SettingsService {
     return isNewVersion;
   }
 
+  // The data file is synced in the background, so this only has to check whether the local
+  // copy has been updated since the last time it was indexed
   boolean hasDataFileExpired() {
     rpmJukebox.updateSplashProgress(stringResourceService.getString(MESSAGE_SPLASH_CHECKING_DATA));
 
-    // Read the last modified date from the data file
-    LocalDateTime lastModified = null;
-
-    if ("file".equals(dataFile.getProtocol())) {
-      try {
-        lastModified = LocalDateTime.ofInstant(Instant.ofEpochMilli(new File(dataFile.toURI()).lastModified()), ZoneId.systemDefault());
-      } catch (Exception e) {
-        log.error("Unable to determine if local data file has expired", e);
-      }
-    } else {
-      HttpURLConnection connection = null;
-
-      try {
-        connection = (HttpURLConnection) internetService.openConnection(dataFile);
-        lastModified = LocalDateTime.ofInstant(Instant.ofEpochMilli(connection.getLastModified()), ZoneId.systemDefault());
-      } catch (Exception e) {
-        log.error("Unable to determine if data file has expired", e);
-      } finally {
-        if (nonNull(connection)) {
-          connection.disconnect();
-        }
-      }
-    }
+    DataFeed dataFeed = loadDataFeed();
 
-    if (isNull(lastModified)) {
+    if (isNull(dataFeed) || !dataFile.toString().equals(dataFeed.getUrl()) || dataFeed.getLastModified() <= 0) {
       return false;
     }
 
+    LocalDateTime lastModified = LocalDateTime.ofInstant(Instant.ofEpochMilli(dataFeed.getLastModified()), ZoneId.systemDefault());
     LocalDateTime lastIndexed = getLastIndexedDate();
 
     log.debug("Last modified - {}", lastModified);
     log.debug("Last indexed - {}", lastIndexed);
 
-    // If last modified is at least 1 hour old and greater than last
-    // indexed, it's invalid
-    return lastModified.plusHours(1).isBefore(LocalDateTime.now()) && lastModified.isAfter(lastIndexed);
+    return nonNull(lastIndexed) && lastModified.isAfter(lastIndexed);
   }
 
   LocalDateTime getLastIndexedDate() {
@@ -329,6 +305,68 @@ public class SettingsService {
     }
   }
 
+  IndexSnapshot loadIndexSnapshot() {
+    log.debug("Loading index snapshot");
+
+    File indexSnapshotFile = getFileFromConfigDirectory(applicationProperties.getIndexSnapshotFile());
+
+    if (!indexSnapshotFile.exists()) {
+      return null;
+    }
+
+    // Read the file
+    try (FileReader fileReader = new FileReader(indexSnapshotFile)) {
+      return gson.fromJson(fileReader, IndexSnapshot.class);
+    } catch (Exception e) {
+      log.error("Unable to load index snapshot file", e);
+
+      return null;
+    }
+  }
+
+  void saveIndexSnapshot(IndexSnapshot indexSnapshot) {
+    log.debug("Saving index snapshot");
+
+    // Write the file
+    File indexSnapshotFile = getFileFromConfigDirectory(applicationProperties.getIndexSnapshotFile());
+
+    try (FileWriter fileWriter = new FileWriter(indexSnapshotFile)) {
+      fileWriter.write(gson.toJson(indexSnapshot));
+    } catch (Exception e) {
+      log.error("Unable to save index snapshot file", e);
+    }
+  }
+
+  DataFeed loadDataFeed() {
+    File dataFeedFile = getFileFromConfigDirectory(applicationProperties.getDataFeedSettingsFile());
+
+    if (!dataFeedFile.exists()) {
+      return null;
+    }
+
+    // Read the file
+    try (FileReader fileReader = new FileReader(dataFeedFile)) {
+      return gson.fromJson(fileReader, DataFeed.class);
+    } catch (Exception e) {
+      log.error("Unable to load data feed file", e);
+
+      return null;
+    }
+  }
+
+  void saveDataFeed(DataFeed dataFeed) {
+    log.debug("Saving data feed");
+
+    // Write the file
+    File dataFeedFile = getFileFromConfigDirectory(applicationProperties.getDataFeedSettingsFile());
+
+    try (FileWriter fileWriter = new FileWriter(dataFeedFile)) {
+      fileWriter.write(gson.toJson(dataFeed));
+    } catch (Exception e) {
+      log.error("Unable to save data feed file", e);
+    }
+  }
+
   void loadUserSettings() {
     log.debug("Loading user settings");
 
@@ -375,7 +413,7 @@ public class SettingsService {
             playlist.setName(stringResourceService.getString(MESSAGE_PLAYLIST_FAVOURITES));
           }
 
-          playlistSettings.getTracks().forEach(trackId -> searchService.getTrackById(trackId).ifPresent(playlist::addTrack));
+          searchService.getTracksByIds(playlistSettings.getTracks()).forEach(playlist::addTrack);
 
           playlists.add(playlist);
         }));
@@ -0,0 +1,113 @@
+package uk.co.mpcontracting.rpmjukebox.service;
+
+import static java.util.Objects.nonNull;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import lombok.Synchronized;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import uk.co.mpcontracting.rpmjukebox.config.ApplicationProperties;
+import uk.co.mpcontracting.rpmjukebox.search.TrackSearch;
+import uk.co.mpcontracting.rpmjukebox.search.TrackSearchResult;
+import uk.co.mpcontracting.rpmjukebox.util.ThreadRunner;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TypeAheadSearchService {
+
+  private final ThreadRunner threadRunner;
+  private final ScheduledExecutorService scheduledExecutorService;
+  private final ApplicationProperties applicationProperties;
+
+  private final SearchService searchService;
+
+  // Every request supersedes the ones before it, so a search is only
+  // worth finishing while its id is still the latest
+  private final AtomicLong latestSearchId = new AtomicLong();
+  private final AtomicLong lastLatencyMillis = new AtomicLong(-1);
+  private final LongAdder completedSearches = new LongAdder();
+  private final LongAdder supersededSearches = new LongAdder();
+
+  private Future<?> pendingSearch;
+
+  // Runs the search after the debounce delay on a background thread and passes the results,
+  // with their facet counts, to the consumer on the GUI thread, unless another search has been requested
+  @Synchronized
+  public void search(TrackSearch trackSearch, Consumer<TrackSearchResult> resultConsumer) {
+    long requestTime = System.nanoTime();
+    long searchId = latestSearchId.incrementAndGet();
+
+    cancelPendingSearch();
+
+    pendingSearch = scheduledExecutorService.schedule(
+        () -> threadRunner.run(() -> runSearch(searchId, requestTime, trackSearch, resultConsumer)),
+        applicationProperties.getSearchDebounceMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @Synchronized
+  public void cancel() {
+    latestSearchId.incrementAndGet();
+
+    cancelPendingSearch();
+  }
+
+  public long getLastLatencyMillis() {
+    return lastLatencyMillis.get();
+  }
+
+  public long getCompletedSearches() {
+    return completedSearches.sum();
+  }
+
+  public long getSupersededSearches() {
+    return supersededSearches.sum();
+  }
+
+  private void cancelPendingSearch() {
+    if (nonNull(pendingSearch)) {
+      pendingSearch.cancel(false);
+      pendingSearch = null;
+    }
+  }
+
+  private void runSearch(long searchId, long requestTime, TrackSearch trackSearch, Consumer<TrackSearchResult> resultConsumer) {
+    BooleanSupplier isSuperseded = () -> latestSearchId.get() != searchId;
+
+    try {
+      TrackSearchResult result = searchService.searchWithFacets(trackSearch, isSuperseded);
+
+      if (isSuperseded.getAsBoolean()) {
+        supersededSearches.increment();
+
+        return;
+      }
+
+      threadRunner.runOnGui(() -> {
+        if (isSuperseded.getAsBoolean()) {
+          supersededSearches.increment();
+
+          return;
+        }
+
+        resultConsumer.accept(result);
+
+        long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - requestTime);
+
+        lastLatencyMillis.set(latency);
+        completedSearches.increment();
+
+        log.debug("Type-ahead search latency - {} milliseconds", latency);
+      });
+    } catch (Exception e) {
+      log.error("Unable to run type-ahead search", e);
+    }
+  }
+}
@@ -0,0 +1,14 @@
+package uk.co.mpcontracting.rpmjukebox.settings;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class DataFeed {
+  private String url;
+  private String etag;
+  private long lastModified;
+  private String checksum;
+  private String downloadEtag;
+}
@@ -0,0 +1,19 @@
+package uk.co.mpcontracting.rpmjukebox.settings;
+
+import java.util.List;
+import java.util.Map;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class IndexSnapshot {
+  private String schemaVersion;
+  private String directory;
+  private long generation;
+  private int numDocs;
+  private boolean valid;
+  private List<String> genres;
+  private List<String> years;
+  private Map<String, Integer> yearCounts;
+}
@@ -18,6 +18,7 @@ public final class Constants {
   public static final String MESSAGE_SPLASH_INITIALISING_CACHE = "splash.initialisingCache";
   public static final String MESSAGE_SPLASH_CHECKING_DATA = "splash.checkingData";
   public static final String MESSAGE_SPLASH_DOWNLOAD_INDEX = "splash.downloadIndex";
+  public static final String MESSAGE_SPLASH_DOWNLOADING_DATA = "splash.downloadingData";
   public static final String MESSAGE_SPLASH_LOADING_SYSTEM_SETTINGS = "splash.loadingSystemSettings";
   public static final String MESSAGE_SPLASH_INITIALISING_SEARCH = "splash.initialisingSearch";
   public static final String MESSAGE_SPLASH_LOADING_USER_SETTINGS = "splash.loadingUserSettings";
@@ -32,6 +33,7 @@ public final class Constants {
   public static final String MESSAGE_TRACK_TABLE_CONTEXT_CREATE_PLAYLIST_FROM_ALBUM = "trackTable.context.createPlaylistFromAlbum";
   public static final String MESSAGE_TRACK_TABLE_CONTEXT_DELETE_TRACK_FROM_PLAYLIST = "trackTable.context.deleteTrackFromPlaylist";
   public static final String MESSAGE_DOWNLOAD_INDEX = "message.downloadIndex";
+  public static final String MESSAGE_DOWNLOADING_DATA = "message.downloadingData";
   public static final String MESSAGE_NEW_VERSION_AVAILABLE = "message.newVersionAvailable";
   public static final String MESSAGE_FILE_CHOOSER_PLAYLIST_FILTER = "file.chooser.playlist.filter";
   public static final String MESSAGE_IMPORT_PLAYLIST_TITLE = "import.playlist.title";
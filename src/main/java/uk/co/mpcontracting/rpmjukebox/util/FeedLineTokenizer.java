@@ -0,0 +1,136 @@
+package uk.co.mpcontracting.rpmjukebox.util;
+
+import java.util.Arrays;
+
+// Splits a data file line on the |@| delimiter in a single pass without a regex. Fields are held
+// as offsets into the line, so a string is only created when a value is needed. Values are trimmed
+// and trailing empty fields dropped, the same as String.split. Reusable per line, but not thread safe
+public class FeedLineTokenizer {
+
+  public static final String DELIMITER = "|@|";
+
+  private String line;
+  private int[] fieldStarts = new int[16];
+  private int[] fieldEnds = new int[16];
+  private int fieldCount;
+
+  public FeedLineTokenizer tokenize(String line) {
+    this.line = line;
+    fieldCount = 0;
+
+    int length = line.length();
+    int fieldStart = 0;
+    int position = 0;
+
+    while (position <= length - 3) {
+      if (line.charAt(position) == '|' && line.charAt(position + 1) == '@' && line.charAt(position + 2) == '|') {
+        addField(fieldStart, position);
+        position += 3;
+        fieldStart = position;
+      } else {
+        position++;
+      }
+    }
+
+    // A line without a delimiter is a single field, even if it's empty
+    if (fieldCount == 0) {
+      addField(0, length);
+
+      return this;
+    }
+
+    addField(fieldStart, length);
+
+    while (fieldCount > 0 && fieldStarts[fieldCount - 1] == fieldEnds[fieldCount - 1]) {
+      fieldCount--;
+    }
+
+    return this;
+  }
+
+  public int getFieldCount() {
+    return fieldCount;
+  }
+
+  public boolean hasField(int index) {
+    return index < fieldCount;
+  }
+
+  public String getField(int index) {
+    if (!hasField(index)) {
+      return null;
+    }
+
+    int start = trimmedStart(index);
+
+    return line.substring(start, trimmedEnd(index, start));
+  }
+
+  public boolean fieldEquals(int index, String value) {
+    if (!hasField(index)) {
+      return false;
+    }
+
+    int start = trimmedStart(index);
+    int length = trimmedEnd(index, start) - start;
+
+    return length == value.length() && line.regionMatches(start, value, 0, length);
+  }
+
+  public int getIntField(int index, int defaultValue) {
+    if (!hasField(index)) {
+      return defaultValue;
+    }
+
+    int start = trimmedStart(index);
+
+    return Integer.parseInt(line, start, trimmedEnd(index, start), 10);
+  }
+
+  public Integer getIntegerField(int index) {
+    return hasField(index) ? getIntField(index, 0) : null;
+  }
+
+  public boolean getBooleanField(int index) {
+    if (!hasField(index)) {
+      return false;
+    }
+
+    int start = trimmedStart(index);
+
+    return trimmedEnd(index, start) - start == 4 && line.regionMatches(true, start, "true", 0, 4);
+  }
+
+  private void addField(int start, int end) {
+    if (fieldCount == fieldStarts.length) {
+      fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+      fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+    }
+
+    fieldStarts[fieldCount] = start;
+    fieldEnds[fieldCount] = end;
+    fieldCount++;
+  }
+
+  // Trimming matches String.trim(), which strips anything up to and including a space
+  private int trimmedStart(int index) {
+    int start = fieldStarts[index];
+    int end = fieldEnds[index];
+
+    while (start < end && line.charAt(start) <= ' ') {
+      start++;
+    }
+
+    return start;
+  }
+
+  private int trimmedEnd(int index, int start) {
+    int end = fieldEnds[index];
+
+    while (end > start && line.charAt(end - 1) <= ' ') {
+      end--;
+    }
+
+    return end;
+  }
+}
@@ -0,0 +1,85 @@
+package uk.co.mpcontracting.rpmjukebox.util;
+
+import static java.util.Objects.isNull;
+import static uk.co.mpcontracting.rpmjukebox.util.Constants.UNSPECIFIED_GENRE;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.stereotype.Component;
+
+@Component
+public class GenreNormaliser {
+
+  // There are only a few hundred distinct genres in the data file, so the cache is
+  // just bounded to protect against a malformed file rather than sized for eviction
+  private static final int MAX_CACHE_SIZE = 10000;
+
+  private final Map<String, String> genreCache = new ConcurrentHashMap<>();
+  private final Map<String, String> trackGenreCache = new ConcurrentHashMap<>();
+
+  // Blank artist genres are unspecified, whereas a blank track genre means use the artist genres
+  public String normalise(String genre, boolean blankIsUnspecified) {
+    if (isNull(genre) || genre.isEmpty()) {
+      return blankIsUnspecified ? UNSPECIFIED_GENRE : null;
+    }
+
+    Map<String, String> cache = blankIsUnspecified ? genreCache : trackGenreCache;
+    String normalised = cache.get(genre);
+
+    if (isNull(normalised)) {
+      normalised = cleanGenre(genre);
+
+      if (cache.size() < MAX_CACHE_SIZE) {
+        cache.put(genre, normalised);
+      }
+    }
+
+    return normalised;
+  }
+
+  int getCacheSize() {
+    return genreCache.size() + trackGenreCache.size();
+  }
+
+  private String cleanGenre(String genre) {
+    if (genre.equalsIgnoreCase("Unknown") || genre.equalsIgnoreCase("None") || genre.equalsIgnoreCase("Other")
+        || genre.equalsIgnoreCase("0")) {
+      return UNSPECIFIED_GENRE;
+    }
+
+    if (genre.equalsIgnoreCase("rpm")) {
+      return "RPM";
+    }
+
+    if (genre.startsWith("Children")) {
+      return "Children's Music";
+    }
+
+    return toTitleCase(genre.replace("&amp;", "&")).trim();
+  }
+
+  // Upper cases the first character of each space separated word
+  private String toTitleCase(String string) {
+    StringBuilder builder = new StringBuilder(string.length());
+    boolean startOfWord = true;
+
+    for (int i = 0; i < string.length(); i++) {
+      char c = string.charAt(i);
+
+      if (c == ' ') {
+        if (!startOfWord) {
+          builder.append(' ');
+        }
+
+        startOfWord = true;
+      } else if (startOfWord) {
+        builder.append(String.valueOf(c).toUpperCase());
+        startOfWord = false;
+      } else {
+        builder.append(c);
+      }
+    }
+
+    return builder.toString();
+  }
+}
@@ -4,13 +4,25 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 
-import java.math.BigInteger;
+import java.nio.CharBuffer;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import org.springframework.stereotype.Component;
 
 @Component
 public class HashGenerator {
 
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  // MessageDigest isn't thread safe, but looking one up is expensive, so keep one per thread
+  private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  });
+
   public String generateHash(Object... objects) {
     if (isNull(objects) || objects.length == 0) {
       throw new IllegalArgumentException("Objects for hash generation must have at least one value");
@@ -31,16 +43,45 @@ public class HashGenerator {
         throw new Exception("Hash generation string must have a length > 1");
       }
 
-      MessageDigest digest = MessageDigest.getInstance("SHA-256");
-      digest.reset();
-      digest.update(builder.toString().getBytes(UTF_8));
-
-      return toHex(digest.digest());
+      return digest(builder);
     } catch (Exception e) {
       throw new RuntimeException("Error generating hash for - " + objectsAsString(objects), e);
     }
   }
 
+  public String generateHash(CharSequence charSequence) {
+    if (isNull(charSequence) || charSequence.isEmpty()) {
+      throw new RuntimeException("Error generating hash for - " + charSequence,
+          new Exception("Hash generation string must have a length > 1"));
+    }
+
+    return digest(charSequence);
+  }
+
+  public String generateHash(byte[] bytes) {
+    if (isNull(bytes) || bytes.length == 0) {
+      throw new IllegalArgumentException("Bytes for hash generation must have at least one value");
+    }
+
+    MessageDigest digest = DIGEST.get();
+    digest.reset();
+
+    return toHex(digest.digest(bytes));
+  }
+
+  private String digest(CharSequence charSequence) {
+    MessageDigest digest = DIGEST.get();
+    digest.reset();
+
+    if (charSequence instanceof String string) {
+      digest.update(string.getBytes(UTF_8));
+    } else {
+      digest.update(UTF_8.encode(CharBuffer.wrap(charSequence)));
+    }
+
+    return toHex(digest.digest());
+  }
+
   private String objectsAsString(Object... objects) {
     StringBuilder builder = new StringBuilder();
 
@@ -66,6 +107,13 @@ public class HashGenerator {
   }
 
   private String toHex(byte[] bytes) {
-    return String.format("%0" + (bytes.length << 1) + "x", new BigInteger(1, bytes));
+    char[] hex = new char[bytes.length << 1];
+
+    for (int i = 0; i < bytes.length; i++) {
+      hex[i << 1] = HEX_DIGITS[(bytes[i] >> 4) & 0x0f];
+      hex[(i << 1) + 1] = HEX_DIGITS[bytes[i] & 0x0f];
+    }
+
+    return new String(hex);
   }
 }
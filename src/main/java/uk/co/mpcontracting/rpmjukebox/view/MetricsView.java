@@ -0,0 +1,10 @@
+package uk.co.mpcontracting.rpmjukebox.view;
+
+import static uk.co.mpcontracting.rpmjukebox.util.Constants.I18N_MESSAGE_BUNDLE;
+
+import de.felixroske.jfxsupport.FXMLView;
+
+@FXMLView(value = "/fxml/metrics.fxml", bundle = I18N_MESSAGE_BUNDLE)
+public class MetricsView extends AbstractModalView {
+
+}
@@ -1,7 +1,6 @@
 package uk.co.mpcontracting.rpmjukebox.controller;
 
 import static java.util.Collections.emptyList;
-import static java.util.Optional.empty;
 import static java.util.Optional.of;
 import static javafx.scene.input.KeyCode.A;
 import static javafx.scene.input.KeyCode.BACK_SPACE;
@@ -14,6 +13,7 @@ import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
@@ -21,6 +21,8 @@ import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.co.mpcontracting.rpmjukebox.event.Event.APPLICATION_INITIALISED;
@@ -46,6 +48,7 @@ import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_FILE_EXPORT_PLAYLI
 import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_FILE_IMPORT_PLAYLIST;
 import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_FILE_SETTINGS;
 import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_VIEW_EQUALIZER;
+import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_VIEW_METRICS;
 import static uk.co.mpcontracting.rpmjukebox.event.Event.MUTE_UPDATED;
 import static uk.co.mpcontracting.rpmjukebox.event.Event.NEW_VERSION_AVAILABLE;
 import static uk.co.mpcontracting.rpmjukebox.event.Event.PLAYLIST_CREATED;
@@ -90,6 +93,7 @@ import java.io.FileReader;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
@@ -128,8 +132,11 @@ import uk.co.mpcontracting.rpmjukebox.model.Playlist;
 import uk.co.mpcontracting.rpmjukebox.model.Repeat;
 import uk.co.mpcontracting.rpmjukebox.model.Track;
 import uk.co.mpcontracting.rpmjukebox.model.YearFilter;
+import uk.co.mpcontracting.rpmjukebox.search.FacetCount;
+import uk.co.mpcontracting.rpmjukebox.search.TrackField;
 import uk.co.mpcontracting.rpmjukebox.search.TrackFilter;
 import uk.co.mpcontracting.rpmjukebox.search.TrackSearch;
+import uk.co.mpcontracting.rpmjukebox.search.TrackSearchResult;
 import uk.co.mpcontracting.rpmjukebox.service.CacheService;
 import uk.co.mpcontracting.rpmjukebox.service.MediaService;
 import uk.co.mpcontracting.rpmjukebox.service.NativeService;
@@ -145,6 +152,7 @@ import uk.co.mpcontracting.rpmjukebox.view.EqualizerView;
 import uk.co.mpcontracting.rpmjukebox.view.ExportView;
 import uk.co.mpcontracting.rpmjukebox.view.MainPanelView;
 import uk.co.mpcontracting.rpmjukebox.view.MessageView;
+import uk.co.mpcontracting.rpmjukebox.view.MetricsView;
 import uk.co.mpcontracting.rpmjukebox.view.SettingsView;
 import uk.co.mpcontracting.rpmjukebox.view.TrackTableView;
 
@@ -168,6 +176,9 @@ class MainPanelControllerTest extends AbstractGuiTest {
   @MockBean
   private MessageView messageView;
 
+  @MockBean
+  private MetricsView metricsView;
+
   @MockBean
   private SettingsView settingsView;
 
@@ -180,6 +191,9 @@ class MainPanelControllerTest extends AbstractGuiTest {
   @MockBean
   private ExportController exportController;
 
+  @MockBean
+  private MetricsController metricsController;
+
   @MockBean
   private SettingsController settingsController;
 
@@ -247,6 +261,9 @@ class MainPanelControllerTest extends AbstractGuiTest {
     reset(eventProcessor);
     reset(playlistService);
     reset(searchService);
+
+    // A search can finish on the GUI thread after the test that started it, so always hand back a result
+    when(searchService.searchWithFacets(any(), any())).thenReturn(new TrackSearchResult(emptyList(), Map.of()));
   }
 
   @AfterEach
@@ -267,8 +284,42 @@ class MainPanelControllerTest extends AbstractGuiTest {
 
     WaitForAsyncUtils.waitForFxEvents();
 
-    verify(searchService).search(new TrackSearch(searchText));
-    verify(eventProcessor).fireEvent(PLAYLIST_SELECTED, PLAYLIST_ID_SEARCH);
+    verify(searchService, timeout(1000)).searchWithFacets(eq(new TrackSearch(searchText)), any());
+    verify(eventProcessor, timeout(1000)).fireEvent(PLAYLIST_SELECTED, PLAYLIST_ID_SEARCH);
+  }
+
+  @Test
+  void shouldShowYearCountsForSearch() {
+    when(searchService.getYearList()).thenReturn(List.of("2000", "2001"));
+    when(searchService.searchWithFacets(any(), any())).thenReturn(new TrackSearchResult(emptyList(),
+        Map.of(TrackField.YEAR, List.of(new FacetCount("2001", 3)))));
+
+    @SuppressWarnings("unchecked")
+    ComboBox<YearFilter> yearFilterComboBox = getNonNullField(underTest, "yearFilterComboBox", ComboBox.class);
+    TextField searchTextField = getNonNullField(underTest, "searchTextField", TextField.class);
+
+    Platform.runLater(() -> {
+      yearFilterComboBox.getItems().setAll(new YearFilter("None", null), new YearFilter("2000", "2000"),
+          new YearFilter("2001", "2001"));
+      yearFilterComboBox.getSelectionModel().selectFirst();
+    });
+
+    WaitForAsyncUtils.waitForFxEvents();
+
+    // Picking the year with no search text clears the search playlist straight away
+    clearInvocations(playlistService);
+
+    Platform.runLater(() -> searchTextField.setText(getFaker().lorem().characters(10, 20)));
+
+    WaitForAsyncUtils.waitForFxEvents();
+
+    verify(playlistService, timeout(1000)).setPlaylistTracks(PLAYLIST_ID_SEARCH, emptyList());
+
+    WaitForAsyncUtils.waitForFxEvents();
+
+    assertThat(yearFilterComboBox.getItems()).extracting(YearFilter::display).endsWith("2000 (0)", "2001 (3)");
+    assertThat(yearFilterComboBox.getSelectionModel().getSelectedIndex()).isZero();
+    verify(searchService, times(1)).searchWithFacets(any(), any());
   }
 
   @Test
@@ -313,8 +364,8 @@ class MainPanelControllerTest extends AbstractGuiTest {
 
     WaitForAsyncUtils.waitForFxEvents();
 
-    verify(searchService).search(new TrackSearch(searchText, new TrackFilter(null, year2)));
-    verify(eventProcessor).fireEvent(PLAYLIST_SELECTED, PLAYLIST_ID_SEARCH);
+    verify(searchService, timeout(1000)).searchWithFacets(eq(new TrackSearch(searchText, new TrackFilter(null, year2))), any());
+    verify(eventProcessor, timeout(1000)).fireEvent(PLAYLIST_SELECTED, PLAYLIST_ID_SEARCH);
   }
 
   @Test
@@ -521,9 +572,11 @@ class MainPanelControllerTest extends AbstractGuiTest {
       when(track.getTrackId()).thenReturn(Integer.toString(i));
 
       playlist.addTrack(track);
-      when(searchService.getTrackById(Integer.toString(i))).thenReturn(of(track));
     }
 
+    when(searchService.getTracksByIds(playlist.getTracks().stream().map(Track::getTrackId).toList()))
+        .thenReturn(playlist.getTracks());
+
     List<PlaylistSettings> playlistSettings = new ArrayList<>();
     playlistSettings.add(new PlaylistSettings(playlist));
 
@@ -584,7 +637,7 @@ class MainPanelControllerTest extends AbstractGuiTest {
     playlistSettings.add(new PlaylistSettings(playlist));
 
     when(gson.fromJson(any(FileReader.class), any(Type.class))).thenReturn(playlistSettings);
-    when(searchService.getTrackById(any())).thenReturn(empty());
+    when(searchService.getTracksByIds(any())).thenReturn(emptyList());
 
     Platform.runLater(underTest::handleImportPlaylistButtonAction);
 
@@ -1138,6 +1191,28 @@ class MainPanelControllerTest extends AbstractGuiTest {
     assertThat(yearFilter.year()).isNull();
   }
 
+  @Test
+  void shouldReceiveApplicationInitialisedWithYearCounts() {
+    List<Playlist> playlists = List.of(
+        new Playlist(PLAYLIST_ID_SEARCH, createPlaylistName(), 10),
+        new Playlist(PLAYLIST_ID_FAVOURITES, createPlaylistName(), 10)
+    );
+    when(playlistService.getPlaylists()).thenReturn(playlists);
+    when(playlistService.getRepeat()).thenReturn(OFF);
+    when(playlistService.isShuffle()).thenReturn(false);
+    when(mediaService.isMuted()).thenReturn(false);
+    when(searchService.getYearList()).thenReturn(List.of("2000", "2001"));
+    when(searchService.getYearCounts()).thenReturn(Map.of("2000", 12));
+
+    Platform.runLater(() -> underTest.eventReceived(APPLICATION_INITIALISED));
+
+    WaitForAsyncUtils.waitForFxEvents();
+
+    ComboBox<YearFilter> yearFilterComboBox = find("#yearFilterComboBox");
+    assertThat(yearFilterComboBox.getItems()).extracting(YearFilter::display).endsWith("2000 (12)", "2001 (0)");
+    assertThat(yearFilterComboBox.getItems()).extracting(YearFilter::year).endsWith("2000", "2001");
+  }
+
   @Test
   void shouldReceiveApplicationInitialisedWithNoPlaylists() {
     when(playlistService.getPlaylists()).thenReturn(emptyList());
@@ -2108,4 +2183,12 @@ class MainPanelControllerTest extends AbstractGuiTest {
 
     verify(underTest).handleEqButtonAction();
   }
+
+  @Test
+  void shouldReceiveMenuViewMetrics() {
+    underTest.eventReceived(MENU_VIEW_METRICS);
+
+    verify(metricsController).updateMetrics();
+    verify(metricsView).show(true);
+  }
 }
\ No newline at end of file
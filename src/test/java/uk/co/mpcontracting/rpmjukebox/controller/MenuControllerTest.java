@@ -27,6 +27,7 @@ import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_FILE_EXPORT_PLAYLI
 import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_FILE_IMPORT_PLAYLIST;
 import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_FILE_SETTINGS;
 import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_VIEW_EQUALIZER;
+import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_VIEW_METRICS;
 import static uk.co.mpcontracting.rpmjukebox.event.Event.PLAYLIST_CONTENT_UPDATED;
 import static uk.co.mpcontracting.rpmjukebox.event.Event.PLAYLIST_CREATED;
 import static uk.co.mpcontracting.rpmjukebox.event.Event.PLAYLIST_DELETED;
@@ -410,6 +411,13 @@ class MenuControllerTest extends AbstractGuiTest {
     verify(eventProcessor).fireEvent(MENU_VIEW_EQUALIZER);
   }
 
+  @Test
+  void shouldHandleViewMetricsAction() {
+    clickOnMenuItem("#menuViewMetrics");
+
+    verify(eventProcessor).fireEvent(MENU_VIEW_METRICS);
+  }
+
   @Test
   @SneakyThrows
   void shouldReceiveApplicationInitialised() {
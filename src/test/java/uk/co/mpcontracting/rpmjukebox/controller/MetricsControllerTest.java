@@ -0,0 +1,67 @@
+package uk.co.mpcontracting.rpmjukebox.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import jakarta.annotation.PostConstruct;
+import java.util.List;
+import javafx.scene.control.TextArea;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import uk.co.mpcontracting.rpmjukebox.service.MetricsService;
+import uk.co.mpcontracting.rpmjukebox.test.util.AbstractGuiTest;
+import uk.co.mpcontracting.rpmjukebox.view.MetricsView;
+
+class MetricsControllerTest extends AbstractGuiTest {
+
+  @MockBean
+  private MetricsService metricsService;
+
+  @SpyBean
+  private MetricsView metricsView;
+
+  @Autowired
+  private MetricsController underTest;
+
+  @SneakyThrows
+  @PostConstruct
+  public void postConstruct() {
+    init(metricsView);
+  }
+
+  @BeforeEach
+  void beforeEach() {
+    doNothing().when(metricsView).close();
+  }
+
+  @Test
+  void shouldUpdateMetrics() {
+    when(metricsService.getSummary()).thenReturn(List.of("search.time - count 1", "cache.hits - count 2"));
+
+    underTest.updateMetrics();
+
+    TextArea metricsTextArea = find("#metricsTextArea");
+
+    assertThat(metricsTextArea.getText()).isEqualTo("search.time - count 1" + System.lineSeparator() + "cache.hits - count 2");
+  }
+
+  @Test
+  void shouldClickOkButton() {
+    clickOn("#okButton");
+
+    verify(metricsView).close();
+  }
+
+  @Test
+  void shouldClickRefreshButton() {
+    clickOn("#refreshButton");
+
+    verify(metricsService).getSummary();
+  }
+}
@@ -7,6 +7,7 @@ import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -14,6 +15,7 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.util.ReflectionTestUtils.invokeMethod;
+import static uk.co.mpcontracting.rpmjukebox.event.Event.DATA_DOWNLOAD_UPDATED;
 import static uk.co.mpcontracting.rpmjukebox.event.Event.DATA_INDEXED;
 import static uk.co.mpcontracting.rpmjukebox.test.util.TestDataHelper.createVersion;
 import static uk.co.mpcontracting.rpmjukebox.test.util.TestDataHelper.getFaker;
@@ -37,6 +39,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.testfx.util.WaitForAsyncUtils;
+import uk.co.mpcontracting.rpmjukebox.service.DataFeedService;
 import uk.co.mpcontracting.rpmjukebox.service.SearchService;
 import uk.co.mpcontracting.rpmjukebox.service.SettingsService;
 import uk.co.mpcontracting.rpmjukebox.settings.SystemSettings;
@@ -48,6 +51,9 @@ class SettingsControllerTest extends AbstractGuiTest {
   @MockBean
   private MainPanelController mainPanelController;
 
+  @MockBean
+  private DataFeedService dataFeedService;
+
   @MockBean
   private SearchService searchService;
 
@@ -110,6 +116,7 @@ class SettingsControllerTest extends AbstractGuiTest {
 
     assertThat(isReindexing).isTrue();
     verify(mainPanelController).showMessageView(anyString(), eq(false));
+    verify(dataFeedService).sync();
     verify(searchService).indexData();
   }
 
@@ -132,6 +139,29 @@ class SettingsControllerTest extends AbstractGuiTest {
     verify(mainPanelController).closeMessageView();
   }
 
+  @Test
+  @SneakyThrows
+  void shouldClickReindexButtonAndCloseMessageViewWithoutDataFile() {
+    // The search service fires the data indexed event when it has no data file to index
+    doAnswer(invocation -> {
+      underTest.eventReceived(DATA_INDEXED);
+
+      return null;
+    }).when(searchService).indexData();
+
+    clickOn("#reindexButton");
+
+    // Wait for reindex to kick off
+    Thread.sleep(250);
+
+    boolean isReindexing = getField(underTest, "isReindexing", Boolean.class);
+
+    assertThat(isReindexing).isFalse();
+    verify(mainPanelController).showMessageView(anyString(), eq(false));
+    verify(searchService).indexData();
+    verify(mainPanelController).closeMessageView();
+  }
+
   @Test
   void shouldClickOkButton() {
     int cacheSizeMb = getFaker().number().numberBetween(50, 1000);
@@ -235,4 +265,22 @@ class SettingsControllerTest extends AbstractGuiTest {
     assertThat(isReindexing).isFalse();
     verify(mainPanelController, never()).closeMessageView();
   }
-}
\ No newline at end of file
+
+  @Test
+  void shouldShowDownloadProgressWhenIndexing() {
+    setField(underTest, "isReindexing", true);
+
+    underTest.eventReceived(DATA_DOWNLOAD_UPDATED, 50L, 200L);
+
+    verify(mainPanelController).showMessageView("Downloading data... 25%", false);
+  }
+
+  @Test
+  void shouldNotShowDownloadProgressWhenNotIndexing() {
+    setField(underTest, "isReindexing", false);
+
+    underTest.eventReceived(DATA_DOWNLOAD_UPDATED, 50L, 200L);
+
+    verify(mainPanelController, never()).showMessageView(anyString(), anyBoolean());
+  }
+}
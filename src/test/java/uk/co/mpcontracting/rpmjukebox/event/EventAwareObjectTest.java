@@ -2,6 +2,7 @@ package uk.co.mpcontracting.rpmjukebox.event;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static uk.co.mpcontracting.rpmjukebox.event.Event.TEST_EVENT;
@@ -14,6 +15,7 @@ import lombok.Synchronized;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.testfx.util.WaitForAsyncUtils;
+import uk.co.mpcontracting.rpmjukebox.service.MetricsService;
 import uk.co.mpcontracting.rpmjukebox.test.util.AbstractGuiTest;
 
 class EventAwareObjectTest extends AbstractGuiTest {
@@ -25,7 +27,7 @@ class EventAwareObjectTest extends AbstractGuiTest {
 
   @BeforeEach
   void beforeEach() {
-    testEventProcessor = spy(new EventProcessor(Executors.newSingleThreadScheduledExecutor()));
+    testEventProcessor = spy(new EventProcessor(Executors.newSingleThreadScheduledExecutor(), mock(MetricsService.class)));
     underTest = new EventAwareObject() {
       @Override
       @Synchronized
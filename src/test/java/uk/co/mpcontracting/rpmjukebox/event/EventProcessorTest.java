@@ -2,6 +2,7 @@ package uk.co.mpcontracting.rpmjukebox.event;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 import static uk.co.mpcontracting.rpmjukebox.event.Event.TEST_EVENT;
 import static uk.co.mpcontracting.rpmjukebox.test.util.TestDataHelper.getFaker;
 
@@ -10,6 +11,7 @@ import lombok.SneakyThrows;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.testfx.util.WaitForAsyncUtils;
+import uk.co.mpcontracting.rpmjukebox.service.MetricsService;
 import uk.co.mpcontracting.rpmjukebox.test.util.AbstractGuiTest;
 
 class EventProcessorTest extends AbstractGuiTest {
@@ -19,7 +21,7 @@ class EventProcessorTest extends AbstractGuiTest {
 
   @BeforeEach
   void beforeEach() {
-    underTest = new EventProcessor(Executors.newSingleThreadScheduledExecutor());
+    underTest = new EventProcessor(Executors.newSingleThreadScheduledExecutor(), mock(MetricsService.class));
     receivedEvent = null;
   }
 
@@ -0,0 +1,359 @@
+package uk.co.mpcontracting.rpmjukebox.jetty;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_CONTROLS_NEXT;
+import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_CONTROLS_PLAY_PAUSE;
+import static uk.co.mpcontracting.rpmjukebox.event.Event.MENU_CONTROLS_VOLUME_UP;
+import static uk.co.mpcontracting.rpmjukebox.jetty.ApiServlet.API_HEADER;
+import static uk.co.mpcontracting.rpmjukebox.jetty.ApiServlet.VOLUME_DELTA;
+import static uk.co.mpcontracting.rpmjukebox.test.util.TestDataHelper.createTrack;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.co.mpcontracting.rpmjukebox.config.ApplicationProperties;
+import uk.co.mpcontracting.rpmjukebox.event.EventProcessor;
+import uk.co.mpcontracting.rpmjukebox.model.Playlist;
+import uk.co.mpcontracting.rpmjukebox.model.Repeat;
+import uk.co.mpcontracting.rpmjukebox.model.Track;
+import uk.co.mpcontracting.rpmjukebox.search.TrackFilter;
+import uk.co.mpcontracting.rpmjukebox.search.TrackSearch;
+import uk.co.mpcontracting.rpmjukebox.service.MediaService;
+import uk.co.mpcontracting.rpmjukebox.service.MetricsService;
+import uk.co.mpcontracting.rpmjukebox.service.PlaylistService;
+import uk.co.mpcontracting.rpmjukebox.service.SearchService;
+import uk.co.mpcontracting.rpmjukebox.service.SettingsService;
+import uk.co.mpcontracting.rpmjukebox.util.ThreadRunner;
+
+@ExtendWith(MockitoExtension.class)
+class ApiServletTest {
+
+  @Mock
+  private ApplicationProperties applicationProperties;
+
+  @Mock
+  private ThreadRunner threadRunner;
+
+  @Mock
+  private EventProcessor eventProcessor;
+
+  @Mock
+  private MediaService mediaService;
+
+  @Mock
+  private MetricsService metricsService;
+
+  @Mock
+  private PlaylistService playlistService;
+
+  @Mock
+  private SearchService searchService;
+
+  @Mock
+  private SettingsService settingsService;
+
+  @Mock
+  private TrackProxyServlet trackProxyServlet;
+
+  private JettyServer jettyServer;
+  private HttpClient httpClient;
+
+  @BeforeEach
+  void beforeEach() {
+    lenient().when(settingsService.getGson()).thenReturn(new Gson());
+
+    // Run UI work on the calling thread
+    lenient().doAnswer(invocation -> {
+      invocation.getArgument(0, Runnable.class).run();
+      return null;
+    }).when(threadRunner).runOnGui(any());
+
+    jettyServer = new JettyServer(applicationProperties, new ApiServlet(threadRunner, eventProcessor, mediaService,
+        metricsService, playlistService, searchService, settingsService), trackProxyServlet);
+    jettyServer.start();
+
+    httpClient = HttpClient.newHttpClient();
+  }
+
+  @AfterEach
+  void afterEach() {
+    httpClient.close();
+    jettyServer.stop();
+  }
+
+  @Test
+  void shouldSearch() {
+    Track track = createTrack(1);
+    when(searchService.search(new TrackSearch("keywords", new TrackFilter("rock", "2000")))).thenReturn(List.of(track));
+
+    HttpResponse<String> response = send("GET", "/api/search?keywords=keywords&genre=rock&year=2000");
+
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(response.headers().firstValue("Content-Type")).hasValueSatisfying(value -> assertThat(value).startsWith("application/json"));
+
+    JsonArray tracks = new Gson().fromJson(response.body(), JsonArray.class);
+
+    assertThat(tracks.size()).isEqualTo(1);
+    assertThat(tracks.get(0).getAsJsonObject().get("trackId").getAsString()).isEqualTo(track.getTrackId());
+  }
+
+  @Test
+  void shouldNotSearchWithoutKeywords() {
+    HttpResponse<String> response = send("GET", "/api/search");
+
+    assertThat(response.statusCode()).isEqualTo(400);
+    verify(searchService, never()).search(any());
+  }
+
+  @Test
+  void shouldGetPlaylists() {
+    Playlist playlist = new Playlist(1, "Playlist", 10);
+    playlist.addTrack(createTrack(1));
+    playlist.addTrack(createTrack(2));
+    when(playlistService.getPlaylists()).thenReturn(List.of(playlist));
+
+    HttpResponse<String> response = send("GET", "/api/playlists");
+
+    assertThat(response.statusCode()).isEqualTo(200);
+
+    JsonObject summary = new Gson().fromJson(response.body(), JsonArray.class).get(0).getAsJsonObject();
+
+    assertThat(summary.get("id").getAsInt()).isEqualTo(1);
+    assertThat(summary.get("name").getAsString()).isEqualTo("Playlist");
+    assertThat(summary.get("size").getAsInt()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldGetPlaylist() {
+    Track track = createTrack(1);
+    Playlist playlist = new Playlist(1, "Playlist", 10);
+    playlist.addTrack(track);
+    when(playlistService.getPlaylist(1)).thenReturn(Optional.of(playlist));
+
+    HttpResponse<String> response = send("GET", "/api/playlists/1");
+
+    assertThat(response.statusCode()).isEqualTo(200);
+
+    JsonObject detail = new Gson().fromJson(response.body(), JsonObject.class);
+
+    assertThat(detail.get("name").getAsString()).isEqualTo("Playlist");
+    assertThat(detail.getAsJsonArray("tracks").get(0).getAsJsonObject().get("trackId").getAsString()).isEqualTo(track.getTrackId());
+  }
+
+  @Test
+  void shouldNotGetUnknownPlaylist() {
+    when(playlistService.getPlaylist(1)).thenReturn(Optional.empty());
+
+    assertThat(send("GET", "/api/playlists/1").statusCode()).isEqualTo(404);
+  }
+
+  @Test
+  void shouldNotGetPlaylistWithInvalidId() {
+    assertThat(send("GET", "/api/playlists/invalid").statusCode()).isEqualTo(400);
+  }
+
+  @Test
+  void shouldGetNowPlaying() {
+    Track track = createTrack(1);
+    Playlist playlist = new Playlist(2, "Playlist", 10);
+    when(mediaService.isPlaying()).thenReturn(true);
+    when(mediaService.getPlayingTimeSeconds()).thenReturn(12.5d);
+    when(mediaService.getVolume()).thenReturn(0.5d);
+    when(playlistService.getPlayingPlaylist()).thenReturn(playlist);
+    when(playlistService.getTrackAtPlayingPlaylistIndex()).thenReturn(track);
+    when(playlistService.getRepeat()).thenReturn(Repeat.ALL);
+
+    HttpResponse<String> response = send("GET", "/api/now-playing");
+
+    assertThat(response.statusCode()).isEqualTo(200);
+
+    JsonObject nowPlaying = new Gson().fromJson(response.body(), JsonObject.class);
+
+    assertThat(nowPlaying.get("playing").getAsBoolean()).isTrue();
+    assertThat(nowPlaying.get("paused").getAsBoolean()).isFalse();
+    assertThat(nowPlaying.get("playlistId").getAsInt()).isEqualTo(2);
+    assertThat(nowPlaying.getAsJsonObject("track").get("trackId").getAsString()).isEqualTo(track.getTrackId());
+    assertThat(nowPlaying.get("playingTimeSeconds").getAsDouble()).isEqualTo(12.5d);
+    assertThat(nowPlaying.get("volume").getAsDouble()).isEqualTo(0.5d);
+    assertThat(nowPlaying.get("repeat").getAsString()).isEqualTo("ALL");
+
+    verify(threadRunner).runOnGui(any());
+  }
+
+  @Test
+  void shouldNotGetNowPlayingOnException() {
+    when(mediaService.isPlaying()).thenThrow(new RuntimeException("ApiServletTest.shouldNotGetNowPlayingOnException()"));
+
+    assertThat(send("GET", "/api/now-playing").statusCode()).isEqualTo(503);
+  }
+
+  @Test
+  void shouldGetMetrics() {
+    when(metricsService.getMetrics()).thenReturn(Map.of("search.time", Map.of("count", 1L)));
+
+    HttpResponse<String> response = send("GET", "/api/metrics");
+
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(new Gson().fromJson(response.body(), JsonObject.class).getAsJsonObject("search.time").get("count").getAsLong())
+        .isEqualTo(1L);
+  }
+
+  @Test
+  void shouldNotGetUnknownPath() {
+    assertThat(send("GET", "/api/unknown").statusCode()).isEqualTo(404);
+  }
+
+  @Test
+  void shouldPlayPlaylist() {
+    when(playlistService.getPlaylist(1)).thenReturn(Optional.of(new Playlist(1, "Playlist", 10)));
+
+    assertThat(send("POST", "/api/playlists/1/play").statusCode()).isEqualTo(202);
+
+    verify(playlistService).playPlaylist(1);
+  }
+
+  @Test
+  void shouldNotPlayUnknownPlaylist() {
+    when(playlistService.getPlaylist(1)).thenReturn(Optional.empty());
+
+    assertThat(send("POST", "/api/playlists/1/play").statusCode()).isEqualTo(404);
+
+    verify(playlistService, never()).playPlaylist(anyInt());
+  }
+
+  @Test
+  void shouldAddTrackToPlaylist() {
+    Track track = createTrack(1);
+    when(playlistService.getPlaylist(1)).thenReturn(Optional.of(new Playlist(1, "Playlist", 10)));
+    when(searchService.getTrackById(track.getTrackId())).thenReturn(Optional.of(track));
+
+    assertThat(send("POST", "/api/playlists/1/tracks/" + track.getTrackId()).statusCode()).isEqualTo(202);
+
+    verify(playlistService).addTrackToPlaylist(1, track);
+  }
+
+  @Test
+  void shouldRemoveTrackFromPlaylist() {
+    Track track = createTrack(1);
+    when(playlistService.getPlaylist(1)).thenReturn(Optional.of(new Playlist(1, "Playlist", 10)));
+    when(searchService.getTrackById(track.getTrackId())).thenReturn(Optional.of(track));
+
+    assertThat(send("DELETE", "/api/playlists/1/tracks/" + track.getTrackId()).statusCode()).isEqualTo(202);
+
+    verify(playlistService).removeTrackFromPlaylist(1, track);
+  }
+
+  @Test
+  void shouldNotAddUnknownTrackToPlaylist() {
+    when(playlistService.getPlaylist(1)).thenReturn(Optional.of(new Playlist(1, "Playlist", 10)));
+    when(searchService.getTrackById("unknown")).thenReturn(Optional.empty());
+
+    assertThat(send("POST", "/api/playlists/1/tracks/unknown").statusCode()).isEqualTo(404);
+
+    verify(playlistService, never()).addTrackToPlaylist(anyInt(), any());
+  }
+
+  @Test
+  void shouldFireControlEvents() {
+    assertThat(send("POST", "/api/controls/play-pause").statusCode()).isEqualTo(202);
+    assertThat(send("POST", "/api/controls/next").statusCode()).isEqualTo(202);
+    assertThat(send("POST", "/api/controls/volume-up").statusCode()).isEqualTo(202);
+
+    verify(eventProcessor).fireEvent(MENU_CONTROLS_PLAY_PAUSE);
+    verify(eventProcessor).fireEvent(MENU_CONTROLS_NEXT);
+    verify(eventProcessor).fireEvent(MENU_CONTROLS_VOLUME_UP, VOLUME_DELTA);
+  }
+
+  @Test
+  void shouldNotFireUnknownControl() {
+    assertThat(send("POST", "/api/controls/unknown").statusCode()).isEqualTo(404);
+
+    verify(eventProcessor, never()).fireEvent(any());
+  }
+
+  @Test
+  void shouldAcceptRequestFromLocalOrigin() {
+    when(playlistService.getPlaylists()).thenReturn(List.of());
+
+    HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create("http://localhost:" + jettyServer.getPort() + "/api/playlists"))
+        .header("Origin", "http://127.0.0.1:" + jettyServer.getPort()));
+
+    assertThat(response.statusCode()).isEqualTo(200);
+  }
+
+  @Test
+  void shouldRejectRequestFromForeignOrigin() {
+    HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create("http://localhost:" + jettyServer.getPort() + "/api/playlists"))
+        .header("Origin", "http://www.example.com"));
+
+    assertThat(response.statusCode()).isEqualTo(403);
+    verify(playlistService, never()).getPlaylists();
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldRejectRequestForForeignHost() {
+    // The HTTP client won't send a host of its own choosing, so the request is written by hand
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), jettyServer.getPort())) {
+      socket.getOutputStream().write(("GET /api/playlists HTTP/1.1\r\nHost: www.example.com:" + jettyServer.getPort()
+          + "\r\nConnection: close\r\n\r\n").getBytes(US_ASCII));
+
+      String statusLine = new BufferedReader(new InputStreamReader(socket.getInputStream(), US_ASCII)).readLine();
+
+      assertThat(statusLine).contains(" 403 ");
+    }
+
+    verify(playlistService, never()).getPlaylists();
+  }
+
+  @Test
+  void shouldRejectChangeWithoutApiHeader() {
+    HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create("http://localhost:" + jettyServer.getPort() + "/api/controls/next"))
+        .POST(HttpRequest.BodyPublishers.noBody()));
+
+    assertThat(response.statusCode()).isEqualTo(403);
+    verify(eventProcessor, never()).fireEvent(any());
+  }
+
+  private HttpResponse<String> send(String method, String path) {
+    HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + jettyServer.getPort() + path))
+        .method(method, HttpRequest.BodyPublishers.noBody());
+
+    if (!method.equals("GET")) {
+      builder.header(API_HEADER, "true");
+    }
+
+    return send(builder);
+  }
+
+  @SneakyThrows
+  private HttpResponse<String> send(HttpRequest.Builder builder) {
+    return httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+  }
+}
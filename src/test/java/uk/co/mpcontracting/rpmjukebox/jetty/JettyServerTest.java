@@ -0,0 +1,114 @@
+package uk.co.mpcontracting.rpmjukebox.jetty;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Optional;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.co.mpcontracting.rpmjukebox.config.ApplicationProperties;
+
+@ExtendWith(MockitoExtension.class)
+class JettyServerTest {
+
+  @Mock
+  private ApplicationProperties applicationProperties;
+
+  @Mock
+  private ApiServlet apiServlet;
+
+  @Mock
+  private TrackProxyServlet trackProxyServlet;
+
+  private JettyServer underTest;
+
+  @BeforeEach
+  void beforeEach() {
+    underTest = new JettyServer(applicationProperties, apiServlet, trackProxyServlet);
+  }
+
+  @AfterEach
+  void afterEach() {
+    underTest.stop();
+  }
+
+  @Test
+  void shouldStartAndStop() {
+    assertThat(underTest.start()).isTrue();
+    assertThat(underTest.isRunning()).isTrue();
+    assertThat(underTest.getPort()).isPositive();
+
+    underTest.stop();
+
+    assertThat(underTest.isRunning()).isFalse();
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldOnlyListenOnLoopback() {
+    underTest.start();
+
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), underTest.getPort())) {
+      assertThat(socket.isConnected()).isTrue();
+    }
+
+    Optional<InetAddress> externalAddress = getExternalAddress();
+
+    if (externalAddress.isPresent()) {
+      assertThatThrownBy(() -> new Socket(externalAddress.get(), underTest.getPort()).close()).isInstanceOf(IOException.class);
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldNotStartWhenPortInUse() {
+    try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      when(applicationProperties.getJettyPort()).thenReturn(serverSocket.getLocalPort());
+
+      assertThat(underTest.start()).isFalse();
+      assertThat(underTest.isRunning()).isFalse();
+    }
+  }
+
+  @Test
+  void shouldGetTrackUrl() {
+    underTest.start();
+
+    String result = underTest.getTrackUrl("track123", "http://www.example.com/music/track.m4a?key=value");
+
+    assertThat(result).isEqualTo("http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + underTest.getPort()
+        + "/track/track123.m4a");
+  }
+
+  @Test
+  void shouldGetTrackUrlWithDefaultExtension() {
+    underTest.start();
+
+    assertThat(underTest.getTrackUrl("track123", "http://www.example.com/music.dir/track")).endsWith("/track/track123.mp3");
+  }
+
+  @SneakyThrows
+  private Optional<InetAddress> getExternalAddress() {
+    return NetworkInterface.networkInterfaces()
+        .filter(networkInterface -> !isLoopback(networkInterface))
+        .flatMap(NetworkInterface::inetAddresses)
+        .filter(address -> !address.isLinkLocalAddress())
+        .findFirst();
+  }
+
+  @SneakyThrows
+  private boolean isLoopback(NetworkInterface networkInterface) {
+    return networkInterface.isLoopback() || !networkInterface.isUp();
+  }
+}
@@ -0,0 +1,287 @@
+package uk.co.mpcontracting.rpmjukebox.jetty;
+
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.co.mpcontracting.rpmjukebox.util.CacheType.TRACK;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.co.mpcontracting.rpmjukebox.config.ApplicationProperties;
+import uk.co.mpcontracting.rpmjukebox.model.Track;
+import uk.co.mpcontracting.rpmjukebox.service.CacheService;
+import uk.co.mpcontracting.rpmjukebox.service.InternetService;
+import uk.co.mpcontracting.rpmjukebox.service.SearchService;
+
+@ExtendWith(MockitoExtension.class)
+class TrackProxyServletTest {
+
+  private static final String TRACK_ID = "track123";
+
+  @Mock
+  private ApplicationProperties applicationProperties;
+
+  @Mock
+  private ApiServlet apiServlet;
+
+  @Mock
+  private CacheService cacheService;
+
+  @Mock
+  private InternetService internetService;
+
+  @Mock
+  private SearchService searchService;
+
+  @TempDir
+  private File tempDir;
+
+  private final byte[] trackBytes = new byte[200_000];
+
+  private HttpServer upstreamServer;
+  private String location;
+  private JettyServer jettyServer;
+  private HttpClient httpClient;
+
+  @BeforeEach
+  @SneakyThrows
+  void beforeEach() {
+    new Random(1).nextBytes(trackBytes);
+
+    // Stands in for the remote track location, honouring ranges from a given start byte
+    upstreamServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    upstreamServer.createContext("/", exchange -> {
+      String range = exchange.getRequestHeaders().getFirst("Range");
+      int start = range != null ? Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-'))) : 0;
+
+      if (range != null) {
+        exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + (trackBytes.length - 1) + "/" + trackBytes.length);
+      }
+
+      exchange.sendResponseHeaders(range != null ? 206 : 200, trackBytes.length - start);
+
+      try (OutputStream outputStream = exchange.getResponseBody()) {
+        outputStream.write(trackBytes, start, trackBytes.length - start);
+      }
+    });
+    upstreamServer.start();
+
+    String bucketUrl = "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + upstreamServer.getAddress().getPort() + "/";
+
+    location = bucketUrl + "music/track.mp3";
+
+    lenient().when(applicationProperties.getS3BucketUrl()).thenReturn(bucketUrl);
+    lenient().when(searchService.getTrackById(TRACK_ID)).thenAnswer(invocation ->
+        of(Track.builder().trackId(TRACK_ID).location(location).build()));
+
+    lenient().when(internetService.openConnection(any())).thenAnswer(invocation ->
+        invocation.getArgument(0, URL.class).openConnection());
+    lenient().when(cacheService.createPartialFile(TRACK, TRACK_ID)).thenAnswer(invocation ->
+        Files.createTempFile(tempDir.toPath(), TRACK_ID, ".part").toFile());
+
+    jettyServer = new JettyServer(applicationProperties, apiServlet, new TrackProxyServlet(applicationProperties, cacheService, internetService, searchService));
+    jettyServer.start();
+
+    httpClient = HttpClient.newHttpClient();
+  }
+
+  @AfterEach
+  void afterEach() {
+    httpClient.close();
+    jettyServer.stop();
+    upstreamServer.stop(0);
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldServeCachedTrack() {
+    when(cacheService.readCache(TRACK, TRACK_ID)).thenReturn(of(writeCachedTrack()));
+
+    HttpResponse<byte[]> response = send(null);
+
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(response.headers().firstValue("Content-Type")).hasValue("audio/mpeg");
+    assertThat(response.headers().firstValue("Accept-Ranges")).hasValue("bytes");
+    assertThat(response.body()).isEqualTo(trackBytes);
+    verify(internetService, never()).openConnection(any());
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldServeRangeOfCachedTrack() {
+    when(cacheService.readCache(TRACK, TRACK_ID)).thenReturn(of(writeCachedTrack()));
+
+    HttpResponse<byte[]> response = send("bytes=1000-1999");
+
+    assertThat(response.statusCode()).isEqualTo(206);
+    assertThat(response.headers().firstValue("Content-Range")).hasValue("bytes 1000-1999/" + trackBytes.length);
+    assertThat(response.body()).isEqualTo(Arrays.copyOfRange(trackBytes, 1000, 2000));
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldServeSuffixRangeOfCachedTrack() {
+    when(cacheService.readCache(TRACK, TRACK_ID)).thenReturn(of(writeCachedTrack()));
+
+    HttpResponse<byte[]> response = send("bytes=-500");
+
+    assertThat(response.statusCode()).isEqualTo(206);
+    assertThat(response.body()).isEqualTo(Arrays.copyOfRange(trackBytes, trackBytes.length - 500, trackBytes.length));
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldNotServeUnsatisfiableRangeOfCachedTrack() {
+    when(cacheService.readCache(TRACK, TRACK_ID)).thenReturn(of(writeCachedTrack()));
+
+    HttpResponse<byte[]> response = send("bytes=" + trackBytes.length + "-");
+
+    assertThat(response.statusCode()).isEqualTo(416);
+    assertThat(response.headers().firstValue("Content-Range")).hasValue("bytes */" + trackBytes.length);
+  }
+
+  @Test
+  void shouldStreamAndCacheTrack() {
+    when(cacheService.readCache(TRACK, TRACK_ID)).thenReturn(empty());
+
+    HttpResponse<byte[]> response = send(null);
+
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(response.body()).isEqualTo(trackBytes);
+
+    // The client can have the whole body before the servlet has finished with the partial file
+    verify(cacheService, timeout(5000)).commitPartialFile(eq(TRACK), eq(TRACK_ID), any());
+    verify(cacheService, never()).discardPartialFile(any());
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldCacheCompleteStreamedTrack() {
+    when(cacheService.readCache(TRACK, TRACK_ID)).thenReturn(empty());
+
+    HttpResponse<byte[]> response = send("bytes=0-");
+
+    assertThat(response.statusCode()).isEqualTo(206);
+    assertThat(response.headers().firstValue("Content-Range")).hasValue("bytes 0-" + (trackBytes.length - 1) + "/" + trackBytes.length);
+
+    ArgumentCaptor<File> partialFile = ArgumentCaptor.forClass(File.class);
+
+    verify(cacheService, timeout(5000)).commitPartialFile(eq(TRACK), eq(TRACK_ID), partialFile.capture());
+    assertThat(Files.readAllBytes(partialFile.getValue().toPath())).isEqualTo(trackBytes);
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldPassRangeThroughWhenNotCached() {
+    when(cacheService.readCache(TRACK, TRACK_ID)).thenReturn(empty());
+
+    HttpResponse<byte[]> response = send("bytes=150000-");
+
+    assertThat(response.statusCode()).isEqualTo(206);
+    assertThat(response.headers().firstValue("Content-Range")).hasValue("bytes 150000-" + (trackBytes.length - 1) + "/" + trackBytes.length);
+    assertThat(response.body()).isEqualTo(Arrays.copyOfRange(trackBytes, 150000, trackBytes.length));
+    verify(cacheService, never()).createPartialFile(any(), any());
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldNotServeTrackWithoutId() {
+    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + jettyServer.getPort() + "/track/"))
+        .build();
+
+    assertThat(httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode()).isEqualTo(400);
+    verify(searchService, never()).getTrackById(any());
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldNotServeTrackNotInIndex() {
+    when(searchService.getTrackById(TRACK_ID)).thenReturn(empty());
+
+    assertThat(send(null).statusCode()).isEqualTo(404);
+    verify(cacheService, never()).readCache(any(), any());
+    verify(internetService, never()).openConnection(any());
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldNotServeTrackOutsideBucket() {
+    location = "http://example.com/music/track.mp3";
+
+    assertThat(send(null).statusCode()).isEqualTo(404);
+    verify(cacheService, never()).readCache(any(), any());
+    verify(internetService, never()).openConnection(any());
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldNotServeTrackFromFile() {
+    lenient().when(applicationProperties.getS3BucketUrl()).thenReturn("file:/");
+    location = "file:/etc/passwd";
+
+    assertThat(send(null).statusCode()).isEqualTo(404);
+    verify(cacheService, never()).readCache(any(), any());
+    verify(internetService, never()).openConnection(any());
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldReturnBadGatewayWhenUpstreamFails() {
+    when(cacheService.readCache(TRACK, TRACK_ID)).thenReturn(empty());
+    upstreamServer.removeContext("/");
+    upstreamServer.createContext("/", exchange -> {
+      exchange.sendResponseHeaders(404, -1);
+      exchange.close();
+    });
+
+    assertThat(send(null).statusCode()).isEqualTo(502);
+    verify(cacheService, never()).createPartialFile(any(), any());
+  }
+
+  @SneakyThrows
+  private File writeCachedTrack() {
+    File file = new File(tempDir, TRACK_ID);
+
+    Files.write(file.toPath(), trackBytes);
+
+    return file;
+  }
+
+  @SneakyThrows
+  private HttpResponse<byte[]> send(String range) {
+    HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(jettyServer.getTrackUrl(TRACK_ID, location)));
+
+    if (range != null) {
+      builder.header("Range", range);
+    }
+
+    return httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+  }
+}
@@ -0,0 +1,84 @@
+package uk.co.mpcontracting.rpmjukebox.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.co.mpcontracting.rpmjukebox.test.util.TestHelper.getConfigDirectory;
+
+import java.io.File;
+import java.nio.file.Path;
+import lombok.SneakyThrows;
+import org.apache.commons.io.FileUtils;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.MMapDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class IndexDirectoryModeTest {
+
+  private final Path path = new File(getConfigDirectory(), "trackIndex").toPath();
+
+  @AfterEach
+  @SneakyThrows
+  void afterEach() {
+    FileUtils.deleteDirectory(getConfigDirectory());
+  }
+
+  @ParameterizedTest
+  @EnumSource(IndexDirectoryMode.class)
+  @SneakyThrows
+  void shouldReadAndWriteIndex(IndexDirectoryMode indexDirectoryMode) {
+    try (Directory directory = indexDirectoryMode.open(path)) {
+      try (IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new WhitespaceAnalyzer()))) {
+        Document document = new Document();
+        document.add(new StringField(TrackField.TRACK_ID.name(), "123", Field.Store.YES));
+        indexWriter.addDocument(document);
+      }
+
+      try (DirectoryReader reader = DirectoryReader.open(directory)) {
+        assertThat(new IndexSearcher(reader).count(new TermQuery(new Term(TrackField.TRACK_ID.name(), "123")))).isEqualTo(1);
+      }
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldOpenPlatformDirectory() {
+    try (Directory directory = IndexDirectoryMode.DEFAULT.open(path)) {
+      assertThat(directory).isInstanceOf(FSDirectory.class);
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldOpenMMapDirectory() {
+    for (IndexDirectoryMode indexDirectoryMode : new IndexDirectoryMode[] {IndexDirectoryMode.MMAP,
+        IndexDirectoryMode.MMAP_PRELOAD, IndexDirectoryMode.MMAP_PRELOAD_ALL}) {
+      try (Directory directory = indexDirectoryMode.open(path)) {
+        assertThat(directory).isInstanceOf(MMapDirectory.class);
+      }
+    }
+  }
+
+  @Test
+  void shouldOnlyPreloadHotFiles() {
+    assertThat(IndexDirectoryMode.isHotFile("_0_Lucene912_0.tim")).isTrue();
+    assertThat(IndexDirectoryMode.isHotFile("_0_Lucene912_0.doc")).isTrue();
+    assertThat(IndexDirectoryMode.isHotFile("_0_Lucene90_0.dvd")).isTrue();
+    assertThat(IndexDirectoryMode.isHotFile("_0.cfs")).isTrue();
+    assertThat(IndexDirectoryMode.isHotFile("_0.fdt")).isFalse();
+    assertThat(IndexDirectoryMode.isHotFile("segments_1")).isFalse();
+    assertThat(IndexDirectoryMode.isHotFile("write.lock")).isFalse();
+  }
+}
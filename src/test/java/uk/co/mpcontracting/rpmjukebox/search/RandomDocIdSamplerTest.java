@@ -0,0 +1,150 @@
+package uk.co.mpcontracting.rpmjukebox.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import lombok.SneakyThrows;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.Test;
+
+class RandomDocIdSamplerTest {
+
+  private final RandomDocIdSampler underTest = new RandomDocIdSampler(new Random(1));
+
+  @Test
+  @SneakyThrows
+  void shouldSampleDistinctDocs() {
+    try (Directory directory = createIndex(100, false); DirectoryReader reader = DirectoryReader.open(directory)) {
+      for (int i = 0; i < 50; i++) {
+        int[] result = underTest.sample(new IndexSearcher(reader), null, 10);
+
+        assertThat(result).hasSize(10);
+        assertThat(result).doesNotHaveDuplicates();
+        assertThat(Arrays.stream(result).boxed()).allMatch(docId -> docId >= 0 && docId < 100);
+      }
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldSampleEveryDocInRandomOrderWhenNotEnoughDocs() {
+    try (Directory directory = createIndex(10, false); DirectoryReader reader = DirectoryReader.open(directory)) {
+      int[] result = underTest.sample(new IndexSearcher(reader), null, 20);
+
+      assertThat(result).containsExactlyInAnyOrder(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+      assertThat(result).isNotEqualTo(new int[] {0, 1, 2, 3, 4, 5, 6, 7, 8, 9});
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldOnlySampleMatchingDocs() {
+    try (Directory directory = createIndex(100, false); DirectoryReader reader = DirectoryReader.open(directory)) {
+      IndexSearcher searcher = new IndexSearcher(reader);
+      TermQuery query = new TermQuery(new Term(TrackField.YEAR.name(), "2003"));
+
+      int[] result = underTest.sample(searcher, query, 5);
+
+      assertThat(result).hasSize(5);
+      assertThat(result).doesNotHaveDuplicates();
+      assertThat(getYears(reader, result)).containsOnly("2003");
+
+      // Only 10 tracks are from 2003
+      assertThat(underTest.sample(searcher, query, 20)).hasSize(10);
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldNotSampleDeletedDocs() {
+    try (Directory directory = createIndex(100, true); DirectoryReader reader = DirectoryReader.open(directory)) {
+      assertThat(reader.hasDeletions()).isTrue();
+
+      int[] result = underTest.sample(new IndexSearcher(reader), null, 200);
+
+      assertThat(result).hasSize(90);
+      assertThat(getYears(reader, result)).doesNotContain("2000");
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldSampleEveryDocEvenly() {
+    try (Directory directory = createIndex(20, false); DirectoryReader reader = DirectoryReader.open(directory)) {
+      IndexSearcher searcher = new IndexSearcher(reader);
+      int[] counts = new int[20];
+
+      for (int i = 0; i < 10000; i++) {
+        for (int docId : underTest.sample(searcher, null, 5)) {
+          counts[docId]++;
+        }
+      }
+
+      // Each doc is expected 2500 times
+      assertThat(Arrays.stream(counts).boxed()).allMatch(count -> count > 2200 && count < 2800);
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldSampleNothingFromEmptyIndex() {
+    try (Directory directory = createIndex(0, false); DirectoryReader reader = DirectoryReader.open(directory)) {
+      assertThat(underTest.sample(new IndexSearcher(reader), null, 5)).isEmpty();
+      assertThat(underTest.sample(new IndexSearcher(reader), new TermQuery(new Term(TrackField.YEAR.name(), "2000")), 5))
+          .isEmpty();
+    }
+  }
+
+  @SneakyThrows
+  private Set<String> getYears(DirectoryReader reader, int[] docIds) {
+    StoredFields storedFields = reader.storedFields();
+    Set<String> years = new HashSet<>();
+
+    for (int docId : docIds) {
+      years.add(storedFields.document(docId).get(TrackField.YEAR.name()));
+    }
+
+    return years;
+  }
+
+  @SneakyThrows
+  private Directory createIndex(int numberOfTracks, boolean deleteYear2000) {
+    Directory directory = new ByteBuffersDirectory();
+
+    try (IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new WhitespaceAnalyzer()))) {
+      for (int i = 0; i < numberOfTracks; i++) {
+        Document document = new Document();
+        document.add(new StringField(TrackField.TRACK_ID.name(), "track" + i, Field.Store.YES));
+        document.add(new StringField(TrackField.YEAR.name(), Integer.toString(2000 + (i % 10)), Field.Store.YES));
+
+        indexWriter.addDocument(document);
+
+        // Commit part way through to create more than one segment
+        if (i == numberOfTracks / 2) {
+          indexWriter.commit();
+        }
+      }
+
+      if (deleteYear2000) {
+        indexWriter.deleteDocuments(new Term(TrackField.YEAR.name(), "2000"));
+      }
+    }
+
+    return directory;
+  }
+}
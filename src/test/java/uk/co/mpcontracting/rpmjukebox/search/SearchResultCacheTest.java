@@ -0,0 +1,108 @@
+package uk.co.mpcontracting.rpmjukebox.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static uk.co.mpcontracting.rpmjukebox.test.util.TestDataHelper.createGenre;
+import static uk.co.mpcontracting.rpmjukebox.test.util.TestDataHelper.createTrack;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.co.mpcontracting.rpmjukebox.config.ApplicationProperties;
+import uk.co.mpcontracting.rpmjukebox.model.Track;
+
+@ExtendWith(MockitoExtension.class)
+class SearchResultCacheTest {
+
+  @Mock
+  private ApplicationProperties applicationProperties;
+
+  @Test
+  void shouldGetCachedSearch() {
+    SearchResultCache underTest = createCache(10);
+    List<Track> tracks = List.of(createTrack(1, createGenre()));
+    Map<TrackField, List<FacetCount>> facetCounts = Map.of(TrackField.YEAR, List.of(new FacetCount("2001", 1)));
+
+    assertThat(underTest.get(new TrackSearch("keywords"))).isEmpty();
+
+    underTest.put(new TrackSearch("keywords"), new TrackSearchResult(tracks, facetCounts), underTest.getGeneration());
+
+    assertThat(underTest.get(new TrackSearch("keywords"))).hasValueSatisfying(result -> {
+      assertThat(result.tracks()).isEqualTo(tracks);
+      assertThat(result.facetCounts()).isEqualTo(facetCounts);
+    });
+    assertThat(underTest.get(new TrackSearch("keywords", new TrackFilter("Rock", null)))).isEmpty();
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedSearch() {
+    SearchResultCache underTest = createCache(2);
+    List<Track> tracks = List.of(createTrack(1, createGenre()));
+
+    underTest.put(new TrackSearch("a"), createResult(tracks), underTest.getGeneration());
+    underTest.put(new TrackSearch("b"), createResult(tracks), underTest.getGeneration());
+    underTest.get(new TrackSearch("a"));
+    underTest.put(new TrackSearch("c"), createResult(tracks), underTest.getGeneration());
+
+    assertThat(underTest.size()).isEqualTo(2);
+    assertThat(underTest.get(new TrackSearch("a"))).isPresent();
+    assertThat(underTest.get(new TrackSearch("b"))).isEmpty();
+    assertThat(underTest.get(new TrackSearch("c"))).isPresent();
+  }
+
+  @Test
+  void shouldNotCacheResultsFromBeforeInvalidation() {
+    SearchResultCache underTest = createCache(10);
+    long generation = underTest.getGeneration();
+
+    underTest.invalidate();
+    underTest.put(new TrackSearch("keywords"), createResult(List.of(createTrack(1, createGenre()))), generation);
+
+    assertThat(underTest.size()).isZero();
+  }
+
+  @Test
+  void shouldClearOnInvalidate() {
+    SearchResultCache underTest = createCache(10);
+
+    underTest.put(new TrackSearch("keywords"), createResult(List.of(createTrack(1, createGenre()))), underTest.getGeneration());
+    underTest.invalidate();
+
+    assertThat(underTest.get(new TrackSearch("keywords"))).isEmpty();
+  }
+
+  @Test
+  void shouldNotShareCachedTracks() {
+    SearchResultCache underTest = createCache(10);
+    Track track = createTrack(1, createGenre());
+
+    underTest.put(new TrackSearch("keywords"), createResult(List.of(track)), underTest.getGeneration());
+    track.setPlaylistIndex(99);
+    underTest.get(new TrackSearch("keywords")).orElseThrow().tracks().getFirst().setPlaylistIndex(50);
+
+    assertThat(underTest.get(new TrackSearch("keywords")).orElseThrow().tracks().getFirst().getPlaylistIndex()).isZero();
+  }
+
+  @Test
+  void shouldNotCacheWhenDisabled() {
+    SearchResultCache underTest = createCache(0);
+
+    underTest.put(new TrackSearch("keywords"), createResult(List.of(createTrack(1, createGenre()))), underTest.getGeneration());
+
+    assertThat(underTest.get(new TrackSearch("keywords"))).isEmpty();
+    assertThat(underTest.size()).isZero();
+  }
+
+  private TrackSearchResult createResult(List<Track> tracks) {
+    return new TrackSearchResult(tracks, Map.of());
+  }
+
+  private SearchResultCache createCache(int maxSize) {
+    when(applicationProperties.getSearchCacheSize()).thenReturn(maxSize);
+
+    return new SearchResultCache(applicationProperties);
+  }
+}
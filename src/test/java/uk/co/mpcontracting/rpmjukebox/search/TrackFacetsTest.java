@@ -0,0 +1,149 @@
+package uk.co.mpcontracting.rpmjukebox.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.co.mpcontracting.rpmjukebox.test.util.TestDataHelper.createTrack;
+import static uk.co.mpcontracting.rpmjukebox.test.util.TestHelper.getField;
+import static uk.co.mpcontracting.rpmjukebox.util.Constants.UNSPECIFIED_GENRE;
+
+import java.util.List;
+import java.util.Map;
+import lombok.SneakyThrows;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.facet.FacetsCollectorManager;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.Test;
+import uk.co.mpcontracting.rpmjukebox.model.Track;
+
+class TrackFacetsTest {
+
+  private final TrackFacets underTest = new TrackFacets();
+
+  @Test
+  @SneakyThrows
+  void shouldGetFacetCountsForWholeIndex() {
+    try (Directory directory = createIndex(); DirectoryReader reader = DirectoryReader.open(directory)) {
+      Map<TrackField, List<FacetCount>> result = underTest.getFacetCounts(reader);
+
+      assertThat(result.get(TrackField.GENRE)).containsExactly(new FacetCount("Pop", 2), new FacetCount("Rock", 3));
+      assertThat(result.get(TrackField.YEAR)).containsExactly(new FacetCount("1999", 1), new FacetCount("2000", 2),
+          new FacetCount("2001", 1));
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldGetFacetCountsForSearch() {
+    try (Directory directory = createIndex(); DirectoryReader reader = DirectoryReader.open(directory)) {
+      IndexSearcher searcher = new IndexSearcher(reader);
+      FacetsCollectorManager.FacetsResult results = FacetsCollectorManager.search(searcher,
+          new TermQuery(new Term(TrackField.GENRE.name(), "Pop")), 10, new FacetsCollectorManager());
+
+      Map<TrackField, List<FacetCount>> result = underTest.getFacetCounts(reader, results.facetsCollector());
+
+      assertThat(results.topDocs().scoreDocs).hasSize(2);
+      assertThat(result.get(TrackField.GENRE)).containsExactly(new FacetCount("Pop", 2), new FacetCount("Rock", 1));
+      assertThat(result.get(TrackField.YEAR)).containsExactly(new FacetCount("2000", 1), new FacetCount("2001", 1));
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldReuseReaderStateUntilReaderChanges() {
+    try (Directory directory = createIndex(); DirectoryReader reader = DirectoryReader.open(directory)) {
+      underTest.getFacetCounts(reader);
+      Object readerState = getReaderState();
+
+      underTest.getFacetCounts(reader);
+
+      assertThat(getReaderState()).isSameAs(readerState);
+
+      try (DirectoryReader otherReader = DirectoryReader.open(directory)) {
+        underTest.getFacetCounts(otherReader);
+
+        assertThat(getReaderState()).isNotSameAs(readerState);
+      }
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldGetEmptyFacetCountsWithoutFacets() {
+    try (Directory directory = new ByteBuffersDirectory()) {
+      try (IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new WhitespaceAnalyzer()))) {
+        Document document = new Document();
+        document.add(new StringField(TrackField.TRACK_ID.name(), "track", Field.Store.YES));
+        indexWriter.addDocument(document);
+      }
+
+      try (DirectoryReader reader = DirectoryReader.open(directory)) {
+        assertThat(underTest.getFacetCounts(reader)).isEmpty();
+      }
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldIndexTrackWithUnspecifiedGenre() {
+    try (Directory directory = createIndex()) {
+      try (IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new WhitespaceAnalyzer()))) {
+        addTrack(indexWriter, 5, 2001, UNSPECIFIED_GENRE);
+      }
+
+      try (DirectoryReader reader = DirectoryReader.open(directory)) {
+        Map<TrackField, List<FacetCount>> result = underTest.getFacetCounts(reader);
+
+        assertThat(reader.numDocs()).isEqualTo(5);
+        assertThat(result.get(TrackField.GENRE)).containsExactly(new FacetCount("Pop", 2), new FacetCount("Rock", 3));
+        assertThat(result.get(TrackField.YEAR)).containsExactly(new FacetCount("1999", 1), new FacetCount("2000", 2),
+            new FacetCount("2001", 2));
+      }
+    }
+  }
+
+  private Object getReaderState() {
+    return getField(underTest, "readerState", Object.class);
+  }
+
+  @SneakyThrows
+  private Directory createIndex() {
+    Directory directory = new ByteBuffersDirectory();
+
+    try (IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new WhitespaceAnalyzer()))) {
+      addTrack(indexWriter, 1, 1999, "Rock");
+      addTrack(indexWriter, 2, 2000, "Rock", "Pop");
+      addTrack(indexWriter, 3, 2000, "Rock");
+
+      // Commit part way through to create more than one segment
+      indexWriter.commit();
+
+      addTrack(indexWriter, 4, 2001, "Pop");
+    }
+
+    return directory;
+  }
+
+  @SneakyThrows
+  private void addTrack(IndexWriter indexWriter, int trackNumber, int year, String... genres) {
+    Track track = createTrack(trackNumber);
+    track.setYear(year);
+    track.setGenres(List.of(genres));
+
+    Document document = new Document();
+
+    for (String genre : genres) {
+      document.add(new StringField(TrackField.GENRE.name(), genre, Field.Store.YES));
+    }
+
+    indexWriter.addDocument(underTest.build(document, track));
+  }
+}
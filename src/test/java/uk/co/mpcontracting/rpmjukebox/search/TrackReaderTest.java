@@ -0,0 +1,115 @@
+package uk.co.mpcontracting.rpmjukebox.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import lombok.SneakyThrows;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.co.mpcontracting.rpmjukebox.model.Track;
+
+@ExtendWith(MockitoExtension.class)
+class TrackReaderTest {
+
+  @Test
+  @SneakyThrows
+  void shouldGetTrack() {
+    try (Directory directory = createIndex(1); DirectoryReader reader = DirectoryReader.open(directory)) {
+      TrackReader trackReader = new TrackReader(reader);
+
+      Track track = trackReader.getTrack(0);
+
+      assertThat(track.getArtistId()).isEqualTo("artist0");
+      assertThat(track.getArtistName()).isEqualTo("Artist 0");
+      assertThat(track.getAlbumId()).isEqualTo("album0");
+      assertThat(track.getAlbumName()).isEqualTo("Album 0");
+      assertThat(track.getAlbumImage()).isEqualTo("Image 0");
+      assertThat(track.getYear()).isEqualTo(2000);
+      assertThat(track.getTrackId()).isEqualTo("track0");
+      assertThat(track.getTrackName()).isEqualTo("Track 0");
+      assertThat(track.getIndex()).isEqualTo(1);
+      assertThat(track.getLocation()).isEqualTo("Location 0");
+      assertThat(track.isPreferred()).isTrue();
+      assertThat(track.getGenres()).containsExactly("Genre A0", "Genre B0");
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldGetTracksInHitOrderAcrossSegments() {
+    try (Directory directory = createIndex(10); DirectoryReader reader = DirectoryReader.open(directory)) {
+      assertThat(reader.leaves().size()).isGreaterThan(1);
+
+      TrackReader trackReader = new TrackReader(reader);
+      ScoreDoc[] scoreDocs = {new ScoreDoc(7, 0), new ScoreDoc(2, 0), new ScoreDoc(9, 0), new ScoreDoc(0, 0)};
+
+      List<Track> tracks = trackReader.getTracks(scoreDocs);
+
+      assertThat(tracks).extracting(Track::getTrackId).containsExactly("track7", "track2", "track9", "track0");
+      assertThat(tracks).extracting(Track::getYear).containsExactly(2007, 2002, 2009, 2000);
+      assertThat(tracks).extracting(Track::isPreferred).containsExactly(false, true, false, true);
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldGetTracksReadingBackwards() {
+    try (Directory directory = createIndex(10); DirectoryReader reader = DirectoryReader.open(directory)) {
+      TrackReader trackReader = new TrackReader(reader);
+
+      for (int docId = 9; docId >= 0; docId--) {
+        assertThat(trackReader.getTrack(docId).getIndex()).isEqualTo(docId + 1);
+      }
+    }
+  }
+
+  @SneakyThrows
+  private Directory createIndex(int numberOfTracks) {
+    Directory directory = new ByteBuffersDirectory();
+
+    try (IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new WhitespaceAnalyzer()))) {
+      for (int i = 0; i < numberOfTracks; i++) {
+        Document document = new Document();
+        document.add(new TextField(TrackField.KEYWORDS.name(), "keywords " + i, Field.Store.YES));
+        document.add(new StringField(TrackField.ARTIST_ID.name(), "artist" + i, Field.Store.YES));
+        document.add(new StringField(TrackField.ARTIST_NAME.name(), "Artist " + i, Field.Store.YES));
+        document.add(new StringField(TrackField.ALBUM_ID.name(), "album" + i, Field.Store.YES));
+        document.add(new StringField(TrackField.ALBUM_NAME.name(), "Album " + i, Field.Store.YES));
+        document.add(new StringField(TrackField.ALBUM_IMAGE.name(), "Image " + i, Field.Store.YES));
+        document.add(new StringField(TrackField.YEAR.name(), Integer.toString(2000 + i), Field.Store.NO));
+        document.add(new StringField(TrackField.TRACK_ID.name(), "track" + i, Field.Store.YES));
+        document.add(new StringField(TrackField.TRACK_NAME.name(), "Track " + i, Field.Store.YES));
+        document.add(new NumericDocValuesField(TrackField.INDEX.name(), i + 1));
+        document.add(new StringField(TrackField.LOCATION.name(), "Location " + i, Field.Store.YES));
+        document.add(new StringField(TrackField.GENRE.name(), "Genre A" + i, Field.Store.YES));
+        document.add(new StringField(TrackField.GENRE.name(), "Genre B" + i, Field.Store.YES));
+        document.add(new StoredField(TrackField.CONTENT_HASH.name(), "hash" + i));
+        document.add(new NumericDocValuesField(TrackField.YEAR.name(), 2000 + i));
+        document.add(new NumericDocValuesField(TrackField.IS_PREFERRED.name(), i % 2 == 0 ? 1 : 0));
+
+        indexWriter.addDocument(document);
+
+        // Commit part way through to create more than one segment
+        if (i == numberOfTracks / 2) {
+          indexWriter.commit();
+        }
+      }
+    }
+
+    return directory;
+  }
+}
@@ -1,6 +1,10 @@
 package uk.co.mpcontracting.rpmjukebox.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
@@ -8,9 +12,11 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.co.mpcontracting.rpmjukebox.event.Event.APPLICATION_INITIALISED;
+import static uk.co.mpcontracting.rpmjukebox.event.Event.DATA_DOWNLOAD_UPDATED;
 import static uk.co.mpcontracting.rpmjukebox.test.util.TestDataHelper.getFaker;
 import static uk.co.mpcontracting.rpmjukebox.test.util.TestHelper.getField;
 import static uk.co.mpcontracting.rpmjukebox.test.util.TestHelper.setField;
+import static uk.co.mpcontracting.rpmjukebox.util.Constants.MESSAGE_SPLASH_DOWNLOADING_DATA;
 import static uk.co.mpcontracting.rpmjukebox.util.Constants.MESSAGE_WINDOW_TITLE;
 import static uk.co.mpcontracting.rpmjukebox.util.OsType.LINUX;
 import static uk.co.mpcontracting.rpmjukebox.util.OsType.OSX;
@@ -31,6 +37,7 @@ import org.mockito.Mock;
 import org.mockito.verification.VerificationMode;
 import org.springframework.core.env.Environment;
 import uk.co.mpcontracting.rpmjukebox.RpmJukebox;
+import uk.co.mpcontracting.rpmjukebox.jetty.JettyServer;
 import uk.co.mpcontracting.rpmjukebox.test.util.AbstractEventAwareObjectTest;
 import uk.co.mpcontracting.rpmjukebox.test.util.TestThreadRunner;
 import uk.co.mpcontracting.rpmjukebox.util.OsType;
@@ -44,9 +51,15 @@ class ApplicationLifecycleServiceTest extends AbstractEventAwareObjectTest {
   @Mock
   private RpmJukebox rpmJukebox;
 
+  @Mock
+  private JettyServer jettyServer;
+
   @Mock
   private MediaService mediaService;
 
+  @Mock
+  private NativeService nativeService;
+
   @Mock
   private SearchService searchService;
 
@@ -70,7 +83,7 @@ class ApplicationLifecycleServiceTest extends AbstractEventAwareObjectTest {
 
     ThreadRunner threadRunner = new TestThreadRunner(Executors.newSingleThreadExecutor());
 
-    underTest = spy(new ApplicationLifecycleService(environment, threadRunner, rpmJukebox, mediaService, searchService, settingsService, stringResourceService));
+    underTest = spy(new ApplicationLifecycleService(environment, threadRunner, rpmJukebox, jettyServer, mediaService, nativeService, searchService, settingsService, stringResourceService));
     underTest.setApplicationContext(applicationContext);
   }
 
@@ -79,12 +92,43 @@ class ApplicationLifecycleServiceTest extends AbstractEventAwareObjectTest {
   void shouldInitialise() {
     when(environment.getActiveProfiles()).thenReturn(new String[]{"default"});
 
+    when(settingsService.hasDataFileExpired()).thenReturn(true);
+    when(searchService.openIndex()).thenReturn(true);
+
     underTest.initialise();
 
-    verify(searchService).initialise();
+    verify(searchService).openIndex();
+    verify(searchService).initialiseIndex(true);
+    verify(nativeService).initialise();
+    verify(jettyServer).start();
     verify(settingsService).loadUserSettings();
   }
 
+  @Test
+  @SneakyThrows
+  void shouldNotLoadUserSettingsIfIndexNotOpened() {
+    when(environment.getActiveProfiles()).thenReturn(new String[]{"default"});
+    when(searchService.openIndex()).thenReturn(false);
+
+    underTest.initialise();
+
+    verify(searchService, never()).initialiseIndex(anyBoolean());
+    verify(settingsService, never()).loadUserSettings();
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldThrowExceptionFromFailedStageOnInitialise() {
+    when(environment.getActiveProfiles()).thenReturn(new String[]{"default"});
+    when(searchService.openIndex()).thenReturn(true);
+    doThrow(new IllegalStateException("ApplicationLifecycleServiceTest.shouldThrowExceptionFromFailedStageOnInitialise()"))
+        .when(searchService).initialiseIndex(anyBoolean());
+
+    assertThatThrownBy(() -> underTest.initialise()).isInstanceOf(IllegalStateException.class);
+
+    verify(settingsService, never()).loadUserSettings();
+  }
+
   @Test
   @SneakyThrows
   void shouldNotInitialiseForTestProfile() {
@@ -92,7 +136,9 @@ class ApplicationLifecycleServiceTest extends AbstractEventAwareObjectTest {
 
     underTest.initialise();
 
-    verify(searchService, never()).initialise();
+    verify(searchService, never()).openIndex();
+    verify(nativeService, never()).initialise();
+    verify(jettyServer, never()).start();
     verify(settingsService, never()).loadUserSettings();
   }
 
@@ -125,6 +171,25 @@ class ApplicationLifecycleServiceTest extends AbstractEventAwareObjectTest {
     );
   }
 
+  @Test
+  void shouldShowDataDownloadProgressBeforeInitialised() {
+    setField(underTest, "isInitialised", false);
+
+    underTest.eventReceived(DATA_DOWNLOAD_UPDATED, 50L, 200L);
+
+    verify(stringResourceService).getString(MESSAGE_SPLASH_DOWNLOADING_DATA, 25L);
+    verify(rpmJukebox).updateSplashProgress(any());
+  }
+
+  @Test
+  void shouldNotShowDataDownloadProgressAfterInitialised() {
+    setField(underTest, "isInitialised", true);
+
+    underTest.eventReceived(DATA_DOWNLOAD_UPDATED, 50L, 200L);
+
+    verify(rpmJukebox, never()).updateSplashProgress(any());
+  }
+
   @Test
   @SneakyThrows
   void shouldStopApplication() {
@@ -133,6 +198,7 @@ class ApplicationLifecycleServiceTest extends AbstractEventAwareObjectTest {
 
     underTest.stop();
 
+    verify(jettyServer).stop();
     verify(mediaService).cleanUpResources();
     verify(searchService).shutdown();
     verify(settingsService).saveWindowSettings(stage);
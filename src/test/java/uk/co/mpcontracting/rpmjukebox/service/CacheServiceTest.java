@@ -39,6 +39,7 @@ import lombok.SneakyThrows;
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
@@ -46,6 +47,7 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.co.mpcontracting.rpmjukebox.config.ApplicationProperties;
+import uk.co.mpcontracting.rpmjukebox.jetty.JettyServer;
 import uk.co.mpcontracting.rpmjukebox.settings.SystemSettings;
 import uk.co.mpcontracting.rpmjukebox.util.CacheType;
 import uk.co.mpcontracting.rpmjukebox.util.HashGenerator;
@@ -66,6 +68,12 @@ class CacheServiceTest {
   @Mock
   private SystemSettings systemSettings;
 
+  @Mock
+  private MetricsService metricsService;
+
+  @Mock
+  private JettyServer jettyServer;
+
   private final File cacheDirectory = new File(getConfigDirectory(), "cache");
   private final ThreadRunner threadRunner = new ThreadRunner(Executors.newCachedThreadPool());
   private final HashGenerator hashGenerator = new HashGenerator();
@@ -74,7 +82,7 @@ class CacheServiceTest {
 
   @BeforeEach
   void beforeEach() {
-    underTest = spy(new CacheService(applicationProperties, threadRunner, hashGenerator, internetService, settingsService));
+    underTest = spy(new CacheService(applicationProperties, threadRunner, hashGenerator, internetService, settingsService, metricsService));
 
     lenient().when(applicationProperties.getCacheDirectory()).thenReturn("cache");
     lenient().when(applicationProperties.getJettyPort()).thenReturn(43125);
@@ -82,6 +90,8 @@ class CacheServiceTest {
     lenient().when(settingsService.getSystemSettings()).thenReturn(systemSettings);
     lenient().when(systemSettings.getCacheSizeMb()).thenReturn(1);
 
+    setField(underTest, "jettyServer", jettyServer);
+
     underTest.initialise();
   }
 
@@ -96,10 +106,10 @@ class CacheServiceTest {
     }
   }
 
+  @Test
   @SneakyThrows
-  @ParameterizedTest
-  @MethodSource("getCacheTypes")
-  void shouldGetLocationFromCache(CacheType cacheType) {
+  void shouldGetLocationFromCache() {
+    CacheType cacheType = IMAGE;
     String id = getFaker().numerify("######");
     String location = "https://" + getFaker().internet().url();
     File file = mock(File.class);
@@ -115,10 +125,10 @@ class CacheServiceTest {
     assertThat(result).isEqualTo(path);
   }
 
+  @Test
   @SneakyThrows
-  @ParameterizedTest
-  @MethodSource("getCacheTypes")
-  void shouldGetLocationFromSource(CacheType cacheType) {
+  void shouldGetLocationFromSource() {
+    CacheType cacheType = IMAGE;
     String id = getFaker().numerify("######");
     String location = "https://" + getFaker().internet().url();
     URL url = URI.create(location).toURL();
@@ -148,10 +158,10 @@ class CacheServiceTest {
     verify(underTest).writeCache(cacheType, id, bytes);
   }
 
+  @Test
   @SneakyThrows
-  @ParameterizedTest
-  @MethodSource("getCacheTypes")
-  void shouldGetLocationFromSourceNotWriteCacheOnConnectionException(CacheType cacheType) {
+  void shouldGetLocationFromSourceNotWriteCacheOnConnectionException() {
+    CacheType cacheType = IMAGE;
     String id = getFaker().numerify("######");
     String location = "https://" + getFaker().internet().url();
     URL url = URI.create(location).toURL();
@@ -320,6 +330,105 @@ class CacheServiceTest {
     assertThat(cachedFile).isNotNull();
   }
 
+  @Test
+  @SneakyThrows
+  void shouldNotTrimPartialFilesOnCacheWrite() {
+    String id = getFaker().numerify("#####");
+    File partialFile = underTest.createPartialFile(TRACK, id);
+
+    // Bigger than the whole cache and older than anything in it
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(partialFile, "rw")) {
+      randomAccessFile.setLength(1024 * 1024 * 2);
+    }
+
+    if (!partialFile.setLastModified(getDateTimeInMillis(1971, 1, 1, 0, 0))) {
+      System.out.println("WARN : Unable to set last modified on partial file - " + partialFile.getAbsolutePath());
+    }
+
+    underTest.writeCache(IMAGE, id, getFaker().lorem().characters(20, 50).getBytes());
+
+    assertThat(partialFile).exists();
+    assertThat(underTest.readCache(IMAGE, id)).isPresent();
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldDiscardLeftoverPartialFilesOnInitialise() {
+    File partialFile = underTest.createPartialFile(TRACK, getFaker().numerify("#####"));
+    File cachedFile = new File(cacheDirectory, getFaker().numerify("#####"));
+
+    FileUtils.touch(cachedFile);
+
+    underTest.initialise();
+
+    assertThat(partialFile).doesNotExist();
+    assertThat(cachedFile).exists();
+  }
+
+  @Test
+  void shouldGetTrackLocationFromJetty() {
+    String id = getFaker().numerify("######");
+    String location = "https://" + getFaker().internet().url();
+    String trackUrl = "http://127.0.0.1:43125/track/" + id + ".mp3";
+
+    when(jettyServer.isRunning()).thenReturn(true);
+    when(jettyServer.getTrackUrl(id, location)).thenReturn(trackUrl);
+
+    String result = underTest.getFileLocation(TRACK, id, location);
+
+    assertThat(result).isEqualTo(trackUrl);
+    verify(underTest, never()).readCache(any(), any());
+  }
+
+  @Test
+  void shouldGetTrackLocationFromSourceWhenJettyNotRunning() {
+    String id = getFaker().numerify("######");
+    String location = "https://" + getFaker().internet().url();
+
+    when(jettyServer.isRunning()).thenReturn(false);
+
+    String result = underTest.getFileLocation(TRACK, id, location);
+
+    assertThat(result).isEqualTo(location);
+    verify(underTest, never()).readCache(any(), any());
+  }
+
+  @SneakyThrows
+  @ParameterizedTest
+  @MethodSource("getCacheTypes")
+  void shouldCommitPartialFile(CacheType cacheType) {
+    String id = getFaker().numerify("#####");
+    String cacheContent = getFaker().lorem().characters(20, 50);
+    File partialFile = underTest.createPartialFile(cacheType, id);
+
+    try (FileOutputStream outputStream = new FileOutputStream(partialFile)) {
+      outputStream.write(cacheContent.getBytes());
+    }
+
+    assertThat(underTest.readCache(cacheType, id)).isEmpty();
+
+    underTest.commitPartialFile(cacheType, id, partialFile);
+
+    File cachedFile = underTest.readCache(cacheType, id).orElse(null);
+
+    assertThat(partialFile).doesNotExist();
+    assertThat(cachedFile).isNotNull();
+    assertThat(readCacheFile(cachedFile)).isEqualTo(cacheContent);
+  }
+
+  @SneakyThrows
+  @ParameterizedTest
+  @MethodSource("getCacheTypes")
+  void shouldDiscardPartialFile(CacheType cacheType) {
+    String id = getFaker().numerify("#####");
+    File partialFile = underTest.createPartialFile(cacheType, id);
+
+    underTest.discardPartialFile(partialFile);
+
+    assertThat(partialFile).doesNotExist();
+    assertThat(underTest.readCache(cacheType, id)).isEmpty();
+  }
+
   private static Stream<Arguments> getCacheTypes() {
     return Stream.of(
         Arguments.of(IMAGE),
@@ -0,0 +1,362 @@
+package uk.co.mpcontracting.rpmjukebox.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.nonNull;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.co.mpcontracting.rpmjukebox.event.Event.APPLICATION_INITIALISED;
+import static uk.co.mpcontracting.rpmjukebox.event.Event.DATA_DOWNLOAD_UPDATED;
+import static uk.co.mpcontracting.rpmjukebox.test.util.TestHelper.getConfigDirectory;
+import static uk.co.mpcontracting.rpmjukebox.test.util.TestHelper.setField;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.SneakyThrows;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jetty.ee10.servlet.ServletContextHandler;
+import org.eclipse.jetty.ee10.servlet.ServletHolder;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import uk.co.mpcontracting.rpmjukebox.config.ApplicationProperties;
+import uk.co.mpcontracting.rpmjukebox.settings.DataFeed;
+import uk.co.mpcontracting.rpmjukebox.settings.SystemSettings;
+import uk.co.mpcontracting.rpmjukebox.test.util.AbstractEventAwareObjectTest;
+import uk.co.mpcontracting.rpmjukebox.util.ThreadRunner;
+
+class DataFeedServiceTest extends AbstractEventAwareObjectTest {
+
+  private static final long LAST_MODIFIED = 1_700_000_000_000L;
+
+  @Mock
+  private ThreadRunner threadRunner;
+
+  @Mock
+  private ScheduledExecutorService scheduledExecutorService;
+
+  @Mock
+  private ApplicationProperties applicationProperties;
+
+  @Mock
+  private SettingsService settingsService;
+
+  @Mock
+  private SearchService searchService;
+
+  private Server server;
+  private DataFileServlet dataFileServlet;
+  private AtomicReference<DataFeed> savedDataFeed;
+  private File localFile;
+  private File downloadFile;
+
+  private DataFeedService underTest;
+
+  @BeforeEach
+  @SneakyThrows
+  void beforeEach() {
+    dataFileServlet = new DataFileServlet();
+    dataFileServlet.content.set("data file 1");
+    dataFileServlet.etag.set("\"1\"");
+
+    ServletContextHandler servletContextHandler = new ServletContextHandler();
+    servletContextHandler.addServlet(new ServletHolder(dataFileServlet), "/*");
+
+    server = new Server(0);
+    server.setHandler(servletContextHandler);
+    server.start();
+
+    int port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+
+    getConfigDirectory().mkdirs();
+    localFile = new File(getConfigDirectory(), "data-feed.gz");
+    downloadFile = new File(getConfigDirectory(), "data-feed.gz.download");
+    savedDataFeed = new AtomicReference<>();
+
+    lenient().when(applicationProperties.getDataFeedFile()).thenReturn("data-feed.gz");
+    lenient().when(settingsService.getFileFromConfigDirectory("data-feed.gz")).thenReturn(localFile);
+    lenient().when(settingsService.getFileFromConfigDirectory("data-feed.gz.download")).thenReturn(downloadFile);
+    lenient().when(settingsService.getDataFile()).thenReturn(URI.create("http://localhost:" + port + "/data.gz").toURL());
+    lenient().when(settingsService.getSystemSettings()).thenReturn(SystemSettings.builder().build());
+    lenient().when(settingsService.loadDataFeed()).thenAnswer(invocation -> savedDataFeed.get());
+    lenient().doAnswer(invocation -> {
+      savedDataFeed.set(invocation.getArgument(0));
+      return null;
+    }).when(settingsService).saveDataFeed(any());
+
+    underTest = new DataFeedService(threadRunner, scheduledExecutorService, applicationProperties,
+        new InternetService(settingsService), settingsService);
+    setField(underTest, "searchService", searchService);
+  }
+
+  @AfterEach
+  @SneakyThrows
+  void afterEach() {
+    server.stop();
+
+    FileUtils.deleteDirectory(getConfigDirectory());
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldDownloadDataFileWithNoLocalCopy() {
+    boolean result = underTest.sync();
+
+    assertThat(result).isTrue();
+    assertThat(Files.readString(localFile.toPath())).isEqualTo("data file 1");
+    assertThat(savedDataFeed.get().getUrl()).isEqualTo(settingsService.getDataFile().toString());
+    assertThat(savedDataFeed.get().getEtag()).isEqualTo("\"1\"");
+    assertThat(savedDataFeed.get().getLastModified()).isEqualTo(LAST_MODIFIED);
+    assertThat(dataFileServlet.ifNoneMatch).containsExactly((String) null);
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldNotDownloadUnchangedDataFile() {
+    underTest.sync();
+
+    boolean result = underTest.sync();
+
+    assertThat(result).isFalse();
+    assertThat(Files.readString(localFile.toPath())).isEqualTo("data file 1");
+    assertThat(dataFileServlet.ifNoneMatch).containsExactly(null, "\"1\"");
+    assertThat(dataFileServlet.ifModifiedSince).containsExactly(-1L, LAST_MODIFIED);
+    assertThat(dataFileServlet.downloads.get()).isEqualTo(1);
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldDownloadChangedDataFile() {
+    underTest.sync();
+
+    dataFileServlet.content.set("data file 2");
+    dataFileServlet.etag.set("\"2\"");
+
+    boolean result = underTest.sync();
+
+    assertThat(result).isTrue();
+    assertThat(Files.readString(localFile.toPath())).isEqualTo("data file 2");
+    assertThat(savedDataFeed.get().getEtag()).isEqualTo("\"2\"");
+    assertThat(dataFileServlet.downloads.get()).isEqualTo(2);
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldKeepLocalCopyOnServerError() {
+    underTest.sync();
+
+    dataFileServlet.content.set("data file 2");
+    dataFileServlet.etag.set("\"2\"");
+    dataFileServlet.status.set(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+
+    boolean result = underTest.sync();
+
+    assertThat(result).isFalse();
+    assertThat(Files.readString(localFile.toPath())).isEqualTo("data file 1");
+    assertThat(savedDataFeed.get().getEtag()).isEqualTo("\"1\"");
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldGetLocalDataFile() {
+    assertThat(underTest.getDataFile()).isEqualTo(localFile.toURI().toURL());
+    assertThat(underTest.getDataFile()).isEqualTo(localFile.toURI().toURL());
+    assertThat(dataFileServlet.downloads.get()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldNotGetDataFileIfUnableToDownload() {
+    dataFileServlet.status.set(HttpServletResponse.SC_NOT_FOUND);
+
+    assertThat(underTest.getDataFile()).isNull();
+    assertThat(localFile).doesNotExist();
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldResumeInterruptedDownload() {
+    Files.writeString(downloadFile.toPath(), "data ");
+    savedDataFeed.set(DataFeed.builder().url(settingsService.getDataFile().toString()).downloadEtag("\"1\"").build());
+
+    boolean result = underTest.sync();
+
+    assertThat(result).isTrue();
+    assertThat(Files.readString(localFile.toPath())).isEqualTo("data file 1");
+    assertThat(downloadFile).doesNotExist();
+    assertThat(dataFileServlet.ranges).containsExactly("bytes=5-");
+    assertThat(savedDataFeed.get().getEtag()).isEqualTo("\"1\"");
+    assertThat(savedDataFeed.get().getDownloadEtag()).isNull();
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldRestartInterruptedDownloadIfDataFileHasChanged() {
+    Files.writeString(downloadFile.toPath(), "old data ");
+    savedDataFeed.set(DataFeed.builder().url(settingsService.getDataFile().toString()).downloadEtag("\"0\"").build());
+
+    boolean result = underTest.sync();
+
+    assertThat(result).isTrue();
+    assertThat(Files.readString(localFile.toPath())).isEqualTo("data file 1");
+    assertThat(dataFileServlet.ranges).containsExactly("bytes=9-");
+    assertThat(dataFileServlet.downloads.get()).isEqualTo(1);
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldVerifyChecksumFromEtag() {
+    dataFileServlet.etag.set("\"" + md5("data file 1") + "\"");
+
+    boolean result = underTest.sync();
+
+    assertThat(result).isTrue();
+    assertThat(savedDataFeed.get().getChecksum()).isEqualTo(md5("data file 1"));
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldNotReplaceLocalCopyIfChecksumDoesNotMatch() {
+    underTest.sync();
+
+    dataFileServlet.content.set("data file 2");
+    dataFileServlet.etag.set("\"" + md5("something else") + "\"");
+
+    boolean result = underTest.sync();
+
+    assertThat(result).isFalse();
+    assertThat(Files.readString(localFile.toPath())).isEqualTo("data file 1");
+    assertThat(downloadFile).doesNotExist();
+  }
+
+  @Test
+  void shouldPublishDownloadProgress() {
+    underTest.sync();
+
+    verify(eventProcessor).fireEvent(DATA_DOWNLOAD_UPDATED, 0L, 11L);
+    verify(eventProcessor, atLeastOnce()).fireEvent(DATA_DOWNLOAD_UPDATED, 11L, 11L);
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldReindexChangedDataFileInBackground() {
+    mockBackgroundSync();
+
+    underTest.eventReceived(APPLICATION_INITIALISED);
+
+    verify(searchService).indexData();
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldNotReindexUnchangedDataFileInBackground() {
+    underTest.sync();
+    mockBackgroundSync();
+
+    underTest.eventReceived(APPLICATION_INITIALISED);
+
+    verify(searchService, never()).indexData();
+  }
+
+  @Test
+  void shouldNotScheduleBackgroundSyncWhenDisabled() {
+    underTest.eventReceived(APPLICATION_INITIALISED);
+
+    verify(scheduledExecutorService, never()).scheduleWithFixedDelay(any(), anyLong(), anyLong(), any());
+  }
+
+  @SneakyThrows
+  private String md5(String content) {
+    return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(content.getBytes(UTF_8)));
+  }
+
+  private void mockBackgroundSync() {
+    when(applicationProperties.getDataFeedSyncMinutes()).thenReturn(60L);
+    doAnswer(invocation -> {
+      invocation.getArgument(0, Runnable.class).run();
+      return null;
+    }).when(threadRunner).run(any());
+    doAnswer(invocation -> {
+      invocation.getArgument(0, Runnable.class).run();
+      return null;
+    }).when(scheduledExecutorService).scheduleWithFixedDelay(any(), anyLong(), eq(60L), eq(TimeUnit.MINUTES));
+  }
+
+  // Serves the data file with conditional request support, recording what it was asked for
+  private static class DataFileServlet extends HttpServlet {
+
+    private final AtomicReference<String> content = new AtomicReference<>();
+    private final AtomicReference<String> etag = new AtomicReference<>();
+    private final AtomicReference<Integer> status = new AtomicReference<>(HttpServletResponse.SC_OK);
+    private final AtomicInteger downloads = new AtomicInteger();
+    private final List<String> ifNoneMatch = new CopyOnWriteArrayList<>();
+    private final List<Long> ifModifiedSince = new CopyOnWriteArrayList<>();
+    private final List<String> ranges = new CopyOnWriteArrayList<>();
+
+    @Override
+    @SneakyThrows
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+      ifNoneMatch.add(request.getHeader("If-None-Match"));
+      ifModifiedSince.add(request.getDateHeader("If-Modified-Since"));
+
+      if (status.get() != HttpServletResponse.SC_OK) {
+        response.sendError(status.get());
+        return;
+      }
+
+      if (etag.get().equals(request.getHeader("If-None-Match"))) {
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        return;
+      }
+
+      byte[] bytes = content.get().getBytes(UTF_8);
+
+      response.setHeader("ETag", etag.get());
+      response.setDateHeader("Last-Modified", LAST_MODIFIED);
+
+      // Only send the rest of the file if it hasn't changed since the client started downloading it
+      String range = request.getHeader("Range");
+
+      if (nonNull(range)) {
+        ranges.add(range);
+
+        if (etag.get().equals(request.getHeader("If-Range"))) {
+          int start = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+
+          response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+          response.setHeader("Content-Range", "bytes " + start + "-" + (bytes.length - 1) + "/" + bytes.length);
+          response.setContentLength(bytes.length - start);
+          response.getOutputStream().write(bytes, start, bytes.length - start);
+
+          return;
+        }
+      }
+
+      downloads.incrementAndGet();
+
+      response.setContentLength(bytes.length);
+      response.getOutputStream().write(bytes);
+    }
+  }
+}
@@ -1,5 +1,7 @@
 package uk.co.mpcontracting.rpmjukebox.service;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Comparator.comparingInt;
 import static java.util.Objects.nonNull;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -10,20 +12,28 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.co.mpcontracting.rpmjukebox.test.util.TestHelper.getTestResourceFile;
+import static uk.co.mpcontracting.rpmjukebox.util.Constants.UNSPECIFIED_GENRE;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.co.mpcontracting.rpmjukebox.config.ApplicationProperties;
 import uk.co.mpcontracting.rpmjukebox.model.Track;
+import uk.co.mpcontracting.rpmjukebox.util.GenreNormaliser;
 import uk.co.mpcontracting.rpmjukebox.util.HashGenerator;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,11 +48,14 @@ class DataServiceTest {
   @Mock
   private SearchService searchService;
 
+  @Mock
+  private MetricsService metricsService;
+
   private DataService underTest;
 
   @BeforeEach
   void beforeEach() {
-    underTest = new DataService(applicationProperties, new HashGenerator(), internetService, searchService);
+    underTest = new DataService(applicationProperties, new HashGenerator(), new GenreNormaliser(), internetService, searchService, metricsService);
   }
 
   @Test
@@ -56,7 +69,9 @@ class DataServiceTest {
     when(internetService.openConnection(dataFile)).thenReturn(urlConnection);
     when(urlConnection.getInputStream()).thenReturn(dataFile.openStream());
 
-    underTest.parse(dataFile);
+    boolean result = underTest.parse(dataFile);
+
+    assertThat(result).isTrue();
 
     ArgumentCaptor<Track> trackCaptor = ArgumentCaptor.forClass(Track.class);
 
@@ -81,6 +96,106 @@ class DataServiceTest {
         .allMatch(track -> !track.getGenres().isEmpty());
   }
 
+  @Test
+  @SneakyThrows
+  void shouldKeepArtistAndAlbumContextAcrossParserThreads(@TempDir File tempDir) {
+    when(applicationProperties.getS3BucketUrl()).thenReturn("s3-bucket-url/");
+
+    File file = new File(tempDir, "rpm-data.gz");
+    int artists = 20;
+    int albumsPerArtist = 3;
+    int tracksPerAlbum = 300;
+
+    try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file)), UTF_8)) {
+      for (int artist = 0; artist < artists; artist++) {
+        writer.write("B|@|" + artist + "|@|Artist " + artist + "|@||@|Biography|@|Members|@|rock\n");
+
+        for (int album = 0; album < albumsPerArtist; album++) {
+          writer.write("A|@|" + artist + "-" + album + "|@|Album " + artist + "-" + album + "|@||@|2000|@|Album\n");
+
+          for (int track = 1; track <= tracksPerAlbum; track++) {
+            writer.write("T|@|" + track + "|@|Track " + artist + "-" + album + "-" + track + "|@|Location|@|false|@|" + track + "|@|\n");
+          }
+        }
+      }
+    }
+
+    URL dataFile = file.toURI().toURL();
+    URLConnection urlConnection = mock(URLConnection.class);
+
+    when(internetService.openConnection(dataFile)).thenReturn(urlConnection);
+    when(urlConnection.getInputStream()).thenReturn(dataFile.openStream());
+
+    underTest.parse(dataFile);
+
+    ArgumentCaptor<Track> trackCaptor = ArgumentCaptor.forClass(Track.class);
+
+    verify(searchService, times(artists * albumsPerArtist * tracksPerAlbum)).addTrack(trackCaptor.capture());
+
+    assertThat(trackCaptor.getAllValues())
+        .allMatch(track -> track.getTrackName().startsWith("Track " + track.getAlbumName().substring("Album ".length()) + "-"))
+        .allMatch(track -> track.getAlbumName().startsWith("Album " + track.getArtistName().substring("Artist ".length()) + "-"))
+        .extracting(Track::getTrackId)
+        .doesNotHaveDuplicates();
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldParseTrimmedFieldsAndNormaliseGenres(@TempDir File tempDir) {
+    when(applicationProperties.getS3BucketUrl()).thenReturn("s3-bucket-url/");
+
+    File file = new File(tempDir, "rpm-data.gz");
+
+    try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file)), UTF_8)) {
+      writer.write("B|@| 1 |@| Artist |@||@|Biography|@|Members|@|rock, heavy metal,  ,unknown\n");
+      writer.write("A|@|1|@||@||@| 1999 |@|\n");
+      writer.write("T|@|1|@| Track 1 |@|Location|@|TRUE|@| 1 |@|Children's songs\n");
+      writer.write("T|@|2|@|Track 2|@|Location|@|false|@|2|@|\n");
+      writer.write("T|@|3|@|Track 3|@|Location|@|false|@|three|@|\n");
+    }
+
+    URL dataFile = file.toURI().toURL();
+    URLConnection urlConnection = mock(URLConnection.class);
+
+    when(internetService.openConnection(dataFile)).thenReturn(urlConnection);
+    when(urlConnection.getInputStream()).thenReturn(dataFile.openStream());
+
+    underTest.parse(dataFile);
+
+    ArgumentCaptor<Track> trackCaptor = ArgumentCaptor.forClass(Track.class);
+
+    verify(searchService, times(2)).addTrack(trackCaptor.capture());
+
+    List<Track> tracks = trackCaptor.getAllValues().stream().sorted(comparingInt(Track::getIndex)).toList();
+
+    assertThat(tracks).allMatch(track -> track.getArtistName().equals("Artist") && track.getAlbumName().equals("Artist")
+        && track.getYear() == 1999);
+    assertThat(tracks.get(0).getTrackName()).isEqualTo("Track 1");
+    assertThat(tracks.get(0).isPreferred()).isTrue();
+    assertThat(tracks.get(0).getGenres()).containsExactly("Children's Music");
+    assertThat(tracks.get(1).isPreferred()).isFalse();
+    assertThat(tracks.get(1).getGenres()).containsExactly("Rock", "Heavy Metal", UNSPECIFIED_GENRE);
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldNotCompleteParseWhenTracksCannotBeIndexed() {
+    when(applicationProperties.getS3BucketUrl()).thenReturn("s3-bucket-url/");
+
+    URL dataFile = URI.create("file:///" + getTestResourceFile("data/rpm-data.gz").getAbsolutePath()).toURL();
+    URLConnection urlConnection = mock(URLConnection.class);
+
+    when(internetService.openConnection(dataFile)).thenReturn(urlConnection);
+    when(urlConnection.getInputStream()).thenReturn(dataFile.openStream());
+    doThrow(new IllegalArgumentException("DataServiceTest.shouldNotCompleteParseWhenTracksCannotBeIndexed()"))
+        .when(searchService).addTrack(any());
+
+    boolean result = underTest.parse(dataFile);
+
+    assertThat(result).isFalse();
+    verify(searchService, times(5)).addTrack(any());
+  }
+
   @Test
   @SneakyThrows
   void shouldNotParseDataFileOnException() {
@@ -89,8 +204,9 @@ class DataServiceTest {
 
     URL dataFile = URI.create("file:///" + getTestResourceFile("data/rpm-data.gz").getAbsolutePath()).toURL();
 
-    underTest.parse(dataFile);
+    boolean result = underTest.parse(dataFile);
 
+    assertThat(result).isFalse();
     verify(searchService, never()).addTrack(any());
   }
 }
\ No newline at end of file
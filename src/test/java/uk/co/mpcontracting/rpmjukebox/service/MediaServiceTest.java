@@ -19,6 +19,7 @@ import static uk.co.mpcontracting.rpmjukebox.test.util.TestDataHelper.createLoca
 import static uk.co.mpcontracting.rpmjukebox.test.util.TestDataHelper.createTrackId;
 import static uk.co.mpcontracting.rpmjukebox.test.util.TestHelper.getField;
 import static uk.co.mpcontracting.rpmjukebox.test.util.TestHelper.setField;
+import static uk.co.mpcontracting.rpmjukebox.util.CacheType.TRACK;
 
 import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.collections.ObservableList;
@@ -43,6 +44,9 @@ class MediaServiceTest extends AbstractEventAwareObjectTest {
   @Mock
   private CacheService cacheService;
 
+  @Mock
+  private MetricsService metricsService;
+
   @Mock
   private MediaPlayer mediaPlayer;
 
@@ -74,7 +78,7 @@ class MediaServiceTest extends AbstractEventAwareObjectTest {
 
   @BeforeEach
   void beforeEach() {
-    underTest = spy(new MediaService(applicationProperties, cacheService));
+    underTest = spy(new MediaService(applicationProperties, cacheService, metricsService));
     underTest.initialise();
 
     setField(underTest, "currentPlayer", mediaPlayer);
@@ -94,9 +98,9 @@ class MediaServiceTest extends AbstractEventAwareObjectTest {
     String trackId = createTrackId();
     String location = createLocation();
 
-    // when(track.getTrackId()).thenReturn(trackId);
+    when(track.getTrackId()).thenReturn(trackId);
     when(track.getLocation()).thenReturn(location);
-    // when(cacheService.getFileLocation(TRACK, trackId, location)).thenReturn(location);
+    when(cacheService.getFileLocation(TRACK, trackId, location)).thenReturn(location);
 
     underTest.playTrack(track);
 
@@ -0,0 +1,222 @@
+package uk.co.mpcontracting.rpmjukebox.service;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.co.mpcontracting.rpmjukebox.service.MetricsService.METRIC_CACHE_HITS;
+import static uk.co.mpcontracting.rpmjukebox.service.MetricsService.METRIC_CACHE_HIT_RATIO;
+import static uk.co.mpcontracting.rpmjukebox.service.MetricsService.METRIC_CACHE_MISSES;
+import static uk.co.mpcontracting.rpmjukebox.service.MetricsService.METRIC_EVENT_QUEUE_DEPTH;
+import static uk.co.mpcontracting.rpmjukebox.service.MetricsService.METRIC_FACET_COUNTS_TIME;
+import static uk.co.mpcontracting.rpmjukebox.service.MetricsService.METRIC_INDEX_TIME;
+import static uk.co.mpcontracting.rpmjukebox.service.MetricsService.METRIC_INGEST_LINES;
+import static uk.co.mpcontracting.rpmjukebox.service.MetricsService.METRIC_INGEST_RATE;
+import static uk.co.mpcontracting.rpmjukebox.service.MetricsService.METRIC_INGEST_TIME;
+import static uk.co.mpcontracting.rpmjukebox.service.MetricsService.METRIC_MERGE_TIME;
+import static uk.co.mpcontracting.rpmjukebox.service.MetricsService.METRIC_SEARCH_CACHE_HITS;
+import static uk.co.mpcontracting.rpmjukebox.service.MetricsService.METRIC_SEARCH_CACHE_MISSES;
+import static uk.co.mpcontracting.rpmjukebox.service.MetricsService.METRIC_SEARCH_TIME;
+import static uk.co.mpcontracting.rpmjukebox.service.MetricsService.METRIC_TRACKS_BY_IDS_TIME;
+import static uk.co.mpcontracting.rpmjukebox.test.util.TestHelper.getConfigDirectory;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.SneakyThrows;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.co.mpcontracting.rpmjukebox.config.ApplicationProperties;
+
+@ExtendWith(MockitoExtension.class)
+class MetricsServiceTest {
+
+  @Mock
+  private ApplicationProperties applicationProperties;
+
+  @Mock
+  private ScheduledExecutorService scheduledExecutorService;
+
+  @Mock
+  private SettingsService settingsService;
+
+  private MetricsService underTest;
+
+  @BeforeEach
+  void beforeEach() {
+    underTest = new MetricsService(applicationProperties, scheduledExecutorService, new SimpleMeterRegistry(), settingsService);
+  }
+
+  @AfterEach
+  @SneakyThrows
+  void afterEach() {
+    FileUtils.deleteDirectory(getConfigDirectory());
+  }
+
+  @Test
+  void shouldScheduleMetricsLogging() {
+    when(applicationProperties.getMetricsLogMinutes()).thenReturn(15L);
+
+    underTest.initialise();
+
+    verify(scheduledExecutorService).scheduleAtFixedRate(any(), eq(15L), eq(15L), eq(TimeUnit.MINUTES));
+  }
+
+  @Test
+  void shouldNotScheduleMetricsLoggingWhenDisabled() {
+    underTest.initialise();
+
+    verify(scheduledExecutorService, never()).scheduleAtFixedRate(any(), anyLong(), anyLong(), any());
+  }
+
+  @Test
+  void shouldRecordSearchTimes() {
+    underTest.initialise();
+
+    underTest.recordSearch(MILLISECONDS.toNanos(10));
+    underTest.recordSearch(MILLISECONDS.toNanos(30));
+
+    Map<String, Number> searchTime = underTest.getMetrics().get(METRIC_SEARCH_TIME);
+
+    assertThat(searchTime.get("count")).isEqualTo(2L);
+    assertThat(searchTime.get("mean").doubleValue()).isEqualTo(20d);
+    assertThat(searchTime.get("max").doubleValue()).isEqualTo(30d);
+    assertThat(searchTime).containsKeys("p50", "p95", "p99");
+  }
+
+  @Test
+  void shouldRecordSearchCacheReads() {
+    underTest.initialise();
+
+    underTest.recordSearchCacheRead(true);
+    underTest.recordSearchCacheRead(false);
+    underTest.recordSearchCacheRead(false);
+
+    Map<String, Map<String, Number>> metrics = underTest.getMetrics();
+
+    assertThat(metrics.get(METRIC_SEARCH_CACHE_HITS).get("count")).isEqualTo(1L);
+    assertThat(metrics.get(METRIC_SEARCH_CACHE_MISSES).get("count")).isEqualTo(2L);
+  }
+
+  @Test
+  void shouldRecordIndexTimes() {
+    underTest.initialise();
+
+    underTest.recordIndex(TimeUnit.SECONDS.toNanos(3));
+    underTest.recordMerge(TimeUnit.SECONDS.toNanos(1));
+    underTest.recordTracksByIds(MILLISECONDS.toNanos(5));
+    underTest.recordFacetCounts(MILLISECONDS.toNanos(7));
+
+    Map<String, Map<String, Number>> metrics = underTest.getMetrics();
+
+    assertThat(metrics.get(METRIC_INDEX_TIME).get("max").doubleValue()).isEqualTo(3000d);
+    assertThat(metrics.get(METRIC_MERGE_TIME).get("max").doubleValue()).isEqualTo(1000d);
+    assertThat(metrics.get(METRIC_TRACKS_BY_IDS_TIME).get("max").doubleValue()).isEqualTo(5d);
+    assertThat(metrics.get(METRIC_FACET_COUNTS_TIME).get("max").doubleValue()).isEqualTo(7d);
+  }
+
+  @Test
+  void shouldRecordIngest() {
+    underTest.initialise();
+
+    underTest.recordIngest(TimeUnit.SECONDS.toNanos(2), 1000);
+
+    Map<String, Map<String, Number>> metrics = underTest.getMetrics();
+
+    assertThat(metrics.get(METRIC_INGEST_TIME).get("count")).isEqualTo(1L);
+    assertThat(metrics.get(METRIC_INGEST_LINES).get("count")).isEqualTo(1000L);
+    assertThat(metrics.get(METRIC_INGEST_RATE).get("value").doubleValue()).isEqualTo(500d);
+  }
+
+  @Test
+  void shouldRecordCacheReads() {
+    underTest.initialise();
+
+    underTest.recordCacheRead(true);
+    underTest.recordCacheRead(true);
+    underTest.recordCacheRead(true);
+    underTest.recordCacheRead(false);
+
+    Map<String, Map<String, Number>> metrics = underTest.getMetrics();
+
+    assertThat(metrics.get(METRIC_CACHE_HITS).get("count")).isEqualTo(3L);
+    assertThat(metrics.get(METRIC_CACHE_MISSES).get("count")).isEqualTo(1L);
+    assertThat(metrics.get(METRIC_CACHE_HIT_RATIO).get("value").doubleValue()).isEqualTo(0.75d);
+  }
+
+  @Test
+  void shouldGetZeroCacheHitRatioWithNoReads() {
+    underTest.initialise();
+
+    assertThat(underTest.getCacheHitRatio()).isZero();
+  }
+
+  @Test
+  void shouldRecordEventQueueDepth() {
+    underTest.initialise();
+
+    underTest.recordEventQueueDepth(1);
+    underTest.recordEventQueueDepth(5);
+
+    Map<String, Number> eventQueueDepth = underTest.getMetrics().get(METRIC_EVENT_QUEUE_DEPTH);
+
+    assertThat(eventQueueDepth.get("count")).isEqualTo(2L);
+    assertThat(eventQueueDepth.get("max").doubleValue()).isEqualTo(5d);
+  }
+
+  @Test
+  void shouldGetSummary() {
+    underTest.initialise();
+
+    underTest.recordSearch(MILLISECONDS.toNanos(10));
+
+    List<String> summary = underTest.getSummary();
+
+    assertThat(summary).hasSize(underTest.getMetrics().size());
+    assertThat(summary.getFirst()).startsWith(METRIC_SEARCH_TIME + " - count 1 mean 10.00 max 10.00");
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldLogMetricsToFile() {
+    File metricsFile = new File(getConfigDirectory(), "metrics.json");
+    FileUtils.forceMkdir(getConfigDirectory());
+
+    when(applicationProperties.getMetricsFile()).thenReturn("metrics.json");
+    when(settingsService.getFileFromConfigDirectory("metrics.json")).thenReturn(metricsFile);
+    when(settingsService.getGson()).thenReturn(new Gson());
+
+    underTest.initialise();
+    underTest.recordSearch(MILLISECONDS.toNanos(10));
+    underTest.logMetrics();
+
+    JsonObject json = new Gson().fromJson(Files.readString(metricsFile.toPath()), JsonObject.class);
+
+    assertThat(json.has("timestamp")).isTrue();
+    assertThat(json.getAsJsonObject("metrics").getAsJsonObject(METRIC_SEARCH_TIME).get("count").getAsLong()).isEqualTo(1L);
+  }
+
+  @Test
+  void shouldNotThrowWhenUnableToLogMetrics() {
+    when(applicationProperties.getMetricsFile()).thenReturn("metrics.json");
+    when(settingsService.getFileFromConfigDirectory("metrics.json")).thenReturn(new File("/nonexistent/metrics.json"));
+
+    underTest.initialise();
+    underTest.logMetrics();
+  }
+}
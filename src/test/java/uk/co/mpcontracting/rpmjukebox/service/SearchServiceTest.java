@@ -1,23 +1,28 @@
 package uk.co.mpcontracting.rpmjukebox.service;
 
 import static java.util.Collections.emptyList;
-import static java.util.Collections.singletonList;
+import static java.util.Collections.emptyMap;
 import static org.apache.lucene.search.TotalHits.Relation.EQUAL_TO;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static uk.co.mpcontracting.rpmjukebox.event.Event.APPLICATION_INITIALISED;
 import static uk.co.mpcontracting.rpmjukebox.event.Event.DATA_INDEXED;
 import static uk.co.mpcontracting.rpmjukebox.test.util.TestDataHelper.createGenre;
 import static uk.co.mpcontracting.rpmjukebox.test.util.TestDataHelper.createTrack;
@@ -27,49 +32,81 @@ import static uk.co.mpcontracting.rpmjukebox.test.util.TestHelper.setField;
 import static uk.co.mpcontracting.rpmjukebox.util.Constants.UNSPECIFIED_GENRE;
 
 import java.io.File;
-import java.security.SecureRandom;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import lombok.SneakyThrows;
 import org.apache.commons.io.FileUtils;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.index.ConcurrentMergeScheduler;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexWriter;
-import org.apache.lucene.index.LeafReader;
-import org.apache.lucene.index.LeafReaderContext;
-import org.apache.lucene.index.StoredFields;
-import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.CollectorManager;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.store.ByteBuffersDirectory;
 import org.apache.lucene.store.Directory;
-import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.store.FSDirectory;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import uk.co.mpcontracting.rpmjukebox.RpmJukebox;
 import uk.co.mpcontracting.rpmjukebox.config.ApplicationProperties;
 import uk.co.mpcontracting.rpmjukebox.model.Track;
+import uk.co.mpcontracting.rpmjukebox.search.FacetCount;
+import uk.co.mpcontracting.rpmjukebox.search.IndexDirectoryMode;
+import uk.co.mpcontracting.rpmjukebox.search.RandomDocIdSampler;
+import uk.co.mpcontracting.rpmjukebox.search.SearchResultCache;
 import uk.co.mpcontracting.rpmjukebox.search.TrackField;
+import uk.co.mpcontracting.rpmjukebox.search.TrackReader;
 import uk.co.mpcontracting.rpmjukebox.search.TrackSearch;
+import uk.co.mpcontracting.rpmjukebox.search.TrackSearchResult;
 import uk.co.mpcontracting.rpmjukebox.search.TrackSort;
+import uk.co.mpcontracting.rpmjukebox.settings.IndexSnapshot;
 import uk.co.mpcontracting.rpmjukebox.test.util.AbstractEventAwareObjectTest;
-import uk.co.mpcontracting.rpmjukebox.test.util.TestTermsEnum;
+import uk.co.mpcontracting.rpmjukebox.util.HashGenerator;
+import uk.co.mpcontracting.rpmjukebox.util.ThreadRunner;
 
 class SearchServiceTest extends AbstractEventAwareObjectTest {
 
   @Mock
   private RpmJukebox rpmJukebox;
 
+  @Mock
+  private ThreadRunner threadRunner;
+
   @Mock
   private ApplicationProperties applicationProperties;
 
@@ -82,9 +119,18 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
   @Mock
   private DataService dataService;
 
+  @Mock
+  private DataFeedService dataFeedService;
+
+  @Mock
+  private URL dataFile;
+
   @Mock
   private SettingsService settingsService;
 
+  @Mock
+  private MetricsService metricsService;
+
   @Mock
   private Directory trackDirectory;
 
@@ -94,20 +140,29 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
   @Mock
   private SearcherManager trackManager;
 
+  @Mock
+  private RandomDocIdSampler randomDocIdSampler;
+
   private SearchService underTest;
 
   @BeforeEach
   void beforeEach() {
-    underTest = spy(new SearchService(rpmJukebox, applicationProperties, stringResourceService, settingsService));
+    underTest = spy(new SearchService(rpmJukebox, threadRunner, applicationProperties, stringResourceService, settingsService,
+        new HashGenerator(), new SearchResultCache(applicationProperties), metricsService));
     setField(underTest, "applicationLifecycleService", applicationLifecycleService);
     setField(underTest, "dataService", dataService);
+    setField(underTest, "dataFeedService", dataFeedService);
+    lenient().when(dataFeedService.getDataFile()).thenReturn(dataFile);
 
     lenient().when(applicationProperties.getTrackIndexDirectory()).thenReturn("trackIndex");
+    lenient().when(applicationProperties.getIndexDirectoryMode()).thenReturn(IndexDirectoryMode.MMAP_PRELOAD);
     lenient().when(settingsService.getFileFromConfigDirectory("trackIndex")).thenReturn(new File(getConfigDirectory(), "trackIndex"));
 
     setField(underTest, "trackDirectory", trackDirectory);
     setField(underTest, "trackManager", trackManager);
     setField(underTest, "trackWriter", trackWriter);
+    setField(underTest, "randomDocIdSampler", randomDocIdSampler);
+    lenient().when(trackWriter.getConfig()).thenReturn(new IndexWriterConfig());
   }
 
   @AfterEach
@@ -121,8 +176,6 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
   void shouldInitialise() {
     try {
       doReturn(true).when(underTest).isIndexValid(any());
-      doReturn(emptyList()).when(underTest).search(any());
-      doReturn(emptyList()).when(underTest).getDistinctTrackFieldValues(any());
       when(settingsService.hasDataFileExpired()).thenReturn(false);
 
       setField(underTest, "trackDirectory", null);
@@ -134,8 +187,7 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
       Directory trackDirectoryField = getField(underTest, "trackDirectory", Directory.class);
       IndexWriter trackWriterField = getField(underTest, "trackWriter", IndexWriter.class);
       SearcherManager trackManagerField = getField(underTest, "trackManager", SearcherManager.class);
-      SecureRandom secureRandomField = getField(underTest, "secureRandom", SecureRandom.class);
-      ExecutorService executorServiceField = getField(underTest, "executorService", ExecutorService.class);
+      RandomDocIdSampler randomDocIdSamplerField = getField(underTest, "randomDocIdSampler", RandomDocIdSampler.class);
       List<String> genreList = underTest.getGenreList();
       List<String> yearList = underTest.getYearList();
       List<TrackSort> trackSortList = underTest.getTrackSortList();
@@ -143,15 +195,14 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
       assertThat(trackDirectoryField).isNotNull();
       assertThat(trackWriterField).isNotNull();
       assertThat(trackManagerField).isNotNull();
-      assertThat(secureRandomField).isNotNull();
-      assertThat(executorServiceField).isNotNull();
+      assertThat(randomDocIdSamplerField).isNotNull();
       assertThat(genreList).hasSize(1);
       assertThat(genreList.getFirst()).isEqualTo(UNSPECIFIED_GENRE);
       assertThat(yearList).isEmpty();
       assertThat(trackSortList).hasSize(4);
 
       verify(underTest, never()).indexData();
-      verify(underTest, times(9)).search(any());
+      verify(underTest, never()).search(any());
     } finally {
       underTest.shutdown();
     }
@@ -162,8 +213,6 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
   void shouldInitialiseAndIndexWhenDataFileHasExpired() {
     try {
       doNothing().when(underTest).indexData();
-      doReturn(emptyList()).when(underTest).search(any());
-      doReturn(emptyList()).when(underTest).getDistinctTrackFieldValues(any());
       when(settingsService.hasDataFileExpired()).thenReturn(true);
 
       setField(underTest, "trackDirectory", null);
@@ -175,8 +224,7 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
       Directory trackDirectoryField = getField(underTest, "trackDirectory", Directory.class);
       IndexWriter trackWriterField = getField(underTest, "trackWriter", IndexWriter.class);
       SearcherManager trackManagerField = getField(underTest, "trackManager", SearcherManager.class);
-      SecureRandom secureRandomField = getField(underTest, "secureRandom", SecureRandom.class);
-      ExecutorService executorServiceField = getField(underTest, "executorService", ExecutorService.class);
+      RandomDocIdSampler randomDocIdSamplerField = getField(underTest, "randomDocIdSampler", RandomDocIdSampler.class);
       List<String> genreList = underTest.getGenreList();
       List<String> yearList = underTest.getYearList();
       List<TrackSort> trackSortList = underTest.getTrackSortList();
@@ -184,15 +232,14 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
       assertThat(trackDirectoryField).isNotNull();
       assertThat(trackWriterField).isNotNull();
       assertThat(trackManagerField).isNotNull();
-      assertThat(secureRandomField).isNotNull();
-      assertThat(executorServiceField).isNotNull();
+      assertThat(randomDocIdSamplerField).isNotNull();
       assertThat(genreList).hasSize(1);
       assertThat(genreList.getFirst()).isEqualTo(UNSPECIFIED_GENRE);
       assertThat(yearList).isEmpty();
       assertThat(trackSortList).hasSize(4);
 
       verify(underTest).indexData();
-      verify(underTest, times(9)).search(any());
+      verify(underTest, never()).search(any());
     } finally {
       underTest.shutdown();
     }
@@ -204,8 +251,6 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
     try {
       doNothing().when(underTest).indexData();
       doReturn(false).when(underTest).isIndexValid(any());
-      doReturn(emptyList()).when(underTest).search(any());
-      doReturn(emptyList()).when(underTest).getDistinctTrackFieldValues(any());
       when(settingsService.hasDataFileExpired()).thenReturn(false);
 
       setField(underTest, "trackDirectory", null);
@@ -217,24 +262,891 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
       Directory trackDirectoryField = getField(underTest, "trackDirectory", Directory.class);
       IndexWriter trackWriterField = getField(underTest, "trackWriter", IndexWriter.class);
       SearcherManager trackManagerField = getField(underTest, "trackManager", SearcherManager.class);
-      SecureRandom secureRandomField = getField(underTest, "secureRandom", SecureRandom.class);
-      ExecutorService executorServiceField = getField(underTest, "executorService", ExecutorService.class);
+      RandomDocIdSampler randomDocIdSamplerField = getField(underTest, "randomDocIdSampler", RandomDocIdSampler.class);
       List<String> genreList = underTest.getGenreList();
       List<String> yearList = underTest.getYearList();
       List<TrackSort> trackSortList = underTest.getTrackSortList();
 
-      assertThat(trackDirectoryField).isNotNull();
-      assertThat(trackWriterField).isNotNull();
-      assertThat(trackManagerField).isNotNull();
-      assertThat(secureRandomField).isNotNull();
-      assertThat(executorServiceField).isNotNull();
-      assertThat(genreList).hasSize(1);
-      assertThat(genreList.getFirst()).isEqualTo(UNSPECIFIED_GENRE);
-      assertThat(yearList).isEmpty();
-      assertThat(trackSortList).hasSize(4);
+      assertThat(trackDirectoryField).isNotNull();
+      assertThat(trackWriterField).isNotNull();
+      assertThat(trackManagerField).isNotNull();
+      assertThat(randomDocIdSamplerField).isNotNull();
+      assertThat(genreList).hasSize(1);
+      assertThat(genreList.getFirst()).isEqualTo(UNSPECIFIED_GENRE);
+      assertThat(yearList).isEmpty();
+      assertThat(trackSortList).hasSize(4);
+
+      verify(underTest).indexData();
+      verify(underTest, never()).search(any());
+    } finally {
+      underTest.shutdown();
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldInitialiseFromIndexSnapshot() {
+    try {
+      doReturn(1L).when(underTest).getIndexGeneration();
+      doReturn(true).when(underTest).isIndexSchemaCurrent();
+      when(settingsService.hasDataFileExpired()).thenReturn(false);
+      when(settingsService.loadIndexSnapshot()).thenReturn(IndexSnapshot.builder()
+          .schemaVersion(SearchService.INDEX_SCHEMA_VERSION)
+          .directory("trackIndex")
+          .generation(1L)
+          .numDocs(2)
+          .valid(true)
+          .genres(List.of(UNSPECIFIED_GENRE, "Rock"))
+          .years(List.of("2001"))
+          .yearCounts(Map.of("2001", 2))
+          .build());
+
+      setField(underTest, "trackDirectory", null);
+      setField(underTest, "trackManager", null);
+      setField(underTest, "trackWriter", null);
+
+      underTest.initialise();
+
+      assertThat(underTest.getGenreList()).containsExactly(UNSPECIFIED_GENRE, "Rock");
+      assertThat(underTest.getYearList()).containsExactly("2001");
+      assertThat(underTest.getYearCounts()).containsExactly(entry("2001", 2));
+      assertThat(underTest.getTrackSortList()).hasSize(4);
+
+      verify(underTest, never()).isIndexValid(any());
+      verify(underTest, never()).indexData();
+      verify(underTest, never()).getFacetCounts();
+    } finally {
+      underTest.shutdown();
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldNotInitialiseFromIndexSnapshotAtDifferentGeneration() {
+    try {
+      doReturn(2L).when(underTest).getIndexGeneration();
+      doReturn(true).when(underTest).isIndexValid(any());
+      doReturn(Map.of(TrackField.GENRE, List.of(new FacetCount("Jazz", 1)), TrackField.YEAR, List.of(new FacetCount("2001", 3))))
+          .when(underTest).getFacetCounts();
+      when(settingsService.hasDataFileExpired()).thenReturn(false);
+      when(settingsService.loadIndexSnapshot()).thenReturn(IndexSnapshot.builder()
+          .schemaVersion(SearchService.INDEX_SCHEMA_VERSION)
+          .generation(1L)
+          .numDocs(2)
+          .valid(true)
+          .genres(List.of(UNSPECIFIED_GENRE, "Rock"))
+          .years(List.of("2001"))
+          .yearCounts(Map.of("2001", 2))
+          .build());
+
+      setField(underTest, "trackDirectory", null);
+      setField(underTest, "trackManager", null);
+      setField(underTest, "trackWriter", null);
+
+      underTest.initialise();
+
+      assertThat(underTest.getGenreList()).containsExactly(UNSPECIFIED_GENRE, "Jazz");
+      assertThat(underTest.getYearList()).containsExactly("2001");
+      assertThat(underTest.getYearCounts()).containsExactly(entry("2001", 3));
+
+      verify(underTest).isIndexValid(any());
+      verify(underTest, never()).indexData();
+    } finally {
+      underTest.shutdown();
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldNotInitialiseFromInvalidIndexSnapshot() {
+    try {
+      doNothing().when(underTest).indexData();
+      doReturn(false).when(underTest).isIndexValid(any());
+      when(settingsService.hasDataFileExpired()).thenReturn(false);
+      when(settingsService.loadIndexSnapshot()).thenReturn(IndexSnapshot.builder()
+          .schemaVersion(SearchService.INDEX_SCHEMA_VERSION)
+          .valid(false)
+          .genres(emptyList())
+          .years(emptyList())
+          .build());
+
+      setField(underTest, "trackDirectory", null);
+      setField(underTest, "trackManager", null);
+      setField(underTest, "trackWriter", null);
+
+      underTest.initialise();
+
+      verify(underTest).isIndexValid(any());
+      verify(underTest).indexData();
+    } finally {
+      underTest.shutdown();
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldNotInitialiseIfAlreadyInitialised() {
+    try {
+      doNothing().when(underTest).indexData();
+      doReturn(false).when(underTest).isIndexValid(any());
+      when(settingsService.hasDataFileExpired()).thenReturn(false);
+
+      setField(underTest, "trackDirectory", null);
+      setField(underTest, "trackManager", null);
+      setField(underTest, "trackWriter", null);
+
+      underTest.initialise();
+      underTest.initialise();
+
+      verify(applicationLifecycleService).shutdown();
+    } finally {
+      underTest.shutdown();
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldThrowExceptionOnInitialise() {
+    try {
+      doThrow(new RuntimeException("SearchManagerTest.shouldThrowExceptionOnInitialise()")).when(underTest).indexData();
+      doReturn(false).when(underTest).isIndexValid(any());
+
+      assertThatThrownBy(() -> underTest.initialise()).isInstanceOf(RuntimeException.class);
+    } finally {
+      underTest.shutdown();
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldReturnIndexValid() {
+    doReturn(true).when(underTest).isIndexSchemaCurrent();
+
+    IndexSearcher indexSearcher = mock(IndexSearcher.class);
+    when(trackManager.acquire()).thenReturn(indexSearcher);
+    doNothing().when(trackManager).release(indexSearcher);
+
+    List<Track> tracks = new ArrayList<>();
+    tracks.add(mock(Track.class));
+
+    doReturn(tracks).when(underTest).search(any());
+
+    boolean isValid = underTest.isIndexValid(trackManager);
+
+    assertThat(isValid).isTrue();
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldReturnIndexValidWhenExceptionOnRelease() {
+    doReturn(true).when(underTest).isIndexSchemaCurrent();
+
+    IndexSearcher indexSearcher = mock(IndexSearcher.class);
+    when(trackManager.acquire()).thenReturn(indexSearcher);
+    doThrow(new RuntimeException("SearchManagerTest.shouldReturnIndexValidWhenExceptionOnRelease()"))
+        .when(trackManager).release(indexSearcher);
+
+    List<Track> tracks = new ArrayList<>();
+    tracks.add(mock(Track.class));
+
+    doReturn(tracks).when(underTest).search(any());
+
+    boolean isValid = underTest.isIndexValid(trackManager);
+
+    assertThat(isValid).isTrue();
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldReturnIndexInvalidWithOldSchema() {
+    IndexSearcher indexSearcher = mock(IndexSearcher.class);
+    when(trackManager.acquire()).thenReturn(indexSearcher);
+    doNothing().when(trackManager).release(indexSearcher);
+    when(trackWriter.getLiveCommitData()).thenReturn(Map.of(SearchService.INDEX_SCHEMA_VERSION_KEY, "1").entrySet());
+
+    boolean isValid = underTest.isIndexValid(trackManager);
+
+    assertThat(isValid).isFalse();
+    verify(underTest, never()).search(any());
+  }
+
+  @Test
+  void shouldReturnIndexSchemaCurrent() {
+    when(trackWriter.getLiveCommitData())
+        .thenReturn(Map.of(SearchService.INDEX_SCHEMA_VERSION_KEY, SearchService.INDEX_SCHEMA_VERSION).entrySet());
+
+    assertThat(underTest.isIndexSchemaCurrent()).isTrue();
+  }
+
+  @Test
+  void shouldReturnIndexSchemaNotCurrentWithNoCommitData() {
+    when(trackWriter.getLiveCommitData()).thenReturn(null);
+
+    assertThat(underTest.isIndexSchemaCurrent()).isFalse();
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldReturnIndexInvalidWithEmptyTracks() {
+    doReturn(true).when(underTest).isIndexSchemaCurrent();
+
+    IndexSearcher indexSearcher = mock(IndexSearcher.class);
+    when(trackManager.acquire()).thenReturn(indexSearcher);
+    doNothing().when(trackManager).release(indexSearcher);
+    doReturn(emptyList()).when(underTest).search(any());
+
+    boolean isValid = underTest.isIndexValid(trackManager);
+
+    assertThat(isValid).isFalse();
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldReturnIndexInvalidWithNullTracks() {
+    doReturn(true).when(underTest).isIndexSchemaCurrent();
+
+    IndexSearcher indexSearcher = mock(IndexSearcher.class);
+    when(trackManager.acquire()).thenReturn(indexSearcher);
+    doNothing().when(trackManager).release(indexSearcher);
+    doReturn(null).when(underTest).search(any());
+
+    boolean isValid = underTest.isIndexValid(trackManager);
+
+    assertThat(isValid).isFalse();
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldReturnIndexInvalidOnException() {
+    doReturn(true).when(underTest).isIndexSchemaCurrent();
+
+    IndexSearcher indexSearcher = mock(IndexSearcher.class);
+    when(trackManager.acquire()).thenReturn(indexSearcher);
+    doNothing().when(trackManager).release(indexSearcher);
+    doThrow(new RuntimeException("SearchManagerTest.shouldReturnIndexInvalidOnException()")).when(underTest)
+        .search(any());
+
+    boolean isValid = underTest.isIndexValid(trackManager);
+
+    assertThat(isValid).isFalse();
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldIndexData() {
+    when(dataService.parse(any())).thenReturn(true);
+
+    underTest.indexData();
+
+    verify(trackWriter).deleteAll();
+    verify(dataService).parse(dataFile);
+    verify(trackWriter).commit();
+    verify(trackManager).maybeRefreshBlocking();
+    verify(settingsService).setLastIndexedDate(any());
+    verify(eventProcessor).fireEvent(DATA_INDEXED);
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldMergeSegmentsAfterFullReindex() {
+    when(applicationProperties.getBulkIndexMaxSegments()).thenReturn(1);
+    when(dataService.parse(any())).thenReturn(true);
+
+    underTest.indexData();
+
+    InOrder inOrder = inOrder(trackWriter);
+    inOrder.verify(trackWriter).deleteAll();
+    inOrder.verify(trackWriter).forceMerge(1);
+    inOrder.verify(trackWriter).commit();
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldReindexInPlaceWithBulkProfile() {
+    List<Track> tracks = List.of(createTrack(1, "Rock"), createTrack(2, "Rock"), createTrack(3, "Rock"));
+
+    try {
+      doReturn(true).when(underTest).isIndexValid(any());
+      when(applicationProperties.getBulkIndexRamBufferMb()).thenReturn(64d);
+      when(applicationProperties.getBulkIndexMergeThreads()).thenReturn(2);
+      when(applicationProperties.getBulkIndexMaxSegments()).thenReturn(1);
+      when(applicationProperties.getInteractiveIndexRamBufferMb()).thenReturn(8d);
+      when(applicationProperties.getInteractiveIndexMergeThreads()).thenReturn(1);
+
+      setField(underTest, "trackDirectory", null);
+      setField(underTest, "trackManager", null);
+      setField(underTest, "trackWriter", null);
+
+      underTest.initialise();
+
+      IndexWriter liveWriter = getField(underTest, "trackWriter", IndexWriter.class);
+
+      // Flush after every track to end up with more than one segment
+      when(dataService.parse(any())).thenAnswer(invocation -> {
+        assertThat(liveWriter.getConfig().getRAMBufferSizeMB()).isEqualTo(64d);
+        assertThat(((ConcurrentMergeScheduler) liveWriter.getConfig().getMergeScheduler()).getMaxThreadCount()).isEqualTo(2);
+
+        for (Track track : tracks) {
+          underTest.addTrack(track);
+          liveWriter.flush();
+        }
+
+        return true;
+      });
+
+      underTest.indexData();
+
+      assertThat(getField(underTest, "trackWriter", IndexWriter.class)).isSameAs(liveWriter);
+      assertThat(getSegmentCount(liveWriter)).isEqualTo(1);
+      assertThat(liveWriter.getConfig().getRAMBufferSizeMB()).isEqualTo(8d);
+      assertThat(((ConcurrentMergeScheduler) liveWriter.getConfig().getMergeScheduler()).getMaxThreadCount()).isEqualTo(1);
+      assertThat(underTest.getTracksByIds(tracks.stream().map(Track::getTrackId).toList())).hasSize(3);
+    } finally {
+      underTest.shutdown();
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldWorkOutBulkMergeThreadsWhenReindexingInPlace() {
+    try {
+      doReturn(true).when(underTest).isIndexValid(any());
+      when(applicationProperties.getBulkIndexMaxSegments()).thenReturn(1);
+      when(applicationProperties.getInteractiveIndexMergeThreads()).thenReturn(1);
+
+      setField(underTest, "trackDirectory", null);
+      setField(underTest, "trackManager", null);
+      setField(underTest, "trackWriter", null);
+
+      underTest.initialise();
+
+      IndexWriter liveWriter = getField(underTest, "trackWriter", IndexWriter.class);
+      ConcurrentMergeScheduler mergeScheduler = (ConcurrentMergeScheduler) liveWriter.getConfig().getMergeScheduler();
+
+      // Left to auto detect on an open writer, merges would stall forever
+      when(dataService.parse(any())).thenAnswer(invocation -> {
+        assertThat(mergeScheduler.getMaxThreadCount()).isPositive();
+        assertThat(mergeScheduler.getMaxMergeCount()).isEqualTo(mergeScheduler.getMaxThreadCount() + 5);
+
+        for (int i = 1; i <= 3; i++) {
+          underTest.addTrack(createTrack(i, "Rock"));
+          liveWriter.flush();
+        }
+
+        return true;
+      });
+
+      underTest.indexData();
+
+      assertThat(getSegmentCount(liveWriter)).isEqualTo(1);
+      assertThat(mergeScheduler.getMaxThreadCount()).isEqualTo(1);
+    } finally {
+      underTest.shutdown();
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldRollBackReindexInPlaceOnShutdown() {
+    when(dataService.parse(any())).thenAnswer(invocation -> {
+      underTest.shutdown();
+
+      return true;
+    });
+
+    underTest.indexData();
+
+    verify(trackWriter).rollback();
+    verify(trackWriter, never()).close();
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldNotMergeSegmentsAfterPartialFullReindex() {
+    when(dataService.parse(any())).thenReturn(false);
+
+    underTest.indexData();
+
+    verify(trackWriter, never()).forceMerge(anyInt());
+    verify(trackWriter).commit();
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldNotIndexDataWithoutDataFile() {
+    when(dataFeedService.getDataFile()).thenReturn(null);
+
+    underTest.indexData();
+
+    verify(trackWriter, never()).deleteAll();
+    verify(dataService, never()).parse(any());
+    verify(trackWriter, never()).commit();
+    verify(eventProcessor).fireEvent(DATA_INDEXED);
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldIndexDataButNotCommitOnException() {
+    doThrow(new RuntimeException("SearchManagerTest.shouldIndexDataButNotCommitOnException()"))
+        .when(trackWriter).commit();
+    when(dataService.parse(any())).thenReturn(true);
+
+    underTest.indexData();
+
+    verify(dataService).parse(any());
+    verify(trackWriter).commit();
+    verify(trackManager, never()).maybeRefreshBlocking();
+    verify(settingsService).setLastIndexedDate(any());
+    verify(eventProcessor).fireEvent(DATA_INDEXED);
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldNotSetLastIndexedDateIfDataNotParsed() {
+    when(dataService.parse(any())).thenReturn(false);
+
+    underTest.indexData();
+
+    verify(trackWriter).commit();
+    verify(settingsService, never()).setLastIndexedDate(any());
+    verify(eventProcessor).fireEvent(DATA_INDEXED);
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldIndexDataIncrementally() {
+    Track unchangedTrack = createTrack(1, createGenre());
+    Track changedTrack = createTrack(2, createGenre());
+    Track newTrack = createTrack(3, createGenre());
+
+    when(applicationProperties.isIncrementalIndexing()).thenReturn(true);
+    when(settingsService.isNewVersion()).thenReturn(false);
+    doReturn(true).when(underTest).isIndexSchemaCurrent();
+    doReturn(Map.of(
+        unchangedTrack.getTrackId(), underTest.generateContentHash(unchangedTrack),
+        changedTrack.getTrackId(), "old-hash",
+        "removed-track", "removed-hash"
+    )).when(underTest).getIndexedContentHashes();
+    when(dataService.parse(any())).thenAnswer(invocation -> {
+      underTest.addTrack(unchangedTrack);
+      underTest.addTrack(changedTrack);
+      underTest.addTrack(newTrack);
+
+      return true;
+    });
+
+    underTest.indexData();
+
+    ArgumentCaptor<Term> updatedTerms = ArgumentCaptor.forClass(Term.class);
+    verify(trackWriter, times(2)).updateDocument(updatedTerms.capture(), any());
+
+    assertThat(updatedTerms.getAllValues()).extracting(Term::text).containsExactly(changedTrack.getTrackId(), newTrack.getTrackId());
+
+    verify(trackWriter, never()).deleteAll();
+    verify(trackWriter, never()).addDocument(any());
+    verify(trackWriter).deleteDocuments(new Term(TrackField.TRACK_ID.name(), "removed-track"));
+    verify(trackWriter).commit();
+    verify(settingsService).setLastIndexedDate(any());
+    verify(eventProcessor).fireEvent(DATA_INDEXED);
+    assertThat(getField(underTest, "indexedContentHashes", Map.class)).isNull();
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldNotDeleteTracksOnIncompleteIncrementalIndex() {
+    when(applicationProperties.isIncrementalIndexing()).thenReturn(true);
+    when(settingsService.isNewVersion()).thenReturn(false);
+    doReturn(true).when(underTest).isIndexSchemaCurrent();
+    doReturn(Map.of("removed-track", "removed-hash")).when(underTest).getIndexedContentHashes();
+    when(dataService.parse(any())).thenReturn(false);
+
+    underTest.indexData();
+
+    verify(trackWriter, never()).deleteAll();
+    verify(trackWriter, never()).deleteDocuments(any(Term[].class));
+    verify(trackWriter).commit();
+    verify(settingsService, never()).setLastIndexedDate(any());
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldFullyIndexDataOnNewVersion() {
+    when(applicationProperties.isIncrementalIndexing()).thenReturn(true);
+    when(settingsService.isNewVersion()).thenReturn(true);
+    when(dataService.parse(any())).thenReturn(true);
+
+    underTest.indexData();
+
+    verify(underTest, never()).getIndexedContentHashes();
+    verify(trackWriter).deleteAll();
+    verify(trackWriter).commit();
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldFullyIndexDataWhenNothingIndexed() {
+    when(applicationProperties.isIncrementalIndexing()).thenReturn(true);
+    when(settingsService.isNewVersion()).thenReturn(false);
+    doReturn(true).when(underTest).isIndexSchemaCurrent();
+    doReturn(emptyMap()).when(underTest).getIndexedContentHashes();
+    when(dataService.parse(any())).thenReturn(true);
+
+    underTest.indexData();
+
+    verify(trackWriter).deleteAll();
+    verify(trackWriter).commit();
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldGetIndexedContentHashes() {
+    Track track1 = createTrack(1, createGenre());
+    Track track2 = createTrack(2, createGenre());
+
+    try (Directory directory = new ByteBuffersDirectory();
+        IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new WhitespaceAnalyzer()))) {
+      setField(underTest, "trackWriter", indexWriter);
+      setField(underTest, "trackManager", new SearcherManager(indexWriter, null));
+
+      underTest.addTrack(track1);
+      underTest.addTrack(track2);
+      indexWriter.deleteDocuments(new Term(TrackField.TRACK_ID.name(), track2.getTrackId()));
+      indexWriter.commit();
+      getField(underTest, "trackManager", SearcherManager.class).maybeRefreshBlocking();
+
+      Map<String, String> result = underTest.getIndexedContentHashes();
+
+      assertThat(result).containsExactly(entry(track1.getTrackId(), underTest.generateContentHash(track1)));
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldReadBackIndexedTracks() {
+    List<Track> tracks = List.of(createTrack(1, createGenre(), createGenre()), createTrack(2, createGenre()),
+        createTrack(3, createGenre()));
+
+    try (Directory directory = new ByteBuffersDirectory();
+        IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new WhitespaceAnalyzer()))) {
+      setField(underTest, "trackWriter", indexWriter);
+      setField(underTest, "trackManager", new SearcherManager(indexWriter, null));
+
+      tracks.forEach(underTest::addTrack);
+      indexWriter.commit();
+      getField(underTest, "trackManager", SearcherManager.class).maybeRefreshBlocking();
+
+      List<Track> result = underTest.getTracksByIds(List.of(tracks.get(2).getTrackId(), tracks.get(0).getTrackId(),
+          tracks.get(1).getTrackId()));
+
+      assertThat(result).usingRecursiveFieldByFieldElementComparator()
+          .containsExactly(tracks.get(2), tracks.get(0), tracks.get(1));
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldSearchByKeywordPrefix() {
+    Track track1 = createTrack(1, createGenre());
+    track1.setArtistName("Abba");
+    track1.setAlbumName("Arrival");
+    track1.setTrackName("Dancing Queen");
+
+    Track track2 = createTrack(2, createGenre());
+    track2.setArtistName("Abc");
+    track2.setAlbumName("Lexicon");
+    track2.setTrackName("Extraordinarily");
+
+    try (Directory directory = new ByteBuffersDirectory();
+        IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(SearchService.createTrackAnalyzer()))) {
+      setField(underTest, "trackWriter", indexWriter);
+      setField(underTest, "trackManager", new SearcherManager(indexWriter, null));
+      when(applicationProperties.getMaxSearchHits()).thenReturn(100);
+
+      underTest.addTrack(track1);
+      underTest.addTrack(track2);
+      indexWriter.commit();
+      getField(underTest, "trackManager", SearcherManager.class).maybeRefreshBlocking();
+
+      assertThat(underTest.search(new TrackSearch("a"))).extracting(Track::getTrackId)
+          .containsExactlyInAnyOrder(track1.getTrackId(), track2.getTrackId());
+      assertThat(underTest.search(new TrackSearch("abb"))).extracting(Track::getTrackId)
+          .containsExactly(track1.getTrackId());
+      assertThat(underTest.search(new TrackSearch("abba danc"))).extracting(Track::getTrackId)
+          .containsExactly(track1.getTrackId());
+      assertThat(underTest.search(new TrackSearch("queen abc"))).isEmpty();
+
+      // Longer than the indexed prefixes, so falls back to a wildcard
+      assertThat(underTest.search(new TrackSearch("extraordin"))).extracting(Track::getTrackId)
+          .containsExactly(track2.getTrackId());
+      assertThat(underTest.search(new TrackSearch("extraordinarily"))).extracting(Track::getTrackId)
+          .containsExactly(track2.getTrackId());
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldGetFacetCounts() {
+    Track track1 = createTrack(1, "Rock");
+    track1.setTrackName("Song One");
+    track1.setYear(2000);
+
+    Track track2 = createTrack(2, "Rock", "Pop");
+    track2.setTrackName("Song Two");
+    track2.setYear(2001);
+
+    Track track3 = createTrack(3, "Jazz");
+    track3.setTrackName("Other");
+    track3.setYear(2001);
+
+    try (Directory directory = new ByteBuffersDirectory();
+        IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(SearchService.createTrackAnalyzer()))) {
+      setField(underTest, "trackWriter", indexWriter);
+      setField(underTest, "trackManager", new SearcherManager(indexWriter, null));
+
+      List.of(track1, track2, track3).forEach(underTest::addTrack);
+      indexWriter.commit();
+      getField(underTest, "trackManager", SearcherManager.class).maybeRefreshBlocking();
+
+      Map<TrackField, List<FacetCount>> allCounts = underTest.getFacetCounts();
+
+      assertThat(allCounts.get(TrackField.GENRE))
+          .containsExactly(new FacetCount("Jazz", 1), new FacetCount("Pop", 1), new FacetCount("Rock", 2));
+      assertThat(allCounts.get(TrackField.YEAR)).containsExactly(new FacetCount("2000", 1), new FacetCount("2001", 2));
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldSearchWithFacets() {
+    Track track1 = createTrack(1, "Rock");
+    track1.setTrackName("Song One");
+    track1.setYear(2000);
+
+    Track track2 = createTrack(2, "Rock", "Pop");
+    track2.setTrackName("Song Two");
+    track2.setYear(2001);
+
+    Track track3 = createTrack(3, "Jazz");
+    track3.setTrackName("Other");
+    track3.setYear(2001);
+
+    try (Directory directory = new ByteBuffersDirectory();
+        IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(SearchService.createTrackAnalyzer()))) {
+      setField(underTest, "trackWriter", indexWriter);
+      setField(underTest, "trackManager", new SearcherManager(indexWriter, null));
+      when(applicationProperties.getMaxSearchHits()).thenReturn(100);
+
+      List.of(track1, track2, track3).forEach(underTest::addTrack);
+      indexWriter.commit();
+      getField(underTest, "trackManager", SearcherManager.class).maybeRefreshBlocking();
+
+      TrackSearchResult result = underTest.searchWithFacets(new TrackSearch("song"));
+
+      assertThat(result.tracks()).extracting(Track::getTrackId)
+          .containsExactlyInAnyOrder(track1.getTrackId(), track2.getTrackId());
+      assertThat(result.facetCounts().get(TrackField.GENRE))
+          .containsExactly(new FacetCount("Pop", 1), new FacetCount("Rock", 2));
+      assertThat(result.facetCounts().get(TrackField.YEAR))
+          .containsExactly(new FacetCount("2000", 1), new FacetCount("2001", 1));
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldGetEmptyFacetCountsOnException() {
+    when(trackManager.acquire()).thenThrow(new RuntimeException("SearchServiceTest.shouldGetEmptyFacetCountsOnException()"));
+
+    assertThat(underTest.getFacetCounts()).isEmpty();
+  }
+
+  @Test
+  void shouldFailToGetFacetCountsIfTrackManagerIsNull() {
+    setField(underTest, "trackManager", null);
+
+    assertThatThrownBy(() -> underTest.getFacetCounts()).isInstanceOf(RuntimeException.class);
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldReplaceIndexWithOldSchemaOnFullReindex() {
+    Track track = createTrack(1, createGenre());
+
+    try (Directory directory = new ByteBuffersDirectory();
+        IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new WhitespaceAnalyzer()))) {
+      Document oldDocument = new Document();
+      oldDocument.add(new StringField(TrackField.TRACK_ID.name(), "old", Field.Store.YES));
+      oldDocument.add(new StringField(TrackField.YEAR.name(), "2000", Field.Store.YES));
+      oldDocument.add(new StoredField(TrackField.INDEX.name(), 1));
+      indexWriter.addDocument(oldDocument);
+      indexWriter.commit();
+
+      setField(underTest, "trackWriter", indexWriter);
+      setField(underTest, "trackManager", new SearcherManager(indexWriter, null));
+      when(dataService.parse(any())).thenAnswer(invocation -> {
+        underTest.addTrack(track);
+
+        return true;
+      });
+
+      assertThat(underTest.isIndexSchemaCurrent()).isFalse();
+
+      underTest.indexData();
+
+      assertThat(underTest.isIndexSchemaCurrent()).isTrue();
+      assertThat(underTest.getTracksByIds(List.of("old", track.getTrackId())))
+          .usingRecursiveFieldByFieldElementComparator()
+          .containsExactly(track);
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldRebuildIndexAlongsideLiveIndex() {
+    Track oldTrack = createTrack(1, "Rock");
+    Track newTrack = createTrack(2, "Pop");
+
+    try {
+      doReturn(true).when(underTest).isIndexValid(any());
+      when(applicationProperties.isBlueGreenIndexing()).thenReturn(true);
+
+      setField(underTest, "trackDirectory", null);
+      setField(underTest, "trackManager", null);
+      setField(underTest, "trackWriter", null);
+
+      underTest.initialise();
+      underTest.addTrack(oldTrack);
+      getField(underTest, "trackWriter", IndexWriter.class).commit();
+      getField(underTest, "trackManager", SearcherManager.class).maybeRefreshBlocking();
+
+      // Searches carry on against the live index while the new one is built
+      when(dataService.parse(any())).thenAnswer(invocation -> {
+        underTest.addTrack(newTrack);
+
+        assertThat(underTest.getTracksByIds(List.of(oldTrack.getTrackId(), newTrack.getTrackId())))
+            .extracting(Track::getTrackId)
+            .containsExactly(oldTrack.getTrackId());
+
+        return true;
+      });
+
+      underTest.indexData();
+
+      Path trackDirectoryPath = getField(underTest, "trackDirectoryPath", Path.class);
+
+      assertThat(trackDirectoryPath.getFileName().toString()).startsWith("trackIndex-");
+      assertThat(new File(getConfigDirectory(), "trackIndex")).doesNotExist();
+      assertThat(underTest.isIndexSchemaCurrent()).isTrue();
+      assertThat(underTest.getTracksByIds(List.of(oldTrack.getTrackId(), newTrack.getTrackId())))
+          .extracting(Track::getTrackId)
+          .containsExactly(newTrack.getTrackId());
+      assertThat(underTest.getGenreList()).containsExactlyInAnyOrder(UNSPECIFIED_GENRE, "Pop");
+      verify(settingsService).setLastIndexedDate(any());
+      verify(eventProcessor).fireEvent(DATA_INDEXED);
+    } finally {
+      underTest.shutdown();
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldKeepOldIndexOpenUntilLastSearcherReleased() {
+    Track oldTrack = createTrack(1, "Rock");
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    try {
+      doReturn(true).when(underTest).isIndexValid(any());
+      when(applicationProperties.isBlueGreenIndexing()).thenReturn(true);
+      when(dataService.parse(any())).thenReturn(true);
+
+      setField(underTest, "trackDirectory", null);
+      setField(underTest, "trackManager", null);
+      setField(underTest, "trackWriter", null);
+
+      underTest.initialise();
+      underTest.addTrack(oldTrack);
+      getField(underTest, "trackWriter", IndexWriter.class).commit();
+      getField(underTest, "trackManager", SearcherManager.class).maybeRefreshBlocking();
+
+      // Hold a search on the old index until after the new one has been swapped in
+      Thread testThread = Thread.currentThread();
+      CountDownLatch searchStarted = new CountDownLatch(1);
+      CountDownLatch indexSwapped = new CountDownLatch(1);
+
+      doAnswer(invocation -> {
+        if (Thread.currentThread() != testThread) {
+          searchStarted.countDown();
+          indexSwapped.await(10, TimeUnit.SECONDS);
+        }
+
+        return invocation.callRealMethod();
+      }).when(underTest).getTrackReader(any());
+
+      Future<Optional<Track>> search = executor.submit(() -> underTest.getTrackById(oldTrack.getTrackId()));
+
+      assertThat(searchStarted.await(10, TimeUnit.SECONDS)).isTrue();
+
+      underTest.indexData();
+
+      assertThat(getField(underTest, "trackDirectoryPath", Path.class).getFileName().toString()).startsWith("trackIndex-");
+      assertThat(new File(getConfigDirectory(), "trackIndex")).exists();
+
+      indexSwapped.countDown();
+
+      assertThat(search.get(10, TimeUnit.SECONDS)).map(Track::getTrackId).contains(oldTrack.getTrackId());
+      assertThat(new File(getConfigDirectory(), "trackIndex")).doesNotExist();
+    } finally {
+      executor.shutdownNow();
+      underTest.shutdown();
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldRebuildIndexWithBulkProfile() {
+    List<Track> tracks = List.of(createTrack(1, "Rock"), createTrack(2, "Rock"), createTrack(3, "Rock"));
+
+    try {
+      doReturn(true).when(underTest).isIndexValid(any());
+      when(applicationProperties.isBlueGreenIndexing()).thenReturn(true);
+      when(applicationProperties.getBulkIndexRamBufferMb()).thenReturn(64d);
+      when(applicationProperties.getBulkIndexMergeThreads()).thenReturn(2);
+      when(applicationProperties.getBulkIndexMaxSegments()).thenReturn(1);
+      when(applicationProperties.getInteractiveIndexRamBufferMb()).thenReturn(8d);
+      when(applicationProperties.getInteractiveIndexMergeThreads()).thenReturn(1);
+
+      setField(underTest, "trackDirectory", null);
+      setField(underTest, "trackManager", null);
+      setField(underTest, "trackWriter", null);
+
+      underTest.initialise();
+
+      IndexWriter liveWriter = getField(underTest, "trackWriter", IndexWriter.class);
+
+      assertThat(liveWriter.getConfig().getRAMBufferSizeMB()).isEqualTo(8d);
+      assertThat(((ConcurrentMergeScheduler) liveWriter.getConfig().getMergeScheduler()).getMaxThreadCount()).isEqualTo(1);
+
+      // Flush after every track to end up with more than one segment
+      when(dataService.parse(any())).thenAnswer(invocation -> {
+        IndexWriter rebuildWriter = getField(underTest, "rebuildWriter", IndexWriter.class);
+
+        assertThat(rebuildWriter.getConfig().getRAMBufferSizeMB()).isEqualTo(64d);
+        assertThat(rebuildWriter.getConfig().getCommitOnClose()).isFalse();
+        assertThat(((ConcurrentMergeScheduler) rebuildWriter.getConfig().getMergeScheduler()).getMaxThreadCount()).isEqualTo(2);
+
+        for (Track track : tracks) {
+          underTest.addTrack(track);
+          rebuildWriter.flush();
+        }
+
+        assertThat(getSegmentCount(rebuildWriter)).isEqualTo(3);
+
+        return true;
+      });
+
+      underTest.indexData();
 
-      verify(underTest).indexData();
-      verify(underTest, times(9)).search(any());
+      assertThat(getSegmentCount(getField(underTest, "trackWriter", IndexWriter.class))).isEqualTo(1);
+      assertThat(underTest.getTracksByIds(tracks.stream().map(Track::getTrackId).toList())).hasSize(3);
     } finally {
       underTest.shutdown();
     }
@@ -242,22 +1154,36 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
 
   @Test
   @SneakyThrows
-  void shouldNotInitialiseIfAlreadyInitialised() {
+  void shouldKeepLiveIndexIfRebuildFails() {
+    Track oldTrack = createTrack(1, "Rock");
+
     try {
-      doNothing().when(underTest).indexData();
-      doReturn(false).when(underTest).isIndexValid(any());
-      doReturn(emptyList()).when(underTest).search(any());
-      doReturn(emptyList()).when(underTest).getDistinctTrackFieldValues(any());
-      when(settingsService.hasDataFileExpired()).thenReturn(false);
+      doReturn(true).when(underTest).isIndexValid(any());
+      when(applicationProperties.isBlueGreenIndexing()).thenReturn(true);
 
       setField(underTest, "trackDirectory", null);
       setField(underTest, "trackManager", null);
       setField(underTest, "trackWriter", null);
 
       underTest.initialise();
-      underTest.initialise();
+      underTest.addTrack(oldTrack);
+      getField(underTest, "trackWriter", IndexWriter.class).commit();
+      getField(underTest, "trackManager", SearcherManager.class).maybeRefreshBlocking();
 
-      verify(applicationLifecycleService).shutdown();
+      when(dataService.parse(any())).thenAnswer(invocation -> {
+        underTest.addTrack(createTrack(2, "Pop"));
+
+        return false;
+      });
+
+      underTest.indexData();
+
+      assertThat(getField(underTest, "trackDirectoryPath", Path.class).getFileName().toString()).isEqualTo("trackIndex");
+      assertThat(getConfigDirectory().list()).containsExactly("trackIndex");
+      assertThat(underTest.getTracksByIds(List.of(oldTrack.getTrackId())))
+          .extracting(Track::getTrackId)
+          .containsExactly(oldTrack.getTrackId());
+      verify(settingsService, never()).setLastIndexedDate(any());
     } finally {
       underTest.shutdown();
     }
@@ -265,12 +1191,26 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
 
   @Test
   @SneakyThrows
-  void shouldThrowExceptionOnInitialise() {
+  void shouldOpenNewestCommittedIndexAndDeleteTheRest() {
+    for (String name : List.of("trackIndex-100", "trackIndex-200")) {
+      try (Directory directory = FSDirectory.open(new File(getConfigDirectory(), name).toPath());
+          IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new WhitespaceAnalyzer()))) {
+        indexWriter.commit();
+      }
+    }
+
+    // An interrupted build has no commit
+    new File(getConfigDirectory(), "trackIndex-300").mkdirs();
+
     try {
-      doThrow(new RuntimeException("SearchManagerTest.shouldThrowExceptionOnInitialise()")).when(underTest).indexData();
-      doReturn(false).when(underTest).isIndexValid(any());
+      setField(underTest, "trackDirectory", null);
+      setField(underTest, "trackManager", null);
+      setField(underTest, "trackWriter", null);
 
-      assertThatThrownBy(() -> underTest.initialise()).isInstanceOf(RuntimeException.class);
+      underTest.openIndex();
+
+      assertThat(getField(underTest, "trackDirectoryPath", Path.class).getFileName().toString()).isEqualTo("trackIndex-200");
+      assertThat(getConfigDirectory().list()).containsExactly("trackIndex-200");
     } finally {
       underTest.shutdown();
     }
@@ -278,104 +1218,117 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
 
   @Test
   @SneakyThrows
-  void shouldReturnIndexValid() {
-    IndexSearcher indexSearcher = mock(IndexSearcher.class);
-    when(trackManager.acquire()).thenReturn(indexSearcher);
-    doNothing().when(trackManager).release(indexSearcher);
+  void shouldGetEmptyIndexedContentHashesOnException() {
+    when(trackManager.acquire()).thenThrow(new RuntimeException("SearchManagerTest.shouldGetEmptyIndexedContentHashesOnException()"));
 
-    List<Track> tracks = new ArrayList<>();
-    tracks.add(mock(Track.class));
+    Map<String, String> result = underTest.getIndexedContentHashes();
 
-    doReturn(tracks).when(underTest).search(any());
+    assertThat(result).isEmpty();
+  }
 
-    boolean isValid = underTest.isIndexValid(trackManager);
+  @Test
+  void shouldGenerateDifferentContentHashWhenTrackChanges() {
+    Track track = createTrack(1, createGenre());
+    Track changedTrack = track.createClone();
+    changedTrack.setTrackName(track.getTrackName() + " (Remastered)");
 
-    assertThat(isValid).isTrue();
+    assertThat(underTest.generateContentHash(track)).isEqualTo(underTest.generateContentHash(track.createClone()));
+    assertThat(underTest.generateContentHash(track)).isNotEqualTo(underTest.generateContentHash(changedTrack));
   }
 
   @Test
   @SneakyThrows
-  void shouldReturnIndexValidWhenExceptionOnRelease() {
-    IndexSearcher indexSearcher = mock(IndexSearcher.class);
-    when(trackManager.acquire()).thenReturn(indexSearcher);
-    doThrow(new RuntimeException("SearchManagerTest.shouldReturnIndexValidWhenExceptionOnRelease()"))
-        .when(trackManager).release(indexSearcher);
+  void shouldOnlyAllowOneIndexDataAtATime() {
+    AtomicInteger activeIndexers = new AtomicInteger();
+    AtomicInteger maxActiveIndexers = new AtomicInteger();
 
-    List<Track> tracks = new ArrayList<>();
-    tracks.add(mock(Track.class));
+    doAnswer(invocation -> {
+      maxActiveIndexers.accumulateAndGet(activeIndexers.incrementAndGet(), Math::max);
+      Thread.sleep(50);
+      activeIndexers.decrementAndGet();
 
-    doReturn(tracks).when(underTest).search(any());
+      return true;
+    }).when(dataService).parse(any());
 
-    boolean isValid = underTest.isIndexValid(trackManager);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
 
-    assertThat(isValid).isTrue();
-  }
+    try {
+      List<Future<?>> futures = new ArrayList<>();
 
-  @Test
-  @SneakyThrows
-  void shouldReturnIndexInvalidWithEmptyTracks() {
-    IndexSearcher indexSearcher = mock(IndexSearcher.class);
-    when(trackManager.acquire()).thenReturn(indexSearcher);
-    doNothing().when(trackManager).release(indexSearcher);
-    doReturn(emptyList()).when(underTest).search(any());
+      for (int i = 0; i < 4; i++) {
+        futures.add(executor.submit(() -> {
+          underTest.indexData();
 
-    boolean isValid = underTest.isIndexValid(trackManager);
+          return null;
+        }));
+      }
 
-    assertThat(isValid).isFalse();
+      for (Future<?> future : futures) {
+        future.get(10, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(maxActiveIndexers.get()).isEqualTo(1);
+    verify(dataService, times(4)).parse(any());
   }
 
   @Test
   @SneakyThrows
-  void shouldReturnIndexInvalidWithNullTracks() {
+  void shouldRunMixedQueriesConcurrently() {
+    int numberOfThreads = Math.max(5, Runtime.getRuntime().availableProcessors());
+
     IndexSearcher indexSearcher = mock(IndexSearcher.class);
     when(trackManager.acquire()).thenReturn(indexSearcher);
-    doNothing().when(trackManager).release(indexSearcher);
-    doReturn(null).when(underTest).search(any());
+    when(applicationProperties.getMaxSearchHits()).thenReturn(100);
+    when(randomDocIdSampler.sample(indexSearcher, null, 2)).thenReturn(new int[] {1, 2});
 
-    boolean isValid = underTest.isIndexValid(trackManager);
+    ScoreDoc[] scoreDocs = {new ScoreDoc(1, 0), new ScoreDoc(2, 0)};
+    when(indexSearcher.search(any(), anyInt(), any()))
+        .thenReturn(new TopFieldDocs(new TotalHits(scoreDocs.length, EQUAL_TO), scoreDocs, null));
+    when(indexSearcher.search(any(), anyInt())).thenReturn(new TopDocs(new TotalHits(scoreDocs.length, EQUAL_TO), scoreDocs));
+    when(indexSearcher.search(any(Query.class), any(CollectorManager.class))).thenReturn(new Object[] {
+        new TopFieldDocs(new TotalHits(scoreDocs.length, EQUAL_TO), scoreDocs, null), mock(FacetsCollector.class)});
+    doReturn(emptyMap()).when(underTest).getFacetCounts(any(), any());
+    setTrackSearcherDocuments(indexSearcher);
 
-    assertThat(isValid).isFalse();
-  }
+    // Every query blocks inside the searcher until all threads have arrived, so this
+    // can only complete if the queries are running in parallel rather than queueing
+    CountDownLatch allQueriesRunning = new CountDownLatch(numberOfThreads);
+    TrackReader trackReader = underTest.getTrackReader(indexSearcher);
 
-  @Test
-  @SneakyThrows
-  void shouldReturnIndexInvalidOnException() {
-    IndexSearcher indexSearcher = mock(IndexSearcher.class);
-    when(trackManager.acquire()).thenReturn(indexSearcher);
-    doNothing().when(trackManager).release(indexSearcher);
-    doThrow(new RuntimeException("SearchManagerTest.shouldReturnIndexInvalidOnException()")).when(underTest)
-        .search(any());
+    doAnswer(invocation -> {
+      allQueriesRunning.countDown();
 
-    boolean isValid = underTest.isIndexValid(trackManager);
+      return allQueriesRunning.await(10, TimeUnit.SECONDS) ? trackReader : null;
+    }).when(underTest).getTrackReader(indexSearcher);
 
-    assertThat(isValid).isFalse();
-  }
+    List<Callable<Integer>> queries = List.of(
+        () -> underTest.search(new TrackSearch("keywords")).size(),
+        () -> underTest.getTrackById("123").map(track -> 1).orElse(0),
+        () -> underTest.getAlbumById("123").map(List::size).orElse(0),
+        () -> underTest.getShuffledPlaylist(2, null).size(),
+        () -> underTest.searchWithFacets(new TrackSearch("other keywords")).tracks().size()
+    );
 
-  @Test
-  @SneakyThrows
-  void shouldIndexData() {
-    underTest.indexData();
+    ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
 
-    verify(dataService).parse(any());
-    verify(trackWriter).commit();
-    verify(trackManager).maybeRefreshBlocking();
-    verify(settingsService).setLastIndexedDate(any());
-    verify(eventProcessor).fireEvent(DATA_INDEXED);
-  }
+    try {
+      List<Future<Integer>> futures = new ArrayList<>();
 
-  @Test
-  @SneakyThrows
-  void shouldIndexDataButNotCommitOnException() {
-    doThrow(new RuntimeException("SearchManagerTest.shouldIndexDataButNotCommitOnException()"))
-        .when(trackWriter).commit();
+      for (int i = 0; i < numberOfThreads; i++) {
+        futures.add(executor.submit(queries.get(i % queries.size())));
+      }
 
-    underTest.indexData();
+      for (Future<Integer> future : futures) {
+        assertThat(future.get(20, TimeUnit.SECONDS)).isGreaterThan(0);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
 
-    verify(dataService).parse(any());
-    verify(trackWriter).commit();
-    verify(trackManager, never()).maybeRefreshBlocking();
-    verify(settingsService).setLastIndexedDate(any());
-    verify(eventProcessor).fireEvent(DATA_INDEXED);
+    assertThat(allQueriesRunning.getCount()).isZero();
   }
 
   @Test
@@ -398,6 +1351,9 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
 
     assertThat(document.getValue().getField(TrackField.KEYWORDS.name()).fieldType().stored()).isTrue();
     assertThat(document.getValue().getField(TrackField.KEYWORDS.name()).stringValue()).isEqualTo(keywords);
+    assertThat(document.getValue().getField(TrackField.KEYWORD_PREFIXES.name()).fieldType().stored()).isFalse();
+    assertThat(document.getValue().getField(TrackField.KEYWORD_PREFIXES.name()).fieldType().indexOptions()).isEqualTo(IndexOptions.DOCS);
+    assertThat(document.getValue().getField(TrackField.KEYWORD_PREFIXES.name()).stringValue()).isEqualTo(keywords);
     assertThat(document.getValue().getField(TrackField.ARTIST_ID.name()).fieldType().stored()).isTrue();
     assertThat(document.getValue().getField(TrackField.ARTIST_ID.name()).stringValue()).isEqualTo(track.getArtistId());
     assertThat(document.getValue().getField(TrackField.ARTIST_NAME.name()).fieldType().stored()).isTrue();
@@ -408,19 +1364,22 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
     assertThat(document.getValue().getField(TrackField.ALBUM_NAME.name()).stringValue()).isEqualTo(track.getAlbumName());
     assertThat(document.getValue().getField(TrackField.ALBUM_IMAGE.name()).fieldType().stored()).isTrue();
     assertThat(document.getValue().getField(TrackField.ALBUM_IMAGE.name()).stringValue()).isEqualTo(track.getAlbumImage());
-    assertThat(document.getValue().getField(TrackField.YEAR.name()).fieldType().stored()).isTrue();
+    assertThat(document.getValue().getField(TrackField.YEAR.name()).fieldType().stored()).isFalse();
     assertThat(document.getValue().getField(TrackField.YEAR.name()).stringValue()).isEqualTo(Integer.toString(track.getYear()));
+    assertThat(document.getValue().getFields(TrackField.YEAR.name())[1].numericValue()).isEqualTo((long) track.getYear());
     assertThat(document.getValue().getField(TrackField.TRACK_ID.name()).fieldType().stored()).isTrue();
     assertThat(document.getValue().getField(TrackField.TRACK_ID.name()).stringValue()).isEqualTo(track.getTrackId());
     assertThat(document.getValue().getField(TrackField.TRACK_NAME.name()).fieldType().stored()).isTrue();
     assertThat(document.getValue().getField(TrackField.TRACK_NAME.name()).stringValue()).isEqualTo(track.getTrackName());
-    assertThat(document.getValue().getField(TrackField.INDEX.name()).fieldType().stored()).isTrue();
-    assertThat(document.getValue().getField(TrackField.INDEX.name()).stringValue()).isEqualTo(Integer.toString(track.getIndex()));
+    assertThat(document.getValue().getField(TrackField.INDEX.name()).fieldType().stored()).isFalse();
+    assertThat(document.getValue().getField(TrackField.INDEX.name()).numericValue()).isEqualTo((long) track.getIndex());
     assertThat(document.getValue().getField(TrackField.LOCATION.name()).fieldType().stored()).isTrue();
     assertThat(document.getValue().getField(TrackField.LOCATION.name()).stringValue()).isEqualTo(track.getLocation());
-    assertThat(document.getValue().getField(TrackField.IS_PREFERRED.name()).fieldType().stored()).isTrue();
+    assertThat(document.getValue().getField(TrackField.IS_PREFERRED.name()).fieldType().stored()).isFalse();
     assertThat(document.getValue().getField(TrackField.IS_PREFERRED.name()).stringValue()).isEqualTo(Boolean.toString(track.isPreferred()));
+    assertThat(document.getValue().getFields(TrackField.IS_PREFERRED.name())[1].numericValue()).isEqualTo(track.isPreferred() ? 1L : 0L);
 
+    assertThat(document.getValue().getField(TrackField.CONTENT_HASH.name()).stringValue()).isEqualTo(underTest.generateContentHash(track));
     assertThat(document.getValue().getFields(TrackField.GENRE.name())).hasSize(track.getGenres().size());
 
     for (int i = 0; i < track.getGenres().size(); i++) {
@@ -436,110 +1395,98 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
 
   @Test
   @SneakyThrows
-  void shouldNotAddTrackOnException() {
-    doThrow(new RuntimeException("SearchManagerTest.shouldNotAddTrackOnException()")).when(trackWriter)
+  void shouldThrowExceptionWhenAddTrackFails() {
+    doThrow(new IOException("SearchManagerTest.shouldThrowExceptionWhenAddTrackFails()")).when(trackWriter)
         .addDocument(any());
 
-    underTest.addTrack(createTrack(1, createGenre(), createGenre()));
+    assertThatThrownBy(() -> underTest.addTrack(createTrack(1, createGenre(), createGenre())))
+        .isInstanceOf(UncheckedIOException.class);
 
     ArgumentCaptor<Document> document = ArgumentCaptor.forClass(Document.class);
     verify(trackWriter).addDocument(document.capture());
 
-    assertThat(document.getValue().getFields()).hasSize(18);
+    assertThat(document.getValue().getFields()).hasSize(31);
   }
 
   @Test
   @SneakyThrows
-  void shouldGetDistinctTrackFieldValues() {
-    IndexSearcher indexSearcher = mock(IndexSearcher.class);
-    when(trackManager.acquire()).thenReturn(indexSearcher);
-
-    LeafReaderContext leafReaderContext = mock(LeafReaderContext.class);
-    List<LeafReaderContext> leafReaderContexts = singletonList(leafReaderContext);
-
-    doReturn(leafReaderContexts).when(underTest).getLeafReaderContexts(indexSearcher);
+  void shouldUpdateFilterListsWhenIndexRefreshed() {
+    try {
+      doReturn(true).when(underTest).isIndexValid(any());
 
-    LeafReader leafReader = mock(LeafReader.class);
-    when(leafReaderContext.reader()).thenReturn(leafReader);
+      setField(underTest, "trackDirectory", null);
+      setField(underTest, "trackManager", null);
+      setField(underTest, "trackWriter", null);
 
-    Iterator<BytesRef> bytesRefIterator = List.of(new BytesRef("Ref 1"), new BytesRef("Ref 1"), new BytesRef("Ref 2")).iterator();
-    Terms terms = mock(Terms.class);
-    when(leafReader.terms(anyString())).thenReturn(terms);
-    when(terms.iterator()).thenReturn(new TestTermsEnum(bytesRefIterator));
+      underTest.initialise();
 
-    List<String> result = underTest.getDistinctTrackFieldValues(TrackField.ALBUM_ID);
+      assertThat(underTest.getGenreList()).containsExactly(UNSPECIFIED_GENRE);
+      assertThat(underTest.getYearList()).isEmpty();
 
-    assertThat(result).hasSize(2);
-    assertThat(result.get(0)).isEqualTo("Ref 1");
-    assertThat(result.get(1)).isEqualTo("Ref 2");
-  }
+      Track track = createTrack(1, "Rock");
+      track.setYear(2001);
 
-  @Test
-  void shouldFailToGetDistinctTrackFieldValuesIfTrackManagerIsNull() {
-    setField(underTest, "trackManager", null);
+      underTest.addTrack(track);
+      getField(underTest, "trackWriter", IndexWriter.class).commit();
+      getField(underTest, "trackManager", SearcherManager.class).maybeRefreshBlocking();
 
-    assertThatThrownBy(() -> underTest.getDistinctTrackFieldValues(TrackField.ALBUM_ID))
-        .isInstanceOf(RuntimeException.class);
+      assertThat(underTest.getGenreList()).containsExactly(UNSPECIFIED_GENRE, "Rock");
+      assertThat(underTest.getYearList()).containsExactly("2001");
+    } finally {
+      underTest.shutdown();
+    }
   }
 
   @Test
   @SneakyThrows
-  void shouldGetEmptyDistinctTrackFieldValuesWhenTermsNull() {
-    IndexSearcher indexSearcher = mock(IndexSearcher.class);
-    when(trackManager.acquire()).thenReturn(indexSearcher);
-
-    LeafReaderContext leafReaderContext = mock(LeafReaderContext.class);
-    List<LeafReaderContext> leafReaderContexts = singletonList(leafReaderContext);
+  void shouldSaveIndexSnapshotWhenIndexRefreshed() {
+    try {
+      doReturn(true).when(underTest).isIndexValid(any());
+      doReturn(true).when(underTest).isIndexSchemaCurrent();
 
-    doReturn(leafReaderContexts).when(underTest).getLeafReaderContexts(indexSearcher);
+      setField(underTest, "trackDirectory", null);
+      setField(underTest, "trackManager", null);
+      setField(underTest, "trackWriter", null);
 
-    LeafReader leafReader = mock(LeafReader.class);
-    when(leafReaderContext.reader()).thenReturn(leafReader);
-    when(leafReader.terms(anyString())).thenReturn(null);
+      underTest.initialise();
 
-    List<String> result = underTest.getDistinctTrackFieldValues(TrackField.ALBUM_ID);
+      Track track = createTrack(1, "Rock");
+      track.setYear(2001);
 
-    assertThat(result).isEmpty();
-  }
+      underTest.addTrack(track);
+      getField(underTest, "trackWriter", IndexWriter.class).commit();
+      getField(underTest, "trackManager", SearcherManager.class).maybeRefreshBlocking();
 
-  @Test
-  @SneakyThrows
-  void shouldGetEmptyDistinctTrackFieldValuesWhenExceptionThrown() {
-    doThrow(new RuntimeException("SearchManagerTest.shouldGetEmptyDistinctTrackFieldValuesWhenExceptionThrown()"))
-        .when(trackManager).acquire();
+      ArgumentCaptor<IndexSnapshot> indexSnapshot = ArgumentCaptor.forClass(IndexSnapshot.class);
+      verify(settingsService, times(2)).saveIndexSnapshot(indexSnapshot.capture());
 
-    List<String> result = underTest.getDistinctTrackFieldValues(TrackField.ALBUM_ID);
+      IndexSnapshot result = indexSnapshot.getValue();
 
-    assertThat(result).isEmpty();
+      assertThat(result.getSchemaVersion()).isEqualTo(SearchService.INDEX_SCHEMA_VERSION);
+      assertThat(result.getGeneration()).isEqualTo(underTest.getIndexGeneration());
+      assertThat(result.getNumDocs()).isEqualTo(1);
+      assertThat(result.isValid()).isTrue();
+      assertThat(result.getGenres()).containsExactly(UNSPECIFIED_GENRE, "Rock");
+      assertThat(result.getYears()).containsExactly("2001");
+      assertThat(indexSnapshot.getAllValues().getFirst().isValid()).isFalse();
+    } finally {
+      underTest.shutdown();
+    }
   }
 
   @Test
-  @SneakyThrows
-  void shouldGetDistinctTrackFieldValuesIsExceptionThrownOnRelease() {
-    doThrow(new RuntimeException("SearchManagerTest.shouldGetDistinctTrackFieldValuesIsExceptionThrownOnRelease()"))
-        .when(trackManager).release(any());
-
-    IndexSearcher indexSearcher = mock(IndexSearcher.class);
-    when(trackManager.acquire()).thenReturn(indexSearcher);
-
-    LeafReaderContext leafReaderContext = mock(LeafReaderContext.class);
-    List<LeafReaderContext> leafReaderContexts = singletonList(leafReaderContext);
-
-    doReturn(leafReaderContexts).when(underTest).getLeafReaderContexts(indexSearcher);
-
-    LeafReader leafReader = mock(LeafReader.class);
-    when(leafReaderContext.reader()).thenReturn(leafReader);
-
-    Iterator<BytesRef> bytesRefIterator = List.of(new BytesRef("Ref 1"), new BytesRef("Ref 1"), new BytesRef("Ref 2")).iterator();
-    Terms terms = mock(Terms.class);
-    when(leafReader.terms(anyString())).thenReturn(terms);
-    when(terms.iterator()).thenReturn(new TestTermsEnum(bytesRefIterator));
+  void shouldWarmUpSearchWhenApplicationInitialised() {
+    doAnswer(invocation -> {
+      invocation.getArgument(0, Runnable.class).run();
+      return null;
+    }).when(threadRunner).run(any());
+    doReturn(emptyList()).when(underTest).search(any());
+    doReturn(emptyMap()).when(underTest).getFacetCounts();
 
-    List<String> result = underTest.getDistinctTrackFieldValues(TrackField.ALBUM_ID);
+    underTest.eventReceived(APPLICATION_INITIALISED);
 
-    assertThat(result).hasSize(2);
-    assertThat(result.get(0)).isEqualTo("Ref 1");
-    assertThat(result.get(1)).isEqualTo("Ref 2");
+    verify(underTest, times(9)).search(any());
+    verify(underTest).getFacetCounts();
   }
 
   @Test
@@ -547,10 +1494,12 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
   void shouldGetSearchResults() {
     IndexSearcher indexSearcher = mock(IndexSearcher.class);
     when(trackManager.acquire()).thenReturn(indexSearcher);
+    when(applicationProperties.getMaxSearchHits()).thenReturn(100);
 
     ScoreDoc[] scoreDocs = {new ScoreDoc(1, 0), new ScoreDoc(2, 0)};
-    when(indexSearcher.search(any(), anyInt(), any()))
-        .thenReturn(new TopFieldDocs(new TotalHits(scoreDocs.length, EQUAL_TO), scoreDocs, null));
+    when(indexSearcher.search(any(Query.class), any(CollectorManager.class))).thenReturn(new Object[] {
+        new TopFieldDocs(new TotalHits(scoreDocs.length, EQUAL_TO), scoreDocs, null), mock(FacetsCollector.class)});
+    doReturn(emptyMap()).when(underTest).getFacetCounts(any(), any());
     setTrackSearcherDocuments(indexSearcher);
 
     List<Track> result = underTest.search(new TrackSearch("keywords"));
@@ -590,6 +1539,8 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
     assertThat(track2.getGenres()).hasSize(2);
     assertThat(track2.getGenres().get(0)).isEqualTo("Genre 1 2");
     assertThat(track2.getGenres().get(1)).isEqualTo("Genre 2 2");
+
+    verify(metricsService).recordSearchCacheRead(false);
   }
 
   @Test
@@ -625,9 +1576,10 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
   void shouldGetEmptySearchResultsOnException() {
     IndexSearcher indexSearcher = mock(IndexSearcher.class);
     when(trackManager.acquire()).thenReturn(indexSearcher);
+    when(applicationProperties.getMaxSearchHits()).thenReturn(100);
 
     doThrow(new RuntimeException("SearchManagerTest.shouldGetEmptySearchResultsOnException()"))
-        .when(indexSearcher).search(any(), anyInt(), any());
+        .when(indexSearcher).search(any(Query.class), any(CollectorManager.class));
 
     List<Track> result = underTest.search(new TrackSearch("keywords"));
 
@@ -639,10 +1591,12 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
   void shouldGetSearchResultsWhenExceptionThrownOnRelease() {
     IndexSearcher indexSearcher = mock(IndexSearcher.class);
     when(trackManager.acquire()).thenReturn(indexSearcher);
+    when(applicationProperties.getMaxSearchHits()).thenReturn(100);
 
     ScoreDoc[] scoreDocs = {new ScoreDoc(1, 0), new ScoreDoc(2, 0)};
-    when(indexSearcher.search(any(), anyInt(), any()))
-        .thenReturn(new TopFieldDocs(new TotalHits(scoreDocs.length, EQUAL_TO), scoreDocs, null));
+    when(indexSearcher.search(any(Query.class), any(CollectorManager.class))).thenReturn(new Object[] {
+        new TopFieldDocs(new TotalHits(scoreDocs.length, EQUAL_TO), scoreDocs, null), mock(FacetsCollector.class)});
+    doReturn(emptyMap()).when(underTest).getFacetCounts(any(), any());
     setTrackSearcherDocuments(indexSearcher);
 
     doThrow(new RuntimeException("SearchManagerTest.shouldGetSearchResultsWhenExceptionThrownOnRelease()"))
@@ -655,31 +1609,45 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
 
   @Test
   @SneakyThrows
-  void shouldGetShuffledPlaylist() {
-    IndexSearcher indexSearcher = mock(IndexSearcher.class);
+  void shouldGetEmptySearchResultsWhenCancelledBeforeQuery() {
+    List<Track> result = underTest.search(new TrackSearch("keywords"), () -> true);
+
+    assertThat(result).isEmpty();
+    verify(trackManager, never()).acquire();
+  }
 
+  @Test
+  @SneakyThrows
+  void shouldGetEmptySearchResultsWhenCancelledAfterQuery() {
+    IndexSearcher indexSearcher = mock(IndexSearcher.class);
     when(trackManager.acquire()).thenReturn(indexSearcher);
-    doReturn(100).when(underTest).getMaxDoc(indexSearcher);
+    when(applicationProperties.getMaxSearchHits()).thenReturn(100);
 
-    List<ScoreDoc> scoreDocsList = new ArrayList<>();
-    for (int i = 1; i < 10; i++) {
-      scoreDocsList.add(new ScoreDoc(i, 0));
-    }
-    ScoreDoc[] scoreDocs = scoreDocsList.toArray(new ScoreDoc[0]);
+    ScoreDoc[] scoreDocs = {new ScoreDoc(1, 0), new ScoreDoc(2, 0)};
+    when(indexSearcher.search(any(Query.class), any(CollectorManager.class))).thenReturn(new Object[] {
+        new TopFieldDocs(new TotalHits(scoreDocs.length, EQUAL_TO), scoreDocs, null), mock(FacetsCollector.class)});
 
-    when(indexSearcher.search(any(), anyInt())).thenReturn(new TopDocs(new TotalHits(scoreDocs.length, EQUAL_TO), scoreDocs));
-    setTrackSearcherDocuments(indexSearcher);
+    AtomicInteger checks = new AtomicInteger();
+    List<Track> result = underTest.search(new TrackSearch("keywords"), () -> checks.incrementAndGet() > 1);
 
-    setField(underTest, "executorService", Executors.newSingleThreadExecutor());
-    setField(underTest, "secureRandom", new SecureRandom(Long.toString(System.currentTimeMillis()).getBytes()));
+    assertThat(result).isEmpty();
+    verify(underTest, never()).getTrackReader(any());
+    verify(trackManager).release(indexSearcher);
+  }
 
-    List<Track> result = underTest.getShuffledPlaylist(3, null);
+  @Test
+  @SneakyThrows
+  void shouldGetShuffledPlaylist() {
+    IndexSearcher indexSearcher = mock(IndexSearcher.class);
 
-    assertThat(result).hasSize(3);
+    when(trackManager.acquire()).thenReturn(indexSearcher);
+    when(randomDocIdSampler.sample(indexSearcher, null, 3)).thenReturn(new int[] {7, 2, 5});
+    setTrackSearcherDocuments(indexSearcher);
 
-    Set<Track> uniqueResult = new HashSet<>(result);
+    List<Track> result = underTest.getShuffledPlaylist(3, null);
 
-    assertThat(uniqueResult).hasSize(3);
+    // Tracks come back in the order they were sampled
+    assertThat(result).extracting(Track::getTrackId).containsExactly("7897", "7892", "7895");
   }
 
   @Test
@@ -688,20 +1656,10 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
     IndexSearcher indexSearcher = mock(IndexSearcher.class);
 
     when(trackManager.acquire()).thenReturn(indexSearcher);
-    doReturn(100).when(underTest).getMaxDoc(indexSearcher);
-
-    List<ScoreDoc> scoreDocsList = new ArrayList<>();
-    for (int i = 1; i < 10; i++) {
-      scoreDocsList.add(new ScoreDoc(i, 0));
-    }
-    ScoreDoc[] scoreDocs = scoreDocsList.toArray(new ScoreDoc[0]);
-
-    when(indexSearcher.search(any(), anyInt())).thenReturn(new TopDocs(new TotalHits(scoreDocs.length, EQUAL_TO), scoreDocs));
+    when(randomDocIdSampler.sample(indexSearcher, new TermQuery(new Term(TrackField.YEAR.name(), "2001")), 3))
+        .thenReturn(new int[] {1, 2, 3});
     setTrackSearcherDocuments(indexSearcher);
 
-    setField(underTest, "executorService", Executors.newSingleThreadExecutor());
-    setField(underTest, "secureRandom", new SecureRandom(Long.toString(System.currentTimeMillis()).getBytes()));
-
     List<Track> result = underTest.getShuffledPlaylist(3, "2001");
 
     assertThat(result).hasSize(3);
@@ -717,20 +1675,9 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
     IndexSearcher indexSearcher = mock(IndexSearcher.class);
 
     when(trackManager.acquire()).thenReturn(indexSearcher);
-    doReturn(100).when(underTest).getMaxDoc(indexSearcher);
-
-    List<ScoreDoc> scoreDocsList = new ArrayList<>();
-    for (int i = 1; i < 10; i++) {
-      scoreDocsList.add(new ScoreDoc(i, 0));
-    }
-    ScoreDoc[] scoreDocs = scoreDocsList.toArray(new ScoreDoc[0]);
-
-    when(indexSearcher.search(any(), anyInt())).thenReturn(new TopDocs(new TotalHits(scoreDocs.length, EQUAL_TO), scoreDocs));
+    when(randomDocIdSampler.sample(indexSearcher, null, 3)).thenReturn(new int[] {1, 2, 3});
     setTrackSearcherDocuments(indexSearcher);
 
-    setField(underTest, "executorService", Executors.newSingleThreadExecutor());
-    setField(underTest, "secureRandom", new SecureRandom(Long.toString(System.currentTimeMillis()).getBytes()));
-
     doThrow(new RuntimeException("SearchManagerTest.shouldGetShuffledPlaylistWhenExceptionThrownOnRelease()"))
         .when(trackManager).release(any());
 
@@ -749,18 +1696,10 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
     IndexSearcher indexSearcher = mock(IndexSearcher.class);
 
     when(trackManager.acquire()).thenReturn(indexSearcher);
-    doReturn(100).when(underTest).getMaxDoc(indexSearcher);
-
-    List<ScoreDoc> scoreDocsList = new ArrayList<>();
-    for (int i = 1; i < 10; i++) {
-      scoreDocsList.add(new ScoreDoc(i, 0));
-    }
-    ScoreDoc[] scoreDocs = scoreDocsList.toArray(new ScoreDoc[0]);
-
-    when(indexSearcher.search(any(), anyInt())).thenReturn(new TopDocs(new TotalHits(scoreDocs.length, EQUAL_TO), scoreDocs));
+    when(randomDocIdSampler.sample(indexSearcher, null, 20)).thenReturn(new int[] {4, 8, 1, 9, 2, 6, 3, 7, 5});
     setTrackSearcherDocuments(indexSearcher);
 
-    List<Track> result = underTest.getShuffledPlaylist(9, null);
+    List<Track> result = underTest.getShuffledPlaylist(20, null);
 
     assertThat(result).hasSize(9);
 
@@ -782,10 +1721,9 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
     IndexSearcher indexSearcher = mock(IndexSearcher.class);
 
     when(trackManager.acquire()).thenReturn(indexSearcher);
-    doReturn(100).when(underTest).getMaxDoc(indexSearcher);
 
     doThrow(new RuntimeException("SearchManagerTest.shouldGetEmptyShuffledPlaylistOnException()"))
-        .when(indexSearcher).search(any(), anyInt());
+        .when(randomDocIdSampler).sample(indexSearcher, null, 3);
 
     List<Track> result = underTest.getShuffledPlaylist(3, null);
 
@@ -887,6 +1825,57 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
     assertThatThrownBy(() -> underTest.getTrackById("123")).isInstanceOf(RuntimeException.class);
   }
 
+  @Test
+  @SneakyThrows
+  void shouldGetTracksByIdsInRequestedOrder() {
+    IndexSearcher indexSearcher = mock(IndexSearcher.class);
+    when(trackManager.acquire()).thenReturn(indexSearcher);
+
+    ScoreDoc[] scoreDocs = {new ScoreDoc(1, 0), new ScoreDoc(2, 0), new ScoreDoc(3, 0)};
+    when(indexSearcher.search(any(TermInSetQuery.class), anyInt()))
+        .thenReturn(new TopDocs(new TotalHits(scoreDocs.length, EQUAL_TO), scoreDocs));
+    setTrackSearcherDocuments(indexSearcher);
+
+    List<Track> tracks = underTest.getTracksByIds(List.of("7893", "7891", "missing", "7892", "7891"));
+
+    assertThat(tracks).extracting(Track::getTrackId).containsExactly("7893", "7891", "7892", "7891");
+
+    ArgumentCaptor<Integer> maxHits = ArgumentCaptor.forClass(Integer.class);
+    verify(indexSearcher).search(any(TermInSetQuery.class), maxHits.capture());
+
+    assertThat(maxHits.getValue()).isEqualTo(4);
+    verify(metricsService).recordTracksByIds(anyLong());
+  }
+
+  @Test
+  void shouldGetEmptyTracksByIdsWithNoIds() {
+    assertThat(underTest.getTracksByIds(emptyList())).isEmpty();
+    assertThat(underTest.getTracksByIds(null)).isEmpty();
+
+    verifyNoInteractions(trackManager);
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldGetEmptyTracksByIdsOnException() {
+    IndexSearcher indexSearcher = mock(IndexSearcher.class);
+    when(trackManager.acquire()).thenReturn(indexSearcher);
+
+    doThrow(new RuntimeException("SearchManagerTest.shouldGetEmptyTracksByIdsOnException()")).when(indexSearcher)
+        .search(any(), anyInt());
+
+    assertThat(underTest.getTracksByIds(List.of("123"))).isEmpty();
+
+    verify(trackManager).release(indexSearcher);
+  }
+
+  @Test
+  void shouldFailToGetTracksByIdsIfTrackManagerIsNull() {
+    setField(underTest, "trackManager", null);
+
+    assertThatThrownBy(() -> underTest.getTracksByIds(List.of("123"))).isInstanceOf(RuntimeException.class);
+  }
+
   @Test
   @SneakyThrows
   void shouldGetAlbumById() {
@@ -986,26 +1975,44 @@ class SearchServiceTest extends AbstractEventAwareObjectTest {
 
   @SneakyThrows
   private void setTrackSearcherDocuments(IndexSearcher indexSearcher) {
-    StoredFields storedFields = mock(StoredFields.class);
+    TrackReader trackReader = mock(TrackReader.class);
 
-    doReturn(storedFields).when(underTest).getStoredFields(indexSearcher);
+    lenient().doReturn(trackReader).when(underTest).getTrackReader(indexSearcher);
 
     for (int i = 1; i < 10; i++) {
-      Document document = mock(Document.class);
-      lenient().when(document.get(TrackField.ARTIST_ID.name())).thenReturn("123" + i);
-      lenient().when(document.get(TrackField.ARTIST_NAME.name())).thenReturn("Artist Name " + i);
-      lenient().when(document.get(TrackField.ALBUM_ID.name())).thenReturn("456" + i);
-      lenient().when(document.get(TrackField.ALBUM_NAME.name())).thenReturn("Album Name " + i);
-      lenient().when(document.get(TrackField.ALBUM_IMAGE.name())).thenReturn("Album Image " + i);
-      lenient().when(document.get(TrackField.YEAR.name())).thenReturn("200" + i);
-      lenient().when(document.get(TrackField.TRACK_ID.name())).thenReturn("789" + i);
-      lenient().when(document.get(TrackField.TRACK_NAME.name())).thenReturn("Track Name " + i);
-      lenient().when(document.get(TrackField.INDEX.name())).thenReturn(Integer.toString(i));
-      lenient().when(document.get(TrackField.LOCATION.name())).thenReturn("Location " + i);
-      lenient().when(document.get(TrackField.IS_PREFERRED.name())).thenReturn((i % 2 == 0) ? "false" : "true");
-      lenient().when(document.getValues(TrackField.GENRE.name())).thenReturn(new String[]{"Genre 1 " + i, "Genre 2 " + i});
-
-      lenient().when(storedFields.document(i)).thenReturn(document);
+      Track track = Track.builder()
+          .artistId("123" + i)
+          .artistName("Artist Name " + i)
+          .albumId("456" + i)
+          .albumName("Album Name " + i)
+          .albumImage("Album Image " + i)
+          .year(Integer.parseInt("200" + i))
+          .trackId("789" + i)
+          .trackName("Track Name " + i)
+          .index(i)
+          .location("Location " + i)
+          .isPreferred(i % 2 != 0)
+          .genres(List.of("Genre 1 " + i, "Genre 2 " + i))
+          .build();
+
+      lenient().when(trackReader.getTrack(i)).thenReturn(track);
+    }
+
+    lenient().when(trackReader.getTracks(any())).thenAnswer(invocation -> {
+      List<Track> tracks = new ArrayList<>();
+
+      for (ScoreDoc scoreDoc : invocation.<ScoreDoc[]>getArgument(0)) {
+        tracks.add(trackReader.getTrack(scoreDoc.doc));
+      }
+
+      return tracks;
+    });
+  }
+
+  @SneakyThrows
+  private int getSegmentCount(IndexWriter indexWriter) {
+    try (DirectoryReader directoryReader = DirectoryReader.open(indexWriter)) {
+      return directoryReader.leaves().size();
     }
   }
-}
\ No newline at end of file
+}
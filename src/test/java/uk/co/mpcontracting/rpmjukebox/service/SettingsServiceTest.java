@@ -1,10 +1,11 @@
 package uk.co.mpcontracting.rpmjukebox.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyInt;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
@@ -19,7 +20,6 @@ import static uk.co.mpcontracting.rpmjukebox.model.Repeat.ALL;
 import static uk.co.mpcontracting.rpmjukebox.test.util.TestHelper.getConfigDirectory;
 import static uk.co.mpcontracting.rpmjukebox.test.util.TestHelper.getDateTimeInMillis;
 import static uk.co.mpcontracting.rpmjukebox.test.util.TestHelper.getField;
-import static uk.co.mpcontracting.rpmjukebox.test.util.TestHelper.getLocalDateTimeInMillis;
 import static uk.co.mpcontracting.rpmjukebox.test.util.TestHelper.getTestResourceFile;
 import static uk.co.mpcontracting.rpmjukebox.test.util.TestHelper.setField;
 import static uk.co.mpcontracting.rpmjukebox.util.Constants.PLAYLIST_ID_FAVOURITES;
@@ -34,12 +34,13 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
-import java.net.HttpURLConnection;
+import java.net.URI;
 import java.net.URL;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.List;
+import java.util.Map;
 import javafx.geometry.Rectangle2D;
 import javafx.stage.Screen;
 import javafx.stage.Stage;
@@ -53,6 +54,8 @@ import uk.co.mpcontracting.rpmjukebox.config.ApplicationProperties;
 import uk.co.mpcontracting.rpmjukebox.model.Equalizer;
 import uk.co.mpcontracting.rpmjukebox.model.Playlist;
 import uk.co.mpcontracting.rpmjukebox.model.Track;
+import uk.co.mpcontracting.rpmjukebox.settings.DataFeed;
+import uk.co.mpcontracting.rpmjukebox.settings.IndexSnapshot;
 import uk.co.mpcontracting.rpmjukebox.settings.Settings;
 import uk.co.mpcontracting.rpmjukebox.settings.SystemSettings;
 import uk.co.mpcontracting.rpmjukebox.settings.Window;
@@ -69,9 +72,6 @@ class SettingsServiceTest extends AbstractGuiTest {
   @MockBean
   private StringResourceService stringResourceService;
 
-  @MockBean
-  private InternetService internetService;
-
   @MockBean
   private MediaService mediaService;
 
@@ -89,7 +89,6 @@ class SettingsServiceTest extends AbstractGuiTest {
   @BeforeEach
   void beforeEach() {
     underTest = spy(new SettingsService(rpmJukebox, applicationProperties, stringResourceService));
-    setField(underTest, "internetService", internetService);
     setField(underTest, "mediaService", mediaService);
     setField(underTest, "playlistService", playlistService);
     setField(underTest, "searchService", searchService);
@@ -112,6 +111,12 @@ class SettingsServiceTest extends AbstractGuiTest {
 
     lenient().when(applicationProperties.getUserSettingsFile()).thenReturn("rpm-jukebox.json");
     lenient().when(underTest.getFileFromConfigDirectory("rpm-jukebox.json")).thenReturn(new File(getConfigDirectory(), "rpm-jukebox.json"));
+
+    lenient().when(applicationProperties.getIndexSnapshotFile()).thenReturn("index-snapshot.json");
+    lenient().when(underTest.getFileFromConfigDirectory("index-snapshot.json")).thenReturn(new File(getConfigDirectory(), "index-snapshot.json"));
+
+    lenient().when(applicationProperties.getDataFeedSettingsFile()).thenReturn("data-feed.json");
+    lenient().when(underTest.getFileFromConfigDirectory("data-feed.json")).thenReturn(new File(getConfigDirectory(), "data-feed.json"));
   }
 
   @Test
@@ -169,11 +174,11 @@ class SettingsServiceTest extends AbstractGuiTest {
 
   @Test
   @SneakyThrows
-  void shouldShowHttpDataFileHasExpired() {
-    HttpURLConnection httpURLConnection = mock(HttpURLConnection.class);
-    when(dataFile.getProtocol()).thenReturn("http");
-    when(internetService.openConnection(dataFile)).thenReturn(httpURLConnection);
-    when(httpURLConnection.getLastModified()).thenReturn(getDateTimeInMillis(1975, 1, 1, 0, 0));
+  void shouldShowDataFileHasExpired() {
+    URL url = URI.create("http://localhost/data.gz").toURL();
+    setField(underTest, "dataFile", url);
+    doReturn(DataFeed.builder().url(url.toString()).lastModified(getDateTimeInMillis(1975, 1, 1, 0, 0)).build())
+        .when(underTest).loadDataFeed();
     doReturn(LocalDateTime.of(1971, 1, 1, 0, 0)).when(underTest).getLastIndexedDate();
 
     boolean result = underTest.hasDataFileExpired();
@@ -183,26 +188,11 @@ class SettingsServiceTest extends AbstractGuiTest {
 
   @Test
   @SneakyThrows
-  void shouldShowHttpDataFileHasNotExpiredAsLastModifiedNotOneHourOld() {
-    HttpURLConnection httpURLConnection = mock(HttpURLConnection.class);
-    when(dataFile.getProtocol()).thenReturn("http");
-    when(internetService.openConnection(dataFile)).thenReturn(httpURLConnection);
-    when(httpURLConnection.getLastModified())
-        .thenReturn(getLocalDateTimeInMillis(LocalDateTime.now().minusMinutes(30)));
-    doReturn(LocalDateTime.of(1971, 1, 1, 0, 0)).when(underTest).getLastIndexedDate();
-
-    boolean result = underTest.hasDataFileExpired();
-
-    assertThat(result).isFalse();
-  }
-
-  @Test
-  @SneakyThrows
-  void shouldShowHttpDataFileHasNotExpiredAsLastModifiedBeforeLastIndexed() {
-    HttpURLConnection httpURLConnection = mock(HttpURLConnection.class);
-    when(dataFile.getProtocol()).thenReturn("http");
-    when(internetService.openConnection(dataFile)).thenReturn(httpURLConnection);
-    when(httpURLConnection.getLastModified()).thenReturn(getDateTimeInMillis(1971, 1, 1, 0, 0));
+  void shouldShowDataFileHasNotExpiredAsLastModifiedBeforeLastIndexed() {
+    URL url = URI.create("http://localhost/data.gz").toURL();
+    setField(underTest, "dataFile", url);
+    doReturn(DataFeed.builder().url(url.toString()).lastModified(getDateTimeInMillis(1971, 1, 1, 0, 0)).build())
+        .when(underTest).loadDataFeed();
     doReturn(LocalDateTime.of(1975, 1, 1, 0, 0)).when(underTest).getLastIndexedDate();
 
     boolean result = underTest.hasDataFileExpired();
@@ -211,13 +201,8 @@ class SettingsServiceTest extends AbstractGuiTest {
   }
 
   @Test
-  @SneakyThrows
-  void shouldShowHttpDataFileHasNotExpiredOnLastModifiedError() {
-    HttpURLConnection httpURLConnection = mock(HttpURLConnection.class);
-    when(dataFile.getProtocol()).thenReturn("http");
-    when(internetService.openConnection(dataFile)).thenReturn(httpURLConnection);
-    doThrow(new RuntimeException("SettingsManagerTest.shouldShowHttpDataFileHasNotExpiredOnLastModifiedError()"))
-        .when(httpURLConnection).getLastModified();
+  void shouldShowDataFileHasNotExpiredWithNoLocalCopy() {
+    doReturn(null).when(underTest).loadDataFeed();
 
     boolean result = underTest.hasDataFileExpired();
 
@@ -226,10 +211,10 @@ class SettingsServiceTest extends AbstractGuiTest {
 
   @Test
   @SneakyThrows
-  void shouldShowHttpDataFileHasNotExpiredOnConnectionError() {
-    when(dataFile.getProtocol()).thenReturn("http");
-    doThrow(new RuntimeException("SettingsManagerTest.shouldShowHttpDataFileHasNotExpiredOnConnectionError()"))
-        .when(internetService).openConnection(dataFile);
+  void shouldShowDataFileHasNotExpiredWhenLocalCopyIsOfAnotherUrl() {
+    setField(underTest, "dataFile", URI.create("http://localhost/data.gz").toURL());
+    doReturn(DataFeed.builder().url("http://localhost/other.gz").lastModified(getDateTimeInMillis(1975, 1, 1, 0, 0)).build())
+        .when(underTest).loadDataFeed();
 
     boolean result = underTest.hasDataFileExpired();
 
@@ -237,30 +222,18 @@ class SettingsServiceTest extends AbstractGuiTest {
   }
 
   @Test
-  @SneakyThrows
-  void shouldShowFileSystemDataFileHasExpired() {
-    File lastIndexedFile = new File(getConfigDirectory(), "last-indexed");
-    lastIndexedFile.createNewFile();
-    lastIndexedFile.setLastModified(getDateTimeInMillis(1975, 1, 1, 0, 0));
-    when(dataFile.getProtocol()).thenReturn("file");
-    when(dataFile.toURI()).thenReturn(new File(lastIndexedFile.getAbsolutePath()).toURI());
-    doReturn(LocalDateTime.of(1971, 1, 1, 0, 0)).when(underTest).getLastIndexedDate();
-
-    boolean result = underTest.hasDataFileExpired();
-
-    assertThat(result).isTrue();
-  }
-
-  @Test
-  @SneakyThrows
-  void shouldShowFileSystemDataFileHasNotExpiredOnFileReadError() {
-    when(dataFile.getProtocol()).thenReturn("file");
-    doThrow(new RuntimeException("SettingsManagerTest.shouldShowFileSystemDataFileHasNotExpiredOnFileReadError()"))
-        .when(dataFile).toURI();
+  void shouldSaveAndLoadDataFeed() {
+    underTest.saveDataFeed(DataFeed.builder()
+        .url("http://localhost/data.gz")
+        .etag("\"etag\"")
+        .lastModified(123L)
+        .build());
 
-    boolean result = underTest.hasDataFileExpired();
+    DataFeed result = underTest.loadDataFeed();
 
-    assertThat(result).isFalse();
+    assertThat(result.getUrl()).isEqualTo("http://localhost/data.gz");
+    assertThat(result.getEtag()).isEqualTo("\"etag\"");
+    assertThat(result.getLastModified()).isEqualTo(123L);
   }
 
   @Test
@@ -634,6 +607,48 @@ class SettingsServiceTest extends AbstractGuiTest {
     assertThat(result).isNull();
   }
 
+  @Test
+  void shouldSaveAndLoadIndexSnapshot() {
+    underTest.saveIndexSnapshot(IndexSnapshot.builder()
+        .schemaVersion("1")
+        .generation(2L)
+        .numDocs(3)
+        .valid(true)
+        .genres(List.of("", "Rock"))
+        .years(List.of("2001"))
+        .yearCounts(Map.of("2001", 4))
+        .build());
+
+    IndexSnapshot result = underTest.loadIndexSnapshot();
+
+    assertThat(result.getSchemaVersion()).isEqualTo("1");
+    assertThat(result.getGeneration()).isEqualTo(2L);
+    assertThat(result.getNumDocs()).isEqualTo(3);
+    assertThat(result.isValid()).isTrue();
+    assertThat(result.getGenres()).containsExactly("", "Rock");
+    assertThat(result.getYears()).containsExactly("2001");
+    assertThat(result.getYearCounts()).containsExactly(entry("2001", 4));
+  }
+
+  @Test
+  void shouldNotLoadIndexSnapshotIfMissing() {
+    underTest.getFileFromConfigDirectory(applicationProperties.getIndexSnapshotFile()).delete();
+
+    assertThat(underTest.loadIndexSnapshot()).isNull();
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldNotLoadIndexSnapshotFromAnInvalidFile() {
+    File indexSnapshotFile = underTest.getFileFromConfigDirectory(applicationProperties.getIndexSnapshotFile());
+
+    try (FileWriter fileWriter = new FileWriter(indexSnapshotFile)) {
+      fileWriter.write("{ invalid");
+    }
+
+    assertThat(underTest.loadIndexSnapshot()).isNull();
+  }
+
   @Test
   @SneakyThrows
   void shouldLoadUserSettingsFromFile() {
@@ -643,8 +658,7 @@ class SettingsServiceTest extends AbstractGuiTest {
     Files.copy(testSettings, settingsFile);
 
     Track mockTrack = mock(Track.class);
-//    when(searchService.getTrackById("92f9b8ad82601ab97c121239518730108eefa18055ead908e5cdaf369023984b"))
-//        .thenReturn(of(mockTrack));
+//    when(searchService.getTracksByIds(anyList())).thenReturn(List.of(mockTrack));
 
     underTest.loadUserSettings();
     boolean settingsLoaded = getField(underTest, "userSettingsLoaded", Boolean.class);
@@ -654,7 +668,7 @@ class SettingsServiceTest extends AbstractGuiTest {
     verify(playlistService).setShuffle(true, true);
     verify(playlistService).setRepeat(ALL);
     verify(mediaService, times(10)).setEqualizerGain(anyInt(), anyDouble());
-    verify(searchService, times(15)).getTrackById(anyString());
+    verify(searchService, times(3)).getTracksByIds(anyList());
     verify(underTest, never()).saveUserSettings();
   }
 
@@ -686,7 +700,7 @@ class SettingsServiceTest extends AbstractGuiTest {
     verify(playlistService).setShuffle(true, true);
     verify(playlistService).setRepeat(ALL);
     verify(mediaService, never()).setEqualizerGain(anyInt(), anyDouble());
-    verify(searchService, times(15)).getTrackById(anyString());
+    verify(searchService, times(3)).getTracksByIds(anyList());
     verify(underTest, never()).saveUserSettings();
   }
 
@@ -707,7 +721,7 @@ class SettingsServiceTest extends AbstractGuiTest {
     verify(playlistService).setShuffle(true, true);
     verify(playlistService).setRepeat(ALL);
     verify(mediaService, times(10)).setEqualizerGain(anyInt(), anyDouble());
-    verify(searchService, never()).getTrackById(anyString());
+    verify(searchService, never()).getTracksByIds(anyList());
     verify(underTest, never()).saveUserSettings();
   }
 
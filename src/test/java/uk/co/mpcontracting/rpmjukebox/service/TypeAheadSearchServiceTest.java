@@ -0,0 +1,179 @@
+package uk.co.mpcontracting.rpmjukebox.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.co.mpcontracting.rpmjukebox.test.util.TestDataHelper.createTrack;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.co.mpcontracting.rpmjukebox.config.ApplicationProperties;
+import uk.co.mpcontracting.rpmjukebox.search.TrackSearch;
+import uk.co.mpcontracting.rpmjukebox.search.TrackSearchResult;
+import uk.co.mpcontracting.rpmjukebox.util.ThreadRunner;
+
+@ExtendWith(MockitoExtension.class)
+class TypeAheadSearchServiceTest {
+
+  @Mock
+  private ThreadRunner threadRunner;
+
+  @Mock
+  private ApplicationProperties applicationProperties;
+
+  @Mock
+  private SearchService searchService;
+
+  private ScheduledExecutorService scheduledExecutorService;
+  private List<TrackSearchResult> publishedResults;
+
+  private TypeAheadSearchService underTest;
+
+  @BeforeEach
+  void beforeEach() {
+    scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
+    publishedResults = new CopyOnWriteArrayList<>();
+
+    underTest = new TypeAheadSearchService(threadRunner, scheduledExecutorService, applicationProperties, searchService);
+
+    // Run background and GUI work on the calling thread
+    lenient().doAnswer(invocation -> {
+      invocation.getArgument(0, Runnable.class).run();
+      return null;
+    }).when(threadRunner).run(any());
+    lenient().doAnswer(invocation -> {
+      invocation.getArgument(0, Runnable.class).run();
+      return null;
+    }).when(threadRunner).runOnGui(any());
+  }
+
+  @AfterEach
+  void afterEach() {
+    scheduledExecutorService.shutdownNow();
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldPublishSearchResults() {
+    when(applicationProperties.getSearchDebounceMillis()).thenReturn(10L);
+
+    TrackSearch trackSearch = new TrackSearch("keywords");
+    TrackSearchResult result = new TrackSearchResult(List.of(createTrack(1), createTrack(2)), Map.of());
+    when(searchService.searchWithFacets(eq(trackSearch), any())).thenReturn(result);
+
+    // Wait for the whole GUI update as the latency is recorded after the results are published
+    CountDownLatch latch = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      invocation.getArgument(0, Runnable.class).run();
+      latch.countDown();
+      return null;
+    }).when(threadRunner).runOnGui(any());
+
+    underTest.search(trackSearch, publishedResults::add);
+
+    assertThat(latch.await(2, TimeUnit.SECONDS)).isTrue();
+    assertThat(publishedResults).containsExactly(result);
+    assertThat(underTest.getCompletedSearches()).isEqualTo(1);
+    assertThat(underTest.getLastLatencyMillis()).isGreaterThanOrEqualTo(10);
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldOnlySearchForLatestRequestWithinDebounce() {
+    when(applicationProperties.getSearchDebounceMillis()).thenReturn(200L);
+
+    TrackSearch latestSearch = new TrackSearch("abc");
+    TrackSearchResult latestResult = new TrackSearchResult(List.of(createTrack(1)), Map.of());
+    when(searchService.searchWithFacets(eq(latestSearch), any())).thenReturn(latestResult);
+
+    CountDownLatch latch = new CountDownLatch(1);
+    underTest.search(new TrackSearch("a"), publishedResults::add);
+    underTest.search(new TrackSearch("ab"), publishedResults::add);
+    underTest.search(latestSearch, result -> {
+      publishedResults.add(result);
+      latch.countDown();
+    });
+
+    assertThat(latch.await(2, TimeUnit.SECONDS)).isTrue();
+    assertThat(publishedResults).containsExactly(latestResult);
+    verify(searchService, never()).searchWithFacets(eq(new TrackSearch("a")), any());
+    verify(searchService, never()).searchWithFacets(eq(new TrackSearch("ab")), any());
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldNotPublishSupersededSearchResults() {
+    when(applicationProperties.getSearchDebounceMillis()).thenReturn(0L);
+
+    TrackSearch slowSearch = new TrackSearch("slow");
+    TrackSearch latestSearch = new TrackSearch("latest");
+    TrackSearchResult latestResult = new TrackSearchResult(List.of(createTrack(2)), Map.of());
+    CountDownLatch slowSearchStarted = new CountDownLatch(1);
+    CountDownLatch releaseSlowSearch = new CountDownLatch(1);
+
+    doAnswer(invocation -> {
+      slowSearchStarted.countDown();
+      releaseSlowSearch.await(2, TimeUnit.SECONDS);
+      return new TrackSearchResult(List.of(createTrack(1)), Map.of());
+    }).when(searchService).searchWithFacets(eq(slowSearch), any());
+    when(searchService.searchWithFacets(eq(latestSearch), any())).thenReturn(latestResult);
+
+    // The debounce runs on a single thread, so the slow search is started from a separate
+    // thread to let the latest search be scheduled while it's still running
+    lenient().doAnswer(invocation -> {
+      Thread.ofVirtual().start(invocation.getArgument(0, Runnable.class));
+      return null;
+    }).when(threadRunner).run(any());
+
+    underTest.search(slowSearch, publishedResults::add);
+
+    assertThat(slowSearchStarted.await(2, TimeUnit.SECONDS)).isTrue();
+
+    CountDownLatch latch = new CountDownLatch(1);
+    underTest.search(latestSearch, result -> {
+      publishedResults.add(result);
+      latch.countDown();
+    });
+
+    assertThat(latch.await(2, TimeUnit.SECONDS)).isTrue();
+
+    releaseSlowSearch.countDown();
+
+    verify(threadRunner, after(500).times(1)).runOnGui(any());
+
+    assertThat(publishedResults).containsExactly(latestResult);
+    assertThat(underTest.getSupersededSearches()).isEqualTo(1);
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldNotSearchWhenCancelled() {
+    when(applicationProperties.getSearchDebounceMillis()).thenReturn(100L);
+
+    underTest.search(new TrackSearch("keywords"), publishedResults::add);
+    underTest.cancel();
+
+    Thread.sleep(300);
+
+    verify(searchService, never()).searchWithFacets(any(), any());
+    assertThat(publishedResults).isEmpty();
+  }
+}
@@ -0,0 +1,139 @@
+package uk.co.mpcontracting.rpmjukebox.test.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+// Writes a data file in the same B/A/T '|@|' format as the real feed, with names made up from a fixed
+// vocabulary so searches for those words hit a realistic share of the catalogue. Album and track counts
+// vary around the averages given, as do artist genres, album years and preferred tracks. The same seed
+// always produces the same catalogue
+public class CatalogueGenerator {
+
+  private static final String[] WORDS = {"love", "night", "blue", "fire", "river", "dream", "heart", "summer",
+      "rain", "city", "gold", "shadow", "light", "road", "stone", "wild", "electric", "midnight", "silver", "ocean",
+      "ghost", "paper", "glass", "thunder", "velvet", "winter", "echo", "neon", "desert", "crystal", "storm", "garden"};
+
+  private static final String[] GENRES = {"rock", "heavy metal", "drum &amp; bass", "indie pop", "jazz fusion",
+      "hip hop", "folk", "progressive rock", "punk", "electronic"};
+
+  private final int artists;
+  private final int albumsPerArtist;
+  private final int tracksPerAlbum;
+  private final long seed;
+
+  private int trackCount;
+
+  public CatalogueGenerator(int artists, int albumsPerArtist, int tracksPerAlbum, long seed) {
+    this.artists = artists;
+    this.albumsPerArtist = albumsPerArtist;
+    this.tracksPerAlbum = tracksPerAlbum;
+    this.seed = seed;
+  }
+
+  // The number of tracks written by the last call to generate
+  public int getTrackCount() {
+    return trackCount;
+  }
+
+  public File generate(File dataFile) throws IOException {
+    Random random = new Random(seed);
+
+    trackCount = 0;
+
+    try (Writer writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(dataFile)), UTF_8))) {
+      for (int artist = 0; artist < artists; artist++) {
+        writeLine(writer, "B", Integer.toString(100000 + artist), randomWords(random, 2) + " " + artist, "",
+            "Biography of artist " + artist, "Members", randomGenres(random));
+
+        int firstYear = 1960 + random.nextInt(60);
+
+        for (int album = 0, albums = aroundAverage(random, albumsPerArtist); album < albums; album++) {
+          String albumName = randomWords(random, 2);
+
+          writeLine(writer, "A", artist + "-" + album, albumName, "",
+              Integer.toString(Math.min(2025, firstYear + album + random.nextInt(3))), albumName);
+
+          for (int track = 1, tracks = aroundAverage(random, tracksPerAlbum); track <= tracks; track++) {
+            // Most tracks take their genres from the artist
+            writeLine(writer, "T", artist + "-" + album + "-" + track, randomWords(random, 3), "Location",
+                Boolean.toString(random.nextInt(8) == 0), Integer.toString(track),
+                random.nextInt(4) == 0 ? GENRES[random.nextInt(GENRES.length)] : "");
+
+            trackCount++;
+          }
+        }
+      }
+    }
+
+    return dataFile;
+  }
+
+  // A mix of whole words, type-ahead prefixes and two word searches
+  public List<String> generateKeywords(int count) {
+    List<String> keywords = new ArrayList<>(count);
+    Random random = new Random(seed + 1);
+
+    for (int i = 0; i < count; i++) {
+      String word = WORDS[random.nextInt(WORDS.length)];
+
+      keywords.add(switch (i % 3) {
+        case 0 -> word;
+        case 1 -> word.substring(0, 2);
+        default -> word + " " + WORDS[random.nextInt(WORDS.length)];
+      });
+    }
+
+    return keywords;
+  }
+
+  // Between 1 and twice the average - 1, so the mean is the average given
+  private int aroundAverage(Random random, int average) {
+    return average > 1 ? 1 + random.nextInt(average * 2 - 1) : average;
+  }
+
+  // Some artists have no genres, which the parser treats as unspecified
+  private String randomGenres(Random random) {
+    int count = random.nextInt(10) == 0 ? 0 : 1 + random.nextInt(3);
+    StringBuilder genres = new StringBuilder();
+
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        genres.append(',');
+      }
+
+      genres.append(GENRES[random.nextInt(GENRES.length)]);
+    }
+
+    return genres.toString();
+  }
+
+  private String randomWords(Random random, int count) {
+    StringBuilder words = new StringBuilder();
+
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        words.append(' ');
+      }
+
+      String word = WORDS[random.nextInt(WORDS.length)];
+      words.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+    }
+
+    return words.toString();
+  }
+
+  private void writeLine(Writer writer, String... fields) throws IOException {
+    writer.write(String.join("|@|", fields));
+    writer.write('\n');
+  }
+}
@@ -0,0 +1,119 @@
+package uk.co.mpcontracting.rpmjukebox.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FeedLineTokenizerTest {
+
+  private FeedLineTokenizer underTest;
+
+  @BeforeEach
+  void beforeEach() {
+    underTest = new FeedLineTokenizer();
+  }
+
+  @Test
+  void shouldTokenizeTheSameAsSplittingAndTrimming() {
+    List<String> lines = List.of(
+        "B|@|1|@|Artist|@||@|Biography|@|Members|@|rock,pop",
+        "A|@|1|@|Album|@||@|2000|@|Album",
+        "T|@|1|@|Track|@|Location|@|false|@|1|@|",
+        "T|@|1|@|Track|@|Location|@|false|@|1|@||@||@|",
+        "T|@|1|@|Track|@|Location|@|false|@|1|@| |@|",
+        " T |@| 1 |@|\tTrack\t|@|Location|@|true|@| 12 |@| rock ",
+        "|@|leading",
+        "|@||@|",
+        "|@|",
+        "",
+        "   ",
+        "no delimiter",
+        "a|@|@|b",
+        "a|@@|b|@",
+        "a||@||b",
+        "T|@|1|@|Track|@|Location|@|false|@|1|@|rock|@|a|@|b|@|c|@|d|@|e|@|f|@|g|@|h|@|i|@|j|@|k|@|l|@|m"
+    );
+
+    for (String line : lines) {
+      assertThat(tokenize(line)).as(line).isEqualTo(splitAndTrim(line));
+    }
+  }
+
+  @Test
+  void shouldReuseTokenizerForEachLine() {
+    underTest.tokenize("T|@|1|@|Track|@|Location|@|false|@|1|@|rock|@|a|@|b|@|c|@|d|@|e|@|f|@|g|@|h|@|i|@|j|@|k");
+
+    assertThat(underTest.getFieldCount()).isEqualTo(18);
+
+    underTest.tokenize("A|@|1");
+
+    assertThat(underTest.getFieldCount()).isEqualTo(2);
+    assertThat(underTest.getField(1)).isEqualTo("1");
+    assertThat(underTest.getField(2)).isNull();
+  }
+
+  @Test
+  void shouldCompareFieldWithoutCreatingString() {
+    underTest.tokenize(" T |@|Track|@|");
+
+    assertThat(underTest.fieldEquals(0, "T")).isTrue();
+    assertThat(underTest.fieldEquals(0, "t")).isFalse();
+    assertThat(underTest.fieldEquals(1, "Trac")).isFalse();
+    assertThat(underTest.fieldEquals(1, "Track")).isTrue();
+    assertThat(underTest.fieldEquals(2, "")).isFalse();
+  }
+
+  @Test
+  void shouldGetIntField() {
+    underTest.tokenize("T|@| 12 |@|-3|@|");
+
+    assertThat(underTest.getIntField(1, -1)).isEqualTo(12);
+    assertThat(underTest.getIntField(2, -1)).isEqualTo(-3);
+    assertThat(underTest.getIntField(3, -1)).isEqualTo(-1);
+    assertThat(underTest.getIntegerField(1)).isEqualTo(12);
+    assertThat(underTest.getIntegerField(3)).isNull();
+  }
+
+  @Test
+  void shouldThrowNumberFormatExceptionForInvalidIntField() {
+    underTest.tokenize("T|@|twelve|@| |@|x");
+
+    assertThatThrownBy(() -> underTest.getIntField(1, -1)).isInstanceOf(NumberFormatException.class);
+    assertThatThrownBy(() -> underTest.getIntegerField(2)).isInstanceOf(NumberFormatException.class);
+  }
+
+  @Test
+  void shouldGetBooleanFieldTheSameAsParseBoolean() {
+    underTest.tokenize("T|@|true|@| TRUE |@|false|@|yes|@|truer|@|");
+
+    for (int i = 0; i < 7; i++) {
+      assertThat(underTest.getBooleanField(i)).isEqualTo(Boolean.parseBoolean(underTest.getField(i)));
+    }
+  }
+
+  private List<String> tokenize(String line) {
+    underTest.tokenize(line);
+
+    List<String> fields = new ArrayList<>();
+
+    for (int i = 0; i < underTest.getFieldCount(); i++) {
+      fields.add(underTest.getField(i));
+    }
+
+    return fields;
+  }
+
+  private List<String> splitAndTrim(String line) {
+    List<String> fields = new ArrayList<>();
+
+    for (String field : line.split("\\|@\\|")) {
+      fields.add(field.trim());
+    }
+
+    return fields;
+  }
+}
@@ -0,0 +1,100 @@
+package uk.co.mpcontracting.rpmjukebox.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.co.mpcontracting.rpmjukebox.util.Constants.UNSPECIFIED_GENRE;
+
+import java.util.List;
+import java.util.Scanner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GenreNormaliserTest {
+
+  private GenreNormaliser underTest;
+
+  @BeforeEach
+  void beforeEach() {
+    underTest = new GenreNormaliser();
+  }
+
+  @Test
+  void shouldNormaliseTheSameAsTheScannerImplementation() {
+    List<String> genres = List.of("rock", "Rock", "heavy metal", "drum &amp; bass", "rock &amp; roll &amp; blues",
+        "hip-hop", "r&b", "80s pop", "Unknown", "NONE", "other", "0", "rpm", "RPM", "Children's songs", "Childrens",
+        " indie", "indie ", "\tjazz fusion", "ßchlager", "élan vital", "new wave/punk", ".dot", "x", "a b c d");
+
+    for (String genre : genres) {
+      assertThat(underTest.normalise(genre, true)).as(genre).isEqualTo(scannerCleanGenre(genre, true));
+      assertThat(underTest.normalise(genre, false)).as(genre).isEqualTo(scannerCleanGenre(genre, false));
+    }
+  }
+
+  @Test
+  void shouldReturnUnspecifiedForBlankArtistGenre() {
+    assertThat(underTest.normalise(null, true)).isEqualTo(UNSPECIFIED_GENRE);
+    assertThat(underTest.normalise("", true)).isEqualTo(UNSPECIFIED_GENRE);
+  }
+
+  @Test
+  void shouldReturnNullForBlankTrackGenre() {
+    assertThat(underTest.normalise(null, false)).isNull();
+    assertThat(underTest.normalise("", false)).isNull();
+  }
+
+  @Test
+  void shouldCollapseRepeatedSpaces() {
+    assertThat(underTest.normalise("heavy  metal", true)).isEqualTo("Heavy Metal");
+    assertThat(underTest.normalise("heavy metal   ", true)).isEqualTo("Heavy Metal");
+  }
+
+  @Test
+  void shouldUpperCaseLiteralFirstCharacter() {
+    assertThat(underTest.normalise("(live) recordings", true)).isEqualTo("(live) Recordings");
+    assertThat(underTest.normalise("$ounds", true)).isEqualTo("$ounds");
+    assertThat(underTest.normalise("^up", true)).isEqualTo("^up");
+  }
+
+  @Test
+  void shouldMemoiseNormalisedGenres() {
+    String first = underTest.normalise("heavy metal", true);
+    String second = underTest.normalise("heavy metal", true);
+
+    assertThat(second).isSameAs(first);
+    assertThat(underTest.getCacheSize()).isEqualTo(1);
+
+    underTest.normalise("heavy metal", false);
+
+    assertThat(underTest.getCacheSize()).isEqualTo(2);
+  }
+
+  // The original implementation, used as the reference for normal genres
+  private String scannerCleanGenre(String genre, boolean blankIsUnspecified) {
+    if (genre == null || genre.isEmpty()) {
+      return blankIsUnspecified ? UNSPECIFIED_GENRE : null;
+    }
+
+    if (genre.equalsIgnoreCase("Unknown") || genre.equalsIgnoreCase("None") || genre.equalsIgnoreCase("Other")
+        || genre.equalsIgnoreCase("0")) {
+      return UNSPECIFIED_GENRE;
+    }
+
+    if (genre.equalsIgnoreCase("rpm")) {
+      return "RPM";
+    }
+
+    if (genre.startsWith("Children")) {
+      return "Children's Music";
+    }
+
+    try {
+      StringBuilder builder = new StringBuilder();
+      Scanner scanner = new Scanner(genre.replaceAll("&amp;", "&")).useDelimiter(" ");
+      scanner.forEachRemaining(token -> builder.append(token.replaceFirst(token.substring(0, 1),
+          token.substring(0, 1).toUpperCase())).append(' '));
+
+      return builder.toString().trim();
+    } catch (Exception e) {
+      return UNSPECIFIED_GENRE;
+    }
+  }
+}
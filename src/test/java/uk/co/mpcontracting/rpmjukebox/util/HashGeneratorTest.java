@@ -1,8 +1,17 @@
 package uk.co.mpcontracting.rpmjukebox.util;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -60,4 +69,66 @@ class HashGeneratorTest {
 
     assertThat(hash1).isEqualTo(hash2);
   }
-}
\ No newline at end of file
+
+  @Test
+  @SneakyThrows
+  void shouldGenerateTheSameHashFromACharSequence() {
+    String hash = underTest.generateHash(new StringBuilder("Object 1"));
+
+    assertThat(hash).isEqualTo("9c98295d0c3d33bf3ba088bfa61e7c781c6e6cc95d4cdc9ce98c1ee070424c4a");
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldGenerateTheSameHashFromBytes() {
+    String hash = underTest.generateHash("Object 1".getBytes(UTF_8));
+
+    assertThat(hash).isEqualTo("9c98295d0c3d33bf3ba088bfa61e7c781c6e6cc95d4cdc9ce98c1ee070424c4a");
+  }
+
+  @Test
+  void shouldThrowExceptionWithEmptyCharSequence() {
+    assertThatThrownBy(() -> underTest.generateHash(new StringBuilder())).isInstanceOf(RuntimeException.class);
+    assertThatThrownBy(() -> underTest.generateHash((CharSequence) null)).isInstanceOf(RuntimeException.class);
+  }
+
+  @Test
+  void shouldThrowIllegalArgumentExceptionWithEmptyBytes() {
+    assertThatThrownBy(() -> underTest.generateHash(new byte[0])).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> underTest.generateHash((byte[]) null)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldGenerateTheSameHashAsBigIntegerHexEncoding() {
+    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+    for (int i = 0; i < 1000; i++) {
+      String key = "music/" + i + "/\u00e9l\u00e8ve/" + (i * 31);
+      String expected = String.format("%064x", new BigInteger(1, digest.digest(key.getBytes(UTF_8))));
+
+      assertThat(underTest.generateHash(key)).isEqualTo(expected);
+      assertThat(underTest.generateHash((Object) key)).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  void shouldGenerateHashesConcurrently() {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    try {
+      List<Future<String>> futures = new ArrayList<>();
+
+      for (int i = 0; i < 1000; i++) {
+        futures.add(executor.submit(() -> underTest.generateHash("Object 1")));
+      }
+
+      for (Future<String> future : futures) {
+        assertThat(future.get(10, TimeUnit.SECONDS)).isEqualTo("9c98295d0c3d33bf3ba088bfa61e7c781c6e6cc95d4cdc9ce98c1ee070424c4a");
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}